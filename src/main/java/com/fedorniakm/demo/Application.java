@@ -2,8 +2,13 @@ package com.fedorniakm.demo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 
-@SpringBootApplication
+@SpringBootApplication(exclude = {
+		R2dbcAutoConfiguration.class,
+		R2dbcTransactionManagerAutoConfiguration.class
+})
 public class Application {
 
 	public static void main(String[] args) {
@@ -0,0 +1,51 @@
+package com.fedorniakm.demo.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fedorniakm.demo.converter.EpochDayModule;
+import com.fedorniakm.demo.converter.UserProtobufHttpMessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * CBOR, Smile and protobuf representations next to JSON. The binary formats write dates as epoch days.
+ * <p>
+ * The CBOR and Smile converters that Spring registers by default are replaced in place,
+ * so JSON stays the first choice when the client accepts any type.
+ */
+@Configuration(proxyBeanMethods = false)
+public class ContentNegotiationConfiguration implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    public ContentNegotiationConfiguration(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder) {
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+                || converter instanceof MappingJackson2SmileHttpMessageConverter);
+        converters.add(cborConverter());
+        converters.add(smileConverter());
+        converters.add(new UserProtobufHttpMessageConverter());
+    }
+
+    private MappingJackson2CborHttpMessageConverter cborConverter() {
+        var objectMapper = objectMapperBuilder.getObject().factory(new CBORFactory()).build();
+        return new MappingJackson2CborHttpMessageConverter(objectMapper.registerModule(new EpochDayModule()));
+    }
+
+    private MappingJackson2SmileHttpMessageConverter smileConverter() {
+        var objectMapper = objectMapperBuilder.getObject().factory(new SmileFactory()).build();
+        return new MappingJackson2SmileHttpMessageConverter(objectMapper.registerModule(new EpochDayModule()));
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.fedorniakm.demo.config;
+
+import com.fedorniakm.demo.persistence.routing.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+
+/**
+ * Opt-in read replicas, enabled with a comma-separated list of JDBC URLs in {@code user.datasource.replica-urls}.
+ * <p>
+ * The {@code spring.datasource} database stays the primary, taking the writes and the reads that must see them.
+ * Read-only transactions go to the replicas, connecting with the credentials of the primary.
+ * See {@link ReplicaRoutingDataSource} and {@link com.fedorniakm.demo.persistence.routing.ConsistencyTokenFilter}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnExpression("!'${user.datasource.replica-urls:}'.isBlank()")
+public class DataSourceRoutingConfiguration {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+                                                             @Value("${user.datasource.replica-urls}") String replicaUrls) {
+        var primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        var replicas = new ArrayList<DataSource>();
+        for (var url : StringUtils.commaDelimitedListToStringArray(replicaUrls)) {
+            if (url.isBlank()) {
+                continue;
+            }
+            var replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(properties.determineUsername())
+                    .password(properties.determinePassword())
+                    .build();
+            replica.setPoolName("replica-" + replicas.size());
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas);
+    }
+
+    /**
+     * Takes the connection only at the first statement, once the transaction is known to be read-only or not.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.fedorniakm.demo.config;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Opt-in virtual-thread execution mode, enabled with {@code spring.threads.virtual.enabled=true}.
+ * <p>
+ * Spring Boot then serves every request, and the service and repository calls made on it,
+ * on a new virtual thread instead of the Tomcat worker pool. Streamed responses run
+ * on virtual threads as well. Virtual threads need a Java 21 runtime; on an older one
+ * the property is ignored and the thread pool is kept, which is reported at startup.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class ExecutionModeConfiguration {
+
+    private static final Log log = LogFactory.getLog(ExecutionModeConfiguration.class);
+
+    public ExecutionModeConfiguration(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            log.info("Handling requests on virtual threads.");
+        } else {
+            log.warn("Virtual threads are enabled, but Java " + Runtime.version().feature()
+                    + " does not support them. Handling requests on the platform thread pool.");
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.fedorniakm.demo.config;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
+
+/**
+ * R2DBC access for the reactive variant of the API, enabled with {@code spring.main.web-application-type=reactive}.
+ * <p>
+ * The JPA mapping stays in place next to it and keeps managing the schema. That is why Spring Boot's
+ * R2DBC auto-configuration is excluded and the connection factory is not exposed as a bean:
+ * either would make the JDBC and JPA auto-configuration back off.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfiguration implements DisposableBean {
+
+    private final ConnectionFactory connectionFactory;
+
+    public ReactiveConfiguration(@Value("${spring.r2dbc.url}") String url,
+                                 @Value("${spring.r2dbc.username:}") String username,
+                                 @Value("${spring.r2dbc.password:}") String password) {
+        var options = ConnectionFactoryOptions.parse(url).mutate();
+        if (StringUtils.hasText(username)) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (StringUtils.hasText(password)) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        this.connectionFactory = ConnectionFactories.get(options.build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient() {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    @Bean
+    public TransactionalOperator transactionalOperator() {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionFactory instanceof Disposable pool) {
+            pool.dispose();
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.fedorniakm.demo.config;
+
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+import com.fedorniakm.demo.service.store.DurableUserStore;
+import com.fedorniakm.demo.service.store.HeapUserStore;
+import com.fedorniakm.demo.service.store.MappedUserStore;
+import com.fedorniakm.demo.service.store.PartitionedUserStore;
+import com.fedorniakm.demo.service.store.UserStore;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Store of the in-memory {@link com.fedorniakm.demo.service.SimpleUserService}: on the heap by default,
+ * memory-mapped files in the {@code user.store.path} directory when it is set, on the heap
+ * with a write-ahead log and snapshots in the {@code user.wal.path} directory when that one is set,
+ * or split into {@code user.store.partitions} partitions each owned by a thread when it is above 0.
+ */
+@Configuration(proxyBeanMethods = false)
+public class UserStoreConfiguration {
+
+    @Bean
+    public UserStore userStore(UserPatcher userPatcher,
+                               @Value("${user.store.path:}") String path,
+                               @Value("${user.store.chunk-size}") DataSize chunkSize,
+                               @Value("${user.wal.path:}") String walPath,
+                               @Value("${user.wal.commit-window}") Duration commitWindow,
+                               @Value("${user.wal.snapshot-interval}") Duration snapshotInterval,
+                               @Value("${user.store.partitions}") int partitions) throws IOException {
+        if (!path.isBlank()) {
+            return MappedUserStore.open(Path.of(path), Math.toIntExact(chunkSize.toBytes()), userPatcher);
+        }
+        if (!walPath.isBlank()) {
+            return DurableUserStore.open(Path.of(walPath), userPatcher, commitWindow, snapshotInterval);
+        }
+        if (partitions > 0) {
+            return new PartitionedUserStore(userPatcher, partitions);
+        }
+        return new HeapUserStore(userPatcher);
+    }
+
+    /**
+     * Publishes the footprint of the store, for the stores that report one.
+     */
+    @Bean
+    public MeterBinder userStoreMetrics(UserStore userStore) {
+        return userStore instanceof MeterBinder binder ? binder : registry -> { };
+    }
+
+}
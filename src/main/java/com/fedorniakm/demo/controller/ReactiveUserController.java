@@ -0,0 +1,86 @@
+package com.fedorniakm.demo.controller;
+
+import com.fedorniakm.demo.model.Data;
+import com.fedorniakm.demo.model.DateRange;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.ReactiveUserService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The same contract as {@link UserController}, served by WebFlux on top of R2DBC.
+ */
+@RestController
+@RequestMapping(path = "/v1/users",
+        consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveUserController {
+
+    private final ReactiveUserService userService;
+
+    @GetMapping
+    public Mono<Data<List<User>>> getAllUsers(@Valid DateRange dateRange) {
+        return userService.getAll(Optional.ofNullable(dateRange.getFrom()), Optional.ofNullable(dateRange.getTo()))
+                .collectList()
+                .map(Data::of);
+    }
+
+    /**
+     * Every user is written as soon as it is read, and rows are only fetched as fast as the client consumes them.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<User> streamUsersAsNdjson(@Valid DateRange dateRange) {
+        return userService.getAll(Optional.ofNullable(dateRange.getFrom()), Optional.ofNullable(dateRange.getTo()));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<Data<User>> getUserById(@PathVariable Long id) {
+        return userService.getById(id)
+                .map(Data::of)
+                .defaultIfEmpty(Data.of(null));
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<String>> createUser(@Valid @RequestBody Data<User> userData) {
+        Objects.requireNonNull(userData.data(),
+                "Incoming user fields must be wrapped the \"data\" field.");
+        return userService.create(userData.data())
+                .map(createdUser -> ResponseEntity.created(URI.create("/v1/users/" + createdUser.getId())).build());
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<String>> replaceUser(@PathVariable Long id,
+                                                    @Valid @RequestBody Data<User> user) {
+        user.data().setId(id);
+        return userService.replace(user.data())
+                .map(isReplaced -> isReplaced ? ResponseEntity.ok().build() : ResponseEntity.notFound().build());
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<String>> updateUser(@PathVariable Long id,
+                                                   @Valid @RequestBody Data<UserPatch> userPatch) {
+        return userService.patch(id, userPatch.data())
+                .map(isPatched -> isPatched ? ResponseEntity.ok().build() : ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<String>> deleteUserById(@PathVariable Long id) {
+        return userService.deleteById(id)
+                .map(isDeleted -> isDeleted ? ResponseEntity.ok().build() : ResponseEntity.noContent().build());
+    }
+
+}
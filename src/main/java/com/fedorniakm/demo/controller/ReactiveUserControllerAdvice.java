@@ -0,0 +1,40 @@
+package com.fedorniakm.demo.controller;
+
+import com.fedorniakm.demo.model.Errors;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.util.Objects;
+
+/**
+ * Reports WebFlux input errors in the same shape as {@link UserControllerAdvice} does for Spring MVC.
+ */
+@RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserControllerAdvice extends UserControllerAdvice {
+
+    @ExceptionHandler({WebExchangeBindException.class})
+    public ResponseEntity<Errors> handleWebExchangeBindException(WebExchangeBindException e) {
+        return badRequest(e);
+    }
+
+    @ExceptionHandler({ServerWebInputException.class})
+    public ResponseEntity<Errors> handleServerWebInputException(ServerWebInputException e) {
+        var errors = new Errors();
+        if (e.getCause() instanceof TypeMismatchException mismatch && Objects.nonNull(e.getMethodParameter())) {
+            errors.addError(HttpStatus.BAD_REQUEST.value(),
+                    "Param [" + e.getMethodParameter().getParameterName() + "] is not valid",
+                    "Param is expected to be " + mismatch.getRequiredType().getSimpleName());
+        } else {
+            errors.addError(HttpStatus.BAD_REQUEST.value(), e.getReason(), "");
+        }
+        return ResponseEntity.badRequest().body(errors);
+    }
+
+}
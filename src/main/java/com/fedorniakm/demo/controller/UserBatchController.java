@@ -0,0 +1,153 @@
+package com.fedorniakm.demo.controller;
+
+import com.fedorniakm.demo.model.BatchItemResult;
+import com.fedorniakm.demo.model.BulkResult;
+import com.fedorniakm.demo.model.Data;
+import com.fedorniakm.demo.model.DateRange;
+import com.fedorniakm.demo.model.Errors;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.DuplicateEmailException;
+import com.fedorniakm.demo.service.UserService;
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Bulk operations on the Users resource.
+ */
+@RestController
+@RequestMapping(path = "/v1",
+        consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequiredArgsConstructor
+public class UserBatchController {
+
+    private final UserService userService;
+    private final Validator validator;
+
+    /**
+     * Creates the users. Every item is validated on its own, and checked for an email that a user already has
+     * or that an earlier item has, so an invalid or conflicting item is reported back without failing the rest
+     * of the batch. An email taken by another request meanwhile still fails the whole batch.
+     */
+    @PostMapping("/users:batch")
+    public ResponseEntity<Data<List<BatchItemResult>>> createUsers(@RequestBody Data<List<User>> usersData) {
+        Objects.requireNonNull(usersData,
+                "Incoming users must be wrapped the \"data\" field.");
+        Objects.requireNonNull(usersData.data(),
+                "Incoming users must be wrapped the \"data\" field.");
+        var users = usersData.data();
+        var results = new BatchItemResult[users.size()];
+        var validUsers = new ArrayList<User>();
+        var validIndexes = new ArrayList<Integer>();
+        var candidates = new ArrayList<Integer>();
+        for (int i = 0; i < users.size(); i++) {
+            var errors = validate(users.get(i), i);
+            if (errors.getErrors().isEmpty()) {
+                candidates.add(i);
+            } else {
+                results[i] = BatchItemResult.invalid(errors);
+            }
+        }
+        var takenEmails = userService.getTakenEmails(candidates.stream()
+                .map(i -> users.get(i).getEmail())
+                .toList());
+        var itemsByEmail = new HashMap<String, Integer>();
+        for (var i : candidates) {
+            var email = users.get(i).getEmail();
+            var key = User.emailKey(email);
+            var earlier = itemsByEmail.putIfAbsent(key, i);
+            if (takenEmails.contains(key)) {
+                results[i] = conflict(i, new DuplicateEmailException(email).getMessage());
+            } else if (Objects.nonNull(earlier)) {
+                results[i] = conflict(i, "Item [data[" + earlier + "]] has the same email.");
+            } else {
+                validUsers.add(users.get(i));
+                validIndexes.add(i);
+            }
+        }
+        var createdUsers = userService.createAll(validUsers);
+        for (int i = 0; i < createdUsers.size(); i++) {
+            results[validIndexes.get(i)] = BatchItemResult.created(createdUsers.get(i).getId());
+        }
+        return ResponseEntity.ok(Data.of(Arrays.asList(results)));
+    }
+
+    /**
+     * Applies one patch to the users selected either by {@code ids} or by the {@code from}/{@code to} birth date range.
+     */
+    @PatchMapping("/users:batch")
+    public ResponseEntity<Data<BulkResult>> patchUsers(@RequestParam(required = false) List<Long> ids,
+                                                       @Valid DateRange dateRange,
+                                                       @Valid @RequestBody Data<UserPatch> userPatch) {
+        Objects.requireNonNull(userPatch.data(),
+                "Incoming patch fields must be wrapped the \"data\" field.");
+        requireSingleSelector(ids, dateRange);
+        var patched = Objects.nonNull(ids)
+                ? userService.patchAll(ids, userPatch.data())
+                : userService.patchAll(
+                        Optional.ofNullable(dateRange.getFrom()),
+                        Optional.ofNullable(dateRange.getTo()),
+                        userPatch.data());
+        return ResponseEntity.ok(Data.of(BulkResult.of(patched)));
+    }
+
+    /**
+     * Deletes the users selected either by {@code ids} or by the {@code from}/{@code to} birth date range.
+     */
+    @DeleteMapping("/users:batch")
+    public ResponseEntity<Data<BulkResult>> deleteUsers(@RequestParam(required = false) List<Long> ids,
+                                                        @Valid DateRange dateRange) {
+        requireSingleSelector(ids, dateRange);
+        var deleted = Objects.nonNull(ids)
+                ? userService.deleteAll(ids)
+                : userService.deleteAll(
+                        Optional.ofNullable(dateRange.getFrom()),
+                        Optional.ofNullable(dateRange.getTo()));
+        return ResponseEntity.ok(Data.of(BulkResult.of(deleted)));
+    }
+
+    private static void requireSingleSelector(List<Long> ids, DateRange dateRange) {
+        var hasRange = Objects.nonNull(dateRange.getFrom()) || Objects.nonNull(dateRange.getTo());
+        if (Objects.nonNull(ids) == hasRange) {
+            throw new IllegalArgumentException(
+                    "Either [ids] or [from]/[to] params must be provided, but not both.");
+        }
+    }
+
+    private static BatchItemResult conflict(int index, String detail) {
+        var errors = new Errors();
+        errors.addError(HttpStatus.CONFLICT.value(), "Field [data[" + index + "].email] is not unique.", detail);
+        return BatchItemResult.conflict(errors);
+    }
+
+    private Errors validate(User user, int index) {
+        var errors = new Errors();
+        if (Objects.isNull(user)) {
+            errors.addError(HttpStatus.BAD_REQUEST.value(),
+                    "Item [data[" + index + "]] is not valid.",
+                    "must not be null");
+            return errors;
+        }
+        validator.validate(user).forEach(violation -> errors.addError(
+                HttpStatus.BAD_REQUEST.value(),
+                "Field [data[" + index + "]." + violation.getPropertyPath() + "] is not valid.",
+                violation.getMessage()));
+        return errors;
+    }
+
+}
@@ -1,44 +1,212 @@
 package com.fedorniakm.demo.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fedorniakm.demo.converter.BinaryMediaTypes;
 import com.fedorniakm.demo.model.Data;
 import com.fedorniakm.demo.model.DateRange;
+import com.fedorniakm.demo.model.SparseUser;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserField;
+import com.fedorniakm.demo.model.UserFields;
 import com.fedorniakm.demo.model.UserPatch;
 import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.persistence.routing.ReadConsistency;
+import com.fedorniakm.demo.service.UserRangeCache;
 import com.fedorniakm.demo.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.time.LocalDate;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping(path = "/v1/users",
-        consumes = MediaType.APPLICATION_JSON_VALUE,
-        produces = MediaType.APPLICATION_JSON_VALUE)
+        consumes = {
+                MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_CBOR_VALUE,
+                BinaryMediaTypes.APPLICATION_SMILE_VALUE,
+                BinaryMediaTypes.APPLICATION_PROTOBUF_VALUE
+        },
+        produces = {
+                MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_CBOR_VALUE,
+                BinaryMediaTypes.APPLICATION_SMILE_VALUE,
+                BinaryMediaTypes.APPLICATION_PROTOBUF_VALUE
+        })
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequiredArgsConstructor
 public class UserController {
 
+    private static final List<MediaType> PRODUCIBLE_TYPES = List.of(
+            MediaType.APPLICATION_JSON,
+            MediaType.APPLICATION_CBOR,
+            BinaryMediaTypes.APPLICATION_SMILE,
+            BinaryMediaTypes.APPLICATION_PROTOBUF);
+
     private final UserService userService;
+    private final UserRangeCache userRangeCache;
+    private final ObjectMapper objectMapper;
+
+    @Value("${user.page.default-limit}")
+    private int defaultPageLimit;
+
+    @Value("${user.page.max-limit}")
+    private int maxPageLimit;
+
+    @GetMapping(params = "!email")
+    public ResponseEntity<?> getAllUsers(@Valid DateRange dateRange,
+                                         @RequestParam(required = false) Integer limit,
+                                         @RequestParam(required = false) UserCursor after,
+                                         @RequestParam(required = false) UserFields fields,
+                                         WebRequest request) {
+        var from = Optional.ofNullable(dateRange.getFrom());
+        var to = Optional.ofNullable(dateRange.getTo());
+        if (Objects.isNull(limit) && Objects.isNull(after)) {
+            // Clients that must see their own writes skip the cached listings, which may come from a replica.
+            if (Objects.isNull(fields) && prefersJson(request) && !ReadConsistency.isPrimaryRequired()) {
+                return cachedListing(from, to, request);
+            }
+            // Answers 304 from the revision alone, before any user is loaded.
+            var eTag = userService.getRevision(from, to).eTag(representation(request, fields));
+            if (request.checkNotModified(eTag)) {
+                return null;
+            }
+            var users = Objects.isNull(fields)
+                    ? userService.getAll(from, to)
+                    : userService.getAll(from, to, fields);
+            return ResponseEntity.ok()
+                    .eTag(eTag)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(Data.of(sparse(users, fields)));
+        }
+        var pageLimit = Math.min(Math.max(Objects.requireNonNullElse(limit, defaultPageLimit), 1), maxPageLimit);
+        var page = userService.getPage(from, to, Optional.ofNullable(after), pageLimit);
+        var response = ResponseEntity.ok();
+        page.nextCursor().ifPresent(next -> response.header(HttpHeaders.LINK,
+                "<" + nextPageUri(next, pageLimit) + ">; rel=\"next\""));
+        return response.body(Data.of(sparse(page.content(), fields)));
+    }
+
+    /**
+     * Serves the whole listing as JSON, serialized and compressed only once until a user within the range changes.
+     */
+    private ResponseEntity<byte[]> cachedListing(Optional<LocalDate> from, Optional<LocalDate> to,
+                                                 WebRequest request) {
+        var listing = userRangeCache.get(from, to);
+        if (listing.isEmpty()) {
+            var stamp = userRangeCache.stamp();
+            var eTag = userService.getRevision(from, to).eTag(representation(request, null));
+            if (request.checkNotModified(eTag)) {
+                return null;
+            }
+            var body = serialize(Data.of(userService.getAll(from, to)));
+            listing = Optional.of(userRangeCache.put(from, to, stamp, eTag, body));
+        } else if (request.checkNotModified(listing.get().eTag())) {
+            return null;
+        }
+        var response = ResponseEntity.ok()
+                .eTag(listing.get().eTag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (Objects.nonNull(listing.get().gzippedBody()) && acceptsGzip(request)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(listing.get().gzippedBody());
+        }
+        return response.body(listing.get().body());
+    }
+
+    /**
+     * Lists the user with the email, ignoring case, if there is one.
+     */
+    @GetMapping(params = "email")
+    public ResponseEntity<Data<?>> getUsersByEmail(@RequestParam String email,
+                                                   @RequestParam(required = false) UserFields fields) {
+        if (email.isBlank()) {
+            throw new IllegalArgumentException("Email must not be blank.");
+        }
+        var users = userService.getByEmail(email).stream().toList();
+        return ResponseEntity.ok(Data.of(sparse(users, fields)));
+    }
 
-    @GetMapping
-    public ResponseEntity<Data<List<User>>> getAllUsers(@Valid DateRange dateRange) {
-        var data = Data.of(userService.getAll(
-                Optional.ofNullable(dateRange.getFrom()),
-                Optional.ofNullable(dateRange.getTo())
-        ));
-        return ResponseEntity.ok(data);
+    @GetMapping(params = "!email", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsersAsNdjson(@Valid DateRange dateRange,
+                                                                     @RequestParam(required = false) UserFields fields) {
+        var from = Optional.ofNullable(dateRange.getFrom());
+        var to = Optional.ofNullable(dateRange.getTo());
+        // Written on another thread, with the read consistency of the request.
+        var primaryUntil = ReadConsistency.primaryUntil();
+        StreamingResponseBody body = out -> {
+            var writer = streamingWriter();
+            try (var consistency = ReadConsistency.requirePrimaryUntil(primaryUntil);
+                 var generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                userService.forEach(from, to, user -> {
+                    writeUser(writer, generator, sparse(user, fields));
+                    writeNewLine(generator);
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping(params = {"stream=true", "!email"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsersAsJson(@Valid DateRange dateRange,
+                                                                   @RequestParam(required = false) UserFields fields) {
+        var from = Optional.ofNullable(dateRange.getFrom());
+        var to = Optional.ofNullable(dateRange.getTo());
+        var primaryUntil = ReadConsistency.primaryUntil();
+        StreamingResponseBody body = out -> {
+            var writer = streamingWriter();
+            try (var consistency = ReadConsistency.requirePrimaryUntil(primaryUntil);
+                 var generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("data");
+                userService.forEach(from, to, user -> writeUser(writer, generator, sparse(user, fields)));
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Data<User>> getUserById(@PathVariable Long id) {
-        var user = userService.getById(id).orElse(null);
-        var data = Data.of(user);
-        return ResponseEntity.ok(data);
+    public ResponseEntity<Data<?>> getUserById(@PathVariable Long id,
+                                               @RequestParam(required = false) UserFields fields,
+                                               WebRequest request) {
+        var user = Objects.isNull(fields)
+                ? userService.getById(id)
+                : userService.getById(id, fields);
+        var response = ResponseEntity.ok();
+        user.filter(found -> Objects.nonNull(found.getVersion()))
+                .ifPresent(found -> response
+                        .eTag("\"" + found.getVersion() + "-" + representation(request, fields) + "\"")
+                        .lastModified(found.getUpdatedAt())
+                        .varyBy(HttpHeaders.ACCEPT));
+        // Spring answers 304 by itself when the ETag or Last-Modified matches the request.
+        return response.body(Data.of(user.map(found -> sparse(found, fields)).orElse(null)));
     }
 
     @PostMapping
@@ -74,4 +242,98 @@ public class UserController {
         return isDeleted ? ResponseEntity.ok().build() : ResponseEntity.noContent().build();
     }
 
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Whether JSON is the representation the content negotiation would pick for the request.
+     */
+    private static boolean prefersJson(WebRequest request) {
+        return negotiatedType(request).filter(MediaType.APPLICATION_JSON::equals).isPresent();
+    }
+
+    /**
+     * @return The producible type the content negotiation would pick for the request, none if no type is acceptable.
+     */
+    private static Optional<MediaType> negotiatedType(WebRequest request) {
+        var accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (Objects.isNull(accept)) {
+            return Optional.of(MediaType.APPLICATION_JSON);
+        }
+        return MediaType.parseMediaTypes(accept).stream()
+                .sorted(Comparator.comparingDouble(MediaType::getQualityValue).reversed())
+                .filter(mediaType -> mediaType.getQualityValue() > 0)
+                .flatMap(mediaType -> PRODUCIBLE_TYPES.stream().filter(mediaType::isCompatibleWith).limit(1))
+                .findFirst();
+    }
+
+    /**
+     * Names the representation the request gets, its media type and, if sparse, its fields, so that the entity tags
+     * of the representations of a resource differ and a client switching between them never gets a wrong 304.
+     */
+    private static String representation(WebRequest request, UserFields fields) {
+        var subtype = negotiatedType(request).orElse(MediaType.APPLICATION_JSON).getSubtype();
+        if (Objects.isNull(fields)) {
+            return subtype;
+        }
+        return subtype + "-" + fields.fields().stream()
+                .map(UserField::propertyName)
+                .collect(Collectors.joining("+"));
+    }
+
+    private static boolean acceptsGzip(WebRequest request) {
+        var acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return Objects.nonNull(acceptEncoding) && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    /**
+     * Leaves flushing to the servlet output buffer instead of flushing after every user.
+     */
+    private ObjectWriter streamingWriter() {
+        return objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Limits the representation to the requested fields, or keeps it whole if no fields were requested.
+     */
+    private static List<?> sparse(List<User> users, UserFields fields) {
+        if (Objects.isNull(fields)) {
+            return users;
+        }
+        return users.stream().map(user -> new SparseUser(user, fields)).toList();
+    }
+
+    private static Object sparse(User user, UserFields fields) {
+        return Objects.isNull(fields) ? user : new SparseUser(user, fields);
+    }
+
+    private static void writeUser(ObjectWriter writer, JsonGenerator generator, Object user) {
+        try {
+            writer.writeValue(generator, user);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeNewLine(JsonGenerator generator) {
+        try {
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String nextPageUri(UserCursor next, int limit) {
+        return ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("limit", limit)
+                .replaceQueryParam("after", next.encode())
+                .build()
+                .toUriString();
+    }
+
 }
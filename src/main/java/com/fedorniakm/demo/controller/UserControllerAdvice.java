@@ -1,7 +1,11 @@
 package com.fedorniakm.demo.controller;
 
 import com.fedorniakm.demo.model.Errors;
+import com.fedorniakm.demo.service.DuplicateEmailException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.*;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -10,19 +14,24 @@ import org.springframework.web.method.annotation.MethodArgumentTypeMismatchExcep
 import java.time.format.DateTimeParseException;
 
 @RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserControllerAdvice {
 
     @ExceptionHandler({MethodArgumentNotValidException.class,})
     public ResponseEntity<Errors> handleMethodArgumentNotValidException(MethodArgumentNotValidException e) {
+        return badRequest(e.getBindingResult());
+    }
+
+    protected static ResponseEntity<Errors> badRequest(BindingResult bindingResult) {
         var errors = new Errors();
-        e.getBindingResult()
+        bindingResult
                 .getGlobalErrors()
                 .forEach(error -> errors.addError(
                         HttpStatus.BAD_REQUEST.value(),
                         error.getDefaultMessage(),
                         ""
                 ));
-        e.getBindingResult()
+        bindingResult
                 .getFieldErrors()
                 .forEach(error -> errors.addError(
                         HttpStatus.BAD_REQUEST.value(),
@@ -50,6 +59,37 @@ public class UserControllerAdvice {
         return ResponseEntity.badRequest().body(errors);
     }
 
+    @ExceptionHandler({IllegalArgumentException.class})
+    public ResponseEntity<Errors> handleIllegalArgumentException(IllegalArgumentException e) {
+        var errors = new Errors();
+        errors.addError(HttpStatus.BAD_REQUEST.value(),
+                e.getMessage(),
+                "");
+        return ResponseEntity.badRequest().body(errors);
+    }
+
+    @ExceptionHandler({DuplicateEmailException.class})
+    public ResponseEntity<Errors> handleDuplicateEmailException(DuplicateEmailException e) {
+        var errors = new Errors();
+        errors.addError(HttpStatus.CONFLICT.value(),
+                e.getMessage(),
+                "");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errors);
+    }
+
+    /**
+     * Raised by the unique index on the email when a duplicate got past the check of the service,
+     * the other constraints being validated before.
+     */
+    @ExceptionHandler({DataIntegrityViolationException.class})
+    public ResponseEntity<Errors> handleDataIntegrityViolationException(DataIntegrityViolationException e) {
+        var errors = new Errors();
+        errors.addError(HttpStatus.CONFLICT.value(),
+                "The user conflicts with an existing one.",
+                "");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errors);
+    }
+
     @ExceptionHandler({NullPointerException.class})
     public ResponseEntity<Errors> handleNullPointerException(NullPointerException e) {
         var errors = new Errors();
@@ -0,0 +1,19 @@
+package com.fedorniakm.demo.converter;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Binary media types negotiated next to JSON. CBOR is {@link MediaType#APPLICATION_CBOR}.
+ */
+public final class BinaryMediaTypes {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+    public static final String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
+    public static final MediaType APPLICATION_PROTOBUF = MediaType.valueOf(APPLICATION_PROTOBUF_VALUE);
+
+    private BinaryMediaTypes() {
+    }
+
+}
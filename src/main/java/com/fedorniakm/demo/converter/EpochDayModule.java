@@ -0,0 +1,54 @@
+package com.fedorniakm.demo.converter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Writes dates as the number of days since 1970-01-01 instead of {@code dd-MM-yyyy} strings.
+ * Meant for the binary formats only: it takes precedence over {@code @JsonFormat} patterns on date properties.
+ */
+public class EpochDayModule extends SimpleModule {
+
+    public EpochDayModule() {
+        super(EpochDayModule.class.getSimpleName());
+        addSerializer(LocalDate.class, new EpochDaySerializer());
+        addDeserializer(LocalDate.class, new EpochDayDeserializer());
+    }
+
+    private static class EpochDaySerializer extends StdScalarSerializer<LocalDate> {
+
+        EpochDaySerializer() {
+            super(LocalDate.class);
+        }
+
+        @Override
+        public void serialize(LocalDate value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(Math.toIntExact(value.toEpochDay()));
+        }
+    }
+
+    private static class EpochDayDeserializer extends StdScalarDeserializer<LocalDate> {
+
+        EpochDayDeserializer() {
+            super(LocalDate.class);
+        }
+
+        @Override
+        public LocalDate deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() != JsonToken.VALUE_NUMBER_INT) {
+                return (LocalDate) context.handleUnexpectedToken(LocalDate.class, parser);
+            }
+            return LocalDate.ofEpochDay(parser.getLongValue());
+        }
+    }
+
+}
@@ -0,0 +1,247 @@
+package com.fedorniakm.demo.converter;
+
+import com.fedorniakm.demo.model.Data;
+import com.fedorniakm.demo.model.Errors;
+import com.fedorniakm.demo.model.SparseUser;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserField;
+import com.fedorniakm.demo.model.UserFields;
+import com.fedorniakm.demo.model.UserPatch;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Reads and writes users in the protobuf wire format described by {@code proto/users.proto},
+ * without generated message classes in between.
+ */
+public class UserProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    private static final int DATA = 1;
+
+    private static final int ID = 1;
+    private static final int EMAIL = 2;
+    private static final int FIRST_NAME = 3;
+    private static final int LAST_NAME = 4;
+    private static final int BIRTH_DATE = 5;
+    private static final int ADDRESS = 6;
+    private static final int PHONE_NUMBER = 7;
+
+    private static final int ERROR_STATUS = 1;
+    private static final int ERROR_MESSAGE = 2;
+    private static final int ERROR_DETAIL = 3;
+
+    public UserProtobufHttpMessageConverter() {
+        super(BinaryMediaTypes.APPLICATION_PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Data.class == clazz || Errors.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        var dataType = dataType(type);
+        return (dataType == User.class || dataType == UserPatch.class) && canRead(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        return readData(dataType(type), inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        return readData(User.class, inputMessage);
+    }
+
+    private Data<?> readData(Class<?> dataType, HttpInputMessage inputMessage) throws IOException {
+        var input = CodedInputStream.newInstance(inputMessage.getBody());
+        try {
+            Object data = null;
+            for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+                if (WireFormat.getTagFieldNumber(tag) != DATA
+                        || WireFormat.getTagWireType(tag) != WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                    input.skipField(tag);
+                    continue;
+                }
+                var limit = input.pushLimit(input.readRawVarint32());
+                data = dataType == UserPatch.class ? readUserPatch(input) : readUser(input);
+                input.popLimit(limit);
+            }
+            return Data.of(data);
+        } catch (IOException | RuntimeException e) {
+            throw new HttpMessageNotReadableException("Invalid protobuf message: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    private static User readUser(CodedInputStream input) throws IOException {
+        var user = new User();
+        user.setAddress(Optional.empty());
+        user.setPhoneNumber(Optional.empty());
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case ID -> user.setId(input.readInt64());
+                case EMAIL -> user.setEmail(input.readString());
+                case FIRST_NAME -> user.setFirstName(input.readString());
+                case LAST_NAME -> user.setLastName(input.readString());
+                case BIRTH_DATE -> user.setBirthDate(LocalDate.ofEpochDay(input.readSInt32()));
+                case ADDRESS -> user.setAddress(Optional.of(input.readString()));
+                case PHONE_NUMBER -> user.setPhoneNumber(Optional.of(input.readString()));
+                default -> input.skipField(tag);
+            }
+        }
+        return user;
+    }
+
+    private static UserPatch readUserPatch(CodedInputStream input) throws IOException {
+        var patch = new UserPatch();
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case EMAIL -> patch.setEmail(input.readString());
+                case FIRST_NAME -> patch.setFirstName(input.readString());
+                case LAST_NAME -> patch.setLastName(input.readString());
+                case BIRTH_DATE -> patch.setBirthDate(LocalDate.ofEpochDay(input.readSInt32()));
+                case ADDRESS -> patch.setAddress(input.readString());
+                case PHONE_NUMBER -> patch.setPhoneNumber(input.readString());
+                default -> input.skipField(tag);
+            }
+        }
+        return patch;
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        var output = CodedOutputStream.newInstance(outputMessage.getBody());
+        if (value instanceof Errors errors) {
+            for (var error : errors.getErrors()) {
+                output.writeTag(DATA, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeUInt32NoTag(errorSize(error));
+                writeError(output, error);
+            }
+        } else if (value instanceof Data<?> data && data.data() instanceof List<?> users) {
+            for (var user : users) {
+                writeUserData(output, user);
+            }
+        } else if (value instanceof Data<?> data && Objects.nonNull(data.data())) {
+            writeUserData(output, data.data());
+        }
+        output.flush();
+    }
+
+    private static void writeUserData(CodedOutputStream output, Object value) throws IOException {
+        if (value instanceof SparseUser sparse) {
+            writeUser(output, sparse.user(), sparse.fields());
+        } else if (value instanceof User user) {
+            writeUser(output, user, UserFields.ALL);
+        } else {
+            throw new HttpMessageNotWritableException("Cannot write [" + value.getClass().getSimpleName()
+                    + "] as " + BinaryMediaTypes.APPLICATION_PROTOBUF_VALUE);
+        }
+    }
+
+    private static void writeUser(CodedOutputStream output, User user, UserFields fields) throws IOException {
+        output.writeTag(DATA, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeUInt32NoTag(userSize(user, fields));
+        if (fields.contains(UserField.ID) && Objects.nonNull(user.getId())) {
+            output.writeInt64(ID, user.getId());
+        }
+        if (fields.contains(UserField.EMAIL) && Objects.nonNull(user.getEmail())) {
+            output.writeString(EMAIL, user.getEmail());
+        }
+        if (fields.contains(UserField.FIRST_NAME) && Objects.nonNull(user.getFirstName())) {
+            output.writeString(FIRST_NAME, user.getFirstName());
+        }
+        if (fields.contains(UserField.LAST_NAME) && Objects.nonNull(user.getLastName())) {
+            output.writeString(LAST_NAME, user.getLastName());
+        }
+        if (fields.contains(UserField.BIRTH_DATE) && Objects.nonNull(user.getBirthDate())) {
+            output.writeSInt32(BIRTH_DATE, Math.toIntExact(user.getBirthDate().toEpochDay()));
+        }
+        var address = present(fields, UserField.ADDRESS, user.getAddress());
+        if (Objects.nonNull(address)) {
+            output.writeString(ADDRESS, address);
+        }
+        var phoneNumber = present(fields, UserField.PHONE_NUMBER, user.getPhoneNumber());
+        if (Objects.nonNull(phoneNumber)) {
+            output.writeString(PHONE_NUMBER, phoneNumber);
+        }
+    }
+
+    private static int userSize(User user, UserFields fields) {
+        var size = 0;
+        if (fields.contains(UserField.ID) && Objects.nonNull(user.getId())) {
+            size += CodedOutputStream.computeInt64Size(ID, user.getId());
+        }
+        if (fields.contains(UserField.EMAIL) && Objects.nonNull(user.getEmail())) {
+            size += CodedOutputStream.computeStringSize(EMAIL, user.getEmail());
+        }
+        if (fields.contains(UserField.FIRST_NAME) && Objects.nonNull(user.getFirstName())) {
+            size += CodedOutputStream.computeStringSize(FIRST_NAME, user.getFirstName());
+        }
+        if (fields.contains(UserField.LAST_NAME) && Objects.nonNull(user.getLastName())) {
+            size += CodedOutputStream.computeStringSize(LAST_NAME, user.getLastName());
+        }
+        if (fields.contains(UserField.BIRTH_DATE) && Objects.nonNull(user.getBirthDate())) {
+            size += CodedOutputStream.computeSInt32Size(BIRTH_DATE, Math.toIntExact(user.getBirthDate().toEpochDay()));
+        }
+        var address = present(fields, UserField.ADDRESS, user.getAddress());
+        if (Objects.nonNull(address)) {
+            size += CodedOutputStream.computeStringSize(ADDRESS, address);
+        }
+        var phoneNumber = present(fields, UserField.PHONE_NUMBER, user.getPhoneNumber());
+        if (Objects.nonNull(phoneNumber)) {
+            size += CodedOutputStream.computeStringSize(PHONE_NUMBER, phoneNumber);
+        }
+        return size;
+    }
+
+    private static String present(UserFields fields, UserField field, Optional<String> value) {
+        return fields.contains(field) && Objects.nonNull(value) ? value.orElse(null) : null;
+    }
+
+    private static void writeError(CodedOutputStream output, Errors.Detail error) throws IOException {
+        output.writeInt32(ERROR_STATUS, error.status());
+        if (Objects.nonNull(error.message())) {
+            output.writeString(ERROR_MESSAGE, error.message());
+        }
+        if (Objects.nonNull(error.detail())) {
+            output.writeString(ERROR_DETAIL, error.detail());
+        }
+    }
+
+    private static int errorSize(Errors.Detail error) {
+        var size = CodedOutputStream.computeInt32Size(ERROR_STATUS, error.status());
+        if (Objects.nonNull(error.message())) {
+            size += CodedOutputStream.computeStringSize(ERROR_MESSAGE, error.message());
+        }
+        if (Objects.nonNull(error.detail())) {
+            size += CodedOutputStream.computeStringSize(ERROR_DETAIL, error.detail());
+        }
+        return size;
+    }
+
+    private static Class<?> dataType(Type type) {
+        var resolvable = ResolvableType.forType(type);
+        return resolvable.resolve() == Data.class ? resolvable.getGeneric(0).resolve() : null;
+    }
+
+}
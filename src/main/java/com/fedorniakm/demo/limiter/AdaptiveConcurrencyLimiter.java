@@ -0,0 +1,89 @@
+package com.fedorniakm.demo.limiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit that adapts to the observed latency, following the gradient algorithm.
+ * <p>
+ * A long-term average of the round trip time stands for the latency without queueing. While the recent
+ * latency stays within {@code tolerance} of it, the limit grows by about its square root per sample.
+ * Once requests start queueing up somewhere below, the latency grows and the limit shrinks
+ * proportionally, down to half of it per sample.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max.");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * @return {@code true} if the request may proceed. It must then be followed by {@link #release(long)}.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            var current = inflight.get();
+            if (current >= getLimit()) {
+                rejected.increment();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends a request admitted by {@link #tryAcquire()} and adjusts the limit to its latency.
+     */
+    public void release(long rttNanos) {
+        var inflightBefore = inflight.getAndDecrement();
+        onSample(Math.max(rttNanos, 1), inflightBefore);
+    }
+
+    private synchronized void onSample(long rtt, int inflightBefore) {
+        longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) / LONG_WINDOW;
+        if (longRtt / rtt > 2) {
+            // Latency dropped a lot, e.g. after a slow period: let the baseline catch up faster.
+            longRtt *= 0.95;
+        }
+        var currentLimit = limit;
+        if (inflightBefore < currentLimit / 2) {
+            // Far from the limit, the latency says nothing about how far it could go.
+            return;
+        }
+        var gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rtt));
+        var newLimit = currentLimit * gradient + Math.sqrt(currentLimit);
+        newLimit = currentLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.fedorniakm.demo.limiter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fedorniakm.demo.model.Errors;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Sheds load on the Users resource before it queues up in front of the database.
+ * Reads and writes have separate {@link AdaptiveConcurrencyLimiter adaptive limits};
+ * a request over the limit is rejected right away with 503 and {@code Retry-After}.
+ */
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final String USERS_PATH = "/v1/users";
+
+    private final ObjectMapper objectMapper;
+    private final AdaptiveConcurrencyLimiter readLimiter;
+    private final AdaptiveConcurrencyLimiter writeLimiter;
+    private final long retryAfterSeconds;
+
+    public ConcurrencyLimitFilter(ObjectMapper objectMapper,
+                                  @Value("${user.limiter.read.initial-limit}") int readInitialLimit,
+                                  @Value("${user.limiter.read.min-limit}") int readMinLimit,
+                                  @Value("${user.limiter.read.max-limit}") int readMaxLimit,
+                                  @Value("${user.limiter.write.initial-limit}") int writeInitialLimit,
+                                  @Value("${user.limiter.write.min-limit}") int writeMinLimit,
+                                  @Value("${user.limiter.write.max-limit}") int writeMaxLimit,
+                                  @Value("${user.limiter.retry-after-seconds}") long retryAfterSeconds) {
+        this.objectMapper = objectMapper;
+        this.readLimiter = new AdaptiveConcurrencyLimiter(readInitialLimit, readMinLimit, readMaxLimit);
+        this.writeLimiter = new AdaptiveConcurrencyLimiter(writeInitialLimit, writeMinLimit, writeMaxLimit);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(USERS_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        var limiter = isRead(request) ? readLimiter : writeLimiter;
+        if (!limiter.tryAcquire()) {
+            reject(response);
+            return;
+        }
+        var start = System.nanoTime();
+        var released = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // Streamed responses hold their permit until the stream is written.
+                request.getAsyncContext().addListener(new ReleasingListener(limiter, start));
+            } else {
+                limiter.release(System.nanoTime() - start);
+            }
+            released = true;
+        } finally {
+            if (!released) {
+                limiter.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        var errors = new Errors();
+        errors.addError(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Too many concurrent requests.",
+                "Retry after " + retryAfterSeconds + " s.");
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errors);
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        var method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Map.of("read", readLimiter, "write", writeLimiter).forEach((kind, limiter) -> {
+            Gauge.builder("user.limiter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("Current concurrency limit")
+                    .tag("kind", kind)
+                    .register(registry);
+            Gauge.builder("user.limiter.inflight", limiter, AdaptiveConcurrencyLimiter::getInflight)
+                    .description("Requests currently admitted")
+                    .tag("kind", kind)
+                    .register(registry);
+            FunctionCounter.builder("user.limiter.rejected", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                    .description("Requests rejected with 503")
+                    .tag("kind", kind)
+                    .register(registry);
+        });
+    }
+
+    AdaptiveConcurrencyLimiter getReadLimiter() {
+        return readLimiter;
+    }
+
+    AdaptiveConcurrencyLimiter getWriteLimiter() {
+        return writeLimiter;
+    }
+
+    private record ReleasingListener(AdaptiveConcurrencyLimiter limiter, long start) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limiter.release(System.nanoTime() - start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+}
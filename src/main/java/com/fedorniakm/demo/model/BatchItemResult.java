@@ -0,0 +1,24 @@
+package com.fedorniakm.demo.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+/**
+ * Outcome of a single item of a batch request: either the id of the created resource
+ * or the errors that prevented it from being created, the item being invalid or conflicting.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchItemResult(int status, Long id, @JsonUnwrapped Errors errors) {
+
+    public static BatchItemResult created(Long id) {
+        return new BatchItemResult(201, id, null);
+    }
+
+    public static BatchItemResult invalid(Errors errors) {
+        return new BatchItemResult(400, null, errors);
+    }
+
+    public static BatchItemResult conflict(Errors errors) {
+        return new BatchItemResult(409, null, errors);
+    }
+}
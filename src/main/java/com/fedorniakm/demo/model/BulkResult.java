@@ -0,0 +1,12 @@
+package com.fedorniakm.demo.model;
+
+/**
+ * Outcome of a set-based operation.
+ * @param affected Number of users the operation was applied to.
+ */
+public record BulkResult(int affected) {
+
+    public static BulkResult of(int affected) {
+        return new BulkResult(affected);
+    }
+}
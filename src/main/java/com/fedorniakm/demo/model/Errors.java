@@ -4,7 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class Errors {
-    private record Detail(int status, String message, String detail) { }
+    public record Detail(int status, String message, String detail) { }
 
     private final List<Detail> errors;
 
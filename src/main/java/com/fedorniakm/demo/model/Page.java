@@ -0,0 +1,33 @@
+package com.fedorniakm.demo.model;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * A slice of a keyset-paginated listing.
+ * @param content Items of the page in listing order.
+ * @param next Cursor to request the following page with, {@code null} on the last page.
+ */
+public record Page<T>(List<T> content, UserCursor next) {
+
+    /**
+     * Builds a page from a result fetched with {@code limit + 1} rows:
+     * the extra row only signals that a next page exists.
+     */
+    public static <T> Page<T> of(List<T> fetched, int limit, Function<T, UserCursor> cursor) {
+        if (fetched.size() <= limit) {
+            return new Page<>(fetched, null);
+        }
+        var content = fetched.subList(0, limit);
+        return new Page<>(content, cursor.apply(content.get(limit - 1)));
+    }
+
+    public Optional<UserCursor> nextCursor() {
+        return Optional.ofNullable(next);
+    }
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
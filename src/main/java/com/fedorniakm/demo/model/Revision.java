@@ -0,0 +1,34 @@
+package com.fedorniakm.demo.model;
+
+import java.time.Instant;
+
+/**
+ * Cheap summary of a set of users that changes whenever any of them is created, changed or deleted.
+ * @param count Number of users in the set.
+ * @param versionSum Sum of the user versions, grows with every change.
+ * @param lastModified Latest modification time within the set, {@code null} for an empty set.
+ */
+public record Revision(long count, long versionSum, Instant lastModified) {
+
+    /**
+     * @return Strong entity tag of the set.
+     */
+    public String eTag() {
+        return "\"" + tag() + "\"";
+    }
+
+    /**
+     * @param representation Tells the representations of the set apart, as they must not share a strong tag.
+     * @return Strong entity tag of the set in the given representation.
+     */
+    public String eTag(String representation) {
+        return "\"" + tag() + "-" + representation + "\"";
+    }
+
+    private String tag() {
+        var modified = lastModified == null ? 0L : lastModified.toEpochMilli();
+        return Long.toHexString(count)
+                + "-" + Long.toHexString(versionSum)
+                + "-" + Long.toHexString(modified);
+    }
+}
@@ -0,0 +1,44 @@
+package com.fedorniakm.demo.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Representation of a user limited to the requested fields.
+ */
+@JsonSerialize(using = SparseUser.Serializer.class)
+public record SparseUser(User user, UserFields fields) {
+
+    /**
+     * Writes the requested properties with the regular {@link User} property writers,
+     * so formats and {@code Optional} handling stay the same as in the full representation.
+     */
+    static class Serializer extends StdSerializer<SparseUser> {
+
+        Serializer() {
+            super(SparseUser.class);
+        }
+
+        @Override
+        public void serialize(SparseUser value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            var userSerializer = provider.findValueSerializer(User.class);
+            var properties = userSerializer.properties();
+            gen.writeStartObject(value.user());
+            while (properties.hasNext()) {
+                var property = properties.next();
+                if (value.fields().includes(property.getName())) {
+                    try {
+                        property.serializeAsField(value.user(), gen, provider);
+                    } catch (Exception e) {
+                        wrapAndThrow(provider, e, value.user(), property.getName());
+                    }
+                }
+            }
+            gen.writeEndObject();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.fedorniakm.demo.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fedorniakm.demo.validation.ValidUserAge;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -8,15 +9,18 @@ import jakarta.validation.constraints.Past;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Locale;
 import java.util.Optional;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class User {
 
     private Long id;
@@ -40,4 +44,27 @@ public class User {
     private Optional<String> address;
     private Optional<String> phoneNumber;
 
+    /**
+     * Revision of the stored user, incremented on every change. Not a part of the representation.
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private Long version;
+
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private Instant updatedAt;
+
+    public User(Long id, String email, String firstName, String lastName, LocalDate birthDate,
+                Optional<String> address, Optional<String> phoneNumber) {
+        this(id, email, firstName, lastName, birthDate, address, phoneNumber, null, null);
+    }
+
+    /**
+     * @return Key under which an email is unique: emails differing only in case belong to the same user.
+     */
+    public static String emailKey(String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
+    }
+
 }
@@ -0,0 +1,56 @@
+package com.fedorniakm.demo.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Opaque keyset position in the users listing, ordered by (birthDate, id).
+ */
+public record UserCursor(LocalDate birthDate, long id) implements Comparable<UserCursor> {
+
+    private static final Comparator<UserCursor> ORDER = Comparator
+            .comparing(UserCursor::birthDate)
+            .thenComparingLong(UserCursor::id);
+
+    public UserCursor {
+        Objects.requireNonNull(birthDate);
+    }
+
+    public static UserCursor of(User user) {
+        return new UserCursor(user.getBirthDate(), user.getId());
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encode()}.
+     * Used by Spring to convert the {@code after} request parameter.
+     */
+    public static UserCursor valueOf(String token) {
+        try {
+            var decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var separator = decoded.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Malformed cursor: " + token);
+            }
+            var epochDay = Long.parseLong(decoded.substring(0, separator));
+            var id = Long.parseLong(decoded.substring(separator + 1));
+            return new UserCursor(LocalDate.ofEpochDay(epochDay), id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + token, e);
+        }
+    }
+
+    public String encode() {
+        var raw = birthDate.toEpochDay() + ":" + id;
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public int compareTo(UserCursor other) {
+        return ORDER.compare(this, other);
+    }
+}
@@ -0,0 +1,36 @@
+package com.fedorniakm.demo.model;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Fields of the {@link User} representation that can be requested separately.
+ */
+public enum UserField {
+    ID("id"),
+    EMAIL("email"),
+    FIRST_NAME("firstName"),
+    LAST_NAME("lastName"),
+    BIRTH_DATE("birthDate"),
+    ADDRESS("address"),
+    PHONE_NUMBER("phoneNumber");
+
+    private final String propertyName;
+
+    UserField(String propertyName) {
+        this.propertyName = propertyName;
+    }
+
+    /**
+     * @return Name of the field in both the JSON representation and the entity.
+     */
+    public String propertyName() {
+        return propertyName;
+    }
+
+    public static Optional<UserField> ofPropertyName(String propertyName) {
+        return Arrays.stream(values())
+                .filter(field -> field.propertyName.equals(propertyName))
+                .findFirst();
+    }
+}
@@ -0,0 +1,53 @@
+package com.fedorniakm.demo.model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Sparse fieldset requested with the {@code fields} param, e.g. {@code fields=id,email}.
+ */
+public record UserFields(Set<UserField> fields) {
+
+    public static final UserFields ALL = new UserFields(EnumSet.allOf(UserField.class));
+
+    public UserFields {
+        fields = Collections.unmodifiableSet(EnumSet.copyOf(fields));
+    }
+
+    /**
+     * Parses a comma separated list of field names.
+     * Used by Spring to convert the {@code fields} request parameter.
+     */
+    public static UserFields valueOf(String names) {
+        var fields = EnumSet.noneOf(UserField.class);
+        for (var name : names.split(",")) {
+            var trimmed = name.trim();
+            if (!trimmed.isEmpty()) {
+                fields.add(UserField.ofPropertyName(trimmed)
+                        .orElseThrow(() -> new IllegalArgumentException("Unknown field: " + trimmed)));
+            }
+        }
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("No fields requested");
+        }
+        return new UserFields(fields);
+    }
+
+    public boolean contains(UserField field) {
+        return fields.contains(field);
+    }
+
+    public boolean includes(String propertyName) {
+        for (var field : fields) {
+            if (field.propertyName().equals(propertyName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isAll() {
+        return fields.size() == UserField.values().length;
+    }
+}
@@ -1,6 +1,7 @@
 package com.fedorniakm.demo.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fedorniakm.demo.validation.NullOrNotEmptyString;
 import com.fedorniakm.demo.validation.ValidUserAge;
@@ -11,6 +12,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
+import java.util.Objects;
 
 @Data
 @AllArgsConstructor
@@ -37,4 +39,17 @@ public class UserPatch {
     private String address;
     private String phoneNumber;
 
+    /**
+     * @return {@code true} if the patch has no fields to apply.
+     */
+    @JsonIgnore
+    public boolean isEmpty() {
+        return Objects.isNull(email)
+                && Objects.isNull(firstName)
+                && Objects.isNull(lastName)
+                && Objects.isNull(birthDate)
+                && Objects.isNull(address)
+                && Objects.isNull(phoneNumber);
+    }
+
 }
@@ -1,19 +1,26 @@
 package com.fedorniakm.demo.persistence.entity;
 
+import com.fedorniakm.demo.model.User;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
+import java.time.Instant;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users",
+        indexes = {
+                @Index(name = "idx_users_birth_date_id", columnList = "birth_date, id"),
+                @Index(name = "idx_users_email_key", columnList = "email_key", unique = true)
+        })
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
-@Builder
 public class UserEntity {
 
         @Id
@@ -23,6 +30,16 @@ public class UserEntity {
         @Column(name = "email", nullable = false)
         private String email;
 
+        /**
+         * The email in lower case, see {@link User#emailKey(String)}, kept unique by the index.
+         * Derived from the email on every insert and update.
+         */
+        @Column(name = "email_key", nullable = false)
+        @Setter(AccessLevel.NONE)
+        @EqualsAndHashCode.Exclude
+        @ToString.Exclude
+        private String emailKey;
+
         @Column(name = "first_name", nullable = false)
         private String firstName;
 
@@ -38,4 +55,37 @@ public class UserEntity {
         @Column(name = "phone_number", nullable = true)
         private String phoneNumber;
 
+        @Version
+        @Column(name = "version", nullable = false)
+        private Long version;
+
+        @Column(name = "updated_at", nullable = false)
+        private Instant updatedAt;
+
+        @Builder
+        public UserEntity(Long id, String email, String firstName, String lastName, LocalDate birthDate,
+                          String address, String phoneNumber, Long version, Instant updatedAt) {
+                this.id = id;
+                this.email = email;
+                this.firstName = firstName;
+                this.lastName = lastName;
+                this.birthDate = birthDate;
+                this.address = address;
+                this.phoneNumber = phoneNumber;
+                this.version = version;
+                this.updatedAt = updatedAt;
+        }
+
+        public UserEntity(Long id, String email, String firstName, String lastName,
+                          LocalDate birthDate, String address, String phoneNumber) {
+                this(id, email, firstName, lastName, birthDate, address, phoneNumber, null, null);
+        }
+
+        @PrePersist
+        @PreUpdate
+        void touch() {
+                emailKey = User.emailKey(email);
+                updatedAt = Instant.now();
+        }
+
 }
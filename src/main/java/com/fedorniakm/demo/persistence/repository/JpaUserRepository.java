@@ -1,81 +1,403 @@
 package com.fedorniakm.demo.persistence.repository;
 
+import com.fedorniakm.demo.model.Revision;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserField;
+import com.fedorniakm.demo.model.UserFields;
+import com.fedorniakm.demo.model.UserPatch;
 import com.fedorniakm.demo.persistence.entity.UserEntity;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
 import lombok.extern.log4j.Log4j2;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
 @Transactional
 public class JpaUserRepository implements UserRepository {
 
+    /**
+     * Parameters bound to one {@code in} list at most.
+     */
+    private static final int MAX_IN_PARAMETERS = 1000;
+
     private final EntityManager em;
+    private final int streamFetchSize;
+    private final int batchSize;
 
-    public JpaUserRepository(EntityManager em) {
+    public JpaUserRepository(EntityManager em,
+                             @Value("${user.stream.fetch-size}") int streamFetchSize,
+                             @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}") int batchSize) {
         this.em = em;
+        this.streamFetchSize = streamFetchSize;
+        this.batchSize = batchSize;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<UserEntity> getAll() {
         return em.createQuery("FROM UserEntity", UserEntity.class).getResultList();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<UserEntity> getAll(Optional<LocalDate> from, Optional<LocalDate> to) {
-        var jpql = "from UserEntity u";
-        if (from.isPresent() || to.isPresent()) {
-            jpql += " where";
-            if (from.isPresent()) {
-                jpql += " u.birthDate > :from";
-            }
-            if (to.isPresent()) {
-                if (from.isPresent()) {
-                    jpql += " and";
-                }
-                jpql += " u.birthDate < :to";
-            }
-        }
-        var query = em.createQuery(jpql, UserEntity.class);
-        from.ifPresent(fromDate -> query.setParameter("from", fromDate));
-        to.ifPresent(toDate -> query.setParameter("to", toDate));
+        return rangeQuery(from, to).getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserEntity> getAll(Optional<LocalDate> from, Optional<LocalDate> to, UserFields fields) {
+        var query = em.createQuery(projection(fields) + where(rangeConditions(from, to)), Tuple.class);
+        bindRange(query, from, to);
+        return query.getResultList().stream()
+                .map(tuple -> toUserEntity(tuple, fields))
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Stream<UserEntity> stream(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return rangeQuery(from, to)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, streamFetchSize)
+                .setHint(AvailableHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .map(entity -> {
+                    // Keep the persistence context from growing with the result size.
+                    em.detach(entity);
+                    return entity;
+                });
+    }
+
+    private TypedQuery<UserEntity> rangeQuery(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var query = em.createQuery("from UserEntity u" + where(rangeConditions(from, to)), UserEntity.class);
+        bindRange(query, from, to);
+        return query;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Revision getRevision(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var query = em.createQuery("select count(u), coalesce(sum(u.version), 0), max(u.updatedAt)"
+                + " from UserEntity u" + where(rangeConditions(from, to)), Object[].class);
+        bindRange(query, from, to);
+        var result = query.getSingleResult();
+        return new Revision(((Number) result[0]).longValue(),
+                ((Number) result[1]).longValue(),
+                (Instant) result[2]);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserEntity> getPage(Optional<LocalDate> from, Optional<LocalDate> to,
+                                    Optional<UserCursor> after, int limit) {
+        var conditions = rangeConditions(from, to);
+        after.ifPresent(cursor -> conditions.add("(u.birthDate > :afterBirthDate"
+                + " or (u.birthDate = :afterBirthDate and u.id > :afterId))"));
+        var jpql = "from UserEntity u" + where(conditions) + " order by u.birthDate, u.id";
+        var query = em.createQuery(jpql, UserEntity.class)
+                .setMaxResults(limit);
+        bindRange(query, from, to);
+        after.ifPresent(cursor -> {
+            query.setParameter("afterBirthDate", cursor.birthDate());
+            query.setParameter("afterId", cursor.id());
+        });
         return query.getResultList();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<UserEntity> getById(Long id) {
         return Optional.ofNullable(em.find(UserEntity.class, id));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<UserEntity> getById(Long id, UserFields fields) {
+        return em.createQuery(projection(fields) + " where u.id = :id", Tuple.class)
+                .setParameter("id", id)
+                .getResultStream()
+                .findFirst()
+                .map(tuple -> toUserEntity(tuple, fields));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<UserEntity> getByEmail(String email) {
+        return em.createQuery("from UserEntity u where u.emailKey = :emailKey", UserEntity.class)
+                .setParameter("emailKey", User.emailKey(email))
+                .getResultStream()
+                .findFirst();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean existsByEmail(String email) {
+        return !em.createQuery("select 1 from UserEntity u where u.emailKey = :emailKey", Integer.class)
+                .setParameter("emailKey", User.emailKey(email))
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * Runs one query per {@value #MAX_IN_PARAMETERS} keys.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Set<String> getTakenEmailKeys(Collection<String> emailKeys) {
+        var keys = List.copyOf(emailKeys);
+        var taken = new HashSet<String>();
+        for (int start = 0; start < keys.size(); start += MAX_IN_PARAMETERS) {
+            taken.addAll(em.createQuery("select u.emailKey from UserEntity u where u.emailKey in :emailKeys",
+                            String.class)
+                    .setParameter("emailKeys", keys.subList(start, Math.min(keys.size(), start + MAX_IN_PARAMETERS)))
+                    .getResultList());
+        }
+        return taken;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Stream<String> streamEmailKeys() {
+        return em.createQuery("select u.emailKey from UserEntity u", String.class)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, streamFetchSize)
+                .getResultStream();
+    }
+
+    /**
+     * Runs one query per {@value #MAX_IN_PARAMETERS} ids. Native, since the PostgreSQL dialect locks
+     * with {@code for no key update}, which H2 does not support, while both support {@code for update}.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<LocalDate> lockBirthDates(Collection<Long> ids) {
+        var idList = List.copyOf(ids);
+        var birthDates = new ArrayList<LocalDate>(idList.size());
+        for (int start = 0; start < idList.size(); start += MAX_IN_PARAMETERS) {
+            birthDates.addAll(em.createNativeQuery("select birth_date from users where id in (:ids) for update",
+                            LocalDate.class)
+                    .setParameter("ids", idList.subList(start, Math.min(idList.size(), start + MAX_IN_PARAMETERS)))
+                    .getResultList());
+        }
+        return birthDates;
+    }
+
     @Override
     public UserEntity create(UserEntity user) {
         em.persist(user);
+        // Insert now, so that a duplicate email fails here rather than at the commit.
+        em.flush();
         return user;
     }
 
     @Override
-    public boolean update(UserEntity user) {
-        var target = em.find(UserEntity.class, user.getId());
-        if (Objects.nonNull(target)) {
-            em.merge(user);
-            return true;
+    public List<UserEntity> createAll(List<UserEntity> users) {
+        for (int i = 0; i < users.size(); i++) {
+            em.persist(users.get(i));
+            if ((i + 1) % batchSize == 0) {
+                // Send the pending batch and release the persisted entities.
+                em.flush();
+                em.clear();
+            }
         }
-        return false;
+        em.flush();
+        em.clear();
+        return users;
+    }
+
+    @Override
+    public boolean update(UserEntity user) {
+        var values = new LinkedHashMap<String, Object>();
+        values.put("email", user.getEmail());
+        values.put("emailKey", User.emailKey(user.getEmail()));
+        values.put("firstName", user.getFirstName());
+        values.put("lastName", user.getLastName());
+        values.put("birthDate", user.getBirthDate());
+        values.put("address", user.getAddress());
+        values.put("phoneNumber", user.getPhoneNumber());
+        return updateById(user.getId(), values);
+    }
+
+    @Override
+    public boolean patch(Long id, UserPatch patch) {
+        return updateById(id, patchedValues(patch));
     }
 
     @Override
     public boolean deleteById(Long id) {
-        var target = em.find(UserEntity.class, id);
-        if (Objects.nonNull(target)) {
-            em.remove(target);
-            return true;
+        return em.createQuery("delete from UserEntity u where u.id = :id")
+                .setParameter("id", id)
+                .executeUpdate() > 0;
+    }
+
+    /**
+     * Sets the values with a single UPDATE statement. The database skips the row when all the values
+     * are already set, so that nothing is written and the version stays. Only when no row was updated,
+     * a second statement tells a user without changes apart from a missing one.
+     */
+    private boolean updateById(Long id, Map<String, Object> values) {
+        if (!values.isEmpty()) {
+            var changed = new ArrayList<String>();
+            values.keySet().forEach(field -> changed.add("u." + field + " is distinct from :" + field));
+            var query = em.createQuery("update UserEntity u set " + assignments(values)
+                    + " where u.id = :id and (" + String.join(" or ", changed) + ")");
+            values.forEach(query::setParameter);
+            query.setParameter("updatedAt", Instant.now());
+            query.setParameter("id", id);
+            if (query.executeUpdate() > 0) {
+                return true;
+            }
+        }
+        return exists(id);
+    }
+
+    private boolean exists(Long id) {
+        return !em.createQuery("select 1 from UserEntity u where u.id = :id", Integer.class)
+                .setParameter("id", id)
+                .getResultList()
+                .isEmpty();
+    }
+
+    @Override
+    public int patchAll(Collection<Long> ids, UserPatch patch) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return bulkPatch(patch, " where u.id in :ids", query -> query.setParameter("ids", ids));
+    }
+
+    @Override
+    public int patchAll(Optional<LocalDate> from, Optional<LocalDate> to, UserPatch patch) {
+        return bulkPatch(patch, where(rangeConditions(from, to)), query -> bindRange(query, from, to));
+    }
+
+    @Override
+    public int deleteAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return em.createQuery("delete from UserEntity u where u.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    @Override
+    public int deleteAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var query = em.createQuery("delete from UserEntity u" + where(rangeConditions(from, to)));
+        bindRange(query, from, to);
+        return query.executeUpdate();
+    }
+
+    /**
+     * Applies the patch with a single UPDATE statement that only sets the fields present in the patch.
+     */
+    private int bulkPatch(UserPatch patch, String where, Consumer<Query> bindWhere) {
+        if (patch.isEmpty()) {
+            return 0;
+        }
+        var values = patchedValues(patch);
+        var query = em.createQuery("update UserEntity u set " + assignments(values) + where);
+        values.forEach(query::setParameter);
+        query.setParameter("updatedAt", Instant.now());
+        bindWhere.accept(query);
+        return query.executeUpdate();
+    }
+
+    /**
+     * Assigns the values, bound by the field names, and maintains the revision and the email key,
+     * since update statements bypass entity callbacks. The update time is bound as {@code updatedAt}.
+     */
+    private static String assignments(Map<String, Object> values) {
+        var assignments = new ArrayList<String>();
+        values.keySet().forEach(field -> assignments.add("u." + field + " = :" + field));
+        assignments.add("u.version = u.version + 1");
+        assignments.add("u.updatedAt = :updatedAt");
+        return String.join(", ", assignments);
+    }
+
+    private static Map<String, Object> patchedValues(UserPatch patch) {
+        var values = new LinkedHashMap<String, Object>();
+        putNonNull(values, "email", patch.getEmail());
+        putNonNull(values, "emailKey", User.emailKey(patch.getEmail()));
+        putNonNull(values, "firstName", patch.getFirstName());
+        putNonNull(values, "lastName", patch.getLastName());
+        putNonNull(values, "birthDate", patch.getBirthDate());
+        putNonNull(values, "address", patch.getAddress());
+        putNonNull(values, "phoneNumber", patch.getPhoneNumber());
+        return values;
+    }
+
+    private static void putNonNull(Map<String, Object> values, String field, Object value) {
+        if (Objects.nonNull(value)) {
+            values.put(field, value);
         }
-        return false;
+    }
+
+    /**
+     * Selects only the requested columns. Version and update time are always selected
+     * to keep conditional requests working on sparse representations.
+     */
+    private static String projection(UserFields fields) {
+        var selections = new ArrayList<String>();
+        fields.fields().forEach(field -> selections.add("u." + field.propertyName() + " as " + field.propertyName()));
+        selections.add("u.version as version");
+        selections.add("u.updatedAt as updatedAt");
+        return "select " + String.join(", ", selections) + " from UserEntity u";
+    }
+
+    private static UserEntity toUserEntity(Tuple tuple, UserFields fields) {
+        var entity = new UserEntity();
+        for (var field : fields.fields()) {
+            var value = tuple.get(field.propertyName());
+            switch (field) {
+                case ID -> entity.setId((Long) value);
+                case EMAIL -> entity.setEmail((String) value);
+                case FIRST_NAME -> entity.setFirstName((String) value);
+                case LAST_NAME -> entity.setLastName((String) value);
+                case BIRTH_DATE -> entity.setBirthDate((LocalDate) value);
+                case ADDRESS -> entity.setAddress((String) value);
+                case PHONE_NUMBER -> entity.setPhoneNumber((String) value);
+            }
+        }
+        entity.setVersion(tuple.get("version", Long.class));
+        entity.setUpdatedAt(tuple.get("updatedAt", Instant.class));
+        return entity;
+    }
+
+    private static List<String> rangeConditions(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var conditions = new ArrayList<String>();
+        from.ifPresent(fromDate -> conditions.add("u.birthDate > :from"));
+        to.ifPresent(toDate -> conditions.add("u.birthDate < :to"));
+        return conditions;
+    }
+
+    private static String where(List<String> conditions) {
+        return conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+    }
+
+    private static void bindRange(Query query, Optional<LocalDate> from, Optional<LocalDate> to) {
+        from.ifPresent(fromDate -> query.setParameter("from", fromDate));
+        to.ifPresent(toDate -> query.setParameter("to", toDate));
     }
 
 }
@@ -0,0 +1,140 @@
+package com.fedorniakm.demo.persistence.repository;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.persistence.entity.UserEntity;
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Works on the {@code users} table mapped by {@link UserEntity}, so both stacks can share one database.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class R2dbcUserRepository implements ReactiveUserRepository {
+
+    private static final String COLUMNS =
+            "id, email, first_name, last_name, birth_date, address, phone_number, version, updated_at";
+
+    private final DatabaseClient databaseClient;
+
+    public R2dbcUserRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<UserEntity> getAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var conditions = new ArrayList<String>();
+        from.ifPresent(fromDate -> conditions.add("birth_date > :from"));
+        to.ifPresent(toDate -> conditions.add("birth_date < :to"));
+        var spec = databaseClient.sql("SELECT " + COLUMNS + " FROM users" + where(conditions)
+                + " ORDER BY birth_date, id");
+        if (from.isPresent()) {
+            spec = spec.bind("from", from.get());
+        }
+        if (to.isPresent()) {
+            spec = spec.bind("to", to.get());
+        }
+        return spec.map(R2dbcUserRepository::toUserEntity).all();
+    }
+
+    @Override
+    public Mono<UserEntity> getById(Long id) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(R2dbcUserRepository::toUserEntity)
+                .one();
+    }
+
+    /**
+     * Takes the id from the sequence shared with the JPA mapping. Every sequence value is handed out only once,
+     * so the id never clashes with the block of ids Hibernate derives from its own values.
+     */
+    @Override
+    public Mono<UserEntity> create(UserEntity user) {
+        return databaseClient.sql("SELECT nextval('users_seq')")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(id -> {
+                    user.setId(id);
+                    user.setVersion(0L);
+                    user.setUpdatedAt(Instant.now());
+                    var spec = databaseClient.sql("INSERT INTO users (" + COLUMNS + ", email_key) VALUES (:id,"
+                            + " :email, :firstName, :lastName, :birthDate, :address, :phoneNumber, :version,"
+                            + " :updatedAt, :emailKey)");
+                    return bindUser(spec, user)
+                            .bind("id", id)
+                            .bind("version", user.getVersion())
+                            .fetch()
+                            .rowsUpdated();
+                })
+                .thenReturn(user);
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(Long id) {
+        return databaseClient.sql("DELETE FROM users WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .map(deleted -> deleted > 0);
+    }
+
+    @Override
+    public Mono<Boolean> update(UserEntity user) {
+        user.setUpdatedAt(Instant.now());
+        var spec = databaseClient.sql("UPDATE users SET email = :email, email_key = :emailKey, first_name = :firstName,"
+                + " last_name = :lastName, birth_date = :birthDate, address = :address,"
+                + " phone_number = :phoneNumber, version = version + 1, updated_at = :updatedAt WHERE id = :id");
+        return bindUser(spec, user)
+                .bind("id", user.getId())
+                .fetch()
+                .rowsUpdated()
+                .map(updated -> updated > 0);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindUser(DatabaseClient.GenericExecuteSpec spec, UserEntity user) {
+        return bindNullable(bindNullable(spec
+                        .bind("email", user.getEmail())
+                        .bind("emailKey", User.emailKey(user.getEmail()))
+                        .bind("firstName", user.getFirstName())
+                        .bind("lastName", user.getLastName())
+                        .bind("birthDate", user.getBirthDate())
+                        .bind("updatedAt", user.getUpdatedAt()),
+                "address", user.getAddress()),
+                "phoneNumber", user.getPhoneNumber());
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec,
+                                                                  String name, String value) {
+        return Objects.isNull(value) ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    private static UserEntity toUserEntity(Readable row) {
+        return new UserEntity(
+                row.get("id", Long.class),
+                row.get("email", String.class),
+                row.get("first_name", String.class),
+                row.get("last_name", String.class),
+                row.get("birth_date", LocalDate.class),
+                row.get("address", String.class),
+                row.get("phone_number", String.class),
+                row.get("version", Long.class),
+                row.get("updated_at", Instant.class));
+    }
+
+    private static String where(List<String> conditions) {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.fedorniakm.demo.persistence.repository;
+
+import com.fedorniakm.demo.persistence.entity.UserEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Non-blocking counterpart of {@link UserRepository}.
+ */
+public interface ReactiveUserRepository {
+
+    /**
+     * Emits the matching users ordered by (birthDate, id), fetching rows only as they are requested downstream.
+     */
+    Flux<UserEntity> getAll(Optional<LocalDate> from, Optional<LocalDate> to);
+
+    Mono<UserEntity> getById(Long id);
+
+    Mono<UserEntity> create(UserEntity user);
+
+    Mono<Boolean> deleteById(Long id);
+
+    Mono<Boolean> update(UserEntity user);
+
+}
@@ -1,22 +1,113 @@
 package com.fedorniakm.demo.persistence.repository;
 
+import com.fedorniakm.demo.model.Revision;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserFields;
+import com.fedorniakm.demo.model.UserPatch;
 import com.fedorniakm.demo.persistence.entity.UserEntity;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface UserRepository {
     List<UserEntity> getAll();
 
     List<UserEntity> getAll(Optional<LocalDate> from, Optional<LocalDate> to);
 
+    /**
+     * Loads only the requested fields, plus the version and the update time.
+     * Other properties of the returned entities are left {@code null} and the entities are not managed.
+     */
+    List<UserEntity> getAll(Optional<LocalDate> from, Optional<LocalDate> to, UserFields fields);
+
+    /**
+     * Lazily fetches matching users from the underlying store.
+     * The stream must be consumed within a transaction and closed afterwards.
+     */
+    Stream<UserEntity> stream(Optional<LocalDate> from, Optional<LocalDate> to);
+
+    /**
+     * Summarizes the matching users without loading them.
+     */
+    Revision getRevision(Optional<LocalDate> from, Optional<LocalDate> to);
+
+    /**
+     * Keyset page of users ordered by (birthDate, id).
+     * @param after Exclusive position to continue from, empty for the first page.
+     * @param limit Maximum number of users to return.
+     */
+    List<UserEntity> getPage(Optional<LocalDate> from, Optional<LocalDate> to,
+                             Optional<UserCursor> after, int limit);
+
     Optional<UserEntity> getById(Long id);
 
+    /**
+     * Loads only the requested fields, see {@link #getAll(Optional, Optional, UserFields)}.
+     */
+    Optional<UserEntity> getById(Long id, UserFields fields);
+
+    /**
+     * Finds the user by the unique index on the email, ignoring case.
+     */
+    Optional<UserEntity> getByEmail(String email);
+
+    /**
+     * @return Whether a user has the email, ignoring case, without loading the user.
+     */
+    boolean existsByEmail(String email);
+
+    /**
+     * @param emailKeys Emails in lower case, see {@link com.fedorniakm.demo.model.User#emailKey(String)}.
+     * @return The given email keys that users have.
+     */
+    Set<String> getTakenEmailKeys(Collection<String> emailKeys);
+
+    /**
+     * Streams the emails of all users in lower case, see {@link com.fedorniakm.demo.model.User#emailKey(String)}.
+     * The stream must be consumed within a transaction and closed afterwards.
+     */
+    Stream<String> streamEmailKeys();
+
+    /**
+     * Locks the users with one of the ids with a {@code select ... for update}, so that their birth dates
+     * cannot change until the current transaction ends.
+     * @return Birth dates of the locked users.
+     */
+    List<LocalDate> lockBirthDates(Collection<Long> ids);
+
     UserEntity create(UserEntity user);
 
+    /**
+     * Inserts all users in JDBC batches, assigning ids in place.
+     */
+    List<UserEntity> createAll(List<UserEntity> users);
+
+    /**
+     * Single-statement operations on one user: each returns whether the user exists.
+     * Updates that would not change the user leave it, and its version, untouched.
+     */
     boolean deleteById(Long id);
 
     boolean update(UserEntity user);
 
+    /**
+     * Sets only the fields present in the patch.
+     */
+    boolean patch(Long id, UserPatch patch);
+
+    /**
+     * Set-based operations: each runs as a single statement and returns the number of affected users.
+     */
+    int patchAll(Collection<Long> ids, UserPatch patch);
+
+    int patchAll(Optional<LocalDate> from, Optional<LocalDate> to, UserPatch patch);
+
+    int deleteAll(Collection<Long> ids);
+
+    int deleteAll(Optional<LocalDate> from, Optional<LocalDate> to);
+
 }
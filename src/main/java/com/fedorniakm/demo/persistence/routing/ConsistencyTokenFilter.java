@@ -0,0 +1,83 @@
+package com.fedorniakm.demo.persistence.routing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * Gives the clients reading from replicas their own writes back.
+ * <p>
+ * A write to the Users resource answers with a {@code Consistency-Token}: the time the write was done, in epoch
+ * milliseconds. A request sending that token back within the {@link ReplicaLag} reads from the primary,
+ * later ones from the replicas again. Tokens from the future are taken as issued now.
+ * <p>
+ * The token is only taken once the write has committed, however long it took, so the response of a write
+ * is buffered until then, the header having to precede the body.
+ */
+@Component
+@ConditionalOnExpression("!'${user.datasource.replica-urls:}'.isBlank()")
+public class ConsistencyTokenFilter extends OncePerRequestFilter {
+
+    public static final String CONSISTENCY_TOKEN = "Consistency-Token";
+
+    private static final String USERS_PATH = "/v1/users";
+
+    private final ReplicaLag replicaLag;
+
+    public ConsistencyTokenFilter(ReplicaLag replicaLag) {
+        this.replicaLag = replicaLag;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(USERS_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (isRead(request)) {
+            var writtenAt = writtenAt(request, System.currentTimeMillis());
+            try (var ignored = ReadConsistency.requirePrimaryUntil(writtenAt + replicaLag.get().toMillis())) {
+                chain.doFilter(request, response);
+            }
+            return;
+        }
+        var buffered = new ContentCachingResponseWrapper(response);
+        try (var ignored = ReadConsistency.requirePrimaryUntil(Long.MAX_VALUE)) {
+            chain.doFilter(request, buffered);
+        }
+        // Taken after the chain, so that the lag counts from no earlier than the commit.
+        buffered.setHeader(CONSISTENCY_TOKEN, String.valueOf(System.currentTimeMillis()));
+        buffered.copyBodyToResponse();
+    }
+
+    /**
+     * @return Time of the last write of the client, or 0 if it sent no valid token.
+     */
+    private static long writtenAt(HttpServletRequest request, long now) {
+        var token = request.getHeader(CONSISTENCY_TOKEN);
+        if (token == null) {
+            return 0;
+        }
+        try {
+            return Math.min(Long.parseLong(token.trim()), now);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        var method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method);
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.fedorniakm.demo.persistence.routing;
+
+/**
+ * Whether the reads of the current thread must see the latest writes, and so go to the primary database
+ * instead of a replica. Set by the {@link ConsistencyTokenFilter} for the duration of a request.
+ */
+public final class ReadConsistency {
+
+    private static final ThreadLocal<Long> PRIMARY_UNTIL = new ThreadLocal<>();
+
+    /**
+     * Restores the previous consistency of the thread when closed.
+     */
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    private ReadConsistency() {
+    }
+
+    /**
+     * Sends the reads of the current thread to the primary until the given time, for instance the time of the last
+     * write of the client plus the replica lag. A time in the past changes nothing.
+     */
+    public static Scope requirePrimaryUntil(long epochMillis) {
+        var previous = PRIMARY_UNTIL.get();
+        PRIMARY_UNTIL.set(epochMillis);
+        return () -> {
+            if (previous == null) {
+                PRIMARY_UNTIL.remove();
+            } else {
+                PRIMARY_UNTIL.set(previous);
+            }
+        };
+    }
+
+    /**
+     * @return Time until which the reads of the current thread go to the primary, 0 if they may go to a replica.
+     * Passed to {@link #requirePrimaryUntil(long)} to read with the same consistency on another thread.
+     */
+    public static long primaryUntil() {
+        var until = PRIMARY_UNTIL.get();
+        return until == null ? 0 : until;
+    }
+
+    public static boolean isPrimaryRequired() {
+        var until = PRIMARY_UNTIL.get();
+        return until != null && System.currentTimeMillis() < until;
+    }
+
+}
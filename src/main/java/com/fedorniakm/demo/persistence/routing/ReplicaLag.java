@@ -0,0 +1,48 @@
+package com.fedorniakm.demo.persistence.routing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long the read replicas may take to apply a write committed on the primary, {@code user.datasource.replica-lag},
+ * or none when there are no replicas. A configured bound, not a measured position of the replicas.
+ */
+@Component
+public class ReplicaLag {
+
+    public static final ReplicaLag NONE = new ReplicaLag(Duration.ZERO);
+
+    private final Duration lag;
+
+    @Autowired
+    public ReplicaLag(@Value("${user.datasource.replica-urls:}") String replicaUrls,
+                      @Value("${user.datasource.replica-lag}") Duration lag) {
+        this(replicaUrls.isBlank() ? Duration.ZERO : lag);
+    }
+
+    public ReplicaLag(Duration lag) {
+        if (lag.isNegative()) {
+            throw new IllegalArgumentException("A replica lag cannot be negative, not " + lag + ".");
+        }
+        this.lag = lag;
+    }
+
+    public Duration get() {
+        return lag;
+    }
+
+    /**
+     * Runs the action once the replicas have caught up with what is committed by now. Does nothing without replicas.
+     */
+    public void afterCatchUp(Runnable action) {
+        if (!lag.isZero()) {
+            CompletableFuture.delayedExecutor(lag.toMillis(), TimeUnit.MILLISECONDS).execute(action);
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.fedorniakm.demo.persistence.routing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends the connections of read-only transactions to the replicas, in turn, and every other connection
+ * to the primary, including the reads of a thread that {@link ReadConsistency requires the primary}.
+ * <p>
+ * The transaction must be known to be read-only when its connection is taken, so the data source is meant
+ * to be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder, Closeable {
+
+    private static final String PRIMARY = "primary";
+
+    private final int replicas;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaConnections = new LongAdder();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("Routing reads needs at least one replica.");
+        }
+        this.replicas = replicas.size();
+        var targets = new HashMap<Object, Object>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || ReadConsistency.isPrimaryRequired()) {
+            primaryConnections.increment();
+            return PRIMARY;
+        }
+        replicaConnections.increment();
+        return Math.floorMod(next.getAndIncrement(), replicas);
+    }
+
+    /**
+     * Closes the pools of the primary and the replicas.
+     */
+    @Override
+    public void close() throws IOException {
+        for (var target : getResolvedDataSources().values()) {
+            if (target instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("user.datasource.connections", primaryConnections, LongAdder::sum)
+                .description("Connections taken by transactions, by the database they went to")
+                .tag("target", PRIMARY)
+                .register(registry);
+        FunctionCounter.builder("user.datasource.connections", replicaConnections, LongAdder::sum)
+                .description("Connections taken by transactions, by the database they went to")
+                .tag("target", "replica")
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.fedorniakm.demo.service;
+
+import com.fedorniakm.demo.persistence.routing.ReplicaLag;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+final class AfterCompletion {
+
+    private AfterCompletion() {
+    }
+
+    /**
+     * Runs the action once the current transaction commits or rolls back. Does nothing outside a transaction.
+     */
+    static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs the action once the current transaction completes, then once more when the read replicas
+     * have caught up with it. Does nothing outside a transaction.
+     */
+    static void run(Runnable action, ReplicaLag replicaLag) {
+        run(() -> {
+            action.run();
+            replicaLag.afterCatchUp(action);
+        });
+    }
+
+}
@@ -0,0 +1,187 @@
+package com.fedorniakm.demo.service;
+
+import com.fedorniakm.demo.model.Page;
+import com.fedorniakm.demo.model.Revision;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserFields;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.persistence.routing.ReadConsistency;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces concurrent identical {@link #getById(Long)} and {@link #getAll(Optional, Optional)} calls
+ * into one load of {@link DefaultUserService}. The callers sharing a load receive the same user instances.
+ * <p>
+ * A write makes the callers arriving after it load again: by id for writes on known ids,
+ * entirely for writes on a birth date range. Range loads are reloaded after any write.
+ * Callers that must see their own writes, see {@link ReadConsistency}, load on their own.
+ */
+@Service
+@Primary
+public class CoalescingUserService implements UserService, MeterBinder {
+
+    private record Range(Optional<LocalDate> from, Optional<LocalDate> to) { }
+
+    private final UserService delegate;
+    private final SingleFlight<Long, Optional<User>> byId = new SingleFlight<>();
+    private final SingleFlight<Range, List<User>> byRange = new SingleFlight<>();
+
+    public CoalescingUserService(DefaultUserService delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<User> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        if (ReadConsistency.isPrimaryRequired()) {
+            return delegate.getAll(from, to);
+        }
+        return byRange.load(new Range(from, to), () -> delegate.getAll(from, to));
+    }
+
+    @Override
+    public List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to, UserFields fields) {
+        return delegate.getAll(from, to, fields);
+    }
+
+    @Override
+    public void forEach(Optional<LocalDate> from, Optional<LocalDate> to, Consumer<User> action) {
+        delegate.forEach(from, to, action);
+    }
+
+    @Override
+    public Revision getRevision(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return delegate.getRevision(from, to);
+    }
+
+    @Override
+    public Page<User> getPage(Optional<LocalDate> from, Optional<LocalDate> to,
+                              Optional<UserCursor> after, int limit) {
+        return delegate.getPage(from, to, after, limit);
+    }
+
+    @Override
+    public Optional<User> getById(Long id) {
+        if (ReadConsistency.isPrimaryRequired()) {
+            return delegate.getById(id);
+        }
+        return byId.load(id, () -> delegate.getById(id));
+    }
+
+    @Override
+    public Optional<User> getById(Long id, UserFields fields) {
+        return delegate.getById(id, fields);
+    }
+
+    @Override
+    public Optional<User> getByEmail(String email) {
+        return delegate.getByEmail(email);
+    }
+
+    @Override
+    public Set<String> getTakenEmails(Collection<String> emails) {
+        return delegate.getTakenEmails(emails);
+    }
+
+    @Override
+    public User create(User user) {
+        var created = delegate.create(user);
+        byRange.forgetAll();
+        return created;
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        var created = delegate.createAll(users);
+        byRange.forgetAll();
+        return created;
+    }
+
+    @Override
+    public boolean patch(Long id, UserPatch userPatch) {
+        var patched = delegate.patch(id, userPatch);
+        forget(id);
+        return patched;
+    }
+
+    @Override
+    public boolean deleteById(Long id) {
+        var deleted = delegate.deleteById(id);
+        forget(id);
+        return deleted;
+    }
+
+    @Override
+    public boolean replace(User user) {
+        var replaced = delegate.replace(user);
+        forget(user.getId());
+        return replaced;
+    }
+
+    @Override
+    public int patchAll(Collection<Long> ids, UserPatch userPatch) {
+        var patched = delegate.patchAll(ids, userPatch);
+        ids.forEach(this::forget);
+        return patched;
+    }
+
+    @Override
+    public int patchAll(Optional<LocalDate> from, Optional<LocalDate> to, UserPatch userPatch) {
+        var patched = delegate.patchAll(from, to, userPatch);
+        forgetAll();
+        return patched;
+    }
+
+    @Override
+    public int deleteAll(Collection<Long> ids) {
+        var deleted = delegate.deleteAll(ids);
+        ids.forEach(this::forget);
+        return deleted;
+    }
+
+    @Override
+    public int deleteAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var deleted = delegate.deleteAll(from, to);
+        forgetAll();
+        return deleted;
+    }
+
+    private void forget(Long id) {
+        byId.forget(id);
+        byRange.forgetAll();
+    }
+
+    private void forgetAll() {
+        byId.forgetAll();
+        byRange.forgetAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("user.coalesced", byId, SingleFlight::getCoalesced)
+                .description("Loads served by a concurrent identical load")
+                .tag("operation", "getById")
+                .register(registry);
+        FunctionCounter.builder("user.coalesced", byRange, SingleFlight::getCoalesced)
+                .description("Loads served by a concurrent identical load")
+                .tag("operation", "getAll")
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.fedorniakm.demo.service;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.persistence.entity.UserEntity;
+import com.fedorniakm.demo.persistence.repository.ReactiveUserRepository;
+import com.fedorniakm.demo.service.patcher.UserEntityPatcher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Optional;
+
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class DefaultReactiveUserService implements ReactiveUserService {
+
+    private final ReactiveUserRepository repository;
+    private final UserEntityPatcher userEntityPatcher;
+    private final TransactionalOperator transactionalOperator;
+
+    @Override
+    public Flux<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return repository.getAll(from, to).map(this::toUser);
+    }
+
+    @Override
+    public Mono<User> getById(Long id) {
+        return repository.getById(id).map(this::toUser);
+    }
+
+    /**
+     * Leaves the check of the email to the unique index, reporting a violation as a {@link DuplicateEmailException}.
+     */
+    @Override
+    public Mono<User> create(User user) {
+        return repository.create(toUserEntity(user))
+                .map(this::toUser)
+                .onErrorMap(DataIntegrityViolationException.class, e -> new DuplicateEmailException(user.getEmail()));
+    }
+
+    @Override
+    public Mono<Boolean> patch(Long id, UserPatch patch) {
+        return repository.getById(id)
+                .flatMap(userEntity -> {
+                    var changes = userEntityPatcher.apply(userEntity, patch);
+                    return changes.isEmpty() ? Mono.just(true) : repository.update(userEntity);
+                })
+                .defaultIfEmpty(false)
+                .onErrorMap(DataIntegrityViolationException.class, e -> new DuplicateEmailException(patch.getEmail()))
+                .as(transactionalOperator::transactional);
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(Long id) {
+        return repository.deleteById(id);
+    }
+
+    @Override
+    public Mono<Boolean> replace(User user) {
+        Objects.requireNonNull(user);
+        Objects.requireNonNull(user.getId());
+        return repository.update(toUserEntity(user))
+                .onErrorMap(DataIntegrityViolationException.class, e -> new DuplicateEmailException(user.getEmail()));
+    }
+
+    private User toUser(UserEntity entity) {
+        return User.builder()
+                .id(entity.getId())
+                .email(entity.getEmail())
+                .firstName(entity.getFirstName())
+                .lastName(entity.getLastName())
+                .birthDate(entity.getBirthDate())
+                .address(Optional.ofNullable(entity.getAddress()))
+                .phoneNumber(Optional.ofNullable(entity.getPhoneNumber()))
+                .version(entity.getVersion())
+                .updatedAt(entity.getUpdatedAt())
+                .build();
+    }
+
+    private UserEntity toUserEntity(User user) {
+        return UserEntity.builder()
+                .id(user.getId())
+                .email(user.getEmail())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .birthDate(user.getBirthDate())
+                .phoneNumber(user.getPhoneNumber().orElse(null))
+                .address(user.getAddress().orElse(null))
+                .build();
+    }
+}
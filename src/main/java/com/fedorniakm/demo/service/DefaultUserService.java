@@ -1,95 +1,245 @@
 package com.fedorniakm.demo.service;
 
+import com.fedorniakm.demo.model.Page;
+import com.fedorniakm.demo.model.Revision;
 import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserFields;
 import com.fedorniakm.demo.model.UserPatch;
 import com.fedorniakm.demo.persistence.entity.UserEntity;
+import com.fedorniakm.demo.persistence.routing.ReadConsistency;
 import com.fedorniakm.demo.persistence.repository.UserRepository;
-import com.fedorniakm.demo.service.patcher.UserEntityPatcher;
+import com.fedorniakm.demo.service.mapper.UserMapper;
 import lombok.RequiredArgsConstructor;
-import org.springframework.context.annotation.Primary;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
-@Primary
 @RequiredArgsConstructor
 @Transactional
 public class DefaultUserService implements UserService {
 
     private final UserRepository repository;
-    private final UserEntityPatcher userEntityPatcher;
+    private final UserMapper userMapper;
+    private final UserCache userCache;
+    private final UserRangeCache userRangeCache;
+    private final EmailFilter emailFilter;
+
+    /**
+     * Fills the {@link EmailFilter} with the emails already taken, once the application has started.
+     * Read from the primary, since a lagging replica would leave out the latest emails.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadEmailFilter() {
+        try (var primary = ReadConsistency.requirePrimaryUntil(Long.MAX_VALUE);
+             var emailKeys = repository.streamEmailKeys()) {
+            emailFilter.load(emailKeys);
+        }
+    }
 
     @Override
+    @Transactional(readOnly = true)
     public List<User> getAll() {
-        return toUsers(repository.getAll());
+        return userMapper.toUsers(repository.getAll());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to) {
-        return toUsers(repository.getAll(from, to));
+        return userMapper.toUsers(repository.getAll(from, to));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to, UserFields fields) {
+        if (fields.isAll()) {
+            return getAll(from, to);
+        }
+        return repository.getAll(from, to, fields).stream()
+                .map(entity -> userMapper.toUser(entity, fields))
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEach(Optional<LocalDate> from, Optional<LocalDate> to, Consumer<User> action) {
+        try (var entities = repository.stream(from, to)) {
+            entities.map(userMapper::toUser).forEach(action);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Revision getRevision(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return repository.getRevision(from, to);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<User> getPage(Optional<LocalDate> from, Optional<LocalDate> to,
+                              Optional<UserCursor> after, int limit) {
+        var users = userMapper.toUsers(repository.getPage(from, to, after, limit + 1));
+        return Page.of(users, limit, UserCursor::of);
     }
 
+    /**
+     * Served from the {@link UserCache} when possible. No transaction is started for it,
+     * so a cached user is returned without taking a database connection.
+     * Read from the primary, past the cache, when the client must see its own writes.
+     */
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<User> getById(Long id) {
-        return repository.getById(id).map(this::toUser);
+        if (ReadConsistency.isPrimaryRequired()) {
+            return repository.getById(id).map(userMapper::toUser);
+        }
+        return userCache.get(id, key -> repository.getById(key).map(userMapper::toUser));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> getById(Long id, UserFields fields) {
+        if (fields.isAll()) {
+            return getById(id);
+        }
+        return repository.getById(id, fields).map(entity -> userMapper.toUser(entity, fields));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> getByEmail(String email) {
+        return repository.getByEmail(email).map(userMapper::toUser);
+    }
+
+    /**
+     * Looks up only the emails the {@link EmailFilter} cannot rule out, on the primary, like {@link #create(User)}.
+     */
+    @Override
+    public Set<String> getTakenEmails(Collection<String> emails) {
+        var candidates = emails.stream()
+                .filter(Objects::nonNull)
+                .filter(emailFilter::mightContain)
+                .map(User::emailKey)
+                .distinct()
+                .toList();
+        return candidates.isEmpty() ? Set.of() : repository.getTakenEmailKeys(candidates);
+    }
+
+    /**
+     * Looks the email up in the database only when the {@link EmailFilter} cannot rule it out.
+     * The unique index catches what the check misses, like a concurrent creation with the same email.
+     */
     @Override
     public User create(User user) {
-        var result = repository.create(toUserEntity(user));
-        return toUser(result);
+        if (emailFilter.mightContain(user.getEmail()) && repository.existsByEmail(user.getEmail())) {
+            throw new DuplicateEmailException(user.getEmail());
+        }
+        emailFilter.add(user.getEmail());
+        // Nothing to invalidate in the user cache, users that are not found are not cached.
+        var result = repository.create(userMapper.toUserEntity(user));
+        userRangeCache.invalidate(result.getBirthDate());
+        return userMapper.toUser(result);
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        var entities = userMapper.toUserEntities(users);
+        entities.forEach(entity -> emailFilter.add(entity.getEmail()));
+        userRangeCache.invalidate(entities.stream().map(UserEntity::getBirthDate).toList());
+        return userMapper.toUsers(repository.createAll(entities));
     }
 
     @Override
     public boolean deleteById(Long id) {
+        userCache.invalidate(id);
+        userRangeCache.invalidate(repository.lockBirthDates(List.of(id)));
         return repository.deleteById(id);
     }
 
     @Override
     public boolean replace(User user) {
-        return repository.update(toUserEntity(user));
+        userCache.invalidate(user.getId());
+        emailFilter.add(user.getEmail());
+        userRangeCache.invalidate(withBirthDate(repository.lockBirthDates(List.of(user.getId())),
+                user.getBirthDate()));
+        return repository.update(userMapper.toUserEntity(user));
     }
 
     @Override
     public boolean patch(Long id, UserPatch patch) {
-        var target = repository.getById(id);
-        if (target.isPresent()) {
-            var userEntity = target.get();
-            userEntityPatcher.patch(userEntity, patch);
-            return repository.update(userEntity);
+        userCache.invalidate(id);
+        addEmail(patch);
+        userRangeCache.invalidate(withBirthDate(repository.lockBirthDates(List.of(id)), patch.getBirthDate()));
+        return repository.patch(id, patch);
+    }
+
+    @Override
+    public int patchAll(Collection<Long> ids, UserPatch userPatch) {
+        userCache.invalidateAll(ids);
+        addEmail(userPatch);
+        if (!userPatch.isEmpty()) {
+            userRangeCache.invalidate(withBirthDate(repository.lockBirthDates(ids), userPatch.getBirthDate()));
+        }
+        return repository.patchAll(ids, userPatch);
+    }
+
+    @Override
+    public int patchAll(Optional<LocalDate> from, Optional<LocalDate> to, UserPatch userPatch) {
+        userCache.invalidateAll();
+        addEmail(userPatch);
+        if (!userPatch.isEmpty()) {
+            userRangeCache.invalidate(from, to);
+            Optional.ofNullable(userPatch.getBirthDate()).ifPresent(userRangeCache::invalidate);
+        }
+        return repository.patchAll(from, to, userPatch);
+    }
+
+    @Override
+    public int deleteAll(Collection<Long> ids) {
+        userCache.invalidateAll(ids);
+        userRangeCache.invalidate(repository.lockBirthDates(ids));
+        return repository.deleteAll(ids);
+    }
+
+    @Override
+    public int deleteAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        userCache.invalidateAll();
+        userRangeCache.invalidate(from, to);
+        return repository.deleteAll(from, to);
+    }
+
+    /**
+     * Adds the email a patch sets to the {@link EmailFilter} before it is written,
+     * so that the filter never rules out an email a user has.
+     */
+    private void addEmail(UserPatch patch) {
+        if (Objects.nonNull(patch.getEmail())) {
+            emailFilter.add(patch.getEmail());
+        }
+    }
+
+    /**
+     * @return Current birth dates of the users along with the one they are about to get, if any.
+     */
+    private static List<LocalDate> withBirthDate(List<LocalDate> birthDates, LocalDate newBirthDate) {
+        if (Objects.isNull(newBirthDate) || birthDates.isEmpty()) {
+            return birthDates;
         }
-        return false;
-    }
-
-    private User toUser(UserEntity entity) {
-        return User.builder()
-                .id(entity.getId())
-                .email(entity.getEmail())
-                .firstName(entity.getFirstName())
-                .lastName(entity.getLastName())
-                .birthDate(entity.getBirthDate())
-                .address(Optional.ofNullable(entity.getAddress()))
-                .phoneNumber(Optional.ofNullable(entity.getPhoneNumber()))
-                .build();
-    }
-
-    private UserEntity toUserEntity(User user) {
-        return UserEntity.builder()
-                .id(user.getId())
-                .email(user.getEmail())
-                .firstName(user.getFirstName())
-                .lastName(user.getLastName())
-                .birthDate(user.getBirthDate())
-                .phoneNumber(user.getPhoneNumber().orElse(null))
-                .address(user.getAddress().orElse(null))
-                .build();
-    }
-
-    private List<User> toUsers(List<UserEntity> entities) {
-        return entities.parallelStream().map(this::toUser).toList();
+        var all = new ArrayList<>(birthDates);
+        all.add(newBirthDate);
+        return all;
     }
 }
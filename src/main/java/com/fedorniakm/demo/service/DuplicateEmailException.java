@@ -0,0 +1,12 @@
+package com.fedorniakm.demo.service;
+
+/**
+ * Thrown when a user would get an email another user already has, compared ignoring case.
+ */
+public class DuplicateEmailException extends RuntimeException {
+
+    public DuplicateEmailException(String email) {
+        super("A user with the email [" + email + "] already exists.");
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.fedorniakm.demo.service;
+
+import com.fedorniakm.demo.model.User;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter of the emails taken, ignoring case, telling for sure when an email is free, so that creating
+ * a user with a new email needs no lookup in the database. An email it has seen, or a false positive at
+ * the configured rate, still takes a lookup.
+ * <p>
+ * Emails can only be added: the emails of deleted or changed users stay in, costing an extra lookup when reused.
+ * Until {@link #load(Stream)} completes, every email is reported as possibly taken. The unique index of the
+ * database stays the guard against duplicates, including the ones created by other instances.
+ */
+@Component
+public class EmailFilter implements MeterBinder {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private volatile boolean loaded;
+    private final LongAdder absent = new LongAdder();
+    private final LongAdder present = new LongAdder();
+
+    /**
+     * Sized for the expected number of users, with the usual {@code m = -n ln p / (ln 2)^2} bits
+     * and {@code k = m / n ln 2} hash functions.
+     */
+    public EmailFilter(@Value("${user.email-filter.expected-users}") long expectedUsers,
+                       @Value("${user.email-filter.false-positive-rate}") double falsePositiveRate) {
+        if (expectedUsers < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("An email filter needs at least one user and a false positive rate"
+                    + " between 0 and 1, not " + expectedUsers + " and " + falsePositiveRate + ".");
+        }
+        var words = Math.max(1, (long) Math.ceil(
+                -expectedUsers * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)) / Long.SIZE));
+        this.bits = new AtomicLongArray(Math.toIntExact(words));
+        this.bitCount = words * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedUsers * Math.log(2)));
+    }
+
+    /**
+     * @return {@code false} if no user has had the email, ignoring case, {@code true} if one may have it.
+     */
+    public boolean mightContain(String email) {
+        if (email == null) {
+            return false;
+        }
+        if (!loaded) {
+            present.increment();
+            return true;
+        }
+        var hash = hash(email);
+        for (int i = 0; i < hashCount; i++) {
+            var bit = bit(hash, i);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                absent.increment();
+                return false;
+            }
+        }
+        present.increment();
+        return true;
+    }
+
+    public void add(String email) {
+        if (email == null) {
+            return;
+        }
+        var hash = hash(email);
+        for (int i = 0; i < hashCount; i++) {
+            var bit = bit(hash, i);
+            var word = (int) (bit >>> 6);
+            var mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Adds the emails of the users already there. Emails added meanwhile are kept.
+     */
+    public void load(Stream<String> emails) {
+        emails.forEach(this::add);
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return Bit of the i-th hash function, from the hash and the hash with its halves swapped (double hashing).
+     */
+    private long bit(long hash, int i) {
+        return Math.floorMod(hash + i * (Long.rotateLeft(hash, 32) | 1), bitCount);
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 bytes of the email in lower case, mixed by the SplitMix64 finalizer.
+     */
+    private static long hash(String email) {
+        var hash = 0xCBF29CE484222325L;
+        for (var b : User.emailKey(email).getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("user.email.filter.checks", absent, LongAdder::sum)
+                .description("Emails checked by the filter before creating a user")
+                .tag("result", "absent")
+                .register(registry);
+        FunctionCounter.builder("user.email.filter.checks", present, LongAdder::sum)
+                .description("Emails checked by the filter before creating a user")
+                .tag("result", "present")
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.fedorniakm.demo.service;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Birth date ranges, exclusive on both ends like the range queries, indexed by their lower bound.
+ * An empty bound leaves the range open on that side.
+ * <p>
+ * Finding the ranges that contain a date only visits the ranges starting before it.
+ */
+class IntervalIndex<K> {
+
+    private final NavigableMap<Long, Map<K, Long>> byFrom = new TreeMap<>();
+    private final Map<K, Long> fromByKey = new HashMap<>();
+
+    public synchronized void add(K key, Optional<LocalDate> from, Optional<LocalDate> to) {
+        remove(key);
+        var fromDay = from.map(LocalDate::toEpochDay).orElse(Long.MIN_VALUE);
+        var toDay = to.map(LocalDate::toEpochDay).orElse(Long.MAX_VALUE);
+        byFrom.computeIfAbsent(fromDay, day -> new HashMap<>()).put(key, toDay);
+        fromByKey.put(key, fromDay);
+    }
+
+    public synchronized void remove(K key) {
+        var fromDay = fromByKey.remove(key);
+        if (fromDay != null) {
+            var ranges = byFrom.get(fromDay);
+            ranges.remove(key);
+            if (ranges.isEmpty()) {
+                byFrom.remove(fromDay);
+            }
+        }
+    }
+
+    /**
+     * @return Keys of the ranges the date falls within.
+     */
+    public synchronized Set<K> containing(LocalDate date) {
+        var day = date.toEpochDay();
+        var keys = new HashSet<K>();
+        byFrom.headMap(day, false).values().forEach(ranges -> ranges.forEach((key, toDay) -> {
+            if (toDay > day) {
+                keys.add(key);
+            }
+        }));
+        return keys;
+    }
+
+    /**
+     * @return Keys of the ranges sharing at least one date with the given range.
+     */
+    public synchronized Set<K> overlapping(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var fromDay = from.map(LocalDate::toEpochDay).orElse(Long.MIN_VALUE);
+        var toDay = to.map(LocalDate::toEpochDay).orElse(Long.MAX_VALUE);
+        var keys = new HashSet<K>();
+        // A range starting at toDay - 1 or later has no date before toDay.
+        byFrom.headMap(toDay - 1, false).forEach((rangeFromDay, ranges) -> ranges.forEach((key, rangeToDay) -> {
+            if (Math.max(fromDay, rangeFromDay) + 1 < Math.min(toDay, rangeToDay)) {
+                keys.add(key);
+            }
+        }));
+        return keys;
+    }
+
+    public synchronized int size() {
+        return fromByKey.size();
+    }
+
+}
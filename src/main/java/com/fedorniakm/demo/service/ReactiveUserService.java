@@ -0,0 +1,34 @@
+package com.fedorniakm.demo.service;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Non-blocking counterpart of {@link UserService}.
+ */
+public interface ReactiveUserService {
+
+    /**
+     * Emits the users born within the range as they are read, honouring the subscriber's demand.
+     */
+    Flux<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to);
+
+    /**
+     * @return The user, or an empty {@link Mono} if there is no user with the id.
+     */
+    Mono<User> getById(Long id);
+
+    Mono<User> create(User user);
+
+    Mono<Boolean> patch(Long id, UserPatch userPatch);
+
+    Mono<Boolean> deleteById(Long id);
+
+    Mono<Boolean> replace(User user);
+
+}
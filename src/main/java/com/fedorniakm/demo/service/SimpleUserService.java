@@ -1,114 +1,134 @@
 package com.fedorniakm.demo.service;
 
+import com.fedorniakm.demo.model.Page;
+import com.fedorniakm.demo.model.Revision;
 import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserFields;
 import com.fedorniakm.demo.model.UserPatch;
-import com.fedorniakm.demo.service.patcher.UserPatcher;
+import com.fedorniakm.demo.service.store.UserStore;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Service
 public class SimpleUserService implements UserService {
 
-    private static class InMemoryMapUserRepository {
+    private final UserStore userStore;
 
-        private final UserPatcher userPatcher;
-        private final AtomicLong atomicLong = new AtomicLong(1L);
-        private final Map<Long, User> users;
-
-        public InMemoryMapUserRepository(UserPatcher userPatcher) {
-            this.userPatcher = userPatcher;
-            this.users = new HashMap<>();
-        }
-
-        public List<User> getAll() {
-            return new ArrayList<>(users.values());
-        }
-
-        public List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to) {
-            var userStream = users.values().stream();
-            if (from.isPresent()) {
-                userStream = userStream.filter(user -> user.getBirthDate().isAfter(from.get()));
-            }
-            if (to.isPresent()) {
-                userStream = userStream.filter(user -> user.getBirthDate().isBefore(to.get()));
-            }
-            return userStream.toList();
-        }
+    public SimpleUserService(UserStore userStore) {
+        this.userStore = userStore;
+    }
 
-        public Optional<User> getById(Long id) {
-            return Optional.ofNullable(users.get(id));
-        }
+    @Override
+    public List<User> getAll() {
+        return userStore.getAll();
+    }
 
-        public User create(User user) {
-            Objects.requireNonNull(user);
-            var id = atomicLong.getAndIncrement();
-            user.setId(id);
-            users.put(id, user);
-            return user;
-        }
+    @Override
+    public List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return userStore.getAll(from, to);
+    }
 
-        public boolean deleteById(Long id) {
-            return users.remove(id) != null;
-        }
+    /**
+     * Users are already in memory, so all fields are returned and left to the serialization to filter.
+     */
+    @Override
+    public List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to, UserFields fields) {
+        return getAll(from, to);
+    }
 
-        public boolean replace(User user) {
-            return users.replace(user.getId(), user) != null;
+    @Override
+    public void forEach(Optional<LocalDate> from, Optional<LocalDate> to, Consumer<User> action) {
+        try (var users = userStore.stream(from, to)) {
+            users.forEach(action);
         }
+    }
 
-        public boolean patch(Long id, UserPatch userPatch) {
-            var user = getById(id);
-            if (user.isPresent()) {
-                userPatcher.patch(user.get(), userPatch);
-                return true;
-            }
-            return false;
-        }
+    @Override
+    public Revision getRevision(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return userStore.getRevision(from, to);
     }
 
-    private final InMemoryMapUserRepository userRepository;
+    @Override
+    public Page<User> getPage(Optional<LocalDate> from, Optional<LocalDate> to,
+                              Optional<UserCursor> after, int limit) {
+        return Page.of(userStore.getPage(from, to, after, limit + 1), limit, UserCursor::of);
+    }
 
-    public SimpleUserService(UserPatcher userPatcher) {
-        this.userRepository = new InMemoryMapUserRepository(userPatcher);
+    @Override
+    public Optional<User> getById(Long id) {
+        return userStore.getById(id);
     }
 
     @Override
-    public List<User> getAll() {
-        return userRepository.getAll();
+    public Optional<User> getById(Long id, UserFields fields) {
+        return getById(id);
     }
 
     @Override
-    public List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to) {
-        return userRepository.getAll(from, to);
+    public Optional<User> getByEmail(String email) {
+        return userStore.getByEmail(email);
     }
 
     @Override
-    public Optional<User> getById(Long id) {
-        return userRepository.getById(id);
+    public Set<String> getTakenEmails(Collection<String> emails) {
+        var taken = new HashSet<String>();
+        for (var email : emails) {
+            if (Objects.nonNull(email) && userStore.getByEmail(email).isPresent()) {
+                taken.add(User.emailKey(email));
+            }
+        }
+        return taken;
     }
 
     @Override
     public User create(User user) {
-        return userRepository.create(user);
+        return userStore.create(user);
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        return userStore.createAll(users);
     }
 
     @Override
     public boolean patch(Long id, UserPatch userPatch) {
-        return userRepository.patch(id, userPatch);
+        return userStore.patch(id, userPatch);
     }
 
     @Override
     public boolean deleteById(Long id) {
-        return userRepository.deleteById(id);
+        return userStore.deleteById(id);
     }
 
     @Override
     public boolean replace(User user) {
         Objects.requireNonNull(user);
         Objects.requireNonNull(user.getId());
-        return userRepository.replace(user);
+        return userStore.replace(user);
+    }
+
+    @Override
+    public int patchAll(Collection<Long> ids, UserPatch userPatch) {
+        return userStore.patchAll(ids, userPatch);
+    }
+
+    @Override
+    public int patchAll(Optional<LocalDate> from, Optional<LocalDate> to, UserPatch userPatch) {
+        return userStore.patchAll(from, to, userPatch);
+    }
+
+    @Override
+    public int deleteAll(Collection<Long> ids) {
+        return userStore.deleteAll(ids);
+    }
+
+    @Override
+    public int deleteAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return userStore.deleteAll(from, to);
     }
 
 }
@@ -0,0 +1,134 @@
+package com.fedorniakm.demo.service;
+
+import com.fedorniakm.demo.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import com.fedorniakm.demo.persistence.routing.ReplicaLag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of users by id, bounded by their estimated size in memory.
+ * <p>
+ * Caffeine admits a new user only if it is likely to be read more often than the one it would evict
+ * (Window TinyLFU), so a scan over many ids does not flush the frequently read ones.
+ * Users are copied on the way in and out, since callers are free to modify them.
+ */
+@Component
+public class UserCache implements MeterBinder {
+
+    private static final String NAME = "users";
+
+    private final Cache<Long, User> cache;
+    private final ReplicaLag replicaLag;
+
+    public UserCache(DataSize maxSize) {
+        this(maxSize, ReplicaLag.NONE);
+    }
+
+    @Autowired
+    public UserCache(@Value("${user.cache.max-size}") DataSize maxSize, ReplicaLag replicaLag) {
+        this.replicaLag = replicaLag;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Long id, User user) -> estimateBytes(user))
+                .recordStats()
+                // Evicts on the calling thread, leaving the common pool to the parallel mapping of users.
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * Returns the cached user or loads it. Users that are not found are not cached.
+     * <p>
+     * A load that overlaps {@link #invalidate(Long)} of the same id completes first and is then invalidated,
+     * so it never leaves a stale user behind.
+     */
+    public Optional<User> get(Long id, Function<Long, Optional<User>> loader) {
+        var user = cache.get(id, key -> loader.apply(key).map(UserCache::copy).orElse(null));
+        return Optional.ofNullable(user).map(UserCache::copy);
+    }
+
+    /**
+     * Removes the user now, once more after the current transaction completes, so that a load reading the row
+     * before the commit does not stay cached, and once more when the read replicas have caught up.
+     */
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+        AfterCompletion.run(() -> cache.invalidate(id), replicaLag);
+    }
+
+    public void invalidateAll(Collection<Long> ids) {
+        cache.invalidateAll(ids);
+        AfterCompletion.run(() -> cache.invalidateAll(ids), replicaLag);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        AfterCompletion.run(cache::invalidateAll, replicaLag);
+    }
+
+    public double getHitRate() {
+        return cache.stats().hitRate();
+    }
+
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    public long getEstimatedBytes() {
+        return cache.policy().eviction().orElseThrow().weightedSize().orElse(0L);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // Hits, misses, evictions and the number of users.
+        CaffeineCacheMetrics.monitor(registry, cache, NAME);
+        Gauge.builder("user.cache.hit.rate", this, UserCache::getHitRate)
+                .description("Ratio of reads served from the cache")
+                .register(registry);
+        Gauge.builder("user.cache.bytes", this, UserCache::getEstimatedBytes)
+                .description("Estimated memory taken by the cached users")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Rough size of the user with its cache entry, assuming compressed references and Latin-1 strings.
+     */
+    static int estimateBytes(User user) {
+        var bytes = 64 // cache entry and its Long key
+                + 48   // user
+                + 16 + 24 + 16 + 24; // id, birth date, version, update time
+        bytes += stringBytes(user.getEmail());
+        bytes += stringBytes(user.getFirstName());
+        bytes += stringBytes(user.getLastName());
+        bytes += optionalBytes(user.getAddress());
+        bytes += optionalBytes(user.getPhoneNumber());
+        return bytes;
+    }
+
+    private static int stringBytes(String value) {
+        return Objects.isNull(value) ? 0 : 40 + value.length();
+    }
+
+    private static int optionalBytes(Optional<String> value) {
+        return Objects.isNull(value) ? 0 : 16 + value.map(UserCache::stringBytes).orElse(0);
+    }
+
+    private static User copy(User user) {
+        return user.toBuilder().build();
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.fedorniakm.demo.service;
+
+import com.fedorniakm.demo.persistence.routing.ReplicaLag;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized listings of users born within a range, bounded by their size in memory.
+ * <p>
+ * A change to a user invalidates only the listings whose range contains the user's birth date,
+ * found through an {@link IntervalIndex}; listings of other ranges stay cached.
+ */
+@Component
+public class UserRangeCache implements MeterBinder {
+
+    private static final String NAME = "userRanges";
+
+    /**
+     * @param eTag Entity tag of the listing.
+     * @param body Serialized listing.
+     * @param gzippedBody The body compressed with gzip, {@code null} if compression is disabled.
+     */
+    public record Listing(String eTag, byte[] body, byte[] gzippedBody) {
+
+        int size() {
+            return 64 + eTag.length() + body.length + (Objects.isNull(gzippedBody) ? 0 : gzippedBody.length);
+        }
+    }
+
+    private record Range(Optional<LocalDate> from, Optional<LocalDate> to) { }
+
+    private final Cache<Range, Listing> cache;
+    private final IntervalIndex<Range> index = new IntervalIndex<>();
+    private final boolean gzip;
+    private final ReplicaLag replicaLag;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder invalidatedListings = new LongAdder();
+
+    public UserRangeCache(DataSize maxSize, boolean gzip) {
+        this(maxSize, gzip, ReplicaLag.NONE);
+    }
+
+    @Autowired
+    public UserRangeCache(@Value("${user.range-cache.max-size}") DataSize maxSize,
+                          @Value("${user.range-cache.gzip}") boolean gzip,
+                          ReplicaLag replicaLag) {
+        this.gzip = gzip;
+        this.replicaLag = replicaLag;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Range range, Listing listing) -> listing.size())
+                .evictionListener((Range range, Listing listing, RemovalCause cause) -> index.remove(range))
+                .recordStats()
+                .executor(Runnable::run)
+                .build();
+    }
+
+    public Optional<Listing> get(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return Optional.ofNullable(cache.getIfPresent(new Range(from, to)));
+    }
+
+    /**
+     * @return Stamp to take before loading a listing and to pass to {@link #put}.
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Caches the listing, unless users changed since the stamp was taken, as the listing may be outdated then.
+     * @return The cached listing, with the body compressed if enabled.
+     */
+    public Listing put(Optional<LocalDate> from, Optional<LocalDate> to, long stamp, String eTag, byte[] body) {
+        var listing = new Listing(eTag, body, gzip ? gzip(body) : null);
+        var range = new Range(from, to);
+        // Indexed first, so that an invalidation running concurrently finds the listing.
+        index.add(range, from, to);
+        cache.put(range, listing);
+        if (invalidations.get() != stamp) {
+            cache.invalidate(range);
+            index.remove(range);
+        }
+        return listing;
+    }
+
+    /**
+     * Invalidates the listings containing any of the birth dates, now, once more after the current
+     * transaction completes and once more when the read replicas have caught up.
+     */
+    public void invalidate(Collection<LocalDate> birthDates) {
+        if (birthDates.isEmpty()) {
+            return;
+        }
+        invalidateContaining(birthDates);
+        AfterCompletion.run(() -> invalidateContaining(birthDates), replicaLag);
+    }
+
+    public void invalidate(LocalDate birthDate) {
+        invalidate(List.of(birthDate));
+    }
+
+    /**
+     * Invalidates the listings sharing a date with the range, now, once more after the current
+     * transaction completes and once more when the read replicas have caught up.
+     */
+    public void invalidate(Optional<LocalDate> from, Optional<LocalDate> to) {
+        invalidateOverlapping(from, to);
+        AfterCompletion.run(() -> invalidateOverlapping(from, to), replicaLag);
+    }
+
+    private void invalidateContaining(Collection<LocalDate> birthDates) {
+        invalidations.incrementAndGet();
+        birthDates.stream()
+                .distinct()
+                .flatMap(birthDate -> index.containing(birthDate).stream())
+                .distinct()
+                .forEach(this::invalidate);
+    }
+
+    private void invalidateOverlapping(Optional<LocalDate> from, Optional<LocalDate> to) {
+        invalidations.incrementAndGet();
+        index.overlapping(from, to).forEach(this::invalidate);
+    }
+
+    private void invalidate(Range range) {
+        index.remove(range);
+        if (Objects.nonNull(cache.asMap().remove(range))) {
+            invalidatedListings.increment();
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        var out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (var gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public long getEstimatedBytes() {
+        return cache.policy().eviction().orElseThrow().weightedSize().orElse(0L);
+    }
+
+    public long getInvalidatedListings() {
+        return invalidatedListings.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, NAME);
+        Gauge.builder("user.range.cache.bytes", this, UserRangeCache::getEstimatedBytes)
+                .description("Memory taken by the cached listings")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("user.range.cache.invalidations", this, UserRangeCache::getInvalidatedListings)
+                .description("Listings invalidated by changes to users within their range")
+                .register(registry);
+    }
+
+}
@@ -1,24 +1,96 @@
 package com.fedorniakm.demo.service;
 
+import com.fedorniakm.demo.model.Page;
+import com.fedorniakm.demo.model.Revision;
 import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserFields;
 import com.fedorniakm.demo.model.UserPatch;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserService {
     List<User> getAll();
 
     List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to);
 
+    /**
+     * Same as {@link #getAll(Optional, Optional)}, but only the requested fields have to be populated.
+     */
+    List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to, UserFields fields);
+
+    /**
+     * Passes every matching user to the action as soon as it is loaded,
+     * without collecting the result in memory.
+     */
+    void forEach(Optional<LocalDate> from, Optional<LocalDate> to, Consumer<User> action);
+
+    /**
+     * Summarizes the users born within the range without loading them,
+     * so that unchanged listings can be detected cheaply.
+     */
+    Revision getRevision(Optional<LocalDate> from, Optional<LocalDate> to);
+
+    Page<User> getPage(Optional<LocalDate> from, Optional<LocalDate> to,
+                       Optional<UserCursor> after, int limit);
+
     Optional<User> getById(Long id);
 
+    /**
+     * Same as {@link #getById(Long)}, but only the requested fields have to be populated.
+     */
+    Optional<User> getById(Long id, UserFields fields);
+
+    /**
+     * Finds the user by email, ignoring case.
+     */
+    Optional<User> getByEmail(String email);
+
+    /**
+     * @return The emails among the given ones that users already have, as {@link User#emailKey(String)}s.
+     */
+    Set<String> getTakenEmails(Collection<String> emails);
+
+    /**
+     * @throws DuplicateEmailException If a user already has the email, ignoring case.
+     */
     User create(User user);
 
+    /**
+     * Creates all users at once. The returned users are in the same order as the given ones.
+     */
+    List<User> createAll(List<User> users);
+
     boolean patch(Long id, UserPatch userPatch);
 
     boolean deleteById(Long id);
 
     boolean replace(User user);
+
+    /**
+     * Applies the patch to every user with one of the ids.
+     * @return Number of patched users.
+     */
+    int patchAll(Collection<Long> ids, UserPatch userPatch);
+
+    /**
+     * Applies the patch to every user born within the range.
+     * @return Number of patched users.
+     */
+    int patchAll(Optional<LocalDate> from, Optional<LocalDate> to, UserPatch userPatch);
+
+    /**
+     * @return Number of deleted users.
+     */
+    int deleteAll(Collection<Long> ids);
+
+    /**
+     * @return Number of deleted users.
+     */
+    int deleteAll(Optional<LocalDate> from, Optional<LocalDate> to);
 }
@@ -0,0 +1,147 @@
+package com.fedorniakm.demo.service.mapper;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserFields;
+import com.fedorniakm.demo.persistence.entity.UserEntity;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Maps between {@link UserEntity} and {@link User} through their constructors, without builders.
+ * <p>
+ * Lists are mapped on the calling thread unless they reach {@code user.mapping.parallel-threshold} users,
+ * see {@code MappingBenchmark}. Larger lists are split across a pool of their own,
+ * so that mapping does not compete with other work on the common pool.
+ */
+@Component
+public class UserMapper implements DisposableBean {
+
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    public UserMapper(@Value("${user.mapping.parallel-threshold}") int parallelThreshold,
+                      @Value("${user.mapping.parallelism:0}") int parallelism) {
+        this.parallelThreshold = parallelThreshold;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    public User toUser(UserEntity entity) {
+        return new User(entity.getId(),
+                entity.getEmail(),
+                entity.getFirstName(),
+                entity.getLastName(),
+                entity.getBirthDate(),
+                Optional.ofNullable(entity.getAddress()),
+                Optional.ofNullable(entity.getPhoneNumber()),
+                entity.getVersion(),
+                entity.getUpdatedAt());
+    }
+
+    /**
+     * Maps only the requested fields, leaving the others {@code null}.
+     */
+    public User toUser(UserEntity entity, UserFields fields) {
+        var user = new User();
+        for (var field : fields.fields()) {
+            switch (field) {
+                case ID -> user.setId(entity.getId());
+                case EMAIL -> user.setEmail(entity.getEmail());
+                case FIRST_NAME -> user.setFirstName(entity.getFirstName());
+                case LAST_NAME -> user.setLastName(entity.getLastName());
+                case BIRTH_DATE -> user.setBirthDate(entity.getBirthDate());
+                case ADDRESS -> user.setAddress(Optional.ofNullable(entity.getAddress()));
+                case PHONE_NUMBER -> user.setPhoneNumber(Optional.ofNullable(entity.getPhoneNumber()));
+            }
+        }
+        user.setVersion(entity.getVersion());
+        user.setUpdatedAt(entity.getUpdatedAt());
+        return user;
+    }
+
+    public UserEntity toUserEntity(User user) {
+        return new UserEntity(user.getId(),
+                user.getEmail(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getBirthDate(),
+                user.getAddress().orElse(null),
+                user.getPhoneNumber().orElse(null));
+    }
+
+    public List<User> toUsers(List<UserEntity> entities) {
+        return entities.size() < parallelThreshold ? toUsersSequentially(entities) : toUsersInParallel(entities);
+    }
+
+    public List<UserEntity> toUserEntities(List<User> users) {
+        var entities = new ArrayList<UserEntity>(users.size());
+        for (var user : users) {
+            entities.add(toUserEntity(user));
+        }
+        return entities;
+    }
+
+    private List<User> toUsersSequentially(List<UserEntity> entities) {
+        var users = new ArrayList<User>(entities.size());
+        for (var entity : entities) {
+            users.add(toUser(entity));
+        }
+        return users;
+    }
+
+    private List<User> toUsersInParallel(List<UserEntity> entities) {
+        var source = entities instanceof RandomAccess ? entities : new ArrayList<>(entities);
+        var users = new User[entities.size()];
+        // A few chunks per worker, so that a worker finishing early can take over another chunk.
+        var chunkSize = Math.max(users.length / (pool.getParallelism() * 4), 1);
+        pool.invoke(new MapChunk(source, users, 0, users.length, chunkSize));
+        return Arrays.asList(users);
+    }
+
+    /**
+     * Maps its part of the list in place, splitting it in halves down to the chunk size.
+     */
+    private class MapChunk extends RecursiveAction {
+
+        private final List<UserEntity> entities;
+        private final User[] users;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        MapChunk(List<UserEntity> entities, User[] users, int from, int to, int chunkSize) {
+            this.entities = entities;
+            this.users = users;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    users[i] = toUser(entities.get(i));
+                }
+                return;
+            }
+            var middle = (from + to) >>> 1;
+            invokeAll(new MapChunk(entities, users, from, middle, chunkSize),
+                    new MapChunk(entities, users, middle, to, chunkSize));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+}
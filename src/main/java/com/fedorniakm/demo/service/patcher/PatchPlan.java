@@ -0,0 +1,225 @@
+package com.fedorniakm.demo.service.patcher;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.ResolvableType;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Patcher compiled once for a pair of target and patch classes.
+ * <p>
+ * Every field of the patch class is matched with the target property of the same name, either of the same type
+ * or an {@link Optional} of it. The accessors are composed into a single method handle, so applying a patch
+ * involves neither reflection nor capturing lambdas, and the JIT inlines it whole into callers keeping the plan
+ * in a {@code static final} field. A field is set only if it is present in the patch and differs from the target.
+ * @param <T> Target type to be patched.
+ * @param <P> Patch type to be applied to the target.
+ */
+public final class PatchPlan<T, P> implements Patcher<T, P> {
+
+    private static final int MAX_FIELDS = Long.SIZE;
+
+    private static final MethodType PATCH_TYPE = MethodType.methodType(long.class, Object.class, Object.class);
+    private static final MethodHandle DIFFERS;
+    private static final MethodHandle DIFFERS_FROM_OPTIONAL;
+    private static final MethodHandle OPTIONAL_OF;
+    private static final MethodHandle OR;
+
+    static {
+        var lookup = MethodHandles.lookup();
+        try {
+            var test = MethodType.methodType(boolean.class, Object.class, Object.class);
+            DIFFERS = lookup.findStatic(PatchPlan.class, "differs", test);
+            DIFFERS_FROM_OPTIONAL = lookup.findStatic(PatchPlan.class, "differsFromOptional", test);
+            OPTIONAL_OF = lookup.findStatic(Optional.class, "of", MethodType.methodType(Optional.class, Object.class))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            OR = lookup.findStatic(PatchPlan.class, "or", MethodType.methodType(long.class, long.class, long.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Fields changed by a patch.
+     */
+    public static final class Changes {
+
+        private final long mask;
+        private final List<String> fieldNames;
+
+        private Changes(long mask, List<String> fieldNames) {
+            this.mask = mask;
+            this.fieldNames = fieldNames;
+        }
+
+        public boolean isEmpty() {
+            return mask == 0;
+        }
+
+        public boolean contains(String fieldName) {
+            var index = fieldNames.indexOf(fieldName);
+            return index >= 0 && (mask & (1L << index)) != 0;
+        }
+
+        public List<String> fieldNames() {
+            var names = new ArrayList<String>(Long.bitCount(mask));
+            for (int i = 0; i < fieldNames.size(); i++) {
+                if ((mask & (1L << i)) != 0) {
+                    names.add(fieldNames.get(i));
+                }
+            }
+            return names;
+        }
+
+        @Override
+        public String toString() {
+            return fieldNames().toString();
+        }
+    }
+
+    /**
+     * {@code (Object target, Object patch) -> long} mask of the changed fields.
+     */
+    private final MethodHandle plan;
+    private final List<String> fieldNames;
+
+    private PatchPlan(MethodHandle plan, List<String> fieldNames) {
+        this.plan = plan;
+        this.fieldNames = fieldNames;
+    }
+
+    /**
+     * Builds the plan. Meant to be called once per pair of classes and the plan kept in a {@code static final} field.
+     * @throws IllegalArgumentException if a patch field has no matching target property.
+     */
+    public static <T, P> PatchPlan<T, P> of(Class<T> targetType, Class<P> patchType) {
+        var lookup = MethodHandles.lookup();
+        var plan = MethodHandles.dropArguments(MethodHandles.constant(long.class, 0L), 0, Object.class, Object.class);
+        var fieldNames = new ArrayList<String>();
+        for (Field field : patchType.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            var name = field.getName();
+            var patchProperty = BeanUtils.getPropertyDescriptor(patchType, name);
+            var targetProperty = BeanUtils.getPropertyDescriptor(targetType, name);
+            if (Objects.isNull(patchProperty) || Objects.isNull(patchProperty.getReadMethod())
+                    || Objects.isNull(targetProperty) || Objects.isNull(targetProperty.getReadMethod())
+                    || Objects.isNull(targetProperty.getWriteMethod())) {
+                throw new IllegalArgumentException("No readable and writable property [" + name + "] of ["
+                        + targetType.getSimpleName() + "] matches [" + patchType.getSimpleName() + "." + name + "].");
+            }
+            if (fieldNames.size() == MAX_FIELDS) {
+                throw new IllegalArgumentException("At most " + MAX_FIELDS + " fields of ["
+                        + patchType.getSimpleName() + "] can be patched.");
+            }
+            var step = step(lookup, patchProperty, targetProperty, 1L << fieldNames.size());
+            plan = MethodHandles.permuteArguments(
+                    MethodHandles.collectArguments(MethodHandles.collectArguments(OR, 0, plan), 2, step),
+                    PATCH_TYPE, 0, 1, 0, 1);
+            fieldNames.add(name);
+        }
+        return new PatchPlan<>(plan, List.copyOf(fieldNames));
+    }
+
+    @Override
+    public void patch(T target, P patch) {
+        apply(target, patch);
+    }
+
+    /**
+     * Applies the patch to the target.
+     * @return The fields that got a different value.
+     */
+    public Changes apply(T target, P patch) {
+        Objects.requireNonNull(target);
+        Objects.requireNonNull(patch);
+        try {
+            return new Changes((long) plan.invokeExact((Object) target, (Object) patch), fieldNames);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public List<String> fieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * {@code (Object target, Object patch) -> long}: sets the field and returns its bit if the patch value
+     * is present and differs, returns 0 otherwise.
+     */
+    private static MethodHandle step(MethodHandles.Lookup lookup, PropertyDescriptor patchProperty,
+                                     PropertyDescriptor targetProperty, long bit) {
+        var optional = isOptionalOf(targetProperty, patchProperty.getPropertyType());
+        var patchValue = accessor(lookup, patchProperty.getReadMethod())
+                .asType(MethodType.methodType(Object.class, Object.class));
+        var targetValue = accessor(lookup, targetProperty.getReadMethod())
+                .asType(MethodType.methodType(Object.class, Object.class));
+        var setTargetValue = accessor(lookup, targetProperty.getWriteMethod())
+                .asType(MethodType.methodType(void.class, Object.class, Object.class));
+        // (target, patch) -> differs(patchValue(patch), targetValue(target))
+        var test = MethodHandles.permuteArguments(
+                MethodHandles.filterArguments(optional ? DIFFERS_FROM_OPTIONAL : DIFFERS, 0, patchValue, targetValue),
+                MethodType.methodType(boolean.class, Object.class, Object.class), 1, 0);
+        // (target, patch) -> setTargetValue(target, patchValue(patch)); return bit
+        var newValue = optional ? MethodHandles.filterReturnValue(patchValue, OPTIONAL_OF) : patchValue;
+        var set = MethodHandles.foldArguments(
+                MethodHandles.dropArguments(MethodHandles.constant(long.class, bit), 0, Object.class, Object.class),
+                MethodHandles.filterArguments(setTargetValue, 1, newValue));
+        var unchanged = MethodHandles.dropArguments(MethodHandles.constant(long.class, 0L), 0, Object.class, Object.class);
+        return MethodHandles.guardWithTest(test, set, unchanged);
+    }
+
+    private static boolean isOptionalOf(PropertyDescriptor targetProperty, Class<?> patchValueType) {
+        var targetValueType = targetProperty.getPropertyType();
+        if (targetValueType == Optional.class) {
+            var optionalOf = ResolvableType.forMethodReturnType(targetProperty.getReadMethod()).getGeneric(0).resolve();
+            if (Objects.nonNull(optionalOf) && optionalOf.isAssignableFrom(patchValueType)) {
+                return true;
+            }
+        } else if (wrap(targetValueType).isAssignableFrom(wrap(patchValueType))) {
+            return false;
+        }
+        throw new IllegalArgumentException("Cannot patch [" + targetProperty.getName() + "] of type ["
+                + targetValueType.getSimpleName() + "] with a [" + patchValueType.getSimpleName() + "].");
+    }
+
+    private static MethodHandle accessor(MethodHandles.Lookup lookup, Method method) {
+        try {
+            return lookup.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access [" + method + "].", e);
+        }
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    private static boolean differs(Object value, Object current) {
+        return Objects.nonNull(value) && !value.equals(current);
+    }
+
+    private static boolean differsFromOptional(Object value, Object current) {
+        return Objects.nonNull(value)
+                && !(current instanceof Optional<?> optional && optional.isPresent() && value.equals(optional.get()));
+    }
+
+    private static long or(long changed, long step) {
+        return changed | step;
+    }
+
+}
@@ -4,20 +4,20 @@ import com.fedorniakm.demo.model.UserPatch;
 import com.fedorniakm.demo.persistence.entity.UserEntity;
 import org.springframework.stereotype.Component;
 
-import java.util.Objects;
-
 @Component
 public class UserEntityPatcher implements Patcher<UserEntity, UserPatch> {
 
+    private static final PatchPlan<UserEntity, UserPatch> PLAN = PatchPlan.of(UserEntity.class, UserPatch.class);
+
     @Override
     public void patch(UserEntity target, UserPatch patch) {
-        Objects.requireNonNull(target);
-        Objects.requireNonNull(patch);
-        patchNotEmpty(patch.getEmail(), target::setEmail);
-        patchNotEmpty(patch.getFirstName(), target::setFirstName);
-        patchNotEmpty(patch.getLastName(), target::setLastName);
-        patchNonNull(patch.getBirthDate(), target::setBirthDate);
-        patchNonNull(patch.getAddress(), target::setAddress);
-        patchNonNull(patch.getPhoneNumber(), target::setPhoneNumber);
+        apply(target, patch);
+    }
+
+    /**
+     * @return The fields that got a different value.
+     */
+    public PatchPlan.Changes apply(UserEntity target, UserPatch patch) {
+        return PLAN.apply(target, patch);
     }
 }
@@ -0,0 +1,105 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.UserCursor;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * User ids by birth date, ordered by (birthDate, id) like {@link UserCursor}, as sorted primitive arrays
+ * per epoch day. Takes 8 bytes per user besides the days themselves. Not thread-safe.
+ */
+class BirthDateIndex {
+
+    private static final class Day {
+
+        long[] ids = new long[4];
+        int size;
+
+        int indexOf(long id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+    }
+
+    private final NavigableMap<Integer, Day> days = new TreeMap<>();
+    private int size;
+
+    public void add(int epochDay, long id) {
+        var day = days.computeIfAbsent(epochDay, key -> new Day());
+        var index = day.indexOf(id);
+        if (index >= 0) {
+            return;
+        }
+        var insertion = -index - 1;
+        if (day.size == day.ids.length) {
+            day.ids = Arrays.copyOf(day.ids, day.size * 2);
+        }
+        System.arraycopy(day.ids, insertion, day.ids, insertion + 1, day.size - insertion);
+        day.ids[insertion] = id;
+        day.size++;
+        size++;
+    }
+
+    public void remove(int epochDay, long id) {
+        var day = days.get(epochDay);
+        if (day == null) {
+            return;
+        }
+        var index = day.indexOf(id);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(day.ids, index + 1, day.ids, index, day.size - index - 1);
+        day.size--;
+        size--;
+        if (day.size == 0) {
+            days.remove(epochDay);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param after Exclusive lower bound, none to start from the first user.
+     * @param to Exclusive upper bound on the birth date.
+     * @return Ids of at most {@code limit} users following the lower bound, in order.
+     */
+    public long[] range(Optional<UserCursor> after, Optional<LocalDate> to, int limit) {
+        int fromDay = after.map(cursor -> toEpochDay(cursor.birthDate())).orElse(Integer.MIN_VALUE);
+        long afterId = after.map(UserCursor::id).orElse(Long.MIN_VALUE);
+        var range = days.tailMap(fromDay, true);
+        if (to.isPresent()) {
+            range = range.headMap(toEpochDay(to.get()), false);
+        }
+        var ids = new long[Math.min(limit, size)];
+        var count = 0;
+        for (var entry : range.entrySet()) {
+            var day = entry.getValue();
+            var start = 0;
+            if (entry.getKey() == fromDay && after.isPresent()) {
+                var index = day.indexOf(afterId);
+                start = index >= 0 ? index + 1 : -index - 1;
+            }
+            var length = Math.min(day.size - start, ids.length - count);
+            System.arraycopy(day.ids, start, ids, count, length);
+            count += length;
+            if (count == ids.length) {
+                break;
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Dates far outside of the int range cannot be stored, so they are clamped to the nearest one.
+     */
+    static int toEpochDay(LocalDate date) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, date.toEpochDay()));
+    }
+
+}
@@ -0,0 +1,200 @@
+package com.fedorniakm.demo.service.store;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collector;
+
+/**
+ * Rows with their birth dates in a primitive column of epoch days, so that a range of dates is found by
+ * a {@link DayScan} over plain ints rather than by comparing dates object by object. Only the rows of the
+ * matching days are then read. Large columns are scanned on the common fork/join pool.
+ * <p>
+ * Rows are kept in slots, in chunks that are never copied as the column grows, and the slots of removed rows
+ * are reused. Adding and removing rows is thread-safe. Setting a row is safe as long as its slot is only changed
+ * by one thread at a time. Scans run alongside the writes and see each slot either before or after a write.
+ */
+public class BirthDayColumn<T> {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /**
+     * Days compared at a time, so that the selected positions stay in the L1 cache.
+     */
+    private static final int BLOCK_SIZE = 1024;
+    private static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    private final DayScan scan;
+    private final int parallelThreshold;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile int[][] days = new int[0][];
+    private volatile Object[][] rows = new Object[0][];
+    /**
+     * Slots in use or freed so far, written last when a slot is added.
+     */
+    private volatile int size;
+    private int[] free = new int[16];
+    private int freeCount;
+
+    public BirthDayColumn() {
+        this(DayScan.best(), PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param parallelThreshold Number of slots from which a scan is split across the fork/join pool.
+     */
+    public BirthDayColumn(DayScan scan, int parallelThreshold) {
+        this.scan = scan;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * @return Slot of the row.
+     */
+    public int add(int epochDay, T row) {
+        lock.lock();
+        try {
+            int slot;
+            if (freeCount > 0) {
+                slot = free[--freeCount];
+            } else {
+                slot = size;
+                if ((slot & CHUNK_MASK) == 0) {
+                    grow();
+                }
+            }
+            days[slot >>> CHUNK_BITS][slot & CHUNK_MASK] = epochDay;
+            rows[slot >>> CHUNK_BITS][slot & CHUNK_MASK] = row;
+            if (slot == size) {
+                size = slot + 1;
+            }
+            return slot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void grow() {
+        var chunks = days.length;
+        var grownRows = Arrays.copyOf(rows, chunks + 1);
+        grownRows[chunks] = new Object[CHUNK_SIZE];
+        var grownDays = Arrays.copyOf(days, chunks + 1);
+        grownDays[chunks] = new int[CHUNK_SIZE];
+        rows = grownRows;
+        days = grownDays;
+    }
+
+    /**
+     * Replaces the row of a slot, keeping its day.
+     */
+    public void set(int slot, T row) {
+        rows[slot >>> CHUNK_BITS][slot & CHUNK_MASK] = row;
+    }
+
+    public void remove(int slot) {
+        lock.lock();
+        try {
+            rows[slot >>> CHUNK_BITS][slot & CHUNK_MASK] = null;
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, freeCount * 2);
+            }
+            free[freeCount++] = slot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Collects the rows of the days from {@code from} to {@code to}, both inclusive, in no particular order.
+     * Bounds beyond the int range stand for no bound.
+     */
+    public <A, R> R collect(long from, long to, Collector<? super T, A, R> collector) {
+        var slots = size;
+        var result = from > to || from > Integer.MAX_VALUE || to < Integer.MIN_VALUE || slots == 0
+                ? collector.supplier().get()
+                : collect((int) Math.max(from, Integer.MIN_VALUE), (int) Math.min(to, Integer.MAX_VALUE),
+                        slots, collector);
+        return collector.finisher().apply(result);
+    }
+
+    private <A> A collect(int from, int to, int slots, Collector<? super T, A, ?> collector) {
+        var scanning = new Scan<>(from, to, days, rows, slots, 0, chunks(slots), collector);
+        if (slots < parallelThreshold || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            return scanning.compute();
+        }
+        return ForkJoinPool.commonPool().invoke(scanning);
+    }
+
+    private static int chunks(int slots) {
+        return (slots + CHUNK_MASK) >>> CHUNK_BITS;
+    }
+
+    @Override
+    public String toString() {
+        return "BirthDayColumn[" + scan + "]";
+    }
+
+    /**
+     * Scans a range of chunks, splitting it in halves down to single chunks on the fork/join pool.
+     */
+    private final class Scan<A> extends RecursiveTask<A> {
+
+        private final int from;
+        private final int to;
+        private final int[][] days;
+        private final Object[][] rows;
+        private final int slots;
+        private final int firstChunk;
+        private final int lastChunk;
+        private final Collector<? super T, A, ?> collector;
+
+        Scan(int from, int to, int[][] days, Object[][] rows, int slots,
+             int firstChunk, int lastChunk, Collector<? super T, A, ?> collector) {
+            this.from = from;
+            this.to = to;
+            this.days = days;
+            this.rows = rows;
+            this.slots = slots;
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+            this.collector = collector;
+        }
+
+        @Override
+        protected A compute() {
+            if (lastChunk - firstChunk > 1 && slots >= parallelThreshold && inForkJoinPool()) {
+                var middle = (firstChunk + lastChunk) >>> 1;
+                var left = new Scan<>(from, to, days, rows, slots, firstChunk, middle, collector);
+                left.fork();
+                var right = new Scan<>(from, to, days, rows, slots, middle, lastChunk, collector).compute();
+                return collector.combiner().apply(left.join(), right);
+            }
+            var result = collector.supplier().get();
+            var selection = new int[BLOCK_SIZE];
+            for (int chunk = firstChunk; chunk < lastChunk; chunk++) {
+                scanChunk(chunk, result, selection);
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void scanChunk(int chunk, A result, int[] selection) {
+            var accumulator = collector.accumulator();
+            var chunkDays = days[chunk];
+            var chunkRows = rows[chunk];
+            var end = Math.min(CHUNK_SIZE, slots - (chunk << CHUNK_BITS));
+            for (int start = 0; start < end; start += BLOCK_SIZE) {
+                var selected = scan.select(chunkDays, start, Math.min(start + BLOCK_SIZE, end), from, to, selection);
+                for (int i = 0; i < selected; i++) {
+                    var row = chunkRows[selection[i]];
+                    if (row != null) {
+                        accumulator.accept(result, (T) row);
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A user as kept by a {@link HeapUserStore}, in 64 bytes besides its strings. First and last names and the domain
+ * of the email are shared {@link Dictionary} instances, other strings are UTF-8 bytes, the birth date is an epoch day,
+ * the modification time epoch nanoseconds and absent values {@code null}. Immutable.
+ */
+final class CompactUser {
+
+    /**
+     * Estimated heap size of the object itself, with compressed references: a 12 bytes header,
+     * 3 longs, an int and 6 references.
+     */
+    private static final long OBJECT_BYTES = 64;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long id;
+    private final long version;
+    private final long updatedAt;
+    private final int birthDay;
+    /**
+     * A shared {@link String} or UTF-8 bytes.
+     */
+    private final Object firstName;
+    private final Object lastName;
+    /**
+     * The email up to the last {@code @}, or all of it if it has none.
+     */
+    private final byte[] emailLocalPart;
+    /**
+     * The email after the last {@code @}, a shared {@link String} or UTF-8 bytes, {@code null} if there is no {@code @}.
+     */
+    private final Object emailDomain;
+    private final byte[] address;
+    private final byte[] phoneNumber;
+
+    private CompactUser(User user, Dictionary<String> names, Dictionary<String> domains) {
+        this.id = user.getId();
+        this.version = user.getVersion();
+        this.updatedAt = Math.addExact(Math.multiplyExact(user.getUpdatedAt().getEpochSecond(), NANOS_PER_SECOND),
+                user.getUpdatedAt().getNano());
+        this.birthDay = toEpochDay(user.getBirthDate());
+        this.firstName = encode(user.getFirstName(), names);
+        this.lastName = encode(user.getLastName(), names);
+        var email = user.getEmail();
+        var at = email == null ? -1 : email.lastIndexOf('@');
+        this.emailLocalPart = at < 0 ? utf8(email) : utf8(email.substring(0, at));
+        this.emailDomain = at < 0 ? null : encode(email.substring(at + 1), domains);
+        this.address = utf8OrNull(user.getAddress());
+        this.phoneNumber = utf8OrNull(user.getPhoneNumber());
+    }
+
+    /**
+     * @throws IllegalArgumentException If the birth date is beyond the int range of epoch days.
+     */
+    static CompactUser of(User user, Dictionary<String> names, Dictionary<String> domains) {
+        return new CompactUser(user, names, domains);
+    }
+
+    long id() {
+        return id;
+    }
+
+    long version() {
+        return version;
+    }
+
+    Instant updatedAt() {
+        return instant(updatedAt);
+    }
+
+    long updatedAtNanos() {
+        return updatedAt;
+    }
+
+    int birthDay() {
+        return birthDay;
+    }
+
+    LocalDate birthDate() {
+        return LocalDate.ofEpochDay(birthDay);
+    }
+
+    String email() {
+        if (emailLocalPart == null) {
+            return null;
+        }
+        var localPart = new String(emailLocalPart, StandardCharsets.UTF_8);
+        return emailDomain == null ? localPart : localPart + '@' + decode(emailDomain);
+    }
+
+    String firstName() {
+        return decode(firstName);
+    }
+
+    String lastName() {
+        return decode(lastName);
+    }
+
+    Optional<String> address() {
+        return Optional.ofNullable(decode(address));
+    }
+
+    Optional<String> phoneNumber() {
+        return Optional.ofNullable(decode(phoneNumber));
+    }
+
+    UserCursor cursor(Dictionary<LocalDate> dates) {
+        var birthDate = birthDate();
+        var shared = dates.intern(birthDate);
+        return new UserCursor(shared == null ? birthDate : shared, id);
+    }
+
+    /**
+     * @return A copy of the user that can be changed.
+     */
+    User toUser() {
+        return new User(id, email(), firstName(), lastName(), birthDate(),
+                address(), phoneNumber(), version, updatedAt());
+    }
+
+    /**
+     * @param epochNanos Nanoseconds since the epoch, like {@link #updatedAtNanos()}.
+     */
+    static Instant instant(long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND), Math.floorMod(epochNanos, NANOS_PER_SECOND));
+    }
+
+    /**
+     * @return Estimated heap size of the user, without the shared strings.
+     */
+    long estimatedBytes() {
+        return OBJECT_BYTES + arrayBytes(firstName) + arrayBytes(lastName) + arrayBytes(emailLocalPart)
+                + arrayBytes(emailDomain) + arrayBytes(address) + arrayBytes(phoneNumber);
+    }
+
+    /**
+     * @return Estimated heap size of a string, with compact Latin-1 strings.
+     */
+    static long stringBytes(String value) {
+        return 24 + align(16 + value.length());
+    }
+
+    private static long arrayBytes(Object value) {
+        return value instanceof byte[] bytes ? align(16 + bytes.length) : 0;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static int toEpochDay(LocalDate date) {
+        var epochDay = date.toEpochDay();
+        if (epochDay != (int) epochDay) {
+            throw new IllegalArgumentException("Birth date out of range: " + date);
+        }
+        return (int) epochDay;
+    }
+
+    private static Object encode(String value, Dictionary<String> dictionary) {
+        if (value == null) {
+            return null;
+        }
+        var shared = dictionary.intern(value);
+        return shared != null ? shared : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String decode(Object value) {
+        if (value instanceof byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        return (String) value;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8OrNull(Optional<String> value) {
+        return value == null ? null : value.map(CompactUser::utf8).orElse(null);
+    }
+
+}
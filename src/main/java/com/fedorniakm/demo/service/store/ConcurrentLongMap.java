@@ -0,0 +1,291 @@
+package com.fedorniakm.demo.service.store;
+
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Concurrent map keyed by primitive longs, so that no key is ever boxed.
+ * <p>
+ * Keys are spread over segments, each an open addressing table guarded by its own {@link StampedLock}.
+ * Reads are optimistic and take the read lock only when a write to the same segment interleaved.
+ * Iteration is weakly consistent: it sees every segment as of the moment it gets to it.
+ */
+class ConcurrentLongMap<V> {
+
+    private static final int SEGMENT_CAPACITY = 16;
+    private static final long SPREAD = 0x9E3779B97F4A7C15L;
+
+    private static final class Table {
+
+        final long[] keys;
+        final Object[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+    }
+
+    private static final class Segment {
+
+        final StampedLock lock = new StampedLock();
+        Table table = new Table(SEGMENT_CAPACITY);
+        int size;
+    }
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    ConcurrentLongMap() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    ConcurrentLongMap(int concurrency) {
+        var segmentCount = Integer.highestOneBit(Math.max(concurrency - 1, 1)) << 1;
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment();
+        }
+        segmentShift = Long.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    public V get(long key) {
+        var hash = hash(key);
+        var segment = segment(hash);
+        var stamp = segment.lock.tryOptimisticRead();
+        V value = find(segment.table, key, hash);
+        if (!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                value = find(segment.table, key, hash);
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return The previous value, or {@code null} if there was none.
+     */
+    public V put(long key, V value) {
+        Objects.requireNonNull(value);
+        var hash = hash(key);
+        var segment = segment(hash);
+        var stamp = segment.lock.writeLock();
+        try {
+            return put(segment, key, hash, value);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return The removed value, or {@code null} if there was none.
+     */
+    public V remove(long key) {
+        var hash = hash(key);
+        var segment = segment(hash);
+        var stamp = segment.lock.writeLock();
+        try {
+            return remove(segment, key, hash);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the value by the result of the function, or removes it if the result is {@code null}.
+     * The function runs under the segment lock, so it is atomic towards other writes of the key.
+     * @return The new value, or {@code null} if there was no value or it got removed.
+     */
+    public V computeIfPresent(long key, UnaryOperator<V> remapping) {
+        var hash = hash(key);
+        var segment = segment(hash);
+        var stamp = segment.lock.writeLock();
+        try {
+            V current = find(segment.table, key, hash);
+            if (current == null) {
+                return null;
+            }
+            var value = remapping.apply(current);
+            if (value == null) {
+                remove(segment, key, hash);
+            } else if (value != current) {
+                put(segment, key, hash, value);
+            }
+            return value;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the value by the result of the function, given {@code null} if there is none,
+     * or removes it if the result is {@code null}. Runs under the segment lock like {@link #computeIfPresent}.
+     * @return The new value.
+     */
+    public V compute(long key, UnaryOperator<V> remapping) {
+        var hash = hash(key);
+        var segment = segment(hash);
+        var stamp = segment.lock.writeLock();
+        try {
+            V current = find(segment.table, key, hash);
+            var value = remapping.apply(current);
+            if (value == null) {
+                if (current != null) {
+                    remove(segment, key, hash);
+                }
+            } else if (value != current) {
+                put(segment, key, hash, value);
+            }
+            return value;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        var size = 0;
+        for (var segment : segments) {
+            var stamp = segment.lock.readLock();
+            try {
+                size += segment.size;
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super V> action) {
+        for (var segment : segments) {
+            Object[] values;
+            var stamp = segment.lock.readLock();
+            try {
+                values = segment.table.values.clone();
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+            for (var value : values) {
+                if (value != null) {
+                    action.accept((V) value);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        for (var segment : segments) {
+            var stamp = segment.lock.writeLock();
+            try {
+                segment.table = new Table(SEGMENT_CAPACITY);
+                segment.size = 0;
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private Segment segment(long hash) {
+        return segments[(int) (hash >>> segmentShift)];
+    }
+
+    /**
+     * Bounded by the table length, so that a read racing a write cannot loop forever before it is validated.
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> V find(Table table, long key, long hash) {
+        var mask = table.keys.length - 1;
+        var slot = slot(hash, mask);
+        for (int probes = 0; probes <= mask; probes++) {
+            var value = table.values[slot];
+            if (value == null) {
+                return null;
+            }
+            if (table.keys[slot] == key) {
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V put(Segment segment, long key, long hash, V value) {
+        var table = segment.table;
+        var mask = table.keys.length - 1;
+        var slot = slot(hash, mask);
+        while (table.values[slot] != null) {
+            if (table.keys[slot] == key) {
+                var previous = (V) table.values[slot];
+                table.values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table.keys[slot] = key;
+        table.values[slot] = value;
+        if (++segment.size > table.keys.length * 3 / 4) {
+            resize(segment);
+        }
+        return null;
+    }
+
+    /**
+     * Shifts the following entries of the probe sequence back into the freed slot, so no tombstones are needed.
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> V remove(Segment segment, long key, long hash) {
+        var table = segment.table;
+        var mask = table.keys.length - 1;
+        var slot = slot(hash, mask);
+        while (table.values[slot] != null && table.keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        var removed = (V) table.values[slot];
+        if (removed == null) {
+            return null;
+        }
+        for (int next = (slot + 1) & mask; table.values[next] != null; next = (next + 1) & mask) {
+            var home = slot(hash(table.keys[next]), mask);
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                table.keys[slot] = table.keys[next];
+                table.values[slot] = table.values[next];
+                slot = next;
+            }
+        }
+        table.values[slot] = null;
+        segment.size--;
+        return removed;
+    }
+
+    private static void resize(Segment segment) {
+        var old = segment.table;
+        var table = new Table(old.keys.length * 2);
+        var mask = table.keys.length - 1;
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.values[i] != null) {
+                var slot = slot(hash(old.keys[i]), mask);
+                while (table.values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                table.keys[slot] = old.keys[i];
+                table.values[slot] = old.values[i];
+            }
+        }
+        segment.table = table;
+    }
+
+    private static long hash(long key) {
+        return key * SPREAD;
+    }
+
+    private static int slot(long hash, int mask) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.fedorniakm.demo.service.store;
+
+import java.util.Optional;
+
+/**
+ * Selects the positions of a range of epoch days within a column of them.
+ * <p>
+ * The SIMD implementation uses the incubating Vector API. It is only compiled with the {@code vector} Maven profile,
+ * which keeps the default build free of the incubating module warning, and only used when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}. Otherwise the scalar implementation is used.
+ */
+public interface DayScan {
+
+    String VECTOR_MODULE = "jdk.incubator.vector";
+    String VECTOR_SCAN = "com.fedorniakm.demo.service.store.VectorDayScan";
+
+    /**
+     * @param from Inclusive lower bound, at most {@code to}.
+     * @param to Inclusive upper bound.
+     * @param selection Receives the positions, at least {@code end - start} long.
+     * @return Number of positions of {@code days[start..end)} within the range, written to the selection in order.
+     */
+    int select(int[] days, int start, int end, int from, int to, int[] selection);
+
+    static DayScan scalar() {
+        return new ScalarDayScan();
+    }
+
+    /**
+     * @return The SIMD implementation, none if it was not compiled or the Vector API module is not loaded.
+     */
+    static Optional<DayScan> vector() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of((DayScan) Class.forName(VECTOR_SCAN).getDeclaredConstructor().newInstance());
+        } catch (ClassNotFoundException e) {
+            return Optional.empty();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create the vector day scan.", e);
+        }
+    }
+
+    static DayScan best() {
+        return vector().orElseGet(DayScan::scalar);
+    }
+
+}
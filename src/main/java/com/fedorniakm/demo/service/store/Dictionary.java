@@ -0,0 +1,74 @@
+package com.fedorniakm.demo.service.store;
+
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Shared instances of repeating values, so that every user holding a value references the same instance.
+ * Holds up to a fixed number of values, and never forgets one, so values that do not repeat are better kept
+ * outside of it once it is full. Thread-safe.
+ */
+class Dictionary<T> {
+
+    /**
+     * Estimated bytes of a {@link ConcurrentHashMap} entry besides the value: the node and its table slot.
+     */
+    private static final long ENTRY_BYTES = 32 + 8;
+
+    private final ConcurrentHashMap<T, T> values = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final ToLongFunction<T> valueBytes;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final AtomicLong bytes = new AtomicLong();
+
+    /**
+     * @param valueBytes Estimated heap size of a value.
+     */
+    Dictionary(int maxSize, ToLongFunction<T> valueBytes) {
+        this.maxSize = maxSize;
+        this.valueBytes = valueBytes;
+    }
+
+    /**
+     * @return The shared instance equal to the value, or {@code null} if there is none and the dictionary is full.
+     */
+    T intern(T value) {
+        lookups.increment();
+        var shared = values.get(value);
+        if (shared != null) {
+            hits.increment();
+            return shared;
+        }
+        if (values.size() >= maxSize) {
+            return null;
+        }
+        shared = values.putIfAbsent(value, value);
+        if (shared != null) {
+            hits.increment();
+            return shared;
+        }
+        bytes.addAndGet(ENTRY_BYTES + valueBytes.applyAsLong(value));
+        return value;
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * @return Share of the lookups that found the value already there, 0 before the first lookup.
+     */
+    double hitRatio() {
+        var count = lookups.sum();
+        return count == 0 ? 0 : (double) hits.sum() / count;
+    }
+
+    long estimatedBytes() {
+        return bytes.get();
+    }
+
+}
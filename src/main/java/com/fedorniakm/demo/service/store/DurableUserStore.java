@@ -0,0 +1,408 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.Revision;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * {@link HeapUserStore} made durable by a {@link WriteAheadLog} of every change and periodic snapshots.
+ * <p>
+ * A write returns once its change is forced to disk, which takes up to the commit window plus one fsync,
+ * shared by all the writes of the window. A change is appended to the log before it is made on the heap,
+ * so a change the log rejects is not made, and a read returns once every change it could have seen is on disk,
+ * so that it never returns a change a crash could still lose. A snapshot is written in the background, partitioned into
+ * several files, after which the segments of the log it covers are deleted, so that the log stays short.
+ * Opening the store reads the parts of the latest snapshot in parallel, then replays the log after it.
+ */
+public class DurableUserStore implements UserStore, Closeable, MeterBinder {
+
+    private static final Log log = LogFactory.getLog(DurableUserStore.class);
+
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d{10})");
+    private static final String NEXT_ID_FILE = "next-id";
+
+    private final Path directory;
+    private final HeapUserStore heap;
+    private final WriteAheadLog wal;
+    private final ScheduledExecutorService snapshots;
+
+    private DurableUserStore(Path directory, UserPatcher userPatcher, Duration commitWindow,
+                             long segment) throws IOException {
+        this.directory = directory;
+        this.heap = new HeapUserStore(userPatcher, new UserChangeListener() {
+            @Override
+            public void stored(User user) {
+                wal.append(UserRecords.put(user));
+            }
+
+            @Override
+            public void deleted(long id) {
+                wal.append(UserRecords.delete(id));
+            }
+
+            /**
+             * Appends the records of the batch with a single append, so that either all of them are logged or none.
+             */
+            @Override
+            public void storedAll(List<User> users) {
+                var records = new ByteArrayOutputStream(users.size() * 128);
+                users.forEach(user -> records.writeBytes(UserRecords.put(user)));
+                wal.append(records.toByteArray());
+            }
+        });
+        this.wal = new WriteAheadLog(directory, commitWindow, segment);
+        this.snapshots = Executors.newSingleThreadScheduledExecutor(task -> {
+            var thread = new Thread(task, "user-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Recovers the users kept in the directory, or starts empty if there are none.
+     * @param commitWindow How long the log waits for more writes before forcing them to disk.
+     * @param snapshotInterval How often a snapshot is written, zero to only write them on demand.
+     */
+    public static DurableUserStore open(Path directory, UserPatcher userPatcher, Duration commitWindow,
+                                        Duration snapshotInterval) throws IOException {
+        Files.createDirectories(directory);
+        deleteUnfinishedSnapshots(directory);
+        var snapshot = latestSnapshot(directory);
+        var segments = WriteAheadLog.segments(directory);
+        var firstSegment = snapshot.orElse(0L);
+        var nextSegment = Math.max(firstSegment, segments.length == 0 ? 0L : segments[segments.length - 1] + 1);
+        var store = new DurableUserStore(directory, userPatcher, commitWindow, nextSegment);
+        try {
+            store.recover(snapshot, LongStream.of(segments).filter(number -> number >= firstSegment).toArray());
+        } catch (RuntimeException | IOException e) {
+            store.close();
+            throw e;
+        }
+        if (!snapshotInterval.isZero()) {
+            var millis = snapshotInterval.toMillis();
+            store.snapshots.scheduleWithFixedDelay(store::snapshotQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        }
+        return store;
+    }
+
+    /**
+     * Restores the snapshot parts in parallel, each in (birthDate, id) order, which is the cheapest order
+     * to build the index in, then replays the log after the snapshot in order. New records go into
+     * a segment of their own, since the last one may end with a torn record.
+     */
+    private void recover(Optional<Long> snapshot, long[] segments) throws IOException {
+        if (snapshot.isPresent()) {
+            var snapshotDirectory = snapshotPath(directory, snapshot.get());
+            try (var in = new DataInputStream(Files.newInputStream(snapshotDirectory.resolve(NEXT_ID_FILE)))) {
+                heap.restoreNextId(in.readLong());
+            }
+            List<Path> parts;
+            try (Stream<Path> files = Files.list(snapshotDirectory)) {
+                parts = files.filter(file -> file.getFileName().toString().startsWith("part-")).toList();
+            }
+            parts.parallelStream().forEach(part -> UserRecords.read(part, entry -> heap.restore(entry.user())));
+        }
+        var logs = LongStream.of(segments)
+                .mapToObj(segment -> WriteAheadLog.segmentPath(directory, segment))
+                .parallel()
+                .map(DurableUserStore::readAll)
+                .toList();
+        for (var records : logs) {
+            for (var entry : records) {
+                if (entry.isDelete()) {
+                    heap.restoreDeletion(entry.id());
+                } else {
+                    heap.restore(entry.user());
+                }
+                heap.restoreNextId(entry.id() + 1);
+            }
+        }
+    }
+
+    private static List<UserRecords.Entry> readAll(Path file) {
+        var entries = new ArrayList<UserRecords.Entry>();
+        UserRecords.read(file, entries::add);
+        return entries;
+    }
+
+    /**
+     * Writes all users to a new snapshot, then deletes the older snapshots and the log they cover.
+     * Writes go on meanwhile, so the snapshot holds any state of a user changed meanwhile, which is fine
+     * since the log from the start of the snapshot is kept. The users are split by (birthDate, id)
+     * into one part per processor, to be read back in parallel.
+     */
+    public synchronized void snapshot() throws IOException {
+        var segment = wal.rotate();
+        var target = snapshotPath(directory, segment);
+        var temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        FileSystemUtils.deleteRecursively(temporary);
+        Files.createDirectories(temporary);
+        var partCount = Math.max(1, Runtime.getRuntime().availableProcessors());
+        var channels = new FileChannel[partCount];
+        var outputs = new OutputStream[partCount];
+        try {
+            for (int i = 0; i < partCount; i++) {
+                channels[i] = FileChannel.open(temporary.resolve("part-%03d.dat".formatted(i)),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                outputs[i] = new BufferedOutputStream(Channels.newOutputStream(channels[i]), 1 << 16);
+            }
+            // Read after the rotation, so that it covers every id in the log before the snapshot.
+            var nextId = heap.nextId();
+            var partSize = Math.max(1, heap.size() / partCount + 1);
+            var written = new long[1];
+            heap.forEach(user -> {
+                var part = (int) Math.min(partCount - 1, written[0]++ / partSize);
+                try {
+                    outputs[part].write(UserRecords.put(user));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            for (int i = 0; i < partCount; i++) {
+                outputs[i].flush();
+                channels[i].force(true);
+            }
+            try (var channel = FileChannel.open(temporary.resolve(NEXT_ID_FILE),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                 var out = new DataOutputStream(Channels.newOutputStream(channel))) {
+                out.writeLong(nextId);
+                out.flush();
+                channel.force(true);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (var channel : channels) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        for (var older : snapshots(directory)) {
+            if (older < segment) {
+                FileSystemUtils.deleteRecursively(snapshotPath(directory, older));
+            }
+        }
+        wal.deleteBefore(segment);
+    }
+
+    private void snapshotQuietly() {
+        try {
+            var start = System.nanoTime();
+            snapshot();
+            log.info("Wrote a snapshot of the users in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not write a snapshot of the users.", e);
+        }
+    }
+
+    private static void deleteUnfinishedSnapshots(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (var file : files.filter(file -> file.getFileName().toString().endsWith(".tmp")).toList()) {
+                FileSystemUtils.deleteRecursively(file);
+            }
+        }
+    }
+
+    private static Path snapshotPath(Path directory, long segment) {
+        return directory.resolve("snapshot-%010d".formatted(segment));
+    }
+
+    private static long[] snapshots(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isDirectory)
+                    .map(file -> SNAPSHOT.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .mapToLong(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toArray();
+        }
+    }
+
+    private static Optional<Long> latestSnapshot(Path directory) throws IOException {
+        var snapshots = snapshots(directory);
+        return snapshots.length == 0 ? Optional.empty() : Optional.of(snapshots[snapshots.length - 1]);
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    public HeapUserStore.Footprint footprint() {
+        return heap.footprint();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        heap.bindTo(registry);
+    }
+
+    @Override
+    public List<User> getAll() {
+        return durable(heap.getAll());
+    }
+
+    @Override
+    public List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return durable(heap.getAll(from, to));
+    }
+
+    /**
+     * The stream sees the users as of the call, so it only waits for the changes made before.
+     */
+    @Override
+    public Stream<User> stream(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var users = heap.stream(from, to);
+        try {
+            wal.sync();
+        } catch (RuntimeException e) {
+            users.close();
+            throw e;
+        }
+        return users;
+    }
+
+    @Override
+    public List<User> getPage(Optional<LocalDate> from, Optional<LocalDate> to,
+                              Optional<UserCursor> after, int limit) {
+        return durable(heap.getPage(from, to, after, limit));
+    }
+
+    @Override
+    public Revision getRevision(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return durable(heap.getRevision(from, to));
+    }
+
+    @Override
+    public Optional<User> getById(Long id) {
+        return durable(heap.getById(id));
+    }
+
+    @Override
+    public Optional<User> getByEmail(String email) {
+        return durable(heap.getByEmail(email));
+    }
+
+    /**
+     * @return What was read, once every change appended to the log so far, including any it saw, is on disk.
+     */
+    private <T> T durable(T read) {
+        wal.sync();
+        return read;
+    }
+
+    @Override
+    public User create(User user) {
+        var created = heap.create(user);
+        wal.sync();
+        return created;
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        var created = heap.createAll(users);
+        wal.sync();
+        return created;
+    }
+
+    @Override
+    public boolean deleteById(Long id) {
+        var deleted = heap.deleteById(id);
+        wal.sync();
+        return deleted;
+    }
+
+    @Override
+    public boolean replace(User user) {
+        var replaced = heap.replace(user);
+        wal.sync();
+        return replaced;
+    }
+
+    @Override
+    public boolean patch(Long id, UserPatch userPatch) {
+        var patched = heap.patch(id, userPatch);
+        wal.sync();
+        return patched;
+    }
+
+    @Override
+    public int patchAll(Collection<Long> ids, UserPatch userPatch) {
+        var patched = heap.patchAll(ids, userPatch);
+        wal.sync();
+        return patched;
+    }
+
+    @Override
+    public int patchAll(Optional<LocalDate> from, Optional<LocalDate> to, UserPatch userPatch) {
+        var patched = heap.patchAll(from, to, userPatch);
+        wal.sync();
+        return patched;
+    }
+
+    @Override
+    public int deleteAll(Collection<Long> ids) {
+        var deleted = heap.deleteAll(ids);
+        wal.sync();
+        return deleted;
+    }
+
+    @Override
+    public int deleteAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var deleted = heap.deleteAll(from, to);
+        wal.sync();
+        return deleted;
+    }
+
+    /**
+     * Stops the snapshots and forces what is left of the log.
+     */
+    @Override
+    public void close() throws IOException {
+        snapshots.shutdownNow();
+        try {
+            snapshots.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        wal.close();
+    }
+
+}
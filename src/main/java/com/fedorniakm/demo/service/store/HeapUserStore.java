@@ -0,0 +1,917 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.Revision;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.DuplicateEmailException;
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe heap store, with users by id in a {@link ConcurrentLongMap} and by (birthDate, id) in a skip list,
+ * so that range reads cost O(log n + k).
+ * <p>
+ * Stored users are immutable versions. Every write publishes a new {@link CompactUser} while holding the lock
+ * of its id, and numbers it with a commit stamp, the stamps being made visible in order. Reads by id return
+ * the latest version without locking, as an {@link ImmutableUser} view. Range reads take the latest visible stamp and see every user as of it,
+ * following the older versions kept in the index, so that they are consistent without blocking the writers.
+ * Versions no read can see anymore are pruned after the writes.
+ * <p>
+ * Emails are unique ignoring case: the id holding each {@link User#emailKey(String)} is kept in a hash map,
+ * claimed under the lock of the id before the commit that takes the email, so that of two users created with
+ * the same email at once, one fails with a {@link DuplicateEmailException}.
+ * <p>
+ * The {@link UserChangeListener} is told about a change after its email is claimed and before it is committed,
+ * so that a change the listener fails on leaves the store as it was.
+ * <p>
+ * The positions of the index are mirrored in a {@link BirthDayColumn}, for the range reads that need no order,
+ * like revisions and the range patches and deletions, which scan the column of birth days instead of the skip list.
+ * <p>
+ * Names, email domains and the birth dates of the index are shared through dictionaries.
+ * {@link #footprint()} estimates the heap taken per user, also published as metrics.
+ */
+public class HeapUserStore implements UserStore, MeterBinder {
+
+    /**
+     * Estimated heap taken by the store.
+     * @param users Number of users.
+     * @param bytes Estimated bytes of the users, their indexes and the dictionaries.
+     * @param nameHitRatio Share of the first and last names found in the dictionary.
+     * @param domainHitRatio Share of the email domains found in the dictionary.
+     */
+    public record Footprint(long users, long bytes, double nameHitRatio, double domainHitRatio) {
+
+        public double bytesPerUser() {
+            return users == 0 ? 0 : (double) bytes / users;
+        }
+    }
+
+    /**
+     * A version of a user at its position in the index, visible to the reads from the stamp of its commit
+     * until the stamp of the commit that replaced or deleted it. Older versions at the same position follow it.
+     */
+    private static final class Version {
+
+        final CompactUser user;
+        final long created;
+        volatile long removed = Long.MAX_VALUE;
+        volatile Version previous;
+        /**
+         * Slot of the position in the column, shared by the versions at the same position.
+         */
+        int slot;
+
+        Version(CompactUser user, long created, Version previous) {
+            this.user = user;
+            this.created = created;
+            this.previous = previous;
+        }
+    }
+
+    /**
+     * A replaced or deleted version, to be unlinked from the index once no read can see it.
+     */
+    private record Retired(UserCursor cursor, Version version) { }
+
+    /**
+     * An open range read, registered in a slot, or among the overflowing reads when every slot is taken.
+     * The sequence tells apart the overflowing reads of the same stamp.
+     */
+    private record ReadView(long stamp, int slot, long sequence) implements Comparable<ReadView> {
+
+        @Override
+        public int compareTo(ReadView other) {
+            var byStamp = Long.compare(stamp, other.stamp);
+            return byStamp != 0 ? byStamp : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private record Snapshot(long stamp, List<User> users) { }
+
+    /**
+     * Partial revision of the versions scanned by one task.
+     */
+    private static final class RevisionSum {
+
+        long count;
+        long versionSum;
+        long lastModified = Long.MIN_VALUE;
+
+        void add(CompactUser user) {
+            if (user != null) {
+                count++;
+                versionSum += user.version();
+                lastModified = Math.max(lastModified, user.updatedAtNanos());
+            }
+        }
+
+        RevisionSum merge(RevisionSum other) {
+            count += other.count;
+            versionSum += other.versionSum;
+            lastModified = Math.max(lastModified, other.lastModified);
+            return this;
+        }
+
+        Revision revision() {
+            return new Revision(count, versionSum, count == 0 ? null : CompactUser.instant(lastModified));
+        }
+    }
+
+    /**
+     * Views of the users, made as they are read, so that a listing takes 4 bytes per user.
+     */
+    private static final class UserList extends AbstractList<User> implements RandomAccess {
+
+        private final CompactUser[] users;
+
+        UserList(CompactUser[] users) {
+            this.users = users;
+        }
+
+        @Override
+        public User get(int index) {
+            return new ImmutableUser(users[index]);
+        }
+
+        @Override
+        public int size() {
+            return users.length;
+        }
+    }
+
+    private static final int DICTIONARY_SIZE = 1 << 16;
+    /**
+     * Estimated heap taken per user by the indexes, with compressed references: the {@link Version} (40 bytes),
+     * the skip list node (24) and its share of the index nodes (8), the cursor (24, its date being shared),
+     * the slot of the id map at its average load (21) and the slot of the column (8).
+     */
+    private static final long INDEX_BYTES = 40 + 24 + 8 + 24 + 21 + 8;
+    /**
+     * Estimated heap taken per user by the email map, besides its key: the node (32), the boxed id (16)
+     * and the slot of the table at its average load (8).
+     */
+    private static final long EMAIL_ENTRY_BYTES = 32 + 16 + 8;
+
+    private static final int READ_SLOTS = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+    /**
+     * Commits that may be done ahead of the oldest one in progress before they wait for it. A power of two.
+     */
+    private static final int COMMIT_SLOTS = 1 << 14;
+    /**
+     * Bounds of the wait for a commit stamp to be visible: spins first, then parks with exponential backoff.
+     */
+    private static final int MAX_SPINS = 64;
+    private static final long MIN_PARK_NANOS = 1_000;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+    private static final int OVERFLOW = -1;
+
+    private final UserPatcher userPatcher;
+    private final UserChangeListener listener;
+    private final AtomicLong atomicLong = new AtomicLong(1L);
+    private final ConcurrentLongMap<Version> users;
+    private final ConcurrentNavigableMap<UserCursor, Version> birthDateIndex;
+    private final BirthDayColumn<Version> birthDayColumn = new BirthDayColumn<>();
+    private final ConcurrentMap<String, Long> emails = new ConcurrentHashMap<>();
+    private final AtomicLong commits = new AtomicLong();
+    /**
+     * Stamp of the latest commit visible to the range reads, along with every commit before it.
+     */
+    private final AtomicLong visible = new AtomicLong();
+    /**
+     * Stamp of the latest commit done in each slot, by the stamp modulo the number of slots.
+     */
+    private final AtomicLongArray committed = new AtomicLongArray(COMMIT_SLOTS);
+    /**
+     * Reads older than this stamp may miss pruned versions and are not started.
+     */
+    private volatile long horizon;
+    /**
+     * Stamp + 1 of the read open in each slot, 0 for a free slot. Taking a slot costs one compare-and-set.
+     */
+    private final AtomicLongArray readSlots = new AtomicLongArray(READ_SLOTS);
+    private final AtomicLong readSequence = new AtomicLong();
+    private final ConcurrentSkipListSet<ReadView> overflowingReads = new ConcurrentSkipListSet<>();
+    private final ConcurrentLinkedQueue<Retired> retired = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock pruning = new ReentrantLock();
+    private volatile Snapshot snapshot = new Snapshot(0L, List.of());
+    private final Dictionary<String> names = new Dictionary<>(DICTIONARY_SIZE, CompactUser::stringBytes);
+    private final Dictionary<String> domains = new Dictionary<>(DICTIONARY_SIZE, CompactUser::stringBytes);
+    private final Dictionary<LocalDate> dates = new Dictionary<>(DICTIONARY_SIZE, date -> 24);
+    private final LongAdder userBytes = new LongAdder();
+
+    public HeapUserStore(UserPatcher userPatcher) {
+        this(userPatcher, UserChangeListener.NONE);
+    }
+
+    HeapUserStore(UserPatcher userPatcher, UserChangeListener listener) {
+        this.userPatcher = userPatcher;
+        this.listener = listener;
+        this.users = new ConcurrentLongMap<>();
+        this.birthDateIndex = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Shares one copy of all users between the reads until the next write.
+     */
+    @Override
+    public List<User> getAll() {
+        var current = snapshot;
+        if (current.stamp() != visible.get()) {
+            current = read(view -> new Snapshot(view.stamp(), new UserList(
+                    versions(birthDateIndex, view).toArray(CompactUser[]::new))));
+            snapshot = current;
+        }
+        return current.users();
+    }
+
+    @Override
+    public List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var range = indexRange(fromBound(from), to);
+        return read(view -> {
+            var users = new ArrayList<User>();
+            for (var version : range.values()) {
+                var user = visibleAt(version, view.stamp());
+                if (user != null) {
+                    users.add(new ImmutableUser(user));
+                }
+            }
+            return users;
+        });
+    }
+
+    /**
+     * Keeps the versions the stream sees until it is closed.
+     */
+    @Override
+    public Stream<User> stream(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var view = openRead();
+        return visible(indexRange(fromBound(from), to), view).onClose(() -> closeRead(view));
+    }
+
+    @Override
+    public List<User> getPage(Optional<LocalDate> from, Optional<LocalDate> to,
+                              Optional<UserCursor> after, int limit) {
+        var lowerBound = fromBound(from);
+        if (after.isPresent()
+                && (lowerBound.isEmpty() || after.get().compareTo(lowerBound.get()) > 0)) {
+            lowerBound = after;
+        }
+        var range = indexRange(lowerBound, to);
+        return read(view -> visible(range, view).limit(limit).toList());
+    }
+
+    private ConcurrentNavigableMap<UserCursor, Version> indexRange(Optional<UserCursor> after,
+                                                                  Optional<LocalDate> to) {
+        var range = birthDateIndex;
+        if (after.isPresent()) {
+            range = range.tailMap(after.get(), false);
+        }
+        if (to.isPresent()) {
+            range = range.headMap(new UserCursor(to.get(), Long.MIN_VALUE), false);
+        }
+        return range;
+    }
+
+    @Override
+    public Revision getRevision(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return read(view -> scan(from, to, Collector.of(RevisionSum::new,
+                (sum, version) -> sum.add(visibleAt(version, view.stamp())),
+                RevisionSum::merge,
+                RevisionSum::revision)));
+    }
+
+    /**
+     * Collects the newest versions at the positions within the range, in no particular order, from the column.
+     */
+    private <R> R scan(Optional<LocalDate> from, Optional<LocalDate> to, Collector<Version, ?, R> collector) {
+        var fromDay = from.map(date -> date.toEpochDay() + 1).orElse(Long.MIN_VALUE);
+        var toDay = to.map(date -> date.toEpochDay() - 1).orElse(Long.MAX_VALUE);
+        return birthDayColumn.collect(fromDay, toDay, collector);
+    }
+
+    /**
+     * Users of the index range as of the stamp of the read, in order.
+     */
+    private static Stream<User> visible(ConcurrentNavigableMap<UserCursor, Version> range, ReadView view) {
+        return versions(range, view).map(ImmutableUser::new);
+    }
+
+    private static Stream<CompactUser> versions(ConcurrentNavigableMap<UserCursor, Version> range, ReadView view) {
+        return range.values().stream()
+                .map(version -> visibleAt(version, view.stamp()))
+                .filter(Objects::nonNull);
+    }
+
+    private static CompactUser visibleAt(Version newest, long stamp) {
+        for (var version = newest; version != null; version = version.previous) {
+            if (version.created <= stamp) {
+                return stamp < version.removed ? version.user : null;
+            }
+        }
+        return null;
+    }
+
+    private <R> R read(Function<ReadView, R> reading) {
+        var view = openRead();
+        try {
+            return reading.apply(view);
+        } finally {
+            closeRead(view);
+        }
+    }
+
+    /**
+     * Registers a read of the latest visible stamp, so that the versions it sees are not pruned meanwhile.
+     * Starts over when pruning passed the stamp before it could see the read.
+     */
+    private ReadView openRead() {
+        while (true) {
+            var view = register(visible.get());
+            if (view.stamp() >= horizon) {
+                return view;
+            }
+            closeRead(view);
+        }
+    }
+
+    private ReadView register(long stamp) {
+        var start = (int) (Thread.currentThread().getId() % READ_SLOTS);
+        for (int i = 0; i < READ_SLOTS; i++) {
+            var slot = (start + i) % READ_SLOTS;
+            if (readSlots.get(slot) == 0 && readSlots.compareAndSet(slot, 0, stamp + 1)) {
+                return new ReadView(stamp, slot, 0);
+            }
+        }
+        var view = new ReadView(stamp, OVERFLOW, readSequence.incrementAndGet());
+        overflowingReads.add(view);
+        return view;
+    }
+
+    private void closeRead(ReadView view) {
+        if (view.slot() == OVERFLOW) {
+            overflowingReads.remove(view);
+        } else {
+            readSlots.set(view.slot(), 0);
+        }
+    }
+
+    private static void touch(User user, long version) {
+        user.setVersion(version);
+        user.setUpdatedAt(Instant.now());
+    }
+
+    private static Optional<UserCursor> fromBound(Optional<LocalDate> from) {
+        return from.map(fromDate -> new UserCursor(fromDate, Long.MAX_VALUE));
+    }
+
+    @Override
+    public Optional<User> getById(Long id) {
+        var version = users.get(id);
+        return Optional.ofNullable(version == null ? null : new ImmutableUser(version.user));
+    }
+
+    @Override
+    public Optional<User> getByEmail(String email) {
+        var key = User.emailKey(email);
+        var id = key == null ? null : emails.get(key);
+        if (id == null) {
+            return Optional.empty();
+        }
+        // The user may have changed the email since the lookup.
+        return getById(id).filter(user -> key.equals(User.emailKey(user.getEmail())));
+    }
+
+    @Override
+    public User create(User user) {
+        Objects.requireNonNull(user);
+        user.setId(atomicLong.getAndIncrement());
+        touch(user, 0L);
+        store(user);
+        prune();
+        return user;
+    }
+
+    /**
+     * Claims the emails of all users and passes them to the listener at once before storing any of them,
+     * so that either all of them are stored, or none if an email is taken or the listener fails.
+     * @throws DuplicateEmailException If a user has the email of another one, stored or in the batch.
+     */
+    @Override
+    public List<User> createAll(List<User> newUsers) {
+        newUsers.forEach(Objects::requireNonNull);
+        UniqueEmails.requireDistinct(newUsers);
+        if (newUsers.isEmpty()) {
+            return newUsers;
+        }
+        var id = atomicLong.getAndAdd(newUsers.size());
+        var stored = new ArrayList<CompactUser>(newUsers.size());
+        for (var user : newUsers) {
+            user.setId(id++);
+            touch(user, 0L);
+            stored.add(compact(user));
+        }
+        var claimed = 0;
+        // Taken before the listener, see forEach.
+        var firstStamp = commits.getAndAdd(stored.size()) + 1;
+        try {
+            for (; claimed < stored.size(); claimed++) {
+                claimEmail(null, stored.get(claimed));
+            }
+            listener.storedAll(stored.stream().<User>map(ImmutableUser::new).toList());
+        } catch (RuntimeException e) {
+            for (int i = 0; i < claimed; i++) {
+                releaseEmail(stored.get(i));
+            }
+            for (int i = 0; i < stored.size(); i++) {
+                publish(firstStamp + i);
+            }
+            throw e;
+        }
+        for (int i = 0; i < stored.size(); i++) {
+            var user = stored.get(i);
+            var stamp = firstStamp + i;
+            users.compute(user.id(), current -> commit(stamp, current, user));
+        }
+        prune();
+        return newUsers;
+    }
+
+    /**
+     * Keeps a compact copy, so that the caller changing its user afterwards does not change the stored one.
+     */
+    private void store(User user) {
+        var stored = compact(user);
+        users.compute(stored.id(), current -> change(current, stored));
+    }
+
+    private CompactUser compact(User user) {
+        return CompactUser.of(user, names, domains);
+    }
+
+    /**
+     * Puts a user kept from a previous run, unless a later version of it is already there,
+     * without passing it to the listener. Safe to call from several threads at once.
+     */
+    void restore(User user) {
+        var stored = compact(user);
+        users.compute(stored.id(), current -> {
+            if (current != null && current.user.version() >= stored.version()) {
+                return current;
+            }
+            releaseEmail(current == null ? null : current.user);
+            indexEmail(stored);
+            return commit(commits.incrementAndGet(), current, stored);
+        });
+        atomicLong.accumulateAndGet(stored.id() + 1, Math::max);
+        prune();
+    }
+
+    /**
+     * Removes a user deleted in a previous run, without passing it to the listener.
+     */
+    void restoreDeletion(long id) {
+        users.computeIfPresent(id, current -> {
+            releaseEmail(current.user);
+            commitDeletion(commits.incrementAndGet(), current);
+            return null;
+        });
+        prune();
+    }
+
+    /**
+     * Skips the ids up to the given one, so that the ids of deleted users are not assigned again.
+     */
+    void restoreNextId(long nextId) {
+        atomicLong.accumulateAndGet(nextId, Math::max);
+    }
+
+    /**
+     * @return The id the next created user gets.
+     */
+    long nextId() {
+        return atomicLong.get();
+    }
+
+    int size() {
+        return users.size();
+    }
+
+    /**
+     * Passes every user to the action in (birthDate, id) order, as of a stamp that covers every change
+     * passed to the listener before the call. Changes get their stamp before they are passed to the listener,
+     * so it waits for the stamps taken so far to be visible, which only takes the commits in progress.
+     */
+    void forEach(Consumer<User> action) {
+        awaitVisible(commits.get());
+        read(view -> {
+            visible(birthDateIndex, view).forEach(action);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean deleteById(Long id) {
+        var deleted = new boolean[1];
+        users.computeIfPresent(id, current -> {
+            var stamp = commits.incrementAndGet();
+            try {
+                listener.deleted(id);
+            } catch (RuntimeException e) {
+                publish(stamp);
+                throw e;
+            }
+            releaseEmail(current.user);
+            commitDeletion(stamp, current);
+            deleted[0] = true;
+            return null;
+        });
+        prune();
+        return deleted[0];
+    }
+
+    @Override
+    public boolean replace(User user) {
+        var replacement = user.toBuilder().build();
+        var replaced = users.computeIfPresent(user.getId(), current -> {
+            touch(replacement, current.user.version() + 1);
+            return change(current, compact(replacement));
+        });
+        if (replaced == null) {
+            return false;
+        }
+        user.setVersion(replacement.getVersion());
+        user.setUpdatedAt(replacement.getUpdatedAt());
+        prune();
+        return true;
+    }
+
+    @Override
+    public boolean patch(Long id, UserPatch userPatch) {
+        return patchById(id, userPatch);
+    }
+
+    @Override
+    public int patchAll(Collection<Long> ids, UserPatch userPatch) {
+        if (userPatch.isEmpty()) {
+            return 0;
+        }
+        var patched = 0;
+        for (var id : ids) {
+            if (patchById(id, userPatch)) {
+                patched++;
+            }
+        }
+        return patched;
+    }
+
+    @Override
+    public int patchAll(Optional<LocalDate> from, Optional<LocalDate> to, UserPatch userPatch) {
+        if (userPatch.isEmpty()) {
+            return 0;
+        }
+        var patched = 0;
+        for (var id : idsOf(from, to)) {
+            if (patchById(id, userPatch)) {
+                patched++;
+            }
+        }
+        return patched;
+    }
+
+    @Override
+    public int deleteAll(Collection<Long> ids) {
+        var deleted = 0;
+        for (var id : ids) {
+            if (deleteById(id)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public int deleteAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var deleted = 0;
+        for (var id : idsOf(from, to)) {
+            if (deleteById(id)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private List<Long> idsOf(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return read(view -> scan(from, to, Collector.<Version, List<Long>>of(ArrayList::new,
+                (ids, version) -> {
+                    var user = visibleAt(version, view.stamp());
+                    if (user != null) {
+                        ids.add(user.id());
+                    }
+                },
+                (ids, others) -> {
+                    ids.addAll(others);
+                    return ids;
+                })));
+    }
+
+    /**
+     * Patches a copy of the current version without locking, then stores it only if the version is still
+     * the current one, like a compare-and-set, or starts over from the version that replaced it.
+     */
+    private boolean patchById(long id, UserPatch userPatch) {
+        while (true) {
+            var current = users.get(id);
+            if (current == null) {
+                return false;
+            }
+            var user = current.user.toUser();
+            if (userPatcher.apply(user, userPatch).isEmpty()) {
+                return true;
+            }
+            touch(user, current.user.version() + 1);
+            var patched = compact(user);
+            var latest = users.computeIfPresent(id, stored -> {
+                if (stored != current) {
+                    return stored;
+                }
+                return change(current, patched);
+            });
+            if (latest == null) {
+                return false;
+            }
+            if (latest.user == patched) {
+                prune();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Claims the email, passes the change to the listener and commits it, releasing the email of the current
+     * version if it changed. Called holding the lock of the id. When the claim or the listener fails,
+     * the claimed email is released and nothing is committed.
+     */
+    private Version change(Version current, CompactUser user) {
+        var currentUser = current == null ? null : current.user;
+        var claimed = claimEmail(currentUser, user);
+        // Taken before the listener, see forEach.
+        var stamp = commits.incrementAndGet();
+        try {
+            listener.stored(new ImmutableUser(user));
+        } catch (RuntimeException e) {
+            if (claimed) {
+                releaseEmail(user);
+            }
+            publish(stamp);
+            throw e;
+        }
+        var version = commit(stamp, current, user);
+        if (claimed) {
+            releaseEmail(currentUser);
+        }
+        return version;
+    }
+
+    /**
+     * Takes the email of the user being stored for its id, unless the current version already has it.
+     * @return Whether the email was claimed, so that it is to be released if the change is not made.
+     * @throws DuplicateEmailException If another user has the email.
+     */
+    private boolean claimEmail(CompactUser current, CompactUser user) {
+        var key = User.emailKey(user.email());
+        if (current != null && Objects.equals(key, User.emailKey(current.email()))) {
+            return false;
+        }
+        if (key != null) {
+            var holder = emails.putIfAbsent(key, user.id());
+            if (holder != null && holder != user.id()) {
+                throw new DuplicateEmailException(user.email());
+            }
+            if (holder == null) {
+                userBytes.add(emailBytes(key));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes the email for a user kept from a previous run, whose emails were already unique.
+     */
+    private void indexEmail(CompactUser user) {
+        var key = User.emailKey(user.email());
+        if (key != null && emails.put(key, user.id()) == null) {
+            userBytes.add(emailBytes(key));
+        }
+    }
+
+    private void releaseEmail(CompactUser user) {
+        if (user == null) {
+            return;
+        }
+        var key = User.emailKey(user.email());
+        if (key != null && emails.remove(key, user.id())) {
+            userBytes.add(-emailBytes(key));
+        }
+    }
+
+    private static long emailBytes(String key) {
+        return EMAIL_ENTRY_BYTES + CompactUser.stringBytes(key);
+    }
+
+    /**
+     * Adds the user to the index, replacing the current version if any, and makes it visible to the range reads.
+     * Called holding the lock of the id, so that a position in the index is only changed by one thread at a time.
+     * @param stamp Stamp taken for the change, published even if the commit fails.
+     */
+    private Version commit(long stamp, Version current, CompactUser user) {
+        try {
+            var cursor = user.cursor(dates);
+            var newest = birthDateIndex.get(cursor);
+            var version = new Version(user, stamp, newest);
+            birthDateIndex.put(cursor, version);
+            if (newest == null) {
+                version.slot = birthDayColumn.add(user.birthDay(), version);
+            } else {
+                version.slot = newest.slot;
+                birthDayColumn.set(version.slot, version);
+            }
+            userBytes.add(user.estimatedBytes());
+            if (current != null) {
+                retire(current, stamp);
+            }
+            return version;
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    private void commitDeletion(long stamp, Version current) {
+        try {
+            retire(current, stamp);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    private void retire(Version version, long stamp) {
+        version.removed = stamp;
+        userBytes.add(-version.user.estimatedBytes());
+        retired.add(new Retired(version.user.cursor(dates), version));
+    }
+
+    /**
+     * Marks the commit done, then makes visible the done commits that follow the visible ones without a gap.
+     * A commit done ahead of an earlier one returns without waiting for it, and is made visible by the thread
+     * that finishes the earlier one. Only a commit that gets {@link #COMMIT_SLOTS} ahead of the oldest one
+     * in progress waits, so as not to take its slot.
+     */
+    private void publish(long stamp) {
+        awaitVisible(stamp - COMMIT_SLOTS);
+        committed.set((int) (stamp & (COMMIT_SLOTS - 1)), stamp);
+        var current = visible.get();
+        while (committed.get((int) ((current + 1) & (COMMIT_SLOTS - 1))) == current + 1) {
+            visible.compareAndSet(current, current + 1);
+            current = visible.get();
+        }
+    }
+
+    /**
+     * Waits for the stamp to be visible, spinning a little, then parking for twice as long each time up to
+     * {@link #MAX_PARK_NANOS}, so that waiting on a stalled commit does not take a core. An interrupt does not
+     * end the wait, since the caller cannot give up, and is restored once the stamp is visible.
+     */
+    private void awaitVisible(long stamp) {
+        var spins = 0;
+        var parkNanos = MIN_PARK_NANOS;
+        var interrupted = false;
+        while (visible.get() < stamp) {
+            if (spins < MAX_SPINS) {
+                spins++;
+                Thread.onSpinWait();
+                continue;
+            }
+            LockSupport.parkNanos(this, parkNanos);
+            parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            interrupted |= Thread.interrupted();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Unlinks the retired versions that no open read can see, by one thread at a time. The horizon is raised
+     * before looking for the oldest open read, so that a read opened meanwhile either is found or starts over.
+     */
+    private void prune() {
+        if (retired.isEmpty() || !pruning.tryLock()) {
+            return;
+        }
+        try {
+            var oldest = visible.get();
+            horizon = oldest;
+            for (int slot = 0; slot < READ_SLOTS; slot++) {
+                var read = readSlots.get(slot);
+                if (read != 0) {
+                    oldest = Math.min(oldest, read - 1);
+                }
+            }
+            for (var first : overflowingReads) {
+                oldest = Math.min(oldest, first.stamp());
+                break;
+            }
+            Retired next;
+            while ((next = retired.peek()) != null && next.version().removed <= oldest) {
+                retired.poll();
+                unlink(next);
+            }
+        } finally {
+            pruning.unlock();
+        }
+    }
+
+    private void unlink(Retired entry) {
+        var version = entry.version();
+        users.compute(version.user.id(), current -> {
+            var newest = birthDateIndex.get(entry.cursor());
+            if (newest == version) {
+                if (version.previous == null) {
+                    birthDateIndex.remove(entry.cursor(), version);
+                    birthDayColumn.remove(version.slot);
+                } else {
+                    birthDateIndex.put(entry.cursor(), version.previous);
+                    birthDayColumn.set(version.slot, version.previous);
+                }
+            } else {
+                for (var newer = newest; newer != null; newer = newer.previous) {
+                    if (newer.previous == version) {
+                        newer.previous = version.previous;
+                        break;
+                    }
+                }
+            }
+            return current;
+        });
+    }
+
+    public Footprint footprint() {
+        var count = users.size();
+        var bytes = userBytes.sum() + count * INDEX_BYTES
+                + names.estimatedBytes() + domains.estimatedBytes() + dates.estimatedBytes();
+        return new Footprint(count, bytes, names.hitRatio(), domains.hitRatio());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.store.bytes", this, store -> store.footprint().bytes())
+                .description("Estimated heap taken by the users, their indexes and dictionaries")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("user.store.bytes.per.user", this, store -> store.footprint().bytesPerUser())
+                .description("Estimated heap taken per user")
+                .baseUnit("bytes")
+                .register(registry);
+        bindTo(registry, "names", names);
+        bindTo(registry, "domains", domains);
+        bindTo(registry, "dates", dates);
+    }
+
+    private static void bindTo(MeterRegistry registry, String name, Dictionary<?> dictionary) {
+        Gauge.builder("user.store.dictionary.hit.ratio", dictionary, Dictionary::hitRatio)
+                .description("Share of the values found in the dictionary")
+                .tag("dictionary", name)
+                .register(registry);
+        Gauge.builder("user.store.dictionary.size", dictionary, Dictionary::size)
+                .description("Number of values in the dictionary")
+                .tag("dictionary", name)
+                .register(registry);
+    }
+}
@@ -0,0 +1,121 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.User;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Read-only view of a {@link CompactUser} of a {@link HeapUserStore}. Every getter decodes its field when called,
+ * so a user is materialized only as far as it is serialized. The stored users are shared between all readers,
+ * so none of them can change one; {@link #toBuilder()} gives a copy that can be changed.
+ */
+final class ImmutableUser extends User {
+
+    private final CompactUser user;
+
+    ImmutableUser(CompactUser user) {
+        this.user = user;
+    }
+
+    @Override
+    public Long getId() {
+        return user.id();
+    }
+
+    @Override
+    public String getEmail() {
+        return user.email();
+    }
+
+    @Override
+    public String getFirstName() {
+        return user.firstName();
+    }
+
+    @Override
+    public String getLastName() {
+        return user.lastName();
+    }
+
+    @Override
+    public LocalDate getBirthDate() {
+        return user.birthDate();
+    }
+
+    @Override
+    public Optional<String> getAddress() {
+        return user.address();
+    }
+
+    @Override
+    public Optional<String> getPhoneNumber() {
+        return user.phoneNumber();
+    }
+
+    @Override
+    public Long getVersion() {
+        return user.version();
+    }
+
+    @Override
+    public Instant getUpdatedAt() {
+        return user.updatedAt();
+    }
+
+    @Override
+    public UserBuilder toBuilder() {
+        return user.toUser().toBuilder();
+    }
+
+    @Override
+    public void setId(Long id) {
+        throw immutable();
+    }
+
+    @Override
+    public void setEmail(String email) {
+        throw immutable();
+    }
+
+    @Override
+    public void setFirstName(String firstName) {
+        throw immutable();
+    }
+
+    @Override
+    public void setLastName(String lastName) {
+        throw immutable();
+    }
+
+    @Override
+    public void setBirthDate(LocalDate birthDate) {
+        throw immutable();
+    }
+
+    @Override
+    public void setAddress(Optional<String> address) {
+        throw immutable();
+    }
+
+    @Override
+    public void setPhoneNumber(Optional<String> phoneNumber) {
+        throw immutable();
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        throw immutable();
+    }
+
+    @Override
+    public void setUpdatedAt(Instant updatedAt) {
+        throw immutable();
+    }
+
+    private static UnsupportedOperationException immutable() {
+        return new UnsupportedOperationException("Stored users cannot be changed, change a copy from toBuilder().");
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.User;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Read-only view of a user record of a {@link MappedUserStore}. Every getter decodes its field from the mapped
+ * file when called, so a user is materialized only as far as it is serialized. Records are never overwritten,
+ * so the view keeps showing the user as it was read.
+ */
+final class MappedUser extends User {
+
+    private final ByteBuffer chunk;
+    private final int offset;
+
+    MappedUser(ByteBuffer chunk, int offset) {
+        this.chunk = chunk;
+        this.offset = offset;
+    }
+
+    @Override
+    public Long getId() {
+        return MappedUserStore.id(chunk, offset);
+    }
+
+    @Override
+    public String getEmail() {
+        return MappedUserStore.string(chunk, offset, MappedUserStore.EMAIL);
+    }
+
+    @Override
+    public String getFirstName() {
+        return MappedUserStore.string(chunk, offset, MappedUserStore.FIRST_NAME);
+    }
+
+    @Override
+    public String getLastName() {
+        return MappedUserStore.string(chunk, offset, MappedUserStore.LAST_NAME);
+    }
+
+    @Override
+    public LocalDate getBirthDate() {
+        return LocalDate.ofEpochDay(MappedUserStore.birthDay(chunk, offset));
+    }
+
+    @Override
+    public Optional<String> getAddress() {
+        return Optional.ofNullable(MappedUserStore.string(chunk, offset, MappedUserStore.ADDRESS));
+    }
+
+    @Override
+    public Optional<String> getPhoneNumber() {
+        return Optional.ofNullable(MappedUserStore.string(chunk, offset, MappedUserStore.PHONE_NUMBER));
+    }
+
+    @Override
+    public Long getVersion() {
+        return MappedUserStore.version(chunk, offset);
+    }
+
+    @Override
+    public Instant getUpdatedAt() {
+        return MappedUserStore.updatedAt(chunk, offset);
+    }
+
+    /**
+     * @return A heap copy of the user that can be changed.
+     */
+    User materialize() {
+        return new User(getId(), getEmail(), getFirstName(), getLastName(), getBirthDate(),
+                getAddress(), getPhoneNumber(), getVersion(), getUpdatedAt());
+    }
+
+    @Override
+    public UserBuilder toBuilder() {
+        return materialize().toBuilder();
+    }
+
+    @Override
+    public void setId(Long id) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setEmail(String email) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setFirstName(String firstName) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setLastName(String lastName) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setBirthDate(LocalDate birthDate) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setAddress(Optional<String> address) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setPhoneNumber(Optional<String> phoneNumber) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setUpdatedAt(Instant updatedAt) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Users read from a mapped store cannot be changed.");
+    }
+
+}
@@ -0,0 +1,616 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.Revision;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.DuplicateEmailException;
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Off-heap store keeping users as records in memory-mapped chunk files of a directory,
+ * so that the heap holds only the indexes: 8 bytes per user by id, 8 bytes per user by birth date,
+ * and the ids by email in lower case, which keeps the emails unique.
+ * <p>
+ * A record is a fixed-width header followed by the UTF-8 strings:
+ * <pre>
+ * int length | long id | long version | long updatedAt seconds | int updatedAt nanos | int birth date epoch day
+ * | int flags | int length of each of email, firstName, lastName, address and phoneNumber (-1 if absent) | strings
+ * </pre>
+ * Records are only ever appended: a change writes the whole user again and a delete writes a header only record.
+ * The length is written last, so a record cut short by a crash reads as the end of the chunk.
+ * Reads return {@link MappedUser} views decoding their fields on demand.
+ * <p>
+ * Opening an existing directory maps its chunks again and rebuilds the indexes from the record headers
+ * and emails, without loading any other field. Written records survive a crash of the process as soon as they are written,
+ * and a crash of the machine once {@link #flush()} or {@link #close()} returns.
+ * Space of superseded records is not reclaimed.
+ */
+public class MappedUserStore implements UserStore, Closeable {
+
+    static final int EMAIL = 0;
+    static final int FIRST_NAME = 1;
+    static final int LAST_NAME = 2;
+    static final int ADDRESS = 3;
+    static final int PHONE_NUMBER = 4;
+    private static final int STRINGS = 5;
+
+    private static final int LENGTH_OFFSET = 0;
+    private static final int ID_OFFSET = 4;
+    private static final int VERSION_OFFSET = 12;
+    private static final int UPDATED_SECONDS_OFFSET = 20;
+    private static final int UPDATED_NANOS_OFFSET = 28;
+    private static final int BIRTH_DAY_OFFSET = 32;
+    private static final int FLAGS_OFFSET = 36;
+    private static final int STRING_LENGTHS_OFFSET = 40;
+    private static final int HEADER_SIZE = STRING_LENGTHS_OFFSET + STRINGS * Integer.BYTES;
+
+    private static final int DELETED = 1;
+
+    private static final int CHUNK_MAGIC = 0x55535231;
+    private static final int CHUNK_HEADER_SIZE = Long.BYTES;
+    private static final int ID_PAGE_BITS = 16;
+    private static final int ID_PAGE_SIZE = 1 << ID_PAGE_BITS;
+
+    private final Path directory;
+    private final int chunkSize;
+    private final UserPatcher userPatcher;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private final BirthDateIndex birthDateIndex = new BirthDateIndex();
+    private final Map<String, Long> emails = new HashMap<>();
+    /**
+     * Record address by id, in pages of a dense array since ids are sequential. 0 marks no user.
+     */
+    private long[][] addresses = new long[0][];
+    private int position;
+    private long nextId = 1L;
+
+    private MappedUserStore(Path directory, int chunkSize, UserPatcher userPatcher) {
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+        this.userPatcher = userPatcher;
+    }
+
+    /**
+     * Opens the store in the directory, remapping the chunks already there.
+     * @param chunkSize Size of a chunk file, and so the limit of a record size. Has to be kept between openings.
+     */
+    public static MappedUserStore open(Path directory, int chunkSize, UserPatcher userPatcher) throws IOException {
+        if (chunkSize <= CHUNK_HEADER_SIZE + HEADER_SIZE) {
+            throw new IllegalArgumentException("Chunk size " + chunkSize + " is too small.");
+        }
+        Files.createDirectories(directory);
+        var store = new MappedUserStore(directory, chunkSize, userPatcher);
+        store.recover();
+        return store;
+    }
+
+    private void recover() throws IOException {
+        for (int chunk = 0; Files.exists(chunkPath(chunk)); chunk++) {
+            var buffer = map(chunk);
+            if (buffer.getInt(0) != CHUNK_MAGIC) {
+                throw new IllegalStateException("[" + chunkPath(chunk) + "] is not a user store chunk.");
+            }
+            chunks.add(buffer);
+            position = CHUNK_HEADER_SIZE;
+            int length;
+            while (position + HEADER_SIZE <= chunkSize && (length = buffer.getInt(position + LENGTH_OFFSET)) > 0) {
+                var id = id(buffer, position);
+                unindex(id);
+                if ((buffer.getInt(position + FLAGS_OFFSET) & DELETED) == 0) {
+                    index(id, address(chunk, position), birthDay(buffer, position));
+                }
+                nextId = Math.max(nextId, id + 1);
+                position += length;
+            }
+        }
+    }
+
+    @Override
+    public List<User> getAll() {
+        return getAll(Optional.empty(), Optional.empty());
+    }
+
+    @Override
+    public List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return stream(from, to).toList();
+    }
+
+    @Override
+    public Stream<User> stream(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return range(fromBound(from), to, Integer.MAX_VALUE).stream();
+    }
+
+    @Override
+    public List<User> getPage(Optional<LocalDate> from, Optional<LocalDate> to,
+                              Optional<UserCursor> after, int limit) {
+        var lowerBound = fromBound(from);
+        if (after.isPresent()
+                && (lowerBound.isEmpty() || after.get().compareTo(lowerBound.get()) > 0)) {
+            lowerBound = after;
+        }
+        return range(lowerBound, to, limit);
+    }
+
+    /**
+     * Reads the versions and update times straight from the records, without creating any user.
+     */
+    @Override
+    public Revision getRevision(Optional<LocalDate> from, Optional<LocalDate> to) {
+        lock.readLock().lock();
+        try {
+            var count = 0L;
+            var versionSum = 0L;
+            Instant lastModified = null;
+            for (var id : birthDateIndex.range(fromBound(from), to, Integer.MAX_VALUE)) {
+                var address = address(id);
+                var chunk = chunks.get(chunk(address));
+                var updatedAt = updatedAt(chunk, offset(address));
+                count++;
+                versionSum += version(chunk, offset(address));
+                if (lastModified == null || updatedAt.isAfter(lastModified)) {
+                    lastModified = updatedAt;
+                }
+            }
+            return new Revision(count, versionSum, lastModified);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<User> getById(Long id) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(view(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<User> getByEmail(String email) {
+        lock.readLock().lock();
+        try {
+            var id = emails.get(User.emailKey(email));
+            return Optional.ofNullable(id == null ? null : view(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public User create(User user) {
+        Objects.requireNonNull(user);
+        lock.writeLock().lock();
+        try {
+            return write(user, nextId++, 0L);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks the emails and birth dates of all users before writing any of them.
+     * @throws DuplicateEmailException If a user has the email of another one, stored or in the batch.
+     */
+    @Override
+    public List<User> createAll(List<User> users) {
+        users.forEach(Objects::requireNonNull);
+        UniqueEmails.requireDistinct(users);
+        lock.writeLock().lock();
+        try {
+            for (var user : users) {
+                toEpochDay(user.getBirthDate());
+                if (emails.containsKey(User.emailKey(user.getEmail()))) {
+                    throw new DuplicateEmailException(user.getEmail());
+                }
+            }
+            for (var user : users) {
+                write(user, nextId++, 0L);
+            }
+            return users;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteById(Long id) {
+        lock.writeLock().lock();
+        try {
+            return delete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(User user) {
+        lock.writeLock().lock();
+        try {
+            var current = view(user.getId());
+            if (current == null) {
+                return false;
+            }
+            write(user, user.getId(), current.getVersion() + 1);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean patch(Long id, UserPatch userPatch) {
+        lock.writeLock().lock();
+        try {
+            return patchById(id, userPatch);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int patchAll(Collection<Long> ids, UserPatch userPatch) {
+        if (userPatch.isEmpty()) {
+            return 0;
+        }
+        lock.writeLock().lock();
+        try {
+            var patched = 0;
+            for (var id : ids) {
+                if (patchById(id, userPatch)) {
+                    patched++;
+                }
+            }
+            return patched;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int patchAll(Optional<LocalDate> from, Optional<LocalDate> to, UserPatch userPatch) {
+        if (userPatch.isEmpty()) {
+            return 0;
+        }
+        lock.writeLock().lock();
+        try {
+            var ids = birthDateIndex.range(fromBound(from), to, Integer.MAX_VALUE);
+            for (var id : ids) {
+                patchById(id, userPatch);
+            }
+            return ids.length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int deleteAll(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            var deleted = 0;
+            for (var id : ids) {
+                if (delete(id)) {
+                    deleted++;
+                }
+            }
+            return deleted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int deleteAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        lock.writeLock().lock();
+        try {
+            var ids = birthDateIndex.range(fromBound(from), to, Integer.MAX_VALUE);
+            for (var id : ids) {
+                delete(id);
+            }
+            return ids.length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the mapped chunks through to the disk.
+     */
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            chunks.forEach(MappedByteBuffer::force);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return birthDateIndex.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean patchById(long id, UserPatch userPatch) {
+        var current = view(id);
+        if (current == null) {
+            return false;
+        }
+        var user = current.materialize();
+        if (!userPatcher.apply(user, userPatch).isEmpty()) {
+            write(user, id, current.getVersion() + 1);
+        }
+        return true;
+    }
+
+    private boolean delete(long id) {
+        var address = address(id);
+        if (address == 0) {
+            return false;
+        }
+        var length = align(HEADER_SIZE);
+        var offset = reserve(length);
+        var chunk = chunks.get(chunks.size() - 1);
+        chunk.putLong(offset + ID_OFFSET, id);
+        chunk.putInt(offset + FLAGS_OFFSET, DELETED);
+        chunk.putInt(offset + LENGTH_OFFSET, length);
+        unindex(id);
+        return true;
+    }
+
+    /**
+     * Appends the user as a new record and points the indexes to it.
+     * Sets the id, version and update time to the given user as well.
+     * @throws DuplicateEmailException If another user has the email, before anything is written.
+     */
+    private User write(User user, long id, long version) {
+        var birthDay = toEpochDay(user.getBirthDate());
+        var holder = emails.get(User.emailKey(user.getEmail()));
+        if (holder != null && holder != id) {
+            throw new DuplicateEmailException(user.getEmail());
+        }
+        var strings = new byte[][]{
+                bytes(user.getEmail()),
+                bytes(user.getFirstName()),
+                bytes(user.getLastName()),
+                bytes(user.getAddress()),
+                bytes(user.getPhoneNumber())
+        };
+        var length = HEADER_SIZE;
+        for (var string : strings) {
+            length += string == null ? 0 : string.length;
+        }
+        length = align(length);
+        var updatedAt = Instant.now();
+        var offset = reserve(length);
+        var chunkIndex = chunks.size() - 1;
+        var chunk = chunks.get(chunkIndex);
+        chunk.putLong(offset + ID_OFFSET, id);
+        chunk.putLong(offset + VERSION_OFFSET, version);
+        chunk.putLong(offset + UPDATED_SECONDS_OFFSET, updatedAt.getEpochSecond());
+        chunk.putInt(offset + UPDATED_NANOS_OFFSET, updatedAt.getNano());
+        chunk.putInt(offset + BIRTH_DAY_OFFSET, birthDay);
+        var stringOffset = offset + HEADER_SIZE;
+        for (int i = 0; i < STRINGS; i++) {
+            var string = strings[i];
+            chunk.putInt(offset + STRING_LENGTHS_OFFSET + i * Integer.BYTES, string == null ? -1 : string.length);
+            if (string != null) {
+                chunk.put(stringOffset, string);
+                stringOffset += string.length;
+            }
+        }
+        chunk.putInt(offset + LENGTH_OFFSET, length);
+        unindex(id);
+        index(id, address(chunkIndex, offset), birthDay);
+        user.setId(id);
+        user.setVersion(version);
+        user.setUpdatedAt(updatedAt);
+        return user;
+    }
+
+    /**
+     * @return Offset of the space for a record of the length, in the last chunk.
+     */
+    private int reserve(int length) {
+        if (length > chunkSize - CHUNK_HEADER_SIZE) {
+            throw new IllegalArgumentException("User record of " + length + " bytes does not fit a chunk of "
+                    + chunkSize + " bytes.");
+        }
+        if (chunks.isEmpty() || position + length > chunkSize) {
+            try {
+                var chunk = map(chunks.size());
+                chunk.putInt(0, CHUNK_MAGIC);
+                chunks.add(chunk);
+                position = CHUNK_HEADER_SIZE;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        var offset = position;
+        position += length;
+        return offset;
+    }
+
+    private MappedByteBuffer map(int chunk) throws IOException {
+        try (var channel = FileChannel.open(chunkPath(chunk),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, chunkSize);
+        }
+    }
+
+    private Path chunkPath(int chunk) {
+        return directory.resolve(String.format("users-%05d.dat", chunk));
+    }
+
+    /**
+     * @return Views of the users, which stay valid after the lock is released.
+     */
+    private List<User> range(Optional<UserCursor> after, Optional<LocalDate> to, int limit) {
+        lock.readLock().lock();
+        try {
+            var ids = birthDateIndex.range(after, to, limit);
+            var users = new ArrayList<User>(ids.length);
+            for (var id : ids) {
+                users.add(view(id));
+            }
+            return users;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private MappedUser view(long id) {
+        var address = address(id);
+        return address == 0 ? null : new MappedUser(chunks.get(chunk(address)), offset(address));
+    }
+
+    private long address(long id) {
+        if (id <= 0 || (id >>> ID_PAGE_BITS) >= addresses.length) {
+            return 0;
+        }
+        var page = addresses[(int) (id >>> ID_PAGE_BITS)];
+        return page == null ? 0 : page[(int) (id & (ID_PAGE_SIZE - 1))];
+    }
+
+    private void index(long id, long address, int birthDay) {
+        var pageIndex = (int) (id >>> ID_PAGE_BITS);
+        if (pageIndex >= addresses.length) {
+            addresses = Arrays.copyOf(addresses, Math.max(pageIndex + 1, addresses.length * 2));
+        }
+        if (addresses[pageIndex] == null) {
+            addresses[pageIndex] = new long[ID_PAGE_SIZE];
+        }
+        addresses[pageIndex][(int) (id & (ID_PAGE_SIZE - 1))] = address;
+        birthDateIndex.add(birthDay, id);
+        var email = string(chunks.get(chunk(address)), offset(address), EMAIL);
+        if (email != null) {
+            emails.put(User.emailKey(email), id);
+        }
+    }
+
+    private void unindex(long id) {
+        var address = address(id);
+        if (address != 0) {
+            var chunk = chunks.get(chunk(address));
+            birthDateIndex.remove(birthDay(chunk, offset(address)), id);
+            var email = string(chunk, offset(address), EMAIL);
+            if (email != null) {
+                emails.remove(User.emailKey(email), id);
+            }
+            addresses[(int) (id >>> ID_PAGE_BITS)][(int) (id & (ID_PAGE_SIZE - 1))] = 0;
+        }
+    }
+
+    /**
+     * Offsets start after the chunk header, so no address is 0.
+     */
+    private static long address(int chunk, int offset) {
+        return ((long) chunk << 32) | offset;
+    }
+
+    private static int chunk(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    /**
+     * Keeps the headers 8 bytes aligned.
+     */
+    private static int align(int length) {
+        return (length + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    private static Optional<UserCursor> fromBound(Optional<LocalDate> from) {
+        return from.map(fromDate -> new UserCursor(fromDate, Long.MAX_VALUE));
+    }
+
+    private static int toEpochDay(LocalDate date) {
+        var epochDay = date.toEpochDay();
+        if (epochDay != (int) epochDay) {
+            throw new IllegalArgumentException("Birth date " + date + " is out of the supported range.");
+        }
+        return (int) epochDay;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(Optional<String> value) {
+        return value == null ? null : bytes(value.orElse(null));
+    }
+
+    static long id(ByteBuffer chunk, int offset) {
+        return chunk.getLong(offset + ID_OFFSET);
+    }
+
+    static long version(ByteBuffer chunk, int offset) {
+        return chunk.getLong(offset + VERSION_OFFSET);
+    }
+
+    static Instant updatedAt(ByteBuffer chunk, int offset) {
+        return Instant.ofEpochSecond(chunk.getLong(offset + UPDATED_SECONDS_OFFSET),
+                chunk.getInt(offset + UPDATED_NANOS_OFFSET));
+    }
+
+    static int birthDay(ByteBuffer chunk, int offset) {
+        return chunk.getInt(offset + BIRTH_DAY_OFFSET);
+    }
+
+    /**
+     * Decodes one of the strings, skipping over the ones before it.
+     * @return The string, or {@code null} if the user has none.
+     */
+    static String string(ByteBuffer chunk, int offset, int field) {
+        var stringOffset = offset + HEADER_SIZE;
+        for (int i = 0; i < field; i++) {
+            stringOffset += Math.max(chunk.getInt(offset + STRING_LENGTHS_OFFSET + i * Integer.BYTES), 0);
+        }
+        var length = chunk.getInt(offset + STRING_LENGTHS_OFFSET + field * Integer.BYTES);
+        if (length < 0) {
+            return null;
+        }
+        var bytes = new byte[length];
+        chunk.get(stringOffset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,494 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.Revision;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.DuplicateEmailException;
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+
+import java.io.Closeable;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Shared-nothing store, with users hashed by id into partitions, each owned by a thread of its own that alone
+ * touches the {@link UserPartition}: its maps, dictionaries and range of ids. Writers of different partitions
+ * share no lock and no counter.
+ * <p>
+ * Every operation is a message to the owning partition, run by its thread in the order received, the caller
+ * waiting for the reply. Operations by id go to the partition of the id, new users to any partition, and range
+ * reads and writes fan out to every partition, the replies being merged in (birthDate, id) order. A range read
+ * sees each partition as of the moment it ran there, but not all partitions at the same moment.
+ * Streams read every partition page by page, a page ahead, and merge the pages lazily, so that they hold
+ * a few pages rather than the whole range. Each page sees its partition as of the moment it ran there, so a user
+ * moved to another birth date while a stream is read may be missed or seen twice.
+ * <p>
+ * The emails are unique across partitions: their owners are kept in a single concurrent map, the one thing
+ * the partitions share. A partition takes the email of a user with {@code putIfAbsent} before storing it, so of two
+ * users taking the same email at once exactly one fails, and gives it back with {@code remove(email, id)} once
+ * the user no longer has it.
+ */
+public class PartitionedUserStore implements UserStore, Closeable {
+
+    private static final Comparator<User> ORDER = Comparator.comparing(UserCursor::of);
+    /**
+     * Messages taken at once by the thread of a partition.
+     */
+    private static final int BATCH_SIZE = 64;
+    /**
+     * Users read from a partition at once by a stream.
+     */
+    private static final int STREAM_PAGE_SIZE = 256;
+
+    /**
+     * A partition with the thread owning it.
+     */
+    private static final class Partition implements Runnable {
+
+        private static final Runnable STOP = () -> { };
+
+        private final UserPartition users;
+        private final BlockingQueue<Runnable> messages = new LinkedBlockingQueue<>();
+        private final Thread thread;
+        private volatile boolean closed;
+
+        Partition(int index, int partitions, UserPatcher userPatcher, ConcurrentMap<String, Long> emails) {
+            this.users = new UserPartition(index, partitions, userPatcher, emails);
+            this.thread = new Thread(this, "user-partition-" + index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * @return Reply of the partition, once its thread has run the message.
+         */
+        <R> CompletableFuture<R> send(Function<UserPartition, R> message) {
+            if (closed) {
+                throw new IllegalStateException("The user store is closed.");
+            }
+            var reply = new CompletableFuture<R>();
+            messages.add(() -> {
+                try {
+                    reply.complete(message.apply(users));
+                } catch (Throwable e) {
+                    reply.completeExceptionally(e);
+                }
+            });
+            return reply;
+        }
+
+        @Override
+        public void run() {
+            var batch = new ArrayList<Runnable>(BATCH_SIZE);
+            try {
+                while (true) {
+                    batch.add(messages.take());
+                    messages.drainTo(batch, BATCH_SIZE - 1);
+                    for (var message : batch) {
+                        if (message == STOP) {
+                            return;
+                        }
+                        message.run();
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Stops the thread once it has run the messages sent before.
+         */
+        void close() throws InterruptedException {
+            closed = true;
+            messages.add(STOP);
+            thread.join();
+        }
+    }
+
+    /**
+     * Pages of the range of one partition for a stream, the next page being requested as soon as one is taken.
+     */
+    private static final class PageReader {
+
+        private final Partition partition;
+        private final Optional<LocalDate> to;
+        private List<User> page = List.of();
+        private int position;
+        private CompletableFuture<List<User>> next;
+
+        PageReader(Partition partition, Optional<UserCursor> after, Optional<LocalDate> to) {
+            this.partition = partition;
+            this.to = to;
+            this.next = request(after);
+        }
+
+        private CompletableFuture<List<User>> request(Optional<UserCursor> after) {
+            return partition.send(users -> users.range(after, to, STREAM_PAGE_SIZE));
+        }
+
+        /**
+         * @return The next user of the partition, {@code null} past the last one.
+         */
+        User head() {
+            if (position == page.size()) {
+                if (next == null) {
+                    return null;
+                }
+                page = await(next);
+                position = 0;
+                next = page.size() < STREAM_PAGE_SIZE
+                        ? null
+                        : request(Optional.of(UserCursor.of(page.get(page.size() - 1))));
+                if (page.isEmpty()) {
+                    return null;
+                }
+            }
+            return page.get(position);
+        }
+
+        void advance() {
+            position++;
+        }
+    }
+
+    private final Partition[] partitions;
+    /**
+     * Ids of the users by email key, negative for the emails taken by a batch being created.
+     */
+    private final ConcurrentMap<String, Long> emails = new ConcurrentHashMap<>();
+    private final AtomicLong batchClaims = new AtomicLong();
+
+    public PartitionedUserStore(UserPatcher userPatcher, int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("A user store needs at least one partition, not " + partitions + ".");
+        }
+        this.partitions = new Partition[partitions];
+        for (int i = 0; i < partitions; i++) {
+            this.partitions[i] = new Partition(i, partitions, userPatcher, emails);
+        }
+    }
+
+    @Override
+    public List<User> getAll() {
+        return getAll(Optional.empty(), Optional.empty());
+    }
+
+    @Override
+    public List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        return range(fromBound(from), to, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Sends the first requests once the stream is consumed.
+     */
+    @Override
+    public Stream<User> stream(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var after = fromBound(from);
+        return StreamSupport.stream(() -> Spliterators.spliteratorUnknownSize(merge(after, to),
+                Spliterator.ORDERED | Spliterator.NONNULL), Spliterator.ORDERED | Spliterator.NONNULL, false);
+    }
+
+    /**
+     * Merges the pages of every partition, always taking the lowest head among them.
+     */
+    private Iterator<User> merge(Optional<UserCursor> after, Optional<LocalDate> to) {
+        var readers = new ArrayList<PageReader>(partitions.length);
+        for (var partition : partitions) {
+            readers.add(new PageReader(partition, after, to));
+        }
+        var heads = new PriorityQueue<PageReader>(partitions.length, Comparator.comparing(PageReader::head, ORDER));
+        for (var reader : readers) {
+            if (reader.head() != null) {
+                heads.add(reader);
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public User next() {
+                var reader = heads.poll();
+                if (reader == null) {
+                    throw new NoSuchElementException();
+                }
+                var user = reader.head();
+                reader.advance();
+                if (reader.head() != null) {
+                    heads.add(reader);
+                }
+                return user;
+            }
+        };
+    }
+
+    @Override
+    public List<User> getPage(Optional<LocalDate> from, Optional<LocalDate> to,
+                              Optional<UserCursor> after, int limit) {
+        var lowerBound = fromBound(from);
+        if (after.isPresent()
+                && (lowerBound.isEmpty() || after.get().compareTo(lowerBound.get()) > 0)) {
+            lowerBound = after;
+        }
+        return range(lowerBound, to, limit);
+    }
+
+    /**
+     * Takes up to the limit from every partition, then merges the ordered replies and keeps the first ones.
+     */
+    private List<User> range(Optional<UserCursor> after, Optional<LocalDate> to, int limit) {
+        var users = new ArrayList<User>();
+        for (var reply : sendAll(partition -> partition.range(after, to, limit))) {
+            users.addAll(await(reply));
+        }
+        users.sort(ORDER);
+        return users.size() > limit ? users.subList(0, limit) : users;
+    }
+
+    @Override
+    public Revision getRevision(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var after = fromBound(from);
+        var count = 0L;
+        var versionSum = 0L;
+        Instant lastModified = null;
+        for (var reply : sendAll(partition -> partition.revision(after, to))) {
+            var revision = await(reply);
+            count += revision.count();
+            versionSum += revision.versionSum();
+            if (lastModified == null
+                    || revision.lastModified() != null && revision.lastModified().isAfter(lastModified)) {
+                lastModified = revision.lastModified();
+            }
+        }
+        return new Revision(count, versionSum, lastModified);
+    }
+
+    @Override
+    public Optional<User> getById(Long id) {
+        return await(partitionOf(id).send(partition -> partition.get(id)));
+    }
+
+    /**
+     * Asks the partition of the owner of the email, the user being missed if it changes its email meanwhile.
+     */
+    @Override
+    public Optional<User> getByEmail(String email) {
+        var key = User.emailKey(email);
+        var id = key == null ? null : emails.get(key);
+        if (id == null || id < 0) {
+            return Optional.empty();
+        }
+        return getById(id).filter(user -> key.equals(User.emailKey(user.getEmail())));
+    }
+
+    /**
+     * Creates the user in a partition picked at random.
+     */
+    @Override
+    public User create(User user) {
+        Objects.requireNonNull(user);
+        var partition = partitions[ThreadLocalRandom.current().nextInt(partitions.length)];
+        return await(partition.send(users -> users.create(user)));
+    }
+
+    /**
+     * Takes the emails of all users before any of them is created, giving them back if one is taken, then splits
+     * the users in as many slices as there are partitions, each created by one partition.
+     */
+    @Override
+    public List<User> createAll(List<User> users) {
+        users.forEach(Objects::requireNonNull);
+        UniqueEmails.requireDistinct(users);
+        var claim = batchClaims.decrementAndGet();
+        var claimed = new ArrayList<String>(users.size());
+        try {
+            for (var user : users) {
+                var key = User.emailKey(user.getEmail());
+                if (key == null) {
+                    continue;
+                }
+                if (emails.putIfAbsent(key, claim) != null) {
+                    throw new DuplicateEmailException(user.getEmail());
+                }
+                claimed.add(key);
+            }
+            var first = ThreadLocalRandom.current().nextInt(partitions.length);
+            var slice = Math.max(1, (users.size() + partitions.length - 1) / partitions.length);
+            var replies = new ArrayList<CompletableFuture<?>>();
+            for (int start = 0, i = first; start < users.size(); start += slice, i++) {
+                var created = users.subList(start, Math.min(start + slice, users.size()));
+                replies.add(partitions[i % partitions.length].send(partition -> partition.createAll(created, claim)));
+            }
+            replies.forEach(PartitionedUserStore::await);
+            return users;
+        } finally {
+            claimed.forEach(key -> emails.remove(key, claim));
+        }
+    }
+
+    @Override
+    public boolean deleteById(Long id) {
+        return await(partitionOf(id).send(partition -> partition.delete(id)));
+    }
+
+    @Override
+    public boolean replace(User user) {
+        var replacement = user.toBuilder().build();
+        if (!await(partitionOf(user.getId()).send(partition -> partition.replace(replacement)))) {
+            return false;
+        }
+        user.setVersion(replacement.getVersion());
+        user.setUpdatedAt(replacement.getUpdatedAt());
+        return true;
+    }
+
+    @Override
+    public boolean patch(Long id, UserPatch userPatch) {
+        return await(partitionOf(id).send(partition -> partition.patch(id, userPatch)));
+    }
+
+    @Override
+    public int patchAll(Collection<Long> ids, UserPatch userPatch) {
+        if (userPatch.isEmpty()) {
+            return 0;
+        }
+        return sum(byPartition(ids), (partition, partitionIds) -> partition.patchAll(partitionIds, userPatch));
+    }
+
+    @Override
+    public int patchAll(Optional<LocalDate> from, Optional<LocalDate> to, UserPatch userPatch) {
+        if (userPatch.isEmpty()) {
+            return 0;
+        }
+        var after = fromBound(from);
+        return sum(sendAll(partition -> partition.patchAll(after, to, userPatch)));
+    }
+
+    @Override
+    public int deleteAll(Collection<Long> ids) {
+        return sum(byPartition(ids), UserPartition::deleteAll);
+    }
+
+    @Override
+    public int deleteAll(Optional<LocalDate> from, Optional<LocalDate> to) {
+        var after = fromBound(from);
+        return sum(sendAll(partition -> partition.deleteAll(after, to)));
+    }
+
+    public int size() {
+        return sum(sendAll(UserPartition::size));
+    }
+
+    /**
+     * Stops the threads of the partitions, once they have run the operations already sent to them.
+     */
+    @Override
+    public void close() {
+        for (var partition : partitions) {
+            try {
+                partition.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Partition partitionOf(long id) {
+        return partitions[UserPartition.indexOf(id, partitions.length)];
+    }
+
+    /**
+     * Sends the message to every partition before waiting for any reply, so that the partitions run it in parallel.
+     */
+    private <R> List<CompletableFuture<R>> sendAll(Function<UserPartition, R> message) {
+        var replies = new ArrayList<CompletableFuture<R>>(partitions.length);
+        for (var partition : partitions) {
+            replies.add(partition.send(message));
+        }
+        return replies;
+    }
+
+    private List<List<Long>> byPartition(Collection<Long> ids) {
+        var byPartition = new ArrayList<List<Long>>(partitions.length);
+        for (int i = 0; i < partitions.length; i++) {
+            byPartition.add(new ArrayList<>());
+        }
+        for (var id : ids) {
+            byPartition.get(UserPartition.indexOf(id, partitions.length)).add(id);
+        }
+        return byPartition;
+    }
+
+    private interface PartitionOperation {
+        int apply(UserPartition partition, List<Long> ids);
+    }
+
+    private int sum(List<List<Long>> byPartition, PartitionOperation operation) {
+        var replies = new ArrayList<CompletableFuture<Integer>>();
+        for (int i = 0; i < partitions.length; i++) {
+            var ids = byPartition.get(i);
+            if (!ids.isEmpty()) {
+                replies.add(partitions[i].send(partition -> operation.apply(partition, ids)));
+            }
+        }
+        return sum(replies);
+    }
+
+    private static int sum(List<CompletableFuture<Integer>> replies) {
+        var sum = 0;
+        for (var reply : replies) {
+            sum += await(reply);
+        }
+        return sum;
+    }
+
+    /**
+     * Waits for the reply, throwing the unchecked exception of the partition as is.
+     */
+    private static <R> R await(CompletableFuture<R> reply) {
+        try {
+            return reply.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Optional<UserCursor> fromBound(Optional<LocalDate> from) {
+        return from.map(fromDate -> new UserCursor(fromDate, Long.MAX_VALUE));
+    }
+
+}
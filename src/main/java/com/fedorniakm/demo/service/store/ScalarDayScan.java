@@ -0,0 +1,25 @@
+package com.fedorniakm.demo.service.store;
+
+/**
+ * Compares one day at a time, without branching: every position is written, and kept only when it matches.
+ * A single unsigned comparison checks both bounds.
+ */
+class ScalarDayScan implements DayScan {
+
+    @Override
+    public int select(int[] days, int start, int end, int from, int to, int[] selection) {
+        var width = to - from;
+        var count = 0;
+        for (int i = start; i < end; i++) {
+            selection[count] = i;
+            count += Integer.compareUnsigned(days[i] - from, width) <= 0 ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "scalar";
+    }
+
+}
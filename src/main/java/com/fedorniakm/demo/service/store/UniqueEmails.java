@@ -0,0 +1,30 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.service.DuplicateEmailException;
+
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Check of the emails within a batch of new users, made before any of them is stored.
+ */
+final class UniqueEmails {
+
+    private UniqueEmails() {
+    }
+
+    /**
+     * @throws DuplicateEmailException If two of the users have the same email, ignoring case.
+     */
+    static void requireDistinct(List<User> users) {
+        var keys = new HashSet<String>(users.size() * 2);
+        for (var user : users) {
+            var key = User.emailKey(user.getEmail());
+            if (key != null && !keys.add(key)) {
+                throw new DuplicateEmailException(user.getEmail());
+            }
+        }
+    }
+
+}
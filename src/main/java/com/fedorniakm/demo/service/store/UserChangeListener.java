@@ -0,0 +1,39 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.User;
+
+import java.util.List;
+
+/**
+ * Told about every change of a {@link HeapUserStore} while the changed id is locked, before the change is made,
+ * so the changes of one user are seen in the order they are made. A change the listener throws on is not made.
+ */
+interface UserChangeListener {
+
+    UserChangeListener NONE = new UserChangeListener() {
+        @Override
+        public void stored(User user) {
+        }
+
+        @Override
+        public void deleted(long id) {
+        }
+    };
+
+    /**
+     * @param user The user as stored, not to be changed.
+     */
+    void stored(User user);
+
+    void deleted(long id);
+
+    /**
+     * Told about the new users of a batch at once, before any of them is stored. Their ids are not in use yet,
+     * so they are not locked. Either all of them are stored, or none if the listener throws.
+     * @param users The users as stored, not to be changed.
+     */
+    default void storedAll(List<User> users) {
+        users.forEach(this::stored);
+    }
+
+}
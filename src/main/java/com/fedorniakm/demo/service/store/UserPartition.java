@@ -0,0 +1,257 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.Revision;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.DuplicateEmailException;
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Users of one partition of a {@link PartitionedUserStore}, by id in a hash map and by (birthDate, id)
+ * in a tree map, kept as {@link CompactUser}s with dictionaries of their own. Assigns the ids from its index up,
+ * stepping by the number of partitions, so that the partition of an id follows from the id itself.
+ * <p>
+ * Only ever used by the thread owning the partition, so it is not thread-safe and takes no locks, except for
+ * the owners of the emails, a concurrent map shared by all partitions. A user takes its email there with
+ * {@code putIfAbsent} before it is stored, and gives it back with {@code remove(email, id)} once it no longer has it.
+ * The users it returns are immutable views that can be read from any thread.
+ */
+class UserPartition {
+
+    private static final int DICTIONARY_SIZE = 1 << 16;
+
+    private final UserPatcher userPatcher;
+    private final int partitions;
+    private long nextId;
+    private final Map<Long, CompactUser> users = new HashMap<>();
+    private final NavigableMap<UserCursor, CompactUser> birthDateIndex = new TreeMap<>();
+    private final ConcurrentMap<String, Long> emails;
+    private final Dictionary<String> names = new Dictionary<>(DICTIONARY_SIZE, CompactUser::stringBytes);
+    private final Dictionary<String> domains = new Dictionary<>(DICTIONARY_SIZE, CompactUser::stringBytes);
+    private final Dictionary<LocalDate> dates = new Dictionary<>(DICTIONARY_SIZE, date -> 24);
+
+    /**
+     * @param index Index of the partition, from 0.
+     * @param emails Ids of the users by email key, shared by all partitions.
+     */
+    UserPartition(int index, int partitions, UserPatcher userPatcher, ConcurrentMap<String, Long> emails) {
+        this.userPatcher = userPatcher;
+        this.partitions = partitions;
+        this.nextId = index + 1L;
+        this.emails = emails;
+    }
+
+    /**
+     * @return Index of the partition of the id among the given number of partitions.
+     */
+    static int indexOf(long id, int partitions) {
+        return (int) Math.floorMod(id - 1, (long) partitions);
+    }
+
+    /**
+     * @param after Exclusive lower bound, none to start from the first user.
+     * @param to Exclusive upper bound on the birth date.
+     * @return At most {@code limit} users following the lower bound, in order.
+     */
+    List<User> range(Optional<UserCursor> after, Optional<LocalDate> to, int limit) {
+        var range = range(after, to);
+        var found = new ArrayList<User>(Math.min(limit, range.size()));
+        for (var user : range.values()) {
+            if (found.size() == limit) {
+                break;
+            }
+            found.add(new ImmutableUser(user));
+        }
+        return found;
+    }
+
+    Revision revision(Optional<UserCursor> after, Optional<LocalDate> to) {
+        var count = 0L;
+        var versionSum = 0L;
+        var lastModified = Long.MIN_VALUE;
+        for (var user : range(after, to).values()) {
+            count++;
+            versionSum += user.version();
+            lastModified = Math.max(lastModified, user.updatedAtNanos());
+        }
+        return new Revision(count, versionSum, count == 0 ? null : CompactUser.instant(lastModified));
+    }
+
+    private NavigableMap<UserCursor, CompactUser> range(Optional<UserCursor> after, Optional<LocalDate> to) {
+        NavigableMap<UserCursor, CompactUser> range = birthDateIndex;
+        if (after.isPresent()) {
+            range = range.tailMap(after.get(), false);
+        }
+        if (to.isPresent()) {
+            range = range.headMap(new UserCursor(to.get(), Long.MIN_VALUE), false);
+        }
+        return range;
+    }
+
+    Optional<User> get(long id) {
+        var user = users.get(id);
+        return Optional.ofNullable(user == null ? null : new ImmutableUser(user));
+    }
+
+    /**
+     * Assigns the next id of the partition, the version and update time to the given user, and keeps a copy of it.
+     * @throws DuplicateEmailException If another user has the email.
+     */
+    User create(User user) {
+        claimEmail(user.getEmail(), nextId);
+        user.setId(nextId);
+        nextId += partitions;
+        touch(user, 0L);
+        store(user);
+        return user;
+    }
+
+    /**
+     * Creates the users, whose emails the caller has already taken for them.
+     * @param claim Id the emails of the users were taken for, handed over to the ids assigned to the users.
+     */
+    List<User> createAll(List<User> newUsers, long claim) {
+        for (var user : newUsers) {
+            var key = User.emailKey(user.getEmail());
+            if (key != null && !emails.replace(key, claim, nextId)) {
+                throw new IllegalStateException("The email of the user was not taken for it.");
+            }
+            user.setId(nextId);
+            nextId += partitions;
+            touch(user, 0L);
+            store(user);
+        }
+        return newUsers;
+    }
+
+    /**
+     * Sets the next version and update time to the given user if it is there, then keeps a copy of it.
+     */
+    boolean replace(User user) {
+        var current = users.get(user.getId());
+        if (current == null) {
+            return false;
+        }
+        claimEmail(user.getEmail(), user.getId());
+        touch(user, current.version() + 1);
+        store(user);
+        return true;
+    }
+
+    boolean patch(long id, UserPatch userPatch) {
+        var current = users.get(id);
+        if (current == null) {
+            return false;
+        }
+        var user = current.toUser();
+        if (!userPatcher.apply(user, userPatch).isEmpty()) {
+            claimEmail(user.getEmail(), id);
+            touch(user, current.version() + 1);
+            store(user);
+        }
+        return true;
+    }
+
+    int patchAll(Collection<Long> ids, UserPatch userPatch) {
+        var patched = 0;
+        for (var id : ids) {
+            if (patch(id, userPatch)) {
+                patched++;
+            }
+        }
+        return patched;
+    }
+
+    int patchAll(Optional<UserCursor> after, Optional<LocalDate> to, UserPatch userPatch) {
+        return patchAll(ids(after, to), userPatch);
+    }
+
+    boolean delete(long id) {
+        var user = users.remove(id);
+        if (user == null) {
+            return false;
+        }
+        birthDateIndex.remove(user.cursor(dates));
+        releaseEmail(user);
+        return true;
+    }
+
+    int deleteAll(Collection<Long> ids) {
+        var deleted = 0;
+        for (var id : ids) {
+            if (delete(id)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    int deleteAll(Optional<UserCursor> after, Optional<LocalDate> to) {
+        return deleteAll(ids(after, to));
+    }
+
+    int size() {
+        return users.size();
+    }
+
+    private List<Long> ids(Optional<UserCursor> after, Optional<LocalDate> to) {
+        return range(after, to).values().stream().map(CompactUser::id).toList();
+    }
+
+    /**
+     * Keeps a copy of the user, whose email it has already taken, giving back the email of its previous version
+     * if it changed.
+     */
+    private void store(User user) {
+        var stored = CompactUser.of(user, names, domains);
+        var current = users.put(stored.id(), stored);
+        if (current != null) {
+            birthDateIndex.remove(current.cursor(dates));
+            if (!Objects.equals(User.emailKey(current.email()), User.emailKey(stored.email()))) {
+                releaseEmail(current);
+            }
+        }
+        birthDateIndex.put(stored.cursor(dates), stored);
+    }
+
+    /**
+     * Takes the email for the user, unless the user already has it.
+     * @throws DuplicateEmailException If another user has the email.
+     */
+    private void claimEmail(String email, long id) {
+        var key = User.emailKey(email);
+        if (key != null) {
+            var holder = emails.putIfAbsent(key, id);
+            if (holder != null && holder != id) {
+                throw new DuplicateEmailException(email);
+            }
+        }
+    }
+
+    private void releaseEmail(CompactUser user) {
+        var key = User.emailKey(user.email());
+        if (key != null) {
+            emails.remove(key, user.id());
+        }
+    }
+
+    private static void touch(User user, long version) {
+        user.setVersion(version);
+        user.setUpdatedAt(Instant.now());
+    }
+
+}
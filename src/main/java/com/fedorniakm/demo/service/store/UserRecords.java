@@ -0,0 +1,178 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.User;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Binary records of the write-ahead log and the snapshots: {@code int length | int crc32 | payload}, the payload
+ * being either the whole user as stored or the id of a deleted user. Records hold the resulting state rather
+ * than the operation, but deletes carry no version, so the log must be replayed in the order it was written.
+ * A snapshot holds no deletes and at most one record per user, so its parts may be read in any order.
+ */
+final class UserRecords {
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int FRAME_SIZE = 2 * Integer.BYTES;
+    /**
+     * Bound on the payload of a record, far above any valid user, so that a corrupted length is not allocated.
+     */
+    static final int MAX_PAYLOAD_SIZE = 1 << 20;
+
+    /**
+     * A record read back.
+     * @param user The user, or {@code null} if the record is a delete.
+     */
+    record Entry(long id, User user) {
+
+        boolean isDelete() {
+            return user == null;
+        }
+    }
+
+    private UserRecords() {
+    }
+
+    static byte[] put(User user) {
+        var payload = new ByteArrayOutputStream(128);
+        try (var out = new DataOutputStream(payload)) {
+            out.writeByte(PUT);
+            out.writeLong(user.getId());
+            out.writeLong(user.getVersion());
+            out.writeLong(user.getUpdatedAt().getEpochSecond());
+            out.writeInt(user.getUpdatedAt().getNano());
+            out.writeLong(user.getBirthDate().toEpochDay());
+            writeString(out, user.getEmail());
+            writeString(out, user.getFirstName());
+            writeString(out, user.getLastName());
+            writeString(out, Objects.requireNonNullElse(user.getAddress(), Optional.<String>empty()).orElse(null));
+            writeString(out, Objects.requireNonNullElse(user.getPhoneNumber(), Optional.<String>empty()).orElse(null));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (payload.size() > MAX_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("User [" + user.getId() + "] takes more than "
+                    + MAX_PAYLOAD_SIZE + " bytes.");
+        }
+        return frame(payload.toByteArray());
+    }
+
+    static byte[] delete(long id) {
+        var payload = new byte[1 + Long.BYTES];
+        payload[0] = DELETE;
+        for (int i = 0; i < Long.BYTES; i++) {
+            payload[1 + i] = (byte) (id >>> (Long.SIZE - Byte.SIZE * (i + 1)));
+        }
+        return frame(payload);
+    }
+
+    /**
+     * Passes the records of the file to the action, up to the end of the file or the first record
+     * cut short or corrupted, which is where a crash stopped the writing. A length that is out of bounds,
+     * or longer than the rest of the file, is taken for such a torn record rather than allocated.
+     */
+    static void read(Path file, Consumer<Entry> action) {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            var remaining = Files.size(file);
+            var crc = new CRC32();
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                var checksum = in.readInt();
+                remaining -= FRAME_SIZE;
+                if (length <= 0 || length > MAX_PAYLOAD_SIZE || length > remaining) {
+                    return;
+                }
+                remaining -= length;
+                var payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    return;
+                }
+                action.accept(decode(payload));
+            }
+        } catch (EOFException e) {
+            // The last record was cut short.
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Entry decode(byte[] payload) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(payload));
+        var type = in.readByte();
+        var id = in.readLong();
+        if (type == DELETE) {
+            return new Entry(id, null);
+        }
+        var version = in.readLong();
+        var updatedAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        var birthDate = LocalDate.ofEpochDay(in.readLong());
+        return new Entry(id, new User(id, readString(in), readString(in), readString(in), birthDate,
+                Optional.ofNullable(readString(in)), Optional.ofNullable(readString(in)), version, updatedAt));
+    }
+
+    private static byte[] frame(byte[] payload) {
+        var crc = new CRC32();
+        crc.update(payload);
+        var record = new byte[FRAME_SIZE + payload.length];
+        writeInt(record, 0, payload.length);
+        writeInt(record, Integer.BYTES, (int) crc.getValue());
+        System.arraycopy(payload, 0, record, FRAME_SIZE, payload.length);
+        return record;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        var length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.available()) {
+            throw new IOException("String of " + length + " bytes overruns its record.");
+        }
+        var bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.Revision;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserPatch;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Users kept by the in-memory {@link com.fedorniakm.demo.service.SimpleUserService}.
+ * <p>
+ * Listings are ordered by (birthDate, id). The users returned must not be changed by the caller.
+ */
+public interface UserStore {
+
+    List<User> getAll();
+
+    List<User> getAll(Optional<LocalDate> from, Optional<LocalDate> to);
+
+    /**
+     * Lazily reads the users of the range. The stream must be closed afterwards.
+     */
+    Stream<User> stream(Optional<LocalDate> from, Optional<LocalDate> to);
+
+    List<User> getPage(Optional<LocalDate> from, Optional<LocalDate> to, Optional<UserCursor> after, int limit);
+
+    Revision getRevision(Optional<LocalDate> from, Optional<LocalDate> to);
+
+    Optional<User> getById(Long id);
+
+    /**
+     * Finds the user by email, ignoring case.
+     */
+    Optional<User> getByEmail(String email);
+
+    /**
+     * Assigns the id, version and update time to the given user.
+     * Writes giving a user an email another user has, ignoring case,
+     * fail with a {@link com.fedorniakm.demo.service.DuplicateEmailException}.
+     */
+    User create(User user);
+
+    List<User> createAll(List<User> users);
+
+    boolean deleteById(Long id);
+
+    boolean replace(User user);
+
+    boolean patch(Long id, UserPatch userPatch);
+
+    int patchAll(Collection<Long> ids, UserPatch userPatch);
+
+    int patchAll(Optional<LocalDate> from, Optional<LocalDate> to, UserPatch userPatch);
+
+    int deleteAll(Collection<Long> ids);
+
+    int deleteAll(Optional<LocalDate> from, Optional<LocalDate> to);
+
+}
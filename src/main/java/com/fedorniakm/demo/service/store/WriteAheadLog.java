@@ -0,0 +1,285 @@
+package com.fedorniakm.demo.service.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of {@link UserRecords} in numbered segment files, with group commit: appends only copy
+ * the record into a buffer, and a single flusher thread writes and forces everything appended within
+ * the commit window at once, so concurrent writers share one fsync instead of paying for one each.
+ */
+class WriteAheadLog implements Closeable {
+
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d{10})\\.log");
+
+    private final Path directory;
+    private final long commitWindowNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appendedCondition = lock.newCondition();
+    private final Condition durableCondition = lock.newCondition();
+    /**
+     * Held while writing to the segment, so that a rotation never splits a group between two segments.
+     */
+    private final Object io = new Object();
+    private final Thread flusher;
+
+    private byte[] buffer = new byte[1 << 16];
+    /**
+     * The buffer of the previous group, reused for the next one.
+     */
+    private byte[] spare = new byte[1 << 16];
+    private int buffered;
+    /**
+     * Written under the lock, read without it by {@link #sync()} when there is nothing to wait for.
+     */
+    private volatile long appended;
+    private volatile long durable;
+    private volatile IOException failure;
+    private boolean closed;
+    private long segment;
+    private FileChannel channel;
+
+    /**
+     * @param segment Number of the segment to write first, past every segment written before.
+     */
+    WriteAheadLog(Path directory, Duration commitWindow, long segment) throws IOException {
+        this.directory = directory;
+        this.commitWindowNanos = commitWindow.toNanos();
+        this.segment = segment;
+        this.channel = openSegment(segment);
+        this.flusher = new Thread(this::flushContinuously, "user-wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    static Path segmentPath(Path directory, long segment) {
+        return directory.resolve("wal-%010d.log".formatted(segment));
+    }
+
+    /**
+     * @return Numbers of the segments in the directory, in order.
+     */
+    static long[] segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> SEGMENT.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .mapToLong(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toArray();
+        }
+    }
+
+    /**
+     * Adds the record to the log, to be written with the next group.
+     */
+    void append(byte[] record) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The write-ahead log is closed");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("The write-ahead log could not be written", failure);
+            }
+            if (buffered + record.length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, buffered + record.length));
+            }
+            System.arraycopy(record, 0, buffer, buffered, record.length);
+            buffered += record.length;
+            appended += record.length;
+            appendedCondition.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record appended before the call is on disk, without locking if it already is.
+     * @throws UncheckedIOException If the log could not be written.
+     */
+    void sync() {
+        // Durable is read first: both only grow, so if it covers what was appended afterwards, it covers the call.
+        if (durable >= appended && failure == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            var target = appended;
+            while (durable < target && failure == null) {
+                durableCondition.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("The write-ahead log could not be written", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes what was appended so far and continues in a new segment.
+     * @return Number of the new segment. Every record appended before the call is in an earlier one.
+     */
+    long rotate() throws IOException {
+        synchronized (io) {
+            write();
+            try {
+                channel.close();
+                segment++;
+                channel = openSegment(segment);
+            } catch (IOException e) {
+                fail(e);
+                throw e;
+            }
+            return segment;
+        }
+    }
+
+    /**
+     * Deletes the segments before the given one.
+     */
+    void deleteBefore(long segment) throws IOException {
+        for (var number : segments(directory)) {
+            if (number < segment) {
+                Files.deleteIfExists(segmentPath(directory, number));
+            }
+        }
+    }
+
+    private FileChannel openSegment(long segment) throws IOException {
+        var channel = FileChannel.open(segmentPath(directory, segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Makes the new file itself durable.
+        try (var directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened on every platform.
+        }
+        return channel;
+    }
+
+    private void flushContinuously() {
+        while (awaitAppended()) {
+            if (commitWindowNanos > 0) {
+                LockSupport.parkNanos(commitWindowNanos);
+            }
+            try {
+                synchronized (io) {
+                    write();
+                }
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Whether there is anything to write, {@code false} once the log is closed.
+     */
+    private boolean awaitAppended() {
+        lock.lock();
+        try {
+            while (buffered == 0 && !closed) {
+                appendedCondition.awaitUninterruptibly();
+            }
+            return !closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes and forces the buffered records. Called holding {@link #io}. Once a group fails to be written,
+     * the log fails for good, since the records after it must not become durable without it.
+     */
+    private void write() throws IOException {
+        byte[] group;
+        int length;
+        long target;
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+            group = buffer;
+            length = buffered;
+            target = appended;
+            buffer = spare;
+            buffered = 0;
+        } finally {
+            lock.unlock();
+        }
+        if (length > 0) {
+            try {
+                var bytes = ByteBuffer.wrap(group, 0, length);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                fail(e);
+                throw e;
+            }
+        }
+        lock.lock();
+        try {
+            durable = Math.max(durable, target);
+            spare = group;
+            durableCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void fail(IOException e) {
+        lock.lock();
+        try {
+            failure = e;
+            durableCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes what was appended so far and stops the flusher.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            appendedCondition.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (io) {
+            write();
+            channel.close();
+        }
+    }
+
+}
@@ -2,6 +2,7 @@ package com.fedorniakm.demo;
 
 import com.fedorniakm.demo.model.Data;
 import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
 import com.fedorniakm.demo.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,6 +19,7 @@ import org.springframework.test.annotation.DirtiesContext;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.AssertionsForClassTypes.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -31,6 +33,7 @@ class ApplicationIntegrationTest {
 
     private static final String API_USERS = "/v1/users";
     private static final String API_USERS_ID = "/v1/users/{id}";
+    private static final AtomicInteger EMAILS = new AtomicInteger();
 
     @Autowired
     private TestRestTemplate restTemplate = new TestRestTemplate();
@@ -106,6 +109,56 @@ class ApplicationIntegrationTest {
         assertTrue(returnedUser.getBirthDate().isEqual(LocalDate.of(1994, 1, 1)));
     }
 
+    @Test
+    void getAllUsers_WhenUserChangesWithinCachedRange_ThenOnlyThatRangeReloaded() {
+        var user = validUser();
+        user.setBirthDate(LocalDate.of(1994, 1, 1));
+        var id = userService.create(user).getId();
+        var nineties = API_USERS + "?from=01-01-1990&to=01-01-2000";
+        var noughties = API_USERS + "?from=01-01-2000&to=01-01-2010";
+        var ninetiesETag = getUsers(nineties).getHeaders().getETag();
+        var noughtiesETag = getUsers(noughties).getHeaders().getETag();
+
+        userService.patch(id, UserPatch.builder().birthDate(LocalDate.of(2004, 1, 1)).build());
+
+        var ninetiesAfter = getUsers(nineties);
+        var noughtiesAfter = getUsers(noughties);
+        assertNotEquals(ninetiesETag, ninetiesAfter.getHeaders().getETag());
+        assertTrue(ninetiesAfter.getBody().data().isEmpty());
+        assertNotEquals(noughtiesETag, noughtiesAfter.getHeaders().getETag());
+        assertEquals(1, noughtiesAfter.getBody().data().size());
+
+        userService.create(validUser());
+        assertEquals(ninetiesAfter.getHeaders().getETag(), getUsers(nineties).getHeaders().getETag());
+    }
+
+    private ResponseEntity<Data<List<User>>> getUsers(String uri) {
+        return restTemplate.exchange(uri,
+                HttpMethod.GET,
+                new HttpEntity<>(headersWithContentTypeJson()),
+                new ParameterizedTypeReference<Data<List<User>>>() {});
+    }
+
+    @Test
+    void getAllUsers_WhenNdjson_ThenOneUserPerLine() {
+        userService.create(validUser());
+        userService.create(validUser());
+        userService.create(validUser());
+        var headers = headersWithContentTypeJson();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+
+        var response = restTemplate.exchange(API_USERS,
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                String.class);
+        log("Response: " + response);
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        assertNotNull(response.getBody());
+        assertEquals(3, response.getBody().lines().count());
+    }
+
     @Test
     void getUserById() {
         var user = validUser();
@@ -125,6 +178,70 @@ class ApplicationIntegrationTest {
         assertEqualUsers(user, receivedUser);
     }
 
+    @Test
+    void getAllUsers_WhenFields_ThenOnlyRequestedFields() {
+        userService.create(validUser());
+
+        var response = restTemplate.exchange(API_USERS + "?fields=id,lastName",
+                HttpMethod.GET,
+                new HttpEntity<>(headersWithContentTypeJson()),
+                String.class);
+        log("Response: " + response);
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(response.getBody())
+                .contains("\"id\":1", "\"lastName\":\"LastName\"")
+                .doesNotContain("firstName", "email", "birthDate", "address", "phoneNumber");
+    }
+
+    @Test
+    void getUserById_WhenETagMatches_ThenNotModified() {
+        var userId = userService.create(validUser()).getId();
+
+        var first = restTemplate.exchange(API_USERS_ID,
+                HttpMethod.GET,
+                new HttpEntity<>(headersWithContentTypeJson()),
+                String.class,
+                userId);
+        var eTag = first.getHeaders().getETag();
+        var headers = headersWithContentTypeJson();
+        headers.setIfNoneMatch(eTag);
+        var second = restTemplate.exchange(API_USERS_ID,
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                String.class,
+                userId);
+
+        assertNotNull(eTag);
+        assertNotNull(first.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED));
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+    }
+
+    @Test
+    void getAllUsers_WhenUserChanged_ThenNewETag() {
+        var userId = userService.create(validUser()).getId();
+        var first = restTemplate.exchange(API_USERS,
+                HttpMethod.GET,
+                new HttpEntity<>(headersWithContentTypeJson()),
+                String.class);
+        var headers = headersWithContentTypeJson();
+        headers.setIfNoneMatch(first.getHeaders().getETag());
+
+        var unchanged = restTemplate.exchange(API_USERS,
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                String.class);
+        userService.deleteById(userId);
+        var changed = restTemplate.exchange(API_USERS,
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                String.class);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, unchanged.getStatusCode());
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals(first.getHeaders().getETag(), changed.getHeaders().getETag());
+    }
+
     @Test
     void createUser() {
         var user = new User(null,
@@ -232,7 +349,7 @@ class ApplicationIntegrationTest {
                 .id(null)
                 .firstName("FirstName" + num)
                 .lastName("LastName")
-                .email("user" + num + "@user" + num + ".com")
+                .email("user" + EMAILS.incrementAndGet() + "@user" + num + ".com")
                 .birthDate(LocalDate.of(1950 + num, 1, 1))
                 .address(Optional.of(num + "str., Userwill, Australia, " + num))
                 .phoneNumber(Optional.of("+321" + num + "6" + num * 3 + "" + num * num + ""))
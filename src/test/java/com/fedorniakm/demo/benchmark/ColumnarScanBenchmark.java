@@ -0,0 +1,111 @@
+package com.fedorniakm.demo.benchmark;
+
+import com.fedorniakm.demo.service.store.BirthDayColumn;
+import com.fedorniakm.demo.service.store.DayScan;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Compares selecting rows by a range of birth dates with a stream filter comparing {@link LocalDate} objects
+ * one by one, as the service used to, to scanning a {@link BirthDayColumn} of epoch days with the scalar and
+ * the SIMD scans, sequentially and split across the fork/join pool. Each row holds an id and one of 20 000
+ * birth dates, and the ranges select 1% and 50% of the rows, which are gathered into a list.
+ * <p>
+ * Run with {@code mvn test -P benchmark -Dtest=ColumnarScanBenchmark}. Sizes are set with
+ * {@code -Dbenchmark.rows}, sizes the heap cannot hold are skipped: 50M rows take {@code -DargLine=-Xmx4g}.
+ */
+class ColumnarScanBenchmark {
+
+    private static final int[] ROWS = Arrays.stream(System.getProperty("benchmark.rows", "1000000,10000000,50000000")
+                    .split(","))
+            .mapToInt(Integer::parseInt)
+            .toArray();
+    private static final int DAYS = 20_000;
+    private static final LocalDate FIRST_DAY = LocalDate.of(1950, 1, 1);
+    /**
+     * Estimated heap taken per row by the rows, the column and the largest selection.
+     */
+    private static final long BYTES_PER_ROW = 24 + 4 + 4 + 4 + 8;
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 5;
+
+    private record Row(long id, LocalDate birthDate) { }
+
+    @Test
+    void compareScans() {
+        System.out.printf("%d processors, %s%n", Runtime.getRuntime().availableProcessors(), DayScan.best());
+        System.out.printf("%-12s %-36s %10s %10s%n", "Rows", "Scan", "1% (ms)", "50% (ms)");
+        for (var rows : ROWS) {
+            if (rows * BYTES_PER_ROW > Runtime.getRuntime().maxMemory() * 3 / 4) {
+                System.out.printf("%-12d skipped, needs a heap of %d MB%n",
+                        rows, rows * BYTES_PER_ROW * 4 / 3 / (1 << 20));
+                continue;
+            }
+            compareScans(rows);
+        }
+    }
+
+    private static void compareScans(int size) {
+        var dates = new LocalDate[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            dates[i] = FIRST_DAY.plusDays(i);
+        }
+        var rows = new ArrayList<Row>(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(new Row(i, dates[(int) ((i * 0x9E3779B97F4A7C15L >>> 1) % DAYS)]));
+        }
+        print(size, "Stream filter", (from, to) -> () -> rows.stream()
+                .filter(row -> row.birthDate().isAfter(from))
+                .filter(row -> row.birthDate().isBefore(to))
+                .toList());
+        measureColumn(size, rows, "Column, scalar", DayScan.scalar(), Integer.MAX_VALUE);
+        DayScan.vector().ifPresent(scan -> measureColumn(size, rows, "Column, " + scan, scan, Integer.MAX_VALUE));
+        measureColumn(size, rows, "Column, " + DayScan.best() + ", fork/join", DayScan.best(), 0);
+    }
+
+    private static void measureColumn(int size, List<Row> rows, String name, DayScan scan, int parallelThreshold) {
+        var column = new BirthDayColumn<Row>(scan, parallelThreshold);
+        for (var row : rows) {
+            column.add((int) row.birthDate().toEpochDay(), row);
+        }
+        print(size, name, (from, to) -> () -> column.collect(from.toEpochDay() + 1, to.toEpochDay() - 1,
+                Collectors.toList()));
+    }
+
+    private interface Selection {
+        Supplier<List<Row>> between(LocalDate from, LocalDate to);
+    }
+
+    /**
+     * Prints the best time of the iterations for the exclusive ranges selecting 1% and 50% of the rows.
+     */
+    private static void print(int size, String name, Selection selection) {
+        var narrow = measure(size, selection.between(FIRST_DAY.minusDays(1), FIRST_DAY.plusDays(DAYS / 100)));
+        var wide = measure(size, selection.between(FIRST_DAY.minusDays(1), FIRST_DAY.plusDays(DAYS / 2)));
+        System.out.printf("%-12d %-36s %10.1f %10.1f%n", size, name, narrow, wide);
+    }
+
+    private static double measure(int size, Supplier<List<Row>> selection) {
+        var best = Long.MAX_VALUE;
+        var selected = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            var start = System.nanoTime();
+            selected = selection.get().size();
+            var elapsed = System.nanoTime() - start;
+            if (i >= WARMUP) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        if (selected == 0 || selected == size) {
+            throw new IllegalStateException("The range selected " + selected + " rows");
+        }
+        return best / 1e6;
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.fedorniakm.demo.benchmark;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures throughput and p99 latency of {@code GET /v1/users/{id}} while every database
+ * connection costs {@link #DB_LATENCY_MS}, with more concurrent clients than Tomcat has threads.
+ * The connection pool is sized well above the clients, so that only the threads serving the requests
+ * can limit the throughput. Subclasses pick the execution mode. Run with {@code mvn test -P benchmark}.
+ */
+abstract class ExecutionModeBenchmark {
+
+    static final int DB_LATENCY_MS = 100;
+    static final int TOMCAT_THREADS = 10;
+    static final int CLIENTS = 100;
+    static final String PROPERTIES = "spring.jpa.show-sql=false\nlogging.level.web=INFO\n"
+            + "server.tomcat.threads.max=" + TOMCAT_THREADS + "\n"
+            + "spring.datasource.hikari.maximum-pool-size=" + 2 * CLIENTS + "\n"
+            // Every request has to reach the database, and none is shed.
+            + "user.cache.max-size=0\nuser.limiter.read.initial-limit=1000";
+
+    private static final int WARMUP_REQUESTS = 500;
+    private static final int REQUESTS = 2_000;
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${spring.threads.virtual.enabled}")
+    private boolean virtualThreads;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void getUserById_UnderDbLatency() throws Exception {
+        // One user per client, so that concurrent requests are not coalesced into one load.
+        var requests = new ArrayList<HttpRequest>(CLIENTS);
+        for (int client = 0; client < CLIENTS; client++) {
+            var id = userService.create(user(client)).getId();
+            requests.add(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v1/users/" + id))
+                    .header("Content-Type", "application/json")
+                    .build());
+        }
+        try (var client = new BenchmarkClient(requests)) {
+            client.run(WARMUP_REQUESTS);
+            var start = System.nanoTime();
+            var latencies = client.run(REQUESTS);
+            var elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            System.out.printf("%s threads, %d ms DB latency, %d clients: %.0f req/s, p50 %.1f ms, p99 %.1f ms%n",
+                    virtualThreads ? "Virtual" : "Platform (max " + TOMCAT_THREADS + ")",
+                    DB_LATENCY_MS, CLIENTS,
+                    REQUESTS / (elapsed / 1e9),
+                    percentile(latencies, 0.50) / 1e6,
+                    percentile(latencies, 0.99) / 1e6);
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.ceil(percentile * sorted.length) - 1];
+    }
+
+    private static User user(int client) {
+        return new User(null, "bench" + client + "@mark", "Bench", "Mark", LocalDate.of(1990, 1, 1),
+                Optional.empty(), Optional.empty());
+    }
+
+    private static class BenchmarkClient implements AutoCloseable {
+
+        private final List<HttpRequest> clientRequests;
+        private final HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        private final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+
+        BenchmarkClient(List<HttpRequest> requests) {
+            this.clientRequests = requests;
+        }
+
+        /**
+         * Sends the requests from all clients at once and returns the latency of each one in nanoseconds.
+         */
+        long[] run(int requests) throws Exception {
+            var latencies = new long[requests];
+            var tasks = new ArrayList<Callable<Void>>(CLIENTS);
+            for (int client = 0; client < CLIENTS; client++) {
+                var first = client;
+                var request = clientRequests.get(client);
+                tasks.add(() -> {
+                    for (int i = first; i < requests; i += CLIENTS) {
+                        var start = System.nanoTime();
+                        var response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencies[i] = System.nanoTime() - start;
+                        assertEquals(200, response.statusCode());
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> task : clients.invokeAll(tasks)) {
+                task.get();
+            }
+            return latencies;
+        }
+
+        @Override
+        public void close() {
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * Delays every connection by {@link #DB_LATENCY_MS} to model a slow database round trip, before borrowing it,
+     * so that the pool is not what the requests wait for.
+     */
+    @TestConfiguration(proxyBeanMethods = false)
+    static class DbLatencyConfiguration {
+
+        @Bean
+        static BeanPostProcessor dbLatencyInjector() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource && !(bean instanceof SlowDataSource)
+                            ? new SlowDataSource(dataSource)
+                            : bean;
+                }
+            };
+        }
+    }
+
+    private static class SlowDataSource extends DelegatingDataSource {
+
+        SlowDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            try {
+                Thread.sleep(DB_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getConnection();
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.fedorniakm.demo.benchmark;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+import com.fedorniakm.demo.service.store.HeapUserStore;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Measures the heap taken per user by plain {@link User} objects, as deserialized from requests, and by
+ * {@link HeapUserStore}, and compares the latter with the estimate the store reports. Users have one of
+ * 1 000 first names, 1 000 last names and 50 email domains, and a distinct address and phone number.
+ * Run with {@code mvn test -P benchmark}.
+ */
+class FootprintBenchmark {
+
+    private static final int USERS = Integer.getInteger("benchmark.users", 500_000);
+
+    @Test
+    void measureFootprint() {
+        var empty = usedHeap();
+        var users = users();
+        var plain = (double) (usedHeap() - empty) / USERS;
+
+        var store = new HeapUserStore(new UserPatcher());
+        store.createAll(users);
+        users = null;
+        var stored = (double) (usedHeap() - empty) / USERS;
+        var footprint = store.footprint();
+
+        System.out.printf("%d users%n", USERS);
+        System.out.printf("%-32s %8.1f bytes%n", "User objects", plain);
+        System.out.printf("%-32s %8.1f bytes%n", "HeapUserStore, measured", stored);
+        System.out.printf("%-32s %8.1f bytes%n", "HeapUserStore, estimated", footprint.bytesPerUser());
+        System.out.printf("%-32s %8.3f%n", "Name dictionary hit ratio", footprint.nameHitRatio());
+        System.out.printf("%-32s %8.3f%n", "Domain dictionary hit ratio", footprint.domainHitRatio());
+        if (store.getById(1L).isEmpty()) {
+            throw new IllegalStateException("The store lost its users");
+        }
+    }
+
+    private static List<User> users() {
+        var users = new ArrayList<User>(USERS);
+        var updatedAt = Instant.now();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new User(null,
+                    "user" + i + "@domain" + i % 50 + ".com",
+                    "First" + i % 1_000,
+                    "Last" + i / 7 % 1_000,
+                    LocalDate.of(1950, 1, 1).plusDays(i % 20_000),
+                    Optional.of(i + " Main Street, Springfield"),
+                    Optional.of("+1555" + (1_000_000 + i)),
+                    0L,
+                    updatedAt));
+        }
+        return users;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+}
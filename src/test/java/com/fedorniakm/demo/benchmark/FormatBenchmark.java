@@ -0,0 +1,104 @@
+package com.fedorniakm.demo.benchmark;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fedorniakm.demo.converter.BinaryMediaTypes;
+import com.fedorniakm.demo.converter.EpochDayModule;
+import com.fedorniakm.demo.converter.UserProtobufHttpMessageConverter;
+import com.fedorniakm.demo.model.Data;
+import com.fedorniakm.demo.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares encoding a listing of {@link #USERS} users and decoding a single user request body per format,
+ * along with the payload sizes. Run with {@code mvn test -P benchmark}.
+ */
+class FormatBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 500;
+    private static final Type USER_DATA = new ParameterizedTypeReference<Data<User>>() {}.getType();
+    private static final Type USER_LIST_DATA = new ParameterizedTypeReference<Data<List<User>>>() {}.getType();
+
+    private record Format(String name, MediaType mediaType, GenericHttpMessageConverter<Object> converter) { }
+
+    @Test
+    void encodeAndDecodeUsers() throws IOException {
+        var formats = List.of(
+                new Format("JSON", MediaType.APPLICATION_JSON,
+                        new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().build())),
+                new Format("CBOR", MediaType.APPLICATION_CBOR,
+                        new MappingJackson2CborHttpMessageConverter(Jackson2ObjectMapperBuilder.cbor().build()
+                                .registerModule(new EpochDayModule()))),
+                new Format("Smile", BinaryMediaTypes.APPLICATION_SMILE,
+                        new MappingJackson2SmileHttpMessageConverter(Jackson2ObjectMapperBuilder.smile().build()
+                                .registerModule(new EpochDayModule()))),
+                new Format("Protobuf", BinaryMediaTypes.APPLICATION_PROTOBUF, new UserProtobufHttpMessageConverter()));
+        var users = Data.of(IntStream.range(0, USERS).mapToObj(FormatBenchmark::user).toList());
+        var user = Data.of(user(42));
+
+        System.out.printf("%-9s %12s %14s %14s %14s%n",
+                "Format", "List bytes", "Encode list", "User bytes", "Decode user");
+        for (var format : formats) {
+            var listBytes = encode(format, users, USER_LIST_DATA);
+            var userBytes = encode(format, user, USER_DATA);
+            assertEquals(user, decode(format, userBytes));
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                encode(format, users, USER_LIST_DATA);
+                decode(format, userBytes);
+            }
+            var start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                encode(format, users, USER_LIST_DATA);
+            }
+            var encodeNanos = (System.nanoTime() - start) / ITERATIONS;
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS * USERS; i++) {
+                decode(format, userBytes);
+            }
+            var decodeNanos = (System.nanoTime() - start) / ((long) ITERATIONS * USERS);
+
+            System.out.printf("%-9s %12d %11d us %14d %11d ns%n",
+                    format.name(), listBytes.length, encodeNanos / 1_000, userBytes.length, decodeNanos);
+        }
+    }
+
+    private static byte[] encode(Format format, Object value, Type type) throws IOException {
+        var output = new MockHttpOutputMessage();
+        format.converter().write(value, type, format.mediaType(), output);
+        return output.getBodyAsBytes();
+    }
+
+    private static Object decode(Format format, byte[] body) throws IOException {
+        var input = new MockHttpInputMessage(body);
+        input.getHeaders().setContentType(format.mediaType());
+        return format.converter().read(USER_DATA, null, input);
+    }
+
+    private static User user(int i) {
+        return new User((long) i, "user" + i + "@mail.com", "First" + i, "Last" + i,
+                LocalDate.of(1950, 1, 1).plusDays(i * 7L), Optional.of("Street " + i + ", City"),
+                i % 2 == 0 ? Optional.of("+38093000" + i) : Optional.empty());
+    }
+
+}
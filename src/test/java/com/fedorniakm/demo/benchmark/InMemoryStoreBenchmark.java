@@ -0,0 +1,142 @@
+package com.fedorniakm.demo.benchmark;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.SimpleUserService;
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+import com.fedorniakm.demo.service.store.HeapUserStore;
+import com.fedorniakm.demo.service.store.PartitionedUserStore;
+import com.fedorniakm.demo.service.store.UserStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Measures the throughput of the in-memory stores behind {@link SimpleUserService} from 1 to 2 x processors threads:
+ * the heap store and the store split into one partition per processor. Each thread runs either a read-heavy mix
+ * of 90% reads by id, 8% reads of a one month birth date range and 2% patches, or a write-heavy mix
+ * of 40% reads by id, 2% range reads, 48% patches and 10% creates.
+ * Run with {@code mvn test -P benchmark}.
+ */
+class InMemoryStoreBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final long DURATION_MILLIS = 2_000;
+    private static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+    private static final int BIRTH_DATES = 20_000;
+
+    /**
+     * Percentages of reads by id, range reads and patches, the rest being creates.
+     */
+    private record Mix(String name, int reads, int ranges, int patches) { }
+
+    private static final List<Mix> MIXES = List.of(
+            new Mix("read-heavy", 90, 8, 2),
+            new Mix("write-heavy", 40, 2, 48));
+
+    @Test
+    void measureScaling() throws InterruptedException {
+        var processors = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d processors, %d users%n", processors, USERS);
+        System.out.printf("%-12s %-12s %8s %16s %10s%n", "Store", "Mix", "Threads", "Ops/s", "Speedup");
+        measureScaling("heap", () -> new HeapUserStore(new UserPatcher()));
+        measureScaling("partitioned", () -> new PartitionedUserStore(new UserPatcher(), processors));
+    }
+
+    private static void measureScaling(String name, Supplier<UserStore> stores) throws InterruptedException {
+        var processors = Runtime.getRuntime().availableProcessors();
+        for (var mix : MIXES) {
+            var store = stores.get();
+            var userService = new SimpleUserService(store);
+            userService.createAll(IntStream.range(0, USERS).mapToObj(InMemoryStoreBenchmark::user).toList());
+            // Warmup.
+            run(userService, mix, processors);
+            double single = 0;
+            for (int threads = 1; threads <= 2 * processors; threads *= 2) {
+                var throughput = run(userService, mix, threads);
+                if (threads == 1) {
+                    single = throughput;
+                }
+                System.out.printf("%-12s %-12s %8d %16.0f %9.2fx%n",
+                        name, mix.name(), threads, throughput, throughput / single);
+            }
+            if (store instanceof PartitionedUserStore partitioned) {
+                partitioned.close();
+            }
+        }
+    }
+
+    /**
+     * @return Operations per second over all threads.
+     */
+    private static double run(SimpleUserService userService, Mix mix, int threads) throws InterruptedException {
+        var operations = new LongAdder();
+        var start = new CountDownLatch(1);
+        var workers = new ArrayList<Thread>();
+        var deadline = new long[1];
+        for (int i = 0; i < threads; i++) {
+            var worker = new Thread(() -> {
+                var random = ThreadLocalRandom.current();
+                awaitStart(start);
+                var done = 0L;
+                while (System.nanoTime() < deadline[0]) {
+                    var choice = random.nextInt(100);
+                    if (choice < mix.reads()) {
+                        userService.getById(random.nextLong(1, USERS + 1));
+                    } else if (choice < mix.reads() + mix.ranges()) {
+                        var from = FIRST_BIRTH_DATE.plusDays(random.nextInt(BIRTH_DATES));
+                        userService.getAll(Optional.of(from), Optional.of(from.plusMonths(1)));
+                    } else if (choice < mix.reads() + mix.ranges() + mix.patches()) {
+                        userService.patch(random.nextLong(1, USERS + 1),
+                                UserPatch.builder().lastName("Last" + random.nextInt(100)).build());
+                    } else {
+                        var user = user(random.nextInt(USERS));
+                        // Emails are unique, so a created user takes one of its own.
+                        user.setEmail("user" + random.nextLong() + "@mail.com");
+                        userService.create(user);
+                    }
+                    done++;
+                }
+                operations.add(done);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        var started = System.nanoTime();
+        deadline[0] = started + DURATION_MILLIS * 1_000_000;
+        start.countDown();
+        for (var worker : workers) {
+            worker.join();
+        }
+        var elapsed = System.nanoTime() - started;
+        return operations.sum() * 1e9 / elapsed;
+    }
+
+    private static void awaitStart(CountDownLatch start) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static User user(int i) {
+        return User.builder()
+                .email("user" + i + "@mail.com")
+                .firstName("First" + i)
+                .lastName("Last" + i)
+                .birthDate(FIRST_BIRTH_DATE.plusDays(i % BIRTH_DATES))
+                .address(Optional.empty())
+                .phoneNumber(Optional.empty())
+                .build();
+    }
+
+}
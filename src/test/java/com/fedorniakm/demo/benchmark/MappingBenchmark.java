@@ -0,0 +1,98 @@
+package com.fedorniakm.demo.benchmark;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.persistence.entity.UserEntity;
+import com.fedorniakm.demo.service.mapper.UserMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Calibrates {@code user.mapping.parallel-threshold}: maps lists of growing size sequentially
+ * and on the mapper's pool, next to the builder based parallel stream mapping it replaced,
+ * and prints the smallest size from which the pool wins. Run with {@code mvn test -P benchmark}.
+ */
+class MappingBenchmark {
+
+    private static final int[] SIZES = {10, 100, 1_000, 4_096, 10_000, 100_000};
+    private static final int MAPPED_USERS = 20_000_000;
+
+    private final UserMapper sequential = new UserMapper(Integer.MAX_VALUE, 0);
+    private final UserMapper parallel = new UserMapper(0, 0);
+
+    @Test
+    void calibrateParallelThreshold() {
+        System.out.printf("%d processors%n", Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %16s %16s %16s%n", "Users", "Sequential", "Pool", "Parallel stream");
+        Integer threshold = null;
+        try {
+            for (var size : SIZES) {
+                var entities = IntStream.range(0, size).mapToObj(MappingBenchmark::entity).toList();
+                assertEquals(sequential.toUsers(entities), parallel.toUsers(entities));
+
+                var sequentialNanos = measure(entities, sequential::toUsers);
+                var poolNanos = measure(entities, parallel::toUsers);
+                var streamNanos = measure(entities, MappingBenchmark::builderParallelStream);
+                System.out.printf("%8d %13.1f us %13.1f us %13.1f us%n",
+                        size, sequentialNanos / 1e3, poolNanos / 1e3, streamNanos / 1e3);
+                if (threshold == null && poolNanos < sequentialNanos) {
+                    threshold = size;
+                }
+            }
+        } finally {
+            sequential.destroy();
+            parallel.destroy();
+        }
+        System.out.println(threshold == null
+                ? "Mapping on the pool does not pay off up to " + SIZES[SIZES.length - 1] + " users."
+                : "Suggested user.mapping.parallel-threshold=" + threshold);
+    }
+
+    /**
+     * @return Average nanoseconds per call, after a warmup of the same length.
+     */
+    private static long measure(List<UserEntity> entities, Function<List<UserEntity>, List<User>> mapping) {
+        var iterations = Math.max(MAPPED_USERS / entities.size() / 10, 10);
+        var sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += mapping.apply(entities).size();
+        }
+        var start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += mapping.apply(entities).size();
+        }
+        var elapsed = System.nanoTime() - start;
+        assertEquals(2L * iterations * entities.size(), sink);
+        return elapsed / iterations;
+    }
+
+    private static List<User> builderParallelStream(List<UserEntity> entities) {
+        return entities.parallelStream()
+                .map(entity -> User.builder()
+                        .id(entity.getId())
+                        .email(entity.getEmail())
+                        .firstName(entity.getFirstName())
+                        .lastName(entity.getLastName())
+                        .birthDate(entity.getBirthDate())
+                        .address(Optional.ofNullable(entity.getAddress()))
+                        .phoneNumber(Optional.ofNullable(entity.getPhoneNumber()))
+                        .version(entity.getVersion())
+                        .updatedAt(entity.getUpdatedAt())
+                        .build())
+                .toList();
+    }
+
+    private static UserEntity entity(int i) {
+        return new UserEntity((long) i, "user" + i + "@mail.com", "First" + i, "Last" + i,
+                LocalDate.of(1950, 1, 1).plusDays(i % 20_000), i % 2 == 0 ? "Address " + i : null, null,
+                0L, Instant.EPOCH);
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.fedorniakm.demo.benchmark;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.patcher.PatchPlan;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Compares the generated {@link PatchPlan} with the handwritten patcher it replaced, for a patch of a single field
+ * and a patch of every field. Run with {@code mvn test -P benchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PatcherBenchmark {
+
+    private static final PatchPlan<User, UserPatch> PLAN = PatchPlan.of(User.class, UserPatch.class);
+
+    private User user;
+    private UserPatch singleField;
+    private UserPatch allFields;
+
+    @Setup
+    public void setUp() {
+        user = User.builder()
+                .id(1L)
+                .email("user@mail.com")
+                .firstName("First")
+                .lastName("Last")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .address(Optional.empty())
+                .phoneNumber(Optional.empty())
+                .build();
+        singleField = UserPatch.builder().lastName("Patched").build();
+        allFields = new UserPatch("patched@mail.com", "Patched", "Patched", LocalDate.of(1991, 2, 2),
+                "Address", "+380000000000");
+    }
+
+    @Benchmark
+    public User handwrittenSingleField() {
+        handwritten(user, singleField);
+        return user;
+    }
+
+    @Benchmark
+    public PatchPlan.Changes planSingleField() {
+        return PLAN.apply(user, singleField);
+    }
+
+    @Benchmark
+    public User handwrittenAllFields() {
+        handwritten(user, allFields);
+        return user;
+    }
+
+    @Benchmark
+    public PatchPlan.Changes planAllFields() {
+        return PLAN.apply(user, allFields);
+    }
+
+    @Test
+    void compare() throws RunnerException {
+        var options = new OptionsBuilder()
+                .include(PatcherBenchmark.class.getName() + "\\.")
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * The patcher as it was written by hand before {@link PatchPlan}.
+     */
+    private static void handwritten(User target, UserPatch patch) {
+        Objects.requireNonNull(target);
+        Objects.requireNonNull(patch);
+        patchNonNull(patch.getEmail(), target::setEmail);
+        patchNonNull(patch.getFirstName(), target::setFirstName);
+        patchNonNull(patch.getLastName(), target::setLastName);
+        patchNonNull(patch.getBirthDate(), target::setBirthDate);
+        patchNonNull(patch.getAddress(), value -> target.setAddress(Optional.of(value)));
+        patchNonNull(patch.getPhoneNumber(), value -> target.setPhoneNumber(Optional.of(value)));
+    }
+
+    private static <V> void patchNonNull(V value, Consumer<V> patch) {
+        if (Objects.nonNull(value)) {
+            patch.accept(value);
+        }
+    }
+
+}
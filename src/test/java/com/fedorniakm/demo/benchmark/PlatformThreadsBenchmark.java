@@ -0,0 +1,19 @@
+package com.fedorniakm.demo.benchmark;
+
+import com.fedorniakm.demo.Application;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+/**
+ * The current model: requests are served by the Tomcat worker pool.
+ */
+@SpringBootTest(
+        classes = Application.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {ExecutionModeBenchmark.PROPERTIES, "spring.threads.virtual.enabled=false"})
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@Import(ExecutionModeBenchmark.DbLatencyConfiguration.class)
+class PlatformThreadsBenchmark extends ExecutionModeBenchmark {
+}
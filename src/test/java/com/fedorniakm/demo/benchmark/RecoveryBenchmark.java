@@ -0,0 +1,101 @@
+package com.fedorniakm.demo.benchmark;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+import com.fedorniakm.demo.service.store.DurableUserStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long the durable store takes to write a snapshot of {@code benchmark.users} users (10 million by default)
+ * and to recover them on restart, from the snapshot and a log of changes to 10% of the users made after it.
+ * Run with {@code mvn test -P benchmark -Dtest=RecoveryBenchmark -Dbenchmark.users=10000000}, the default number
+ * of users needs a heap of about 8GB, set with {@code -DargLine=-Xmx8g}.
+ */
+class RecoveryBenchmark {
+
+    private static final int USERS = Integer.getInteger("benchmark.users", 10_000_000);
+    private static final int BATCH_SIZE = 100_000;
+    private static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void measureRecovery() throws IOException {
+        System.out.printf("%d processors, %d users%n", Runtime.getRuntime().availableProcessors(), USERS);
+        try (var store = open()) {
+            var start = System.nanoTime();
+            for (int first = 0; first < USERS; first += BATCH_SIZE) {
+                var batch = new ArrayList<User>(BATCH_SIZE);
+                for (int i = first; i < Math.min(first + BATCH_SIZE, USERS); i++) {
+                    batch.add(user(i));
+                }
+                store.createAll(batch);
+            }
+            System.out.printf("%-24s %10d ms%n", "Create", millisSince(start));
+
+            start = System.nanoTime();
+            store.snapshot();
+            System.out.printf("%-24s %10d ms%n", "Snapshot", millisSince(start));
+
+            start = System.nanoTime();
+            var patch = UserPatch.builder().lastName("Patched").build();
+            for (int first = 1; first <= USERS / 10; first += BATCH_SIZE) {
+                var ids = IntStream.range(first, Math.min(first + BATCH_SIZE, USERS / 10 + 1))
+                        .mapToObj(Long::valueOf)
+                        .toList();
+                store.patchAll(ids, patch);
+            }
+            System.out.printf("%-24s %10d ms%n", "Patch 10% after it", millisSince(start));
+        }
+        System.out.printf("%-24s %10d MB%n", "Snapshot and log size", size(directory) >> 20);
+
+        System.gc();
+        var start = System.nanoTime();
+        try (var store = open()) {
+            System.out.printf("%-24s %10d ms%n", "Recover", millisSince(start));
+            if (store.size() != USERS) {
+                throw new IllegalStateException("Recovered " + store.size() + " users out of " + USERS);
+            }
+        }
+    }
+
+    private DurableUserStore open() throws IOException {
+        return DurableUserStore.open(directory, new UserPatcher(), Duration.ofMillis(2), Duration.ZERO);
+    }
+
+    private static long millisSince(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static long size(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static User user(int i) {
+        return User.builder()
+                .email("user" + i + "@mail.com")
+                .firstName("First" + i)
+                .lastName("Last" + i)
+                .birthDate(FIRST_BIRTH_DATE.plusDays(i % 20_000))
+                .address(Optional.of("Street " + i))
+                .phoneNumber(Optional.empty())
+                .build();
+    }
+
+}
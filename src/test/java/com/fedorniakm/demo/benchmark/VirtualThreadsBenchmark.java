@@ -0,0 +1,22 @@
+package com.fedorniakm.demo.benchmark;
+
+import com.fedorniakm.demo.Application;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+/**
+ * The opt-in model: every request is served on its own virtual thread.
+ */
+@SpringBootTest(
+        classes = Application.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {ExecutionModeBenchmark.PROPERTIES, "spring.threads.virtual.enabled=true"})
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@Import(ExecutionModeBenchmark.DbLatencyConfiguration.class)
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadsBenchmark extends ExecutionModeBenchmark {
+}
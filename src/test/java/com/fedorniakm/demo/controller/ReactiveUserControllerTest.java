@@ -0,0 +1,186 @@
+package com.fedorniakm.demo.controller;
+
+import com.fedorniakm.demo.Application;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.DuplicateEmailException;
+import com.fedorniakm.demo.service.ReactiveUserService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+@WebFluxTest(ReactiveUserController.class)
+@ContextConfiguration(classes = Application.class)
+class ReactiveUserControllerTest {
+
+    private static final String API_USERS = "/v1/users";
+    private static final String API_USERS_ID = "/v1/users/{id}";
+
+    @Autowired
+    private WebTestClient client;
+
+    @MockBean
+    private ReactiveUserService userS;
+
+    @Test
+    void getAllUsers_whenFromAndToParamsValid_thenReturnMatchingUsers() {
+        var from = LocalDate.of(1980, 1, 1);
+        var to = LocalDate.of(2000, 1, 1);
+        given(userS.getAll(Optional.of(from), Optional.of(to))).willReturn(Flux.just(validUser(1L)));
+
+        client.get().uri(API_USERS + "?from=01-01-1980&to=01-01-2000")
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.length()").isEqualTo(1)
+                .jsonPath("$.data[0].id").isEqualTo(1)
+                .jsonPath("$.data[0].birthDate").isEqualTo("01-01-1990");
+    }
+
+    @Test
+    void getAllUsers_whenFromAfterTo_thenReturn400() {
+        client.get().uri(API_USERS + "?from=01-01-2000&to=01-01-1980")
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errors[0].status").isEqualTo(400);
+        then(userS).should(never()).getAll(any(), any());
+    }
+
+    @Test
+    void streamUsers_whenNdjson_thenEveryUserOnItsOwnLine() {
+        given(userS.getAll(Optional.empty(), Optional.empty()))
+                .willReturn(Flux.just(validUser(1L), validUser(2L), validUser(3L)));
+
+        var body = client.get().uri(API_USERS)
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(User.class)
+                .getResponseBody();
+
+        StepVerifier.create(body, 1)
+                .expectNextMatches(user -> user.getId() == 1L)
+                .thenRequest(2)
+                .expectNextMatches(user -> user.getId() == 2L)
+                .expectNextMatches(user -> user.getId() == 3L)
+                .verifyComplete();
+    }
+
+    @Test
+    void getUserById_whenNoUser_thenReturnEmptyData() {
+        given(userS.getById(1L)).willReturn(Mono.empty());
+
+        client.get().uri(API_USERS_ID, 1L)
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data").doesNotExist();
+    }
+
+    @Test
+    void getUserById_whenIdNotNumber_thenReturn400() {
+        client.get().uri(API_USERS_ID, "abc")
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errors[0].message").value(is("Param [id] is not valid"));
+    }
+
+    @Test
+    void createUser_whenValid_thenReturn201WithLocation() {
+        given(userS.create(any())).willReturn(Mono.just(validUser(7L)));
+
+        client.post().uri(API_USERS)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {"data": {"email": "user@mail.com", "firstName": "First", "lastName": "Last",
+                                  "birthDate": "01-01-1990"}}""")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().location("/v1/users/7");
+    }
+
+    @Test
+    void createUser_whenEmailTaken_thenReturn409() {
+        given(userS.create(any())).willReturn(Mono.error(new DuplicateEmailException("user@mail.com")));
+
+        client.post().uri(API_USERS)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {"data": {"email": "user@mail.com", "firstName": "First", "lastName": "Last",
+                                  "birthDate": "01-01-1990"}}""")
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.errors[0].status").isEqualTo(409)
+                .jsonPath("$.errors[0].message").isEqualTo("A user with the email [user@mail.com] already exists.");
+    }
+
+    @Test
+    void createUser_whenUserTooYoung_thenReturn400() {
+        var birthDate = LocalDate.now().minusYears(10);
+
+        client.post().uri(API_USERS)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {"data": {"email": "user@mail.com", "firstName": "First", "lastName": "Last",
+                                  "birthDate": "%02d-%02d-%d"}}"""
+                        .formatted(birthDate.getDayOfMonth(), birthDate.getMonthValue(), birthDate.getYear()))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errors[0].message").isEqualTo("Field [data.birthDate] is not valid.");
+        then(userS).should(never()).create(any());
+    }
+
+    @Test
+    void updateUser_whenNoUser_thenReturn404() {
+        given(userS.patch(ArgumentMatchers.eq(1L), any(UserPatch.class))).willReturn(Mono.just(false));
+
+        client.patch().uri(API_USERS_ID, 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"data\": {\"firstName\": \"Patched\"}}")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void deleteUserById_whenNoUser_thenReturn204() {
+        given(userS.deleteById(1L)).willReturn(Mono.just(false));
+
+        client.delete().uri(API_USERS_ID, 1L)
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+
+    private static User validUser(Long id) {
+        return new User(id, "user" + id + "@mail.com", "First", "Last", LocalDate.of(1990, 1, 1),
+                Optional.empty(), Optional.empty());
+    }
+
+}
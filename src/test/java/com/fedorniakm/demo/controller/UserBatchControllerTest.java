@@ -0,0 +1,228 @@
+package com.fedorniakm.demo.controller;
+
+import com.fedorniakm.demo.Application;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.service.UserService;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(UserBatchController.class)
+@ContextConfiguration(classes = Application.class)
+class UserBatchControllerTest {
+
+    private static final String API_USERS_BATCH = "/v1/users:batch";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private UserService userS;
+
+    @Test
+    void createUsers_whenAllValid_thenReturnCreatedIds() throws Exception {
+        var batchJson = """
+                {"data":[
+                {"email":"first@temp.com","firstName":"John","lastName":"Doe","birthDate":"08-05-1994"},
+                {"email":"second@temp.com","firstName":"Jane","lastName":"Doe","birthDate":"09-05-1994","address":"Temp Address"}
+                ]}
+                """;
+        givenCreatedUsersFrom(10L);
+
+        mvc.perform(post(API_USERS_BATCH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batchJson))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$.data[0].status", is(201)))
+                .andExpect(jsonPath("$.data[0].id", is(10L), Long.class))
+                .andExpect(jsonPath("$.data[0].errors").doesNotExist())
+                .andExpect(jsonPath("$.data[1].id", is(11L), Long.class));
+    }
+
+    @Test
+    void createUsers_whenSomeInvalid_thenCreateOnlyValidAndReportErrors() throws Exception {
+        var batchJson = """
+                {"data":[
+                {"email":"first@temp.com","firstName":"John","lastName":"Doe","birthDate":"08-05-1994"},
+                {"email":"","firstName":"Jane","lastName":"Doe","birthDate":"09-05-2020"},
+                null,
+                {"email":"fourth@temp.com","firstName":"Jim","lastName":"Doe","birthDate":"10-05-1994"}
+                ]}
+                """;
+        givenCreatedUsersFrom(1L);
+
+        mvc.perform(post(API_USERS_BATCH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batchJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", Matchers.hasSize(4)))
+                .andExpect(jsonPath("$.data[0].id", is(1L), Long.class))
+                .andExpect(jsonPath("$.data[1].status", is(400)))
+                .andExpect(jsonPath("$.data[1].id").doesNotExist())
+                .andExpect(jsonPath("$.data[1].errors..message", containsInAnyOrder(
+                        "Field [data[1].email] is not valid.",
+                        "Field [data[1].birthDate] is not valid.")))
+                .andExpect(jsonPath("$.data[2].status", is(400)))
+                .andExpect(jsonPath("$.data[2].errors[0].message", is("Item [data[2]] is not valid.")))
+                .andExpect(jsonPath("$.data[3].status", is(201)))
+                .andExpect(jsonPath("$.data[3].id", is(2L), Long.class));
+
+        then(userS).should().createAll(ArgumentMatchers.argThat(users -> users.size() == 2));
+    }
+
+    @Test
+    void createUsers_whenNotWrappedInData_thenReturn400() throws Exception {
+        mvc.perform(post(API_USERS_BATCH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0].status", is(equalTo(400))));
+    }
+
+    @Test
+    void patchUsers_whenIds_thenReturnAffectedCount() throws Exception {
+        given(userS.patchAll(ArgumentMatchers.eq(List.of(1L, 2L, 5L)), ArgumentMatchers.any()))
+                .willReturn(2);
+
+        mvc.perform(patch(API_USERS_BATCH + "?ids=1,2,5")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"data\":{\"lastName\":\"Doe\"}}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.affected", is(2)));
+    }
+
+    @Test
+    void patchUsers_whenDateRange_thenReturnAffectedCount() throws Exception {
+        given(userS.patchAll(
+                ArgumentMatchers.eq(Optional.of(LocalDate.of(1990, 1, 1))),
+                ArgumentMatchers.eq(Optional.empty()),
+                ArgumentMatchers.any()))
+                .willReturn(7);
+
+        mvc.perform(patch(API_USERS_BATCH + "?from=01-01-1990")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"data\":{\"address\":\"New Address\"}}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.affected", is(7)));
+    }
+
+    @Test
+    void patchUsers_whenPatchNotValid_thenReturn400() throws Exception {
+        mvc.perform(patch(API_USERS_BATCH + "?ids=1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"data\":{\"email\":\"\"}}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0].message", is("Field [data.email] is not valid.")));
+    }
+
+    @Test
+    void deleteUsers_whenIds_thenReturnAffectedCount() throws Exception {
+        given(userS.deleteAll(List.of(3L, 4L))).willReturn(1);
+
+        mvc.perform(delete(API_USERS_BATCH + "?ids=3,4")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.affected", is(1)));
+    }
+
+    @Test
+    void deleteUsers_whenDateRange_thenReturnAffectedCount() throws Exception {
+        given(userS.deleteAll(Optional.of(LocalDate.of(1990, 1, 1)), Optional.of(LocalDate.of(1995, 1, 1))))
+                .willReturn(12);
+
+        mvc.perform(delete(API_USERS_BATCH + "?from=01-01-1990&to=01-01-1995")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.affected", is(12)));
+    }
+
+    @Test
+    void deleteUsers_whenRangeNotValid_thenReturn400() throws Exception {
+        mvc.perform(delete(API_USERS_BATCH + "?from=01-01-1995&to=01-01-1990")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0].status", is(400)));
+    }
+
+    @Test
+    void deleteUsers_whenNoSelector_thenReturn400WithoutDeleting() throws Exception {
+        mvc.perform(delete(API_USERS_BATCH)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0].message",
+                        is("Either [ids] or [from]/[to] params must be provided, but not both.")));
+
+        then(userS).should(never()).deleteAll(anyCollection());
+    }
+
+    @Test
+    void deleteUsers_whenIdsAndRange_thenReturn400() throws Exception {
+        mvc.perform(delete(API_USERS_BATCH + "?ids=1&to=01-01-1995")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createUsers_whenEmailTakenOrRepeated_thenReportConflictsAndCreateTheRest() throws Exception {
+        var batchJson = """
+                {"data":[
+                {"email":"taken@temp.com","firstName":"John","lastName":"Doe","birthDate":"08-05-1994"},
+                {"email":"first@temp.com","firstName":"Jane","lastName":"Doe","birthDate":"09-05-1994"},
+                {"email":"FIRST@temp.com","firstName":"Jim","lastName":"Doe","birthDate":"10-05-1994"}
+                ]}
+                """;
+        given(userS.getTakenEmails(anyCollection())).willReturn(Set.of("taken@temp.com"));
+        givenCreatedUsersFrom(5L);
+
+        mvc.perform(post(API_USERS_BATCH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batchJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", Matchers.hasSize(3)))
+                .andExpect(jsonPath("$.data[0].status", is(409)))
+                .andExpect(jsonPath("$.data[0].errors[0].message", is("Field [data[0].email] is not unique.")))
+                .andExpect(jsonPath("$.data[0].errors[0].detail",
+                        is("A user with the email [taken@temp.com] already exists.")))
+                .andExpect(jsonPath("$.data[1].status", is(201)))
+                .andExpect(jsonPath("$.data[1].id", is(5L), Long.class))
+                .andExpect(jsonPath("$.data[2].status", is(409)))
+                .andExpect(jsonPath("$.data[2].errors[0].detail", is("Item [data[1]] has the same email.")));
+        then(userS).should().createAll(ArgumentMatchers.argThat(users -> users.size() == 1));
+    }
+
+    private void givenCreatedUsersFrom(long firstId) {
+        var ids = new AtomicLong(firstId);
+        given(userS.createAll(ArgumentMatchers.anyList()))
+                .willAnswer(invocation -> {
+                    List<User> users = invocation.getArgument(0);
+                    users.forEach(user -> user.setId(ids.getAndIncrement()));
+                    return users;
+                });
+    }
+
+}
@@ -1,9 +1,25 @@
 package com.fedorniakm.demo.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fedorniakm.demo.Application;
+import com.fedorniakm.demo.converter.BinaryMediaTypes;
+import com.fedorniakm.demo.converter.UserProtobufHttpMessageConverter;
+import com.fedorniakm.demo.model.Data;
+import com.fedorniakm.demo.model.Page;
+import com.fedorniakm.demo.model.Revision;
 import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserFields;
+import com.fedorniakm.demo.service.DuplicateEmailException;
+import com.fedorniakm.demo.service.UserRangeCache;
 import com.fedorniakm.demo.service.UserService;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EmptySource;
@@ -13,17 +29,29 @@ import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpInputMessage;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.then;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -41,6 +69,23 @@ class UserControllerTest {
     @MockBean
     private UserService userS;
 
+    @MockBean
+    private UserRangeCache rangeCache;
+
+    @BeforeEach
+    void givenEmptyRevision() {
+        given(userS.getRevision(ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .willReturn(new Revision(0, 0, null));
+    }
+
+    @BeforeEach
+    void givenEmptyRangeCache() {
+        given(rangeCache.put(ArgumentMatchers.any(), ArgumentMatchers.any(), anyLong(),
+                ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .willAnswer(invocation -> new UserRangeCache.Listing(
+                        invocation.getArgument(3), invocation.getArgument(4), null));
+    }
+
     @Test
     void getAllUsers_whenNoUsers_thenReturnEmptyJson() throws Exception {
         given(userS.getAll()).willReturn(Collections.emptyList());
@@ -87,6 +132,332 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.data[0].phoneNumber", is(user.getPhoneNumber().orElse(null))));
     }
 
+    @Test
+    void getAllUsers_whenRevisionMatches_thenReturn304WithoutLoadingUsers() throws Exception {
+        var revision = new Revision(3, 5, Instant.parse("2024-05-01T10:15:30Z"));
+        given(userS.getRevision(ArgumentMatchers.any(), ArgumentMatchers.any())).willReturn(revision);
+
+        mvc.perform(get(API_USERS + "?from=01-01-1990")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", revision.eTag("json")));
+
+        mvc.perform(get(API_USERS + "?from=01-01-1990")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("If-None-Match", revision.eTag("json")))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", revision.eTag("json")))
+                .andExpect(content().string(""));
+
+        then(userS).should().getAll(ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    @Test
+    void getAllUsers_whenRevisionChanged_thenReturnUsers() throws Exception {
+        var previous = new Revision(3, 5, Instant.parse("2024-05-01T10:15:30Z"));
+        var current = new Revision(3, 6, Instant.parse("2024-05-01T10:16:30Z"));
+        given(userS.getRevision(ArgumentMatchers.any(), ArgumentMatchers.any())).willReturn(current);
+
+        mvc.perform(get(API_USERS)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("If-None-Match", previous.eTag("json")))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", current.eTag("json")))
+                .andExpect(jsonPath("$.data").isArray());
+    }
+
+    @Test
+    void getAllUsers_whenListingCached_thenServeBytesWithoutLoadingUsers() throws Exception {
+        var body = "{\"data\":[]}".getBytes(StandardCharsets.UTF_8);
+        var gzipped = new ByteArrayOutputStream();
+        try (var gzipOut = new GZIPOutputStream(gzipped)) {
+            gzipOut.write(body);
+        }
+        given(rangeCache.get(Optional.of(LocalDate.of(1990, 1, 1)), Optional.empty()))
+                .willReturn(Optional.of(new UserRangeCache.Listing("\"1\"", body, gzipped.toByteArray())));
+
+        mvc.perform(get(API_USERS + "?from=01-01-1990")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().bytes(body));
+        mvc.perform(get(API_USERS + "?from=01-01-1990")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(content().bytes(gzipped.toByteArray()));
+        mvc.perform(get(API_USERS + "?from=01-01-1990")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("If-None-Match", "\"1\""))
+                .andExpect(status().isNotModified());
+
+        then(userS).should(never()).getRevision(ArgumentMatchers.any(), ArgumentMatchers.any());
+        then(userS).should(never()).getAll(ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    @Test
+    void getAllUsers_whenListingNotCached_thenCacheSerializedListing() throws Exception {
+        var revision = new Revision(1, 0, Instant.parse("2024-05-01T10:15:30Z"));
+        given(userS.getRevision(ArgumentMatchers.any(), ArgumentMatchers.any())).willReturn(revision);
+        given(userS.getAll(ArgumentMatchers.any(), ArgumentMatchers.any())).willReturn(List.of(streamedUser(1L)));
+
+        var body = mvc.perform(get(API_USERS + "?to=01-01-2000")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].email", is("stream1@user.com")))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        then(rangeCache).should().put(ArgumentMatchers.eq(Optional.empty()),
+                ArgumentMatchers.eq(Optional.of(LocalDate.of(2000, 1, 1))), anyLong(),
+                ArgumentMatchers.eq(revision.eTag("json")), ArgumentMatchers.eq(body));
+    }
+
+    @Test
+    void getAllUsers_whenBinaryFormatPreferred_thenBypassListingCache() throws Exception {
+        given(userS.getAll(ArgumentMatchers.any(), ArgumentMatchers.any())).willReturn(List.of());
+
+        mvc.perform(get(API_USERS)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Accept", "application/json;q=0.5, application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR));
+
+        then(rangeCache).should(never()).get(ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    @Test
+    void getUserById_whenVersionMatches_thenReturn304() throws Exception {
+        var user = User.builder()
+                .id(1L)
+                .firstName("1990user")
+                .lastName("1990user")
+                .email("1990user@123")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .address(Optional.empty())
+                .phoneNumber(Optional.empty())
+                .version(4L)
+                .updatedAt(Instant.parse("2024-05-01T10:15:30Z"))
+                .build();
+        given(userS.getById(1L)).willReturn(Optional.of(user));
+
+        mvc.perform(get(API_USERS_ID, 1L)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4-json\""))
+                .andExpect(header().string("Vary", "Accept"))
+                .andExpect(header().string("Last-Modified", "Wed, 01 May 2024 10:15:30 GMT"))
+                .andExpect(jsonPath("$.data.version").doesNotExist())
+                .andExpect(jsonPath("$.data.updatedAt").doesNotExist());
+
+        mvc.perform(get(API_USERS_ID, 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("If-None-Match", "\"4-json\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mvc.perform(get(API_USERS_ID, 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("If-Modified-Since", "Wed, 01 May 2024 10:15:30 GMT"))
+                .andExpect(status().isNotModified());
+
+        mvc.perform(get(API_USERS_ID, 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("If-None-Match", "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.id", is(1)));
+    }
+
+    @Test
+    void getUserById_whenFormatOrFieldsDiffer_thenOwnETag() throws Exception {
+        var user = User.builder()
+                .id(1L)
+                .firstName("1990user")
+                .lastName("1990user")
+                .email("1990user@123")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .address(Optional.empty())
+                .phoneNumber(Optional.empty())
+                .version(4L)
+                .updatedAt(Instant.parse("2024-05-01T10:15:30Z"))
+                .build();
+        given(userS.getById(1L)).willReturn(Optional.of(user));
+        given(userS.getById(ArgumentMatchers.eq(1L), ArgumentMatchers.any())).willReturn(Optional.of(user));
+
+        mvc.perform(get(API_USERS_ID, 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Accept", "application/cbor")
+                        .header("If-None-Match", "\"4-json\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4-cbor\""))
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR));
+
+        mvc.perform(get(API_USERS_ID + "?fields=email,id", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("If-None-Match", "\"4-json\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4-json-id+email\""));
+    }
+
+    @Test
+    void getAllUsers_whenFormatDiffers_thenOwnETag() throws Exception {
+        var revision = new Revision(3, 5, Instant.parse("2024-05-01T10:15:30Z"));
+        given(userS.getRevision(ArgumentMatchers.any(), ArgumentMatchers.any())).willReturn(revision);
+        given(userS.getAll(ArgumentMatchers.any(), ArgumentMatchers.any())).willReturn(List.of());
+
+        mvc.perform(get(API_USERS)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Accept", "application/x-protobuf")
+                        .header("If-None-Match", revision.eTag("json")))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", revision.eTag("x-protobuf")))
+                .andExpect(header().string("Vary", "Accept"));
+    }
+
+    @Test
+    void getAllUsers_whenFields_thenSerializeOnlyRequestedFields() throws Exception {
+        var user = User.builder()
+                .id(1L)
+                .email("1990user@123")
+                .firstName("1990user")
+                .build();
+        given(userS.getAll(ArgumentMatchers.any(), ArgumentMatchers.any(),
+                ArgumentMatchers.eq(UserFields.valueOf("id,email"))))
+                .willReturn(List.of(user));
+
+        mvc.perform(get(API_USERS + "?fields=id,email")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", Matchers.hasSize(1)))
+                .andExpect(jsonPath("$.data[0].id", is(1)))
+                .andExpect(jsonPath("$.data[0].email", is("1990user@123")))
+                .andExpect(jsonPath("$.data[0].firstName").doesNotExist())
+                .andExpect(jsonPath("$.data[0].address").doesNotExist());
+    }
+
+    @Test
+    void getUserById_whenFields_thenSerializeOnlyRequestedFields() throws Exception {
+        var user = User.builder()
+                .firstName("First")
+                .lastName("Last")
+                .address(Optional.empty())
+                .build();
+        given(userS.getById(1L, UserFields.valueOf("firstName,lastName,address")))
+                .willReturn(Optional.of(user));
+
+        mvc.perform(get(API_USERS_ID + "?fields=firstName, lastName,address", 1L)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.firstName", is("First")))
+                .andExpect(jsonPath("$.data.lastName", is("Last")))
+                .andExpect(jsonPath("$.data.address").value(Matchers.nullValue()))
+                .andExpect(jsonPath("$.data.id").doesNotExist())
+                .andExpect(jsonPath("$.data.email").doesNotExist());
+    }
+
+    @ParameterizedTest(name = "Test [{0}]")
+    @ValueSource(strings = {"unknown", "id,password", ",", "ID"})
+    void getAllUsers_whenFieldsNotValid_thenReturn400(String fields) throws Exception {
+        mvc.perform(get(API_USERS + "?fields=" + fields)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0].message", is("Param [fields] is not valid")));
+    }
+
+    @Test
+    void getAllUsers_whenLimitAndMorePages_thenReturnNextLink() throws Exception {
+        var user = User.builder()
+                .id(7L)
+                .firstName("1990user")
+                .lastName("1990user")
+                .email("1990user@123")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .address(Optional.empty())
+                .phoneNumber(Optional.empty())
+                .build();
+        var next = UserCursor.of(user);
+
+        given(userS.getPage(ArgumentMatchers.any(), ArgumentMatchers.any(),
+                ArgumentMatchers.eq(Optional.empty()), ArgumentMatchers.eq(1)))
+                .willReturn(new Page<>(List.of(user), next));
+
+        mvc.perform(get(API_USERS + "?limit=1&from=01-01-1980")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", Matchers.hasSize(1)))
+                .andExpect(jsonPath("$.data[0].id", is(user.getId()), Long.class))
+                .andExpect(header().string("Link", allOf(
+                        containsString("after=" + next.encode()),
+                        containsString("limit=1"),
+                        containsString("from=01-01-1980"),
+                        endsWith("; rel=\"next\""))));
+    }
+
+    @Test
+    void getAllUsers_whenLastPage_thenNoNextLink() throws Exception {
+        var after = new UserCursor(LocalDate.of(1990, 1, 1), 7L);
+        given(userS.getPage(ArgumentMatchers.any(), ArgumentMatchers.any(),
+                ArgumentMatchers.eq(Optional.of(after)), ArgumentMatchers.anyInt()))
+                .willReturn(new Page<>(List.of(), null));
+
+        mvc.perform(get(API_USERS + "?after=" + after.encode())
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", Matchers.hasSize(0)))
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    void getAllUsers_whenAcceptNdjson_thenStreamOneUserPerLine() throws Exception {
+        givenStreamedUsers(streamedUser(1L), streamedUser(2L));
+
+        var result = mvc.perform(get(API_USERS + "?from=01-01-1980")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"id\":1,\"email\":\"stream1@user.com\",\"firstName\":\"Stream\","
+                        + "\"lastName\":\"User\",\"birthDate\":\"01-01-1990\",\"address\":null,"
+                        + "\"phoneNumber\":\"+380001\"}\n"
+                        + "{\"id\":2,\"email\":\"stream2@user.com\",\"firstName\":\"Stream\","
+                        + "\"lastName\":\"User\",\"birthDate\":\"01-01-1990\",\"address\":null,"
+                        + "\"phoneNumber\":\"+380002\"}\n"));
+    }
+
+    @Test
+    void getAllUsers_whenStreamParam_thenStreamDataArray() throws Exception {
+        givenStreamedUsers(streamedUser(1L), streamedUser(2L), streamedUser(3L));
+
+        var result = mvc.perform(get(API_USERS + "?stream=true")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data", Matchers.hasSize(3)))
+                .andExpect(jsonPath("$.data[2].id", is(3L), Long.class))
+                .andExpect(jsonPath("$.data[2].birthDate", is("01-01-1990")));
+    }
+
+    @ParameterizedTest(name = "Test [{0}]")
+    @ValueSource(strings = {"abc", "MTIz", "!!", "eDp5"})
+    void getAllUsers_whenCursorIsNotValid_thenReturn400(String cursor) throws Exception {
+        mvc.perform(get(API_USERS + "?after=" + cursor)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0].status", is(equalTo(400))))
+                .andExpect(jsonPath("$.errors[0].message", is("Param [after] is not valid")));
+    }
+
     @ParameterizedTest(name = "Test [{0}]")
     @ValueSource(strings = {"ad-da01-dwa2099", "0112-01-2023", "2023-1-16", "2023-16-1", "16-1-2023", "1o-1-1990"})
     void getAllUsers_whenFromParamIsNotValid_thenReturn400(String date) throws Exception {
@@ -189,6 +560,78 @@ class UserControllerTest {
                 .andDo(print());
     }
 
+    @Test
+    void getUsersByEmail_whenUserExists_thenReturnIt() throws Exception {
+        var user = User.builder()
+                .id(1L)
+                .firstName("1212")
+                .lastName("123")
+                .email("User@Mail.com")
+                .birthDate(LocalDate.now())
+                .address(Optional.empty())
+                .phoneNumber(Optional.empty())
+                .build();
+        given(userS.getByEmail("user@mail.com")).willReturn(Optional.of(user));
+
+        mvc.perform(get(API_USERS).param("email", "user@mail.com").param("fields", "id,email")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].id", is(1)))
+                .andExpect(jsonPath("$.data[0].email", is("User@Mail.com")))
+                .andExpect(jsonPath("$.data[0].firstName").doesNotExist());
+        then(userS).should(never()).getAll(ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    @Test
+    void getUsersByEmail_whenNoUser_thenReturnEmptyData() throws Exception {
+        given(userS.getByEmail(ArgumentMatchers.any())).willReturn(Optional.empty());
+
+        mvc.perform(get(API_USERS).param("email", "nobody@mail.com")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(0)));
+    }
+
+    @Test
+    void getUsersByEmail_whenBlank_thenReturn400() throws Exception {
+        mvc.perform(get(API_USERS).param("email", " ")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        then(userS).should(never()).getByEmail(ArgumentMatchers.any());
+    }
+
+    @Test
+    void getUsersByEmail_whenStreamRequested_thenNotStreamAllUsers() throws Exception {
+        given(userS.getByEmail("nobody@mail.com")).willReturn(Optional.empty());
+
+        mvc.perform(get(API_USERS).param("email", "nobody@mail.com").param("stream", "true")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(0)));
+        mvc.perform(get(API_USERS).param("email", "nobody@mail.com")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is4xxClientError());
+        then(userS).should(never()).forEach(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    @Test
+    void postUser_whenDuplicateEmail_thenReturn409() throws Exception {
+        var postUserJson = """
+                {"data":{"email":"tempUser@temp.com","firstName":"John","lastName":"Doe","birthDate":"08-05-1994"}}
+                """;
+        given(userS.create(ArgumentMatchers.any(User.class)))
+                .willThrow(new DuplicateEmailException("tempUser@temp.com"));
+
+        mvc.perform(post(API_USERS)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(postUserJson))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errors[0].status", is(409)))
+                .andExpect(jsonPath("$.errors[0].message", containsString("tempUser@temp.com")));
+    }
+
     @Test
     void postUser_whenValidUserNoOptionalData_thenReturnOkAndLocation() throws Exception {
         var postUserJson = """
@@ -534,6 +977,130 @@ class UserControllerTest {
                         "Field [data.lastName] is not valid.")));
     }
 
+    @Test
+    void getAllUsers_whenAcceptCbor_thenCborWithEpochDayDates() throws Exception {
+        given(userS.getAll(ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .willReturn(List.of(streamedUser(1L)));
+
+        var body = mvc.perform(get(API_USERS)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        var users = new ObjectMapper(new CBORFactory()).readTree(body).get("data");
+        assertEquals(1, users.size());
+        assertEquals("stream1@user.com", users.get(0).get("email").asText());
+        assertEquals(LocalDate.of(1990, 1, 1).toEpochDay(), users.get(0).get("birthDate").asLong());
+    }
+
+    @Test
+    void postUser_whenSmileBody_thenReturnOkAndLocation() throws Exception {
+        var user = Map.of("email", "tempUser@temp.com", "firstName", "John", "lastName", "Doe",
+                "birthDate", LocalDate.of(1994, 5, 8).toEpochDay());
+        var body = new ObjectMapper(new SmileFactory()).writeValueAsBytes(Map.of("data", user));
+        given(userS.create(ArgumentMatchers.any(User.class)))
+                .willReturn(User.builder().id(1L).build());
+
+        mvc.perform(post(API_USERS)
+                        .contentType(BinaryMediaTypes.APPLICATION_SMILE)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", API_USERS + "/1"));
+        then(userS).should().create(ArgumentMatchers.argThat(created ->
+                created.getBirthDate().equals(LocalDate.of(1994, 5, 8))));
+    }
+
+    @Test
+    void postUser_whenProtobufBody_thenReturnOkAndLocation() throws Exception {
+        var body = protobufUserData("tempUser@temp.com", LocalDate.of(1994, 5, 8));
+        given(userS.create(ArgumentMatchers.any(User.class)))
+                .willReturn(User.builder().id(1L).build());
+
+        mvc.perform(post(API_USERS)
+                        .contentType(BinaryMediaTypes.APPLICATION_PROTOBUF)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", API_USERS + "/1"));
+        then(userS).should().create(ArgumentMatchers.argThat(created ->
+                created.getEmail().equals("tempUser@temp.com")
+                        && created.getBirthDate().equals(LocalDate.of(1994, 5, 8))));
+    }
+
+    @Test
+    void postUser_whenProtobufBodyNotValid_thenReturnProtobufErrors() throws Exception {
+        var body = protobufUserData("", LocalDate.of(1994, 5, 8));
+
+        var errors = mvc.perform(post(API_USERS)
+                        .contentType(BinaryMediaTypes.APPLICATION_PROTOBUF)
+                        .accept(BinaryMediaTypes.APPLICATION_PROTOBUF)
+                        .content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(BinaryMediaTypes.APPLICATION_PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        var input = CodedInputStream.newInstance(errors);
+        assertEquals(1, WireFormat.getTagFieldNumber(input.readTag()));
+        var error = CodedInputStream.newInstance(input.readByteArray());
+        error.readTag();
+        assertEquals(400, error.readInt32());
+        error.readTag();
+        assertEquals("Field [data.email] is not valid.", error.readString());
+    }
+
+    @Test
+    void getUserById_whenAcceptProtobuf_thenReturnProtobufUser() throws Exception {
+        given(userS.getById(1L)).willReturn(Optional.of(streamedUser(1L)));
+
+        var body = mvc.perform(get(API_USERS_ID, 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(BinaryMediaTypes.APPLICATION_PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BinaryMediaTypes.APPLICATION_PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        var user = new UserProtobufHttpMessageConverter().read(
+                new ParameterizedTypeReference<Data<User>>() {}.getType(), null, new MockHttpInputMessage(body));
+        assertEquals(new Data<>(streamedUser(1L)), user);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenStreamedUsers(User... users) {
+        willAnswer(invocation -> {
+            var action = (Consumer<User>) invocation.getArgument(2);
+            Arrays.stream(users).forEach(action);
+            return null;
+        }).given(userS).forEach(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    private User streamedUser(Long id) {
+        return User.builder()
+                .id(id)
+                .firstName("Stream")
+                .lastName("User")
+                .email("stream" + id + "@user.com")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .address(Optional.empty())
+                .phoneNumber(Optional.of("+38000" + id))
+                .build();
+    }
+
+    private static byte[] protobufUserData(String email, LocalDate birthDate) throws IOException {
+        var user = new ByteArrayOutputStream();
+        var userOutput = CodedOutputStream.newInstance(user);
+        userOutput.writeString(2, email);
+        userOutput.writeString(3, "John");
+        userOutput.writeString(4, "Doe");
+        userOutput.writeSInt32(5, (int) birthDate.toEpochDay());
+        userOutput.flush();
+        var data = new ByteArrayOutputStream();
+        var dataOutput = CodedOutputStream.newInstance(data);
+        dataOutput.writeByteArray(1, user.toByteArray());
+        dataOutput.flush();
+        return data.toByteArray();
+    }
+
     private String dateToPattern(LocalDate date) {
         return date.format(DateTimeFormatter.ofPattern("dd-MM-yyyy"));
     }
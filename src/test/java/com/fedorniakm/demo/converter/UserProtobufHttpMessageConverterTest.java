@@ -0,0 +1,86 @@
+package com.fedorniakm.demo.converter;
+
+import com.fedorniakm.demo.model.Data;
+import com.fedorniakm.demo.model.SparseUser;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserFields;
+import com.fedorniakm.demo.model.UserPatch;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserProtobufHttpMessageConverterTest {
+
+    private static final Type USER_DATA = new ParameterizedTypeReference<Data<User>>() {}.getType();
+    private static final Type USER_PATCH_DATA = new ParameterizedTypeReference<Data<UserPatch>>() {}.getType();
+
+    private final UserProtobufHttpMessageConverter converter = new UserProtobufHttpMessageConverter();
+
+    @Test
+    void testWriteAndRead_User() throws IOException {
+        var user = new User(7L, "user@mail.com", "First", "Last", LocalDate.of(1950, 3, 4),
+                Optional.of("Address"), Optional.empty());
+
+        assertEquals(Data.of(user), converter.read(USER_DATA, null, new MockHttpInputMessage(write(Data.of(user)))));
+    }
+
+    @Test
+    void testWrite_SparseUserOnlyRequestedFields() throws IOException {
+        var user = new User(7L, "user@mail.com", "First", "Last", LocalDate.of(1990, 1, 1),
+                Optional.of("Address"), Optional.empty());
+
+        var body = write(Data.of(new SparseUser(user, UserFields.valueOf("id,lastName"))));
+
+        var read = (Data<?>) converter.read(USER_DATA, null, new MockHttpInputMessage(body));
+        assertEquals(new User(7L, null, null, "Last", null, Optional.empty(), Optional.empty()), read.data());
+    }
+
+    @Test
+    void testWrite_ListRepeatsDataField() throws IOException {
+        var users = List.of(
+                new User(1L, "first@mail.com", "First", "Last", LocalDate.of(1990, 1, 1), Optional.empty(), Optional.empty()),
+                new User(2L, "second@mail.com", "Second", "Last", LocalDate.of(1991, 1, 1), Optional.empty(), Optional.empty()));
+
+        var body = write(Data.of(users));
+
+        // Reading the list as a single user keeps the last repeated element.
+        var read = (Data<?>) converter.read(USER_DATA, null, new MockHttpInputMessage(body));
+        assertEquals(users.get(1), read.data());
+    }
+
+    @Test
+    void testRead_PatchLeavesAbsentFieldsNull() throws IOException {
+        var body = new byte[]{0x0a, 0x04, 0x22, 0x02, 'D', 'o'};
+
+        var read = (Data<?>) converter.read(USER_PATCH_DATA, null, new MockHttpInputMessage(body));
+
+        assertEquals(UserPatch.builder().lastName("Do").build(), read.data());
+    }
+
+    @Test
+    void testCanRead_OnlyUserPayloads() {
+        assertTrue(converter.canRead(USER_DATA, null, BinaryMediaTypes.APPLICATION_PROTOBUF));
+        assertTrue(converter.canRead(USER_PATCH_DATA, null, BinaryMediaTypes.APPLICATION_PROTOBUF));
+        assertFalse(converter.canRead(new ParameterizedTypeReference<Data<String>>() {}.getType(), null,
+                BinaryMediaTypes.APPLICATION_PROTOBUF));
+        assertFalse(converter.canRead(USER_DATA, null, org.springframework.http.MediaType.APPLICATION_JSON));
+    }
+
+    private byte[] write(Object value) throws IOException {
+        var output = new MockHttpOutputMessage();
+        converter.write(value, null, BinaryMediaTypes.APPLICATION_PROTOBUF, output);
+        return output.getBodyAsBytes();
+    }
+
+}
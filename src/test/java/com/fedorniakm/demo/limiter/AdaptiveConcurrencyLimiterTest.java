@@ -0,0 +1,80 @@
+package com.fedorniakm.demo.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void testTryAcquire_RejectsOverLimit() {
+        var limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInflight());
+        assertEquals(1, limiter.getRejected());
+
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(10));
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void testRelease_StableLatencyGrowsLimit() {
+        var limiter = new AdaptiveConcurrencyLimiter(10, 5, 100);
+
+        for (int round = 0; round < 20; round++) {
+            saturate(limiter, 10);
+        }
+
+        assertTrue(limiter.getLimit() > 10, "limit " + limiter.getLimit());
+        assertTrue(limiter.getLimit() <= 100);
+    }
+
+    @Test
+    void testRelease_RisingLatencyShrinksLimit() {
+        var limiter = new AdaptiveConcurrencyLimiter(50, 5, 100);
+        saturate(limiter, 10);
+        var before = limiter.getLimit();
+
+        saturate(limiter, 100);
+
+        assertTrue(limiter.getLimit() < before, before + " -> " + limiter.getLimit());
+        assertTrue(limiter.getLimit() >= 5);
+    }
+
+    @Test
+    void testRelease_IdleDoesNotGrowLimit() {
+        var limiter = new AdaptiveConcurrencyLimiter(20, 5, 100);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void testConstructor_InvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(5, 10, 100));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(0, 0, 100));
+    }
+
+    private static void saturate(AdaptiveConcurrencyLimiter limiter, long rttMillis) {
+        var admitted = 0;
+        while (limiter.tryAcquire()) {
+            admitted++;
+        }
+        for (int i = 0; i < admitted; i++) {
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(rttMillis));
+        }
+    }
+
+}
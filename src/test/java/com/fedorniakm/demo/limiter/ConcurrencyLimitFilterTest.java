@@ -0,0 +1,86 @@
+package com.fedorniakm.demo.limiter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitFilterTest {
+
+    private final ConcurrencyLimitFilter filter =
+            new ConcurrencyLimitFilter(new ObjectMapper(), 1, 1, 10, 1, 1, 10, 3);
+
+    @Test
+    void testDoFilter_RejectsOverLimitWith503() throws ServletException, IOException {
+        var nested = new AtomicReference<MockHttpServletResponse>();
+        var chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req,
+                                   HttpServletResponse res) throws ServletException, IOException {
+                var response = new MockHttpServletResponse();
+                filter.doFilter(new MockHttpServletRequest("GET", "/v1/users/2"), response, new MockFilterChain());
+                nested.set(response);
+            }
+        });
+
+        var response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/v1/users/1"), response, chain);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(503, nested.get().getStatus());
+        assertEquals("3", nested.get().getHeader("Retry-After"));
+        assertTrue(nested.get().getContentAsString().contains("\"status\":503"));
+        assertEquals(0, filter.getReadLimiter().getInflight());
+        assertEquals(1, filter.getReadLimiter().getRejected());
+    }
+
+    @Test
+    void testDoFilter_ReadsAndWritesHaveSeparateLimits() throws ServletException, IOException {
+        var nested = new AtomicReference<MockHttpServletResponse>();
+        var chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req,
+                                   HttpServletResponse res) throws ServletException, IOException {
+                var response = new MockHttpServletResponse();
+                filter.doFilter(new MockHttpServletRequest("POST", "/v1/users"), response, new MockFilterChain());
+                nested.set(response);
+            }
+        });
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/v1/users"), new MockHttpServletResponse(), chain);
+
+        assertEquals(200, nested.get().getStatus());
+    }
+
+    @Test
+    void testDoFilter_OtherPathsNotLimited() throws ServletException, IOException {
+        filter.getReadLimiter().tryAcquire();
+
+        var response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), response, new MockFilterChain());
+
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    void testBindTo_RegistersMetrics() {
+        var registry = new SimpleMeterRegistry();
+        filter.bindTo(registry);
+
+        assertEquals(1.0, registry.get("user.limiter.limit").tag("kind", "read").gauge().value());
+        assertEquals(0.0, registry.get("user.limiter.rejected").tag("kind", "write").functionCounter().count());
+    }
+
+}
@@ -1,6 +1,9 @@
 package com.fedorniakm.demo.persistence.repository;
 
 import com.fedorniakm.demo.Application;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserFields;
+import com.fedorniakm.demo.model.UserPatch;
 import com.fedorniakm.demo.persistence.entity.UserEntity;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -9,22 +12,28 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.annotation.DirtiesContext;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest(classes = Application.class, webEnvironment = SpringBootTest.WebEnvironment.NONE)
 @AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.NONE)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 class JpaUserRepositoryTest {
 
+    private static final AtomicInteger EMAILS = new AtomicInteger();
+
     @Autowired
     private UserRepository userRepo;
 
@@ -41,6 +50,20 @@ class JpaUserRepositoryTest {
                 });
     }
 
+    @Test
+    void testCreateAll_SpansSeveralBatches() {
+        var users = IntStream.range(0, 173)
+                .mapToObj(i -> validUserEntity())
+                .toList();
+
+        var createdUsers = userRepo.createAll(users);
+
+        assertThat(createdUsers.stream().allMatch(user -> user.getId() != null)).isTrue();
+        assertThat(userRepo.getAll().size()).isEqualTo(173);
+        var last = createdUsers.get(172);
+        assertEqualUsers(last, userRepo.getById(last.getId()).orElseThrow());
+    }
+
     @Test
     void testCreateUserAndFindById() {
         var user = new UserEntity(null,
@@ -121,6 +144,49 @@ class JpaUserRepositoryTest {
                 .isEqualTo(0);
     }
 
+    @Test
+    void testGetPage_ContinuesAfterCursor() {
+        var u1 = validUserEntity();
+        u1.setBirthDate(LocalDate.of(1990, 1, 1));
+        var u2 = validUserEntity();
+        u2.setBirthDate(LocalDate.of(1990, 1, 1));
+        var u3 = validUserEntity();
+        u3.setBirthDate(LocalDate.of(1985, 1, 1));
+        userRepo.create(u1);
+        userRepo.create(u2);
+        userRepo.create(u3);
+
+        var firstPage = userRepo.getPage(Optional.empty(), Optional.empty(), Optional.empty(), 2);
+        var last = firstPage.get(1);
+        var secondPage = userRepo.getPage(Optional.empty(), Optional.empty(),
+                Optional.of(new UserCursor(last.getBirthDate(), last.getId())), 2);
+
+        assertThat(firstPage.size()).isEqualTo(2);
+        assertEqualUsers(u3, firstPage.get(0));
+        assertEqualUsers(u1, firstPage.get(1));
+        assertThat(secondPage.size()).isEqualTo(1);
+        assertEqualUsers(u2, secondPage.get(0));
+    }
+
+    @Test
+    void testGetAll_WithFields_LoadsOnlyRequestedFields() {
+        var user = userRepo.create(validUserEntity());
+
+        var users = userRepo.getAll(Optional.empty(), Optional.empty(), UserFields.valueOf("email,lastName"));
+        var found = userRepo.getById(user.getId(), UserFields.valueOf("birthDate"));
+
+        assertThat(users.size()).isEqualTo(1);
+        assertEquals(user.getEmail(), users.get(0).getEmail());
+        assertEquals(user.getLastName(), users.get(0).getLastName());
+        assertThat(users.get(0).getId()).isNull();
+        assertThat(users.get(0).getFirstName()).isNull();
+        assertThat(users.get(0).getAddress()).isNull();
+        assertNotNull(users.get(0).getVersion());
+        assertThat(found).isPresent();
+        assertEquals(user.getBirthDate(), found.get().getBirthDate());
+        assertThat(found.get().getEmail()).isNull();
+    }
+
     @Test
     void testDeleteById() {
         var user = validUserEntity();
@@ -142,6 +208,16 @@ class JpaUserRepositoryTest {
         assertThat(userRepo.getById(userId)).isNotPresent();
     }
 
+    @Test
+    void testLockBirthDates_OfExistingUsers() {
+        var user = userRepo.create(validUserEntity());
+
+        var birthDates = userRepo.lockBirthDates(List.of(user.getId(), 99999L));
+
+        assertEquals(List.of(user.getBirthDate()), birthDates);
+        assertEquals(List.of(), userRepo.lockBirthDates(List.of()));
+    }
+
     @Test
     void testUpdate() {
         var firstUser = validUserEntity();
@@ -168,6 +244,87 @@ class JpaUserRepositoryTest {
         assertThat(savedUser).isNotPresent();
     }
 
+    @Test
+    void testUpdate_NoChanges_KeepsVersion() {
+        var user = validUserEntity();
+        user.setAddress(null);
+        var userId = userRepo.create(user).getId();
+        var version = userRepo.getById(userId).orElseThrow().getVersion();
+
+        var result = userRepo.update(validUserEntity(userId, user));
+
+        assertThat(result).isTrue();
+        assertEquals(version, userRepo.getById(userId).orElseThrow().getVersion());
+    }
+
+    @Test
+    void testPatch_OnlyPresentFields() {
+        var user = validUserEntity();
+        var userId = userRepo.create(user).getId();
+        var version = userRepo.getById(userId).orElseThrow().getVersion();
+
+        var result = userRepo.patch(userId, UserPatch.builder().lastName("Patched").address("New Address").build());
+
+        var saved = userRepo.getById(userId).orElseThrow();
+        assertThat(result).isTrue();
+        assertEquals("Patched", saved.getLastName());
+        assertEquals("New Address", saved.getAddress());
+        assertEquals(user.getFirstName(), saved.getFirstName());
+        assertEquals(user.getEmail(), saved.getEmail());
+        assertEquals(version + 1, saved.getVersion());
+    }
+
+    @Test
+    void testPatch_NoChanges_KeepsVersion() {
+        var user = validUserEntity();
+        var userId = userRepo.create(user).getId();
+        var version = userRepo.getById(userId).orElseThrow().getVersion();
+
+        var sameValues = userRepo.patch(userId, UserPatch.builder().lastName(user.getLastName()).build());
+        var empty = userRepo.patch(userId, new UserPatch());
+
+        assertThat(sameValues).isTrue();
+        assertThat(empty).isTrue();
+        assertEquals(version, userRepo.getById(userId).orElseThrow().getVersion());
+    }
+
+    @Test
+    void testGetByEmail_IgnoresCase() {
+        var user = validUserEntity();
+        user.setEmail("Mixed.Case@Mail.com");
+        var userId = userRepo.create(user).getId();
+
+        assertEquals(userId, userRepo.getByEmail("mixed.case@mail.COM").orElseThrow().getId());
+        assertThat(userRepo.existsByEmail("MIXED.CASE@MAIL.COM")).isTrue();
+        assertThat(userRepo.getByEmail("other@mail.com")).isNotPresent();
+        assertThat(userRepo.existsByEmail("other@mail.com")).isFalse();
+    }
+
+    @Test
+    void testCreate_DuplicateEmail_ViolatesUniqueIndex() {
+        var user = validUserEntity();
+        userRepo.create(user);
+        var duplicate = validUserEntity();
+        duplicate.setEmail(user.getEmail().toUpperCase());
+
+        assertThrows(DataIntegrityViolationException.class, () -> userRepo.create(duplicate));
+    }
+
+    @Test
+    void testPatch_Email_MovesLookup() {
+        var userId = userRepo.create(validUserEntity()).getId();
+
+        userRepo.patch(userId, UserPatch.builder().email("Patched@Mail.com").build());
+
+        assertEquals(userId, userRepo.getByEmail("patched@mail.com").orElseThrow().getId());
+    }
+
+    @Test
+    void testPatch_NoUser() {
+        assertThat(userRepo.patch(99999L, UserPatch.builder().lastName("Patched").build())).isFalse();
+        assertThat(userRepo.patch(99999L, new UserPatch())).isFalse();
+    }
+
     private void assertEqualUsers(UserEntity expected, UserEntity actual) {
         assertEquals(expected.getFirstName(), actual.getFirstName());
         assertEquals(expected.getLastName(), actual.getLastName());
@@ -180,13 +337,18 @@ class JpaUserRepositoryTest {
         return validUserEntity(null);
     }
 
+    private UserEntity validUserEntity(Long id, UserEntity values) {
+        return new UserEntity(id, values.getEmail(), values.getFirstName(), values.getLastName(),
+                values.getBirthDate(), values.getAddress(), values.getPhoneNumber());
+    }
+
     private UserEntity validUserEntity(Long id) {
         var num = ThreadLocalRandom.current().nextInt(10_000) + 1;
         return UserEntity.builder()
                 .id(id)
                 .firstName("FirstName" + num)
                 .lastName("LastName")
-                .email("user" + num + "@user" + num + ".com")
+                .email("user" + EMAILS.incrementAndGet() + "@user" + num + ".com")
                 .birthDate(LocalDate.of(1950 + num, 1, 1))
                 .address(num + "str., Userwill, Australia, " + num)
                 .phoneNumber("+321" + num + "6" + num * 3 + "" + num * num + "")
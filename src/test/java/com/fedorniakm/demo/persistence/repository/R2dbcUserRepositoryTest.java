@@ -0,0 +1,137 @@
+package com.fedorniakm.demo.persistence.repository;
+
+import com.fedorniakm.demo.Application;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.persistence.entity.UserEntity;
+import com.fedorniakm.demo.service.DuplicateEmailException;
+import com.fedorniakm.demo.service.ReactiveUserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Runs against an in-memory H2 database shared by R2DBC and the JPA mapping that creates the schema.
+ */
+@SpringBootTest(classes = Application.class,
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        properties = {
+                "spring.main.web-application-type=reactive",
+                "spring.datasource.url=jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.r2dbc.url=r2dbc:h2:mem:///reactive?options=DB_CLOSE_DELAY=-1",
+                "spring.r2dbc.username=sa",
+                "spring.r2dbc.password="
+        })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class R2dbcUserRepositoryTest {
+
+    private static final AtomicInteger EMAILS = new AtomicInteger();
+
+    @Autowired
+    private ReactiveUserRepository userRepo;
+
+    @Autowired
+    private UserRepository jpaUserRepo;
+
+    @Autowired
+    private ReactiveUserService userService;
+
+    @Test
+    void testCreateUser_AssignsIdAndVersion() {
+        StepVerifier.create(userRepo.create(userEntity(LocalDate.of(1990, 1, 1))))
+                .assertNext(created -> {
+                    assertNotNull(created.getId());
+                    assertEquals(0L, created.getVersion());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testCreateUser_DoesNotClashWithJpaIds() {
+        var jpaUser = jpaUserRepo.create(userEntity(LocalDate.of(1990, 1, 1)));
+
+        StepVerifier.create(Flux.range(0, 60).concatMap(i -> userRepo.create(userEntity(LocalDate.of(1991, 1, 1)))))
+                .thenConsumeWhile(created -> !created.getId().equals(jpaUser.getId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testCreateUser_WhenEmailTaken_ThenServiceReportsDuplicateEmail() {
+        var created = userRepo.create(userEntity(LocalDate.of(1990, 1, 1))).block();
+        var duplicate = User.builder()
+                .email(created.getEmail().toUpperCase())
+                .firstName("First")
+                .lastName("Last")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .address(Optional.empty())
+                .phoneNumber(Optional.empty())
+                .build();
+
+        StepVerifier.create(userService.create(duplicate))
+                .expectError(DuplicateEmailException.class)
+                .verify();
+    }
+
+    @Test
+    void testGetAll_WithinRange_OrderedByBirthDate() {
+        Flux.just(LocalDate.of(2000, 1, 1), LocalDate.of(1980, 1, 1), LocalDate.of(1990, 1, 1), LocalDate.of(1970, 1, 1))
+                .concatMap(birthDate -> userRepo.create(userEntity(birthDate)))
+                .blockLast();
+
+        StepVerifier.create(userRepo.getAll(Optional.of(LocalDate.of(1975, 1, 1)), Optional.of(LocalDate.of(1995, 1, 1)))
+                        .map(UserEntity::getBirthDate), 1)
+                .expectNext(LocalDate.of(1980, 1, 1))
+                .thenRequest(1)
+                .expectNext(LocalDate.of(1990, 1, 1))
+                .verifyComplete();
+    }
+
+    @Test
+    void testUpdate_IncrementsVersion() {
+        var created = userRepo.create(userEntity(LocalDate.of(1990, 1, 1))).block();
+        created.setFirstName("Updated");
+        created.setAddress("Address");
+
+        StepVerifier.create(userRepo.update(created).then(userRepo.getById(created.getId())))
+                .assertNext(updated -> {
+                    assertEquals("Updated", updated.getFirstName());
+                    assertEquals("Address", updated.getAddress());
+                    assertEquals(1L, updated.getVersion());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testUpdateAndDelete_WhenNoUser_ThenFalse() {
+        var missing = userEntity(LocalDate.of(1990, 1, 1));
+        missing.setId(404L);
+
+        StepVerifier.create(userRepo.update(missing)).expectNext(false).verifyComplete();
+        StepVerifier.create(userRepo.deleteById(404L)).expectNext(false).verifyComplete();
+    }
+
+    @Test
+    void testDeleteById() {
+        var created = userRepo.create(userEntity(LocalDate.of(1990, 1, 1))).block();
+
+        StepVerifier.create(userRepo.deleteById(created.getId())).expectNext(true).verifyComplete();
+        StepVerifier.create(userRepo.getById(created.getId())).verifyComplete();
+    }
+
+    private static UserEntity userEntity(LocalDate birthDate) {
+        return new UserEntity(null, "user" + EMAILS.incrementAndGet() + "@mail.com", "First", "Last", birthDate,
+                null, null);
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.fedorniakm.demo.persistence.routing;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistencyTokenFilterTest {
+
+    private final ConsistencyTokenFilter filter = new ConsistencyTokenFilter(new ReplicaLag(Duration.ofMinutes(1)));
+
+    @Test
+    void testDoFilter_WriteIssuesTokenAndReadsFromPrimary() throws ServletException, IOException {
+        var primaryRequired = new AtomicBoolean();
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/v1/users"), response, recording(primaryRequired));
+
+        assertTrue(primaryRequired.get());
+        assertNotNull(response.getHeader(ConsistencyTokenFilter.CONSISTENCY_TOKEN));
+        assertFalse(ReadConsistency.isPrimaryRequired());
+    }
+
+    @Test
+    void testDoFilter_SlowWrite_TokenTakenAfterTheWrite() throws ServletException, IOException {
+        var slowFilter = new ConsistencyTokenFilter(new ReplicaLag(Duration.ofMillis(10)));
+        var primaryRequired = new AtomicBoolean();
+        var writtenAt = new AtomicLong();
+        var response = new MockHttpServletResponse();
+
+        slowFilter.doFilter(new MockHttpServletRequest("POST", "/v1/users"), response,
+                new MockFilterChain(new HttpServlet() {
+                    @Override
+                    protected void service(HttpServletRequest req, HttpServletResponse res) throws IOException {
+                        try {
+                            Thread.sleep(50);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        primaryRequired.set(ReadConsistency.isPrimaryRequired());
+                        res.getWriter().write("created");
+                        writtenAt.set(System.currentTimeMillis());
+                    }
+                }));
+
+        assertTrue(primaryRequired.get());
+        assertTrue(Long.parseLong(response.getHeader(ConsistencyTokenFilter.CONSISTENCY_TOKEN)) >= writtenAt.get());
+        assertEquals("created", response.getContentAsString());
+    }
+
+    @Test
+    void testDoFilter_ReadWithRecentToken_RequiresPrimary() throws ServletException, IOException {
+        var primaryRequired = new AtomicBoolean();
+        var request = new MockHttpServletRequest("GET", "/v1/users/1");
+        request.addHeader(ConsistencyTokenFilter.CONSISTENCY_TOKEN, String.valueOf(System.currentTimeMillis()));
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, recording(primaryRequired));
+
+        assertTrue(primaryRequired.get());
+        assertNull(response.getHeader(ConsistencyTokenFilter.CONSISTENCY_TOKEN));
+    }
+
+    @Test
+    void testDoFilter_ReadWithOldOrInvalidToken_MayUseReplica() throws ServletException, IOException {
+        var primaryRequired = new AtomicBoolean(true);
+        var old = new MockHttpServletRequest("GET", "/v1/users/1");
+        old.addHeader(ConsistencyTokenFilter.CONSISTENCY_TOKEN,
+                String.valueOf(System.currentTimeMillis() - Duration.ofMinutes(2).toMillis()));
+        var invalid = new MockHttpServletRequest("GET", "/v1/users/1");
+        invalid.addHeader(ConsistencyTokenFilter.CONSISTENCY_TOKEN, "latest");
+
+        filter.doFilter(old, new MockHttpServletResponse(), recording(primaryRequired));
+        assertFalse(primaryRequired.get());
+        primaryRequired.set(true);
+        filter.doFilter(invalid, new MockHttpServletResponse(), recording(primaryRequired));
+        assertFalse(primaryRequired.get());
+    }
+
+    private static MockFilterChain recording(AtomicBoolean primaryRequired) {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) {
+                primaryRequired.set(ReadConsistency.isPrimaryRequired());
+            }
+        });
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.fedorniakm.demo.persistence.routing;
+
+import com.fedorniakm.demo.Application;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against three in-memory H2 databases, a primary and two replicas. H2 does not replicate,
+ * so the test copies the primary to the replicas to let them catch up.
+ */
+@SpringBootTest(classes = Application.class,
+        properties = {
+                "spring.datasource.url=" + ReplicaRoutingTest.PRIMARY_URL,
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "user.datasource.replica-urls=" + ReplicaRoutingTest.REPLICA_0_URL + "," + ReplicaRoutingTest.REPLICA_1_URL,
+                "user.datasource.replica-lag=1m"
+        })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ReplicaRoutingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_0_URL = "jdbc:h2:mem:routing-replica-0;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_1_URL = "jdbc:h2:mem:routing-replica-1;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        catchUp();
+    }
+
+    @Test
+    void testReads_GoToReplicasUntilTheyCatchUp() throws SQLException {
+        var created = userService.create(user("lagging@mail.com"));
+
+        assertEquals(Optional.empty(), userService.getById(created.getId()));
+        assertEquals(Optional.empty(), userService.getById(created.getId()));
+        assertTrue(userService.getAll(Optional.empty(), Optional.empty()).isEmpty());
+
+        catchUp();
+
+        assertEquals(created.getEmail(), userService.getById(created.getId()).orElseThrow().getEmail());
+        assertEquals(1, userService.getAll(Optional.empty(), Optional.empty()).size());
+    }
+
+    @Test
+    void testReads_WhenPrimaryRequired_SeeOwnWrites() {
+        var created = userService.create(user("own@mail.com"));
+
+        try (var ignored = ReadConsistency.requirePrimaryUntil(System.currentTimeMillis() + 60_000)) {
+            assertEquals(created.getEmail(), userService.getById(created.getId()).orElseThrow().getEmail());
+            assertEquals(1, userService.getAll(Optional.empty(), Optional.empty()).size());
+            assertTrue(userService.getByEmail("own@mail.com").isPresent());
+        }
+        assertEquals(Optional.empty(), userService.getById(created.getId()));
+    }
+
+    @Test
+    void testWrites_GoToPrimaryEvenWhenReplicasLag() {
+        var created = userService.create(user("written@mail.com"));
+
+        assertTrue(userService.patch(created.getId(), UserPatch.builder().lastName("Patched").build()));
+
+        try (var ignored = ReadConsistency.requirePrimaryUntil(System.currentTimeMillis() + 60_000)) {
+            assertEquals("Patched", userService.getById(created.getId()).orElseThrow().getLastName());
+        }
+        assertTrue(userService.deleteById(created.getId()));
+    }
+
+    /**
+     * Copies the schema and the rows of the primary to the replicas.
+     */
+    private static void catchUp() throws SQLException {
+        var script = new ArrayList<String>();
+        try (var primary = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+             var statement = primary.createStatement();
+             var rows = statement.executeQuery("SCRIPT")) {
+            while (rows.next()) {
+                script.add(rows.getString(1));
+            }
+        }
+        for (var url : new String[] {REPLICA_0_URL, REPLICA_1_URL}) {
+            try (var replica = DriverManager.getConnection(url, "sa", "");
+                 var statement = replica.createStatement()) {
+                statement.execute("DROP ALL OBJECTS");
+                for (var sql : script) {
+                    statement.execute(sql);
+                }
+            }
+        }
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .email(email)
+                .firstName("First")
+                .lastName("Last")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .address(Optional.empty())
+                .phoneNumber(Optional.empty())
+                .build();
+    }
+
+}
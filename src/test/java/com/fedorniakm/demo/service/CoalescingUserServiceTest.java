@@ -0,0 +1,19 @@
+package com.fedorniakm.demo.service;
+
+import com.fedorniakm.demo.Application;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest(classes = Application.class, webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class CoalescingUserServiceTest extends UserServiceTest<CoalescingUserService> {
+
+    public CoalescingUserServiceTest(@Autowired CoalescingUserService coalescingUserService) {
+        super(coalescingUserService);
+    }
+
+}
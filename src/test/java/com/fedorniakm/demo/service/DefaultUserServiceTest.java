@@ -1,19 +1,77 @@
 package com.fedorniakm.demo.service;
 
 import com.fedorniakm.demo.Application;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
+import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 @SpringBootTest(classes = Application.class, webEnvironment = SpringBootTest.WebEnvironment.NONE)
 @AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 public class DefaultUserServiceTest extends UserServiceTest<DefaultUserService> {
 
+    private static final Optional<LocalDate> JAN_1990 = Optional.of(LocalDate.of(1990, 1, 1));
+    private static final Optional<LocalDate> JAN_2000 = Optional.of(LocalDate.of(2000, 1, 1));
+    private static final Optional<LocalDate> JAN_2010 = Optional.of(LocalDate.of(2010, 1, 1));
+    private static final byte[] BODY = "{\"data\":[]}".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private UserRangeCache userRangeCache;
+
     public DefaultUserServiceTest(@Autowired DefaultUserService defaultUserService) {
         super(defaultUserService);
     }
 
+    @Test
+    void testWritesById_InvalidateOnlyListingsOfOldAndNewBirthDates() {
+        var user = userService.create(user("ranged@mail.com", LocalDate.of(1995, 5, 5)));
+        cacheListings();
+
+        userService.patch(user.getId(), UserPatch.builder().lastName("Patched").build());
+
+        assertTrue(userRangeCache.get(JAN_1990, JAN_2000).isEmpty());
+        assertTrue(userRangeCache.get(JAN_2000, JAN_2010).isPresent());
+
+        cacheListings();
+        userService.patch(user.getId(), UserPatch.builder().birthDate(LocalDate.of(2005, 5, 5)).build());
+
+        assertTrue(userRangeCache.get(JAN_1990, JAN_2000).isEmpty());
+        assertTrue(userRangeCache.get(JAN_2000, JAN_2010).isEmpty());
+
+        cacheListings();
+        userService.deleteAll(List.of(user.getId()));
+
+        assertTrue(userRangeCache.get(JAN_1990, JAN_2000).isPresent());
+        assertTrue(userRangeCache.get(JAN_2000, JAN_2010).isEmpty());
+    }
+
+    private void cacheListings() {
+        var stamp = userRangeCache.stamp();
+        userRangeCache.put(JAN_1990, JAN_2000, stamp, "\"1\"", BODY);
+        userRangeCache.put(JAN_2000, JAN_2010, stamp, "\"2\"", BODY);
+    }
+
+    private static User user(String email, LocalDate birthDate) {
+        return User.builder()
+                .email(email)
+                .firstName("First")
+                .lastName("Last")
+                .birthDate(birthDate)
+                .address(Optional.empty())
+                .phoneNumber(Optional.empty())
+                .build();
+    }
+
 }
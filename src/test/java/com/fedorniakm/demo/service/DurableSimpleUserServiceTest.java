@@ -0,0 +1,34 @@
+package com.fedorniakm.demo.service;
+
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+import com.fedorniakm.demo.service.store.DurableUserStore;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Runs the service tests against {@link SimpleUserService} logging every change to disk.
+ */
+class DurableSimpleUserServiceTest extends UserServiceTest<SimpleUserService> {
+
+    private final Path directory;
+    private final DurableUserStore store;
+
+    DurableSimpleUserServiceTest() throws IOException {
+        super(null);
+        directory = Files.createTempDirectory("users");
+        store = DurableUserStore.open(directory, new UserPatcher(), Duration.ZERO, Duration.ZERO);
+        userService = new SimpleUserService(store);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.fedorniakm.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailFilterTest {
+
+    private final EmailFilter emailFilter = new EmailFilter(10_000, 0.01);
+
+    @Test
+    void testMightContain_BeforeLoad_ReportsEveryEmail() {
+        assertTrue(emailFilter.mightContain("nobody@mail.com"));
+        assertFalse(emailFilter.isLoaded());
+    }
+
+    @Test
+    void testMightContain_AddedEmails_IgnoringCase() {
+        emailFilter.load(Stream.of("loaded@mail.com"));
+        emailFilter.add("Added@Mail.com");
+
+        assertTrue(emailFilter.mightContain("LOADED@mail.com"));
+        assertTrue(emailFilter.mightContain("added@mail.com"));
+        assertFalse(emailFilter.mightContain("nobody@mail.com"));
+    }
+
+    @Test
+    void testMightContain_FalsePositivesWithinRate() {
+        emailFilter.load(IntStream.range(0, 10_000).mapToObj(i -> "user" + i + "@mail.com"));
+
+        var falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> emailFilter.mightContain("other" + i + "@mail.com"))
+                .count();
+
+        assertTrue(IntStream.range(0, 10_000).allMatch(i -> emailFilter.mightContain("user" + i + "@mail.com")));
+        assertTrue(falsePositives < 2_000, falsePositives + " false positives");
+    }
+
+    @Test
+    void testConstructor_RejectsInvalidRate() {
+        assertThrows(IllegalArgumentException.class, () -> new EmailFilter(100, 1.5));
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.fedorniakm.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IntervalIndexTest {
+
+    private static final Optional<LocalDate> JAN_1990 = Optional.of(LocalDate.of(1990, 1, 1));
+    private static final Optional<LocalDate> JAN_2000 = Optional.of(LocalDate.of(2000, 1, 1));
+    private static final Optional<LocalDate> JAN_2010 = Optional.of(LocalDate.of(2010, 1, 1));
+
+    private final IntervalIndex<String> index = new IntervalIndex<>();
+
+    @Test
+    void testContaining_BoundsAreExclusive() {
+        index.add("nineties", JAN_1990, JAN_2000);
+
+        assertEquals(Set.of(), index.containing(JAN_1990.get()));
+        assertEquals(Set.of("nineties"), index.containing(LocalDate.of(1990, 1, 2)));
+        assertEquals(Set.of("nineties"), index.containing(LocalDate.of(1999, 12, 31)));
+        assertEquals(Set.of(), index.containing(JAN_2000.get()));
+    }
+
+    @Test
+    void testContaining_OpenRanges() {
+        index.add("before2000", Optional.empty(), JAN_2000);
+        index.add("after1990", JAN_1990, Optional.empty());
+        index.add("all", Optional.empty(), Optional.empty());
+        index.add("noughties", JAN_2000, JAN_2010);
+
+        assertEquals(Set.of("before2000", "all"), index.containing(LocalDate.of(1950, 1, 1)));
+        assertEquals(Set.of("before2000", "after1990", "all"), index.containing(LocalDate.of(1995, 1, 1)));
+        assertEquals(Set.of("after1990", "all", "noughties"), index.containing(LocalDate.of(2005, 1, 1)));
+    }
+
+    @Test
+    void testOverlapping() {
+        index.add("nineties", JAN_1990, JAN_2000);
+        index.add("noughties", JAN_2000, JAN_2010);
+        index.add("after2010", JAN_2010, Optional.empty());
+
+        assertEquals(Set.of("nineties"), index.overlapping(Optional.empty(), Optional.of(LocalDate.of(1990, 1, 3))));
+        assertEquals(Set.of(), index.overlapping(Optional.empty(), Optional.of(LocalDate.of(1990, 1, 2))));
+        assertEquals(Set.of("nineties", "noughties"), index.overlapping(Optional.of(LocalDate.of(1995, 1, 1)),
+                Optional.of(LocalDate.of(2005, 1, 1))));
+        assertEquals(Set.of("nineties", "noughties", "after2010"), index.overlapping(Optional.empty(), Optional.empty()));
+        assertEquals(Set.of(), index.overlapping(Optional.of(LocalDate.of(1999, 12, 31)), JAN_2000));
+    }
+
+    @Test
+    void testRemove() {
+        index.add("nineties", JAN_1990, JAN_2000);
+        index.add("noughties", JAN_2000, JAN_2010);
+
+        index.remove("nineties");
+        index.add("noughties", JAN_1990, JAN_2010);
+
+        assertEquals(1, index.size());
+        assertEquals(Set.of("noughties"), index.containing(LocalDate.of(1995, 1, 1)));
+    }
+
+}
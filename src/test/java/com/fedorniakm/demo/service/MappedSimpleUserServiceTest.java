@@ -0,0 +1,35 @@
+package com.fedorniakm.demo.service;
+
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+import com.fedorniakm.demo.service.store.MappedUserStore;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs the service tests against {@link SimpleUserService} keeping the users in memory-mapped files.
+ */
+class MappedSimpleUserServiceTest extends UserServiceTest<SimpleUserService> {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final MappedUserStore store;
+
+    MappedSimpleUserServiceTest() throws IOException {
+        super(null);
+        directory = Files.createTempDirectory("users");
+        store = MappedUserStore.open(directory, CHUNK_SIZE, new UserPatcher());
+        userService = new SimpleUserService(store);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+}
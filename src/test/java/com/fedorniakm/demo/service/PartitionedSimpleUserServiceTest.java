@@ -0,0 +1,25 @@
+package com.fedorniakm.demo.service;
+
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+import com.fedorniakm.demo.service.store.PartitionedUserStore;
+import org.junit.jupiter.api.AfterEach;
+
+/**
+ * Runs the service tests against {@link SimpleUserService} with users split into partitions owned by threads.
+ */
+class PartitionedSimpleUserServiceTest extends UserServiceTest<SimpleUserService> {
+
+    private final PartitionedUserStore store;
+
+    PartitionedSimpleUserServiceTest() {
+        super(null);
+        store = new PartitionedUserStore(new UserPatcher(), 3);
+        userService = new SimpleUserService(store);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+}
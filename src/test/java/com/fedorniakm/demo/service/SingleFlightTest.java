@@ -0,0 +1,131 @@
+package com.fedorniakm.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void testLoad_ConcurrentCallersShareOneLoad() throws Exception {
+        var loads = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            var leader = executor.submit(() -> singleFlight.load(1L, () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "user";
+            }));
+            while (loads.get() == 0) {
+                Thread.onSpinWait();
+            }
+            var followers = new ArrayList<Future<String>>();
+            for (int i = 1; i < CALLERS; i++) {
+                followers.add(executor.submit(() -> singleFlight.load(1L, () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            while (singleFlight.getCoalesced() < CALLERS - 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertEquals("user", leader.get(5, TimeUnit.SECONDS));
+            for (var follower : followers) {
+                assertEquals("user", follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(CALLERS - 1, singleFlight.getCoalesced());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLoad_SequentialCallersLoadAgain() {
+        var loads = new AtomicInteger();
+
+        singleFlight.load(1L, () -> "v" + loads.incrementAndGet());
+        var second = singleFlight.load(1L, () -> "v" + loads.incrementAndGet());
+
+        assertEquals("v2", second);
+        assertEquals(0, singleFlight.getCoalesced());
+    }
+
+    @Test
+    void testLoad_FollowersReceiveLeaderException() throws Exception {
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            var leader = executor.submit(() -> singleFlight.load(1L, () -> {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("failed");
+            }));
+            started.await();
+            var follower = executor.submit(() -> singleFlight.load(1L, () -> "other"));
+            while (singleFlight.getCoalesced() == 0) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            var leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            var followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, leaderError.getCause());
+            assertInstanceOf(IllegalStateException.class, followerError.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testForget_LaterCallerDoesNotJoinLoadInFlight() throws Exception {
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var stale = executor.submit(() -> singleFlight.load(1L, () -> {
+                started.countDown();
+                await(release);
+                return "stale";
+            }));
+            started.await();
+
+            singleFlight.forget(1L);
+
+            assertEquals("fresh", singleFlight.load(1L, () -> "fresh"));
+            release.countDown();
+            assertEquals("stale", stale.get(5, TimeUnit.SECONDS));
+            assertEquals(0, singleFlight.getCoalesced());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.fedorniakm.demo.service;
+
+import com.fedorniakm.demo.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final UserCache userCache = new UserCache(DataSize.ofKilobytes(64));
+
+    @Test
+    void testGet_LoadsOnceThenHits() {
+        assertEquals(Optional.of(user(1L)), userCache.get(1L, this::load));
+        assertEquals(Optional.of(user(1L)), userCache.get(1L, this::load));
+
+        assertEquals(1, loads.get());
+        assertEquals(0.5, userCache.getHitRate());
+    }
+
+    @Test
+    void testGet_NotFoundIsNotCached() {
+        assertEquals(Optional.empty(), userCache.get(1L, id -> count(Optional.empty())));
+        assertEquals(Optional.empty(), userCache.get(1L, id -> count(Optional.empty())));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGet_ReturnsCopies() {
+        userCache.get(1L, this::load).orElseThrow().setFirstName("Changed");
+
+        assertEquals("First", userCache.get(1L, this::load).orElseThrow().getFirstName());
+    }
+
+    @Test
+    void testInvalidate_NextGetLoadsAgain() {
+        userCache.get(1L, this::load);
+        userCache.get(2L, this::load);
+
+        userCache.invalidate(1L);
+        userCache.get(1L, this::load);
+        userCache.get(2L, this::load);
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testInvalidateAll_NextGetsLoadAgain() {
+        userCache.get(1L, this::load);
+        userCache.get(2L, this::load);
+        userCache.get(3L, this::load);
+
+        userCache.invalidateAll(List.of(1L, 2L));
+        userCache.get(3L, this::load);
+        assertEquals(3, loads.get());
+
+        userCache.invalidateAll();
+        userCache.get(3L, this::load);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void testGet_EvictsBeyondMaxSize() {
+        var userBytes = UserCache.estimateBytes(user(1L));
+        for (long id = 0; id < 2 * DataSize.ofKilobytes(64).toBytes() / userBytes; id++) {
+            userCache.get(id, this::load);
+        }
+
+        var registry = new SimpleMeterRegistry();
+        userCache.bindTo(registry);
+        assertTrue(userCache.getEstimatedBytes() <= DataSize.ofKilobytes(64).toBytes());
+        assertTrue(userCache.getEvictionCount() > 0);
+        assertEquals(userCache.getEstimatedBytes(), registry.get("user.cache.bytes").gauge().value());
+    }
+
+    private Optional<User> load(Long id) {
+        return count(Optional.of(user(id)));
+    }
+
+    private Optional<User> count(Optional<User> user) {
+        loads.incrementAndGet();
+        return user;
+    }
+
+    private static User user(Long id) {
+        return new User(id, "user" + id + "@mail.com", "First", "Last", LocalDate.of(1990, 1, 1),
+                Optional.of("Address"), Optional.empty());
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.fedorniakm.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserRangeCacheTest {
+
+    private static final Optional<LocalDate> JAN_1990 = Optional.of(LocalDate.of(1990, 1, 1));
+    private static final Optional<LocalDate> JAN_2000 = Optional.of(LocalDate.of(2000, 1, 1));
+    private static final Optional<LocalDate> JAN_2010 = Optional.of(LocalDate.of(2010, 1, 1));
+    private static final byte[] BODY = "{\"data\":[]}".getBytes(StandardCharsets.UTF_8);
+
+    private final UserRangeCache cache = new UserRangeCache(DataSize.ofMegabytes(1), true);
+
+    @Test
+    void testPut_StoresBodyAndGzippedBody() throws IOException {
+        cache.put(JAN_1990, JAN_2000, cache.stamp(), "\"1\"", BODY);
+
+        var listing = cache.get(JAN_1990, JAN_2000).orElseThrow();
+        assertEquals("\"1\"", listing.eTag());
+        assertArrayEquals(BODY, listing.body());
+        try (var gzipIn = new GZIPInputStream(new ByteArrayInputStream(listing.gzippedBody()))) {
+            assertArrayEquals(BODY, gzipIn.readAllBytes());
+        }
+    }
+
+    @Test
+    void testPut_WithoutGzip() {
+        var plainCache = new UserRangeCache(DataSize.ofMegabytes(1), false);
+
+        assertNull(plainCache.put(JAN_1990, JAN_2000, plainCache.stamp(), "\"1\"", BODY).gzippedBody());
+    }
+
+    @Test
+    void testInvalidate_OnlyRangesContainingDate() {
+        cache.put(JAN_1990, JAN_2000, cache.stamp(), "\"1\"", BODY);
+        cache.put(JAN_2000, JAN_2010, cache.stamp(), "\"2\"", BODY);
+        cache.put(Optional.empty(), Optional.empty(), cache.stamp(), "\"3\"", BODY);
+
+        cache.invalidate(LocalDate.of(1995, 6, 1));
+
+        assertTrue(cache.get(JAN_1990, JAN_2000).isEmpty());
+        assertTrue(cache.get(JAN_2000, JAN_2010).isPresent());
+        assertTrue(cache.get(Optional.empty(), Optional.empty()).isEmpty());
+        assertEquals(2, cache.getInvalidatedListings());
+    }
+
+    @Test
+    void testInvalidate_MovedBirthDateInvalidatesBothRanges() {
+        cache.put(JAN_1990, JAN_2000, cache.stamp(), "\"1\"", BODY);
+        cache.put(JAN_2000, JAN_2010, cache.stamp(), "\"2\"", BODY);
+
+        cache.invalidate(List.of(LocalDate.of(1995, 6, 1), LocalDate.of(2005, 6, 1)));
+
+        assertTrue(cache.get(JAN_1990, JAN_2000).isEmpty());
+        assertTrue(cache.get(JAN_2000, JAN_2010).isEmpty());
+    }
+
+    @Test
+    void testInvalidate_OverlappingRange() {
+        cache.put(JAN_1990, JAN_2000, cache.stamp(), "\"1\"", BODY);
+        cache.put(JAN_2000, JAN_2010, cache.stamp(), "\"2\"", BODY);
+
+        cache.invalidate(Optional.empty(), Optional.of(LocalDate.of(1995, 1, 1)));
+
+        assertTrue(cache.get(JAN_1990, JAN_2000).isEmpty());
+        assertTrue(cache.get(JAN_2000, JAN_2010).isPresent());
+    }
+
+    @Test
+    void testPut_SkippedAfterConcurrentInvalidation() {
+        var stamp = cache.stamp();
+        cache.invalidate(LocalDate.of(1850, 1, 1));
+
+        cache.put(JAN_1990, JAN_2000, stamp, "\"1\"", BODY);
+
+        assertTrue(cache.get(JAN_1990, JAN_2000).isEmpty());
+    }
+
+}
@@ -1,14 +1,21 @@
 package com.fedorniakm.demo.service;
 
 import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserFields;
 import com.fedorniakm.demo.model.UserPatch;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -16,6 +23,8 @@ import static org.junit.jupiter.api.Assertions.*;
 
 abstract class UserServiceTest<T extends UserService> {
 
+    private static final AtomicInteger EMAILS = new AtomicInteger();
+
     protected T userService;
 
     protected UserServiceTest(T userService) {
@@ -35,6 +44,25 @@ abstract class UserServiceTest<T extends UserService> {
                 });
     }
 
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 120})
+    void testCreateAll_AssignsIdsInOrder(int userNumber) {
+        var users = IntStream.range(0, userNumber)
+                .mapToObj(i -> validUser())
+                .toList();
+
+        var createdUsers = userService.createAll(users);
+
+        assertThat(createdUsers.size()).isEqualTo(userNumber);
+        for (int i = 0; i < userNumber; i++) {
+            var createdUser = createdUsers.get(i);
+            assertNotNull(createdUser.getId(), "User Id is not populated while creating.");
+            assertEqualUsers(users.get(i), createdUser);
+            assertThat(userService.getById(createdUser.getId())).isPresent();
+        }
+        assertThat(userService.getAll().size()).isEqualTo(userNumber);
+    }
+
     @Test
     void testCreateUserAndFindById() {
         var user = new User(null,
@@ -78,6 +106,143 @@ abstract class UserServiceTest<T extends UserService> {
         assertThat(users.size()).isEqualTo(0);
     }
 
+    @Test
+    void testGetAll_WithFields() {
+        var user = userService.create(validUser());
+        var fields = UserFields.valueOf("id,email,phoneNumber");
+
+        var users = userService.getAll(Optional.empty(), Optional.empty(), fields);
+        var found = userService.getById(user.getId(), fields);
+
+        assertThat(users.size()).isEqualTo(1);
+        assertEquals(user.getId(), users.get(0).getId());
+        assertEquals(user.getEmail(), users.get(0).getEmail());
+        assertEquals(user.getPhoneNumber(), users.get(0).getPhoneNumber());
+        assertThat(found).isPresent();
+        assertEquals(user.getEmail(), found.get().getEmail());
+        assertNotNull(found.get().getVersion());
+        assertThat(userService.getById(99999L, fields)).isNotPresent();
+    }
+
+    @Test
+    void testGetByEmail_IgnoresCase() {
+        var user = userService.create(validUser());
+
+        var found = userService.getByEmail(user.getEmail().toUpperCase());
+
+        assertThat(found).isPresent();
+        assertEquals(user.getId(), found.get().getId());
+        assertThat(userService.getByEmail("nobody@user.com")).isNotPresent();
+    }
+
+    @Test
+    void testGetByEmail_AfterPatch() {
+        var user = userService.create(validUser());
+        var email = user.getEmail();
+
+        userService.patch(user.getId(), UserPatch.builder().email("patched." + email).build());
+
+        assertThat(userService.getByEmail(email)).isNotPresent();
+        assertEquals(user.getId(), userService.getByEmail("patched." + email).orElseThrow().getId());
+    }
+
+    @Test
+    void testCreate_DuplicateEmail() {
+        var user = userService.create(validUser());
+        var duplicate = validUser();
+        duplicate.setEmail(user.getEmail().toUpperCase());
+
+        assertThrows(DuplicateEmailException.class, () -> userService.create(duplicate));
+        assertThat(userService.getAll().size()).isEqualTo(1);
+    }
+
+    @Test
+    void testCreateAll_DuplicateEmail_CreatesNone() {
+        var user = userService.create(validUser());
+        var taken = validUser();
+        taken.setEmail(user.getEmail().toUpperCase());
+        var repeated = validUser();
+        var repeating = validUser();
+        repeating.setEmail(repeated.getEmail().toUpperCase());
+
+        assertThrows(RuntimeException.class, () -> userService.createAll(List.of(validUser(), taken)));
+        assertThrows(RuntimeException.class, () -> userService.createAll(List.of(validUser(), repeated, repeating)));
+        assertThat(userService.getAll().size()).isEqualTo(1);
+    }
+
+    @Test
+    void testGetTakenEmails_IgnoresCase() {
+        var user = userService.create(validUser());
+        var free = validUser().getEmail();
+
+        var taken = userService.getTakenEmails(List.of(user.getEmail().toUpperCase(), free));
+
+        assertEquals(Set.of(User.emailKey(user.getEmail())), taken);
+        assertTrue(userService.getTakenEmails(List.of()).isEmpty());
+    }
+
+    @Test
+    void testForEach_WithFilters() {
+        IntStream.of(1990, 1995, 1996, 1999).forEach(year -> {
+            var user = validUser();
+            user.setBirthDate(LocalDate.of(year, 1, 1));
+            userService.create(user);
+        });
+
+        var visited = new ArrayList<User>();
+        userService.forEach(Optional.of(LocalDate.of(1991, 5, 5)),
+                Optional.of(LocalDate.of(1998, 5, 5)),
+                visited::add);
+
+        var years = visited.stream().map(user -> user.getBirthDate().getYear()).sorted().toList();
+        assertThat(years).isEqualTo(List.of(1995, 1996));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 7, 50})
+    void testGetPage_WalksAllUsersInOrder(int limit) {
+        IntStream.range(0, 23)
+                .mapToObj(i -> validUser())
+                .forEach(userService::create);
+
+        var visited = new ArrayList<User>();
+        Optional<UserCursor> after = Optional.empty();
+        do {
+            var page = userService.getPage(Optional.empty(), Optional.empty(), after, limit);
+            assertThat(page.content().size()).isLessThanOrEqualTo(limit);
+            visited.addAll(page.content());
+            after = page.nextCursor();
+        } while (after.isPresent());
+
+        assertThat(visited.size()).isEqualTo(23);
+        assertThat(new HashSet<>(visited.stream().map(User::getId).toList()).size()).isEqualTo(23);
+        for (int i = 1; i < visited.size(); i++) {
+            assertThat(UserCursor.of(visited.get(i - 1)).compareTo(UserCursor.of(visited.get(i))))
+                    .isNegative();
+        }
+    }
+
+    @Test
+    void testGetPage_WithFilters() {
+        IntStream.of(1990, 1995, 1996, 1997, 1999).forEach(year -> {
+            var user = validUser();
+            user.setBirthDate(LocalDate.of(year, 1, 1));
+            userService.create(user);
+        });
+        var from = Optional.of(LocalDate.of(1991, 5, 5));
+        var to = Optional.of(LocalDate.of(1998, 5, 5));
+
+        var firstPage = userService.getPage(from, to, Optional.empty(), 2);
+        var lastPage = userService.getPage(from, to, firstPage.nextCursor(), 2);
+
+        assertThat(firstPage.content().size()).isEqualTo(2);
+        assertThat(firstPage.hasNext()).isTrue();
+        assertEquals(LocalDate.of(1995, 1, 1), firstPage.content().get(0).getBirthDate());
+        assertThat(lastPage.content().size()).isEqualTo(1);
+        assertThat(lastPage.hasNext()).isFalse();
+        assertEquals(LocalDate.of(1997, 1, 1), lastPage.content().get(0).getBirthDate());
+    }
+
     @Test
     void testDeleteById() {
         var user = validUser();
@@ -159,6 +324,124 @@ abstract class UserServiceTest<T extends UserService> {
         assertEquals(userPatch.getEmail(), patchedUser.get().getEmail());
     }
 
+    @Test
+    void testPatchAll_ByIds() {
+        var first = userService.create(validUser()).getId();
+        var second = userService.create(validUser()).getId();
+        var untouched = userService.create(validUser()).getId();
+        var userPatch = UserPatch.builder().lastName("BulkPatchedLastName").build();
+
+        var result = userService.patchAll(List.of(first, second, 99999L), userPatch);
+
+        assertThat(result).isEqualTo(2);
+        assertEquals("BulkPatchedLastName", userService.getById(first).orElseThrow().getLastName());
+        assertEquals("BulkPatchedLastName", userService.getById(second).orElseThrow().getLastName());
+        assertEquals("LastName", userService.getById(untouched).orElseThrow().getLastName());
+    }
+
+    @Test
+    void testPatchAll_ByRange() {
+        IntStream.of(1990, 1995, 1996, 1999).forEach(year -> {
+            var user = validUser();
+            user.setBirthDate(LocalDate.of(year, 1, 1));
+            userService.create(user);
+        });
+        var userPatch = UserPatch.builder()
+                .birthDate(LocalDate.of(1980, 1, 1))
+                .address("Bulk Address")
+                .build();
+
+        var result = userService.patchAll(Optional.of(LocalDate.of(1991, 5, 5)),
+                Optional.of(LocalDate.of(1998, 5, 5)), userPatch);
+
+        assertThat(result).isEqualTo(2);
+        var patched = userService.getAll(Optional.empty(), Optional.of(LocalDate.of(1985, 1, 1)));
+        assertThat(patched.size()).isEqualTo(2);
+        assertThat(patched.stream().allMatch(user -> user.getAddress().equals(Optional.of("Bulk Address"))))
+                .isTrue();
+        assertThat(userService.getAll(Optional.of(LocalDate.of(1991, 5, 5)),
+                Optional.of(LocalDate.of(1998, 5, 5))).size()).isEqualTo(0);
+    }
+
+    @Test
+    void testDeleteAll_ByIds() {
+        var first = userService.create(validUser()).getId();
+        var second = userService.create(validUser()).getId();
+        var kept = userService.create(validUser()).getId();
+
+        var result = userService.deleteAll(List.of(first, second, 99999L));
+
+        assertThat(result).isEqualTo(2);
+        assertThat(userService.getById(first)).isNotPresent();
+        assertThat(userService.getById(second)).isNotPresent();
+        assertThat(userService.getById(kept)).isPresent();
+    }
+
+    @Test
+    void testDeleteAll_ByRange() {
+        IntStream.of(1990, 1995, 1996, 1999).forEach(year -> {
+            var user = validUser();
+            user.setBirthDate(LocalDate.of(year, 1, 1));
+            userService.create(user);
+        });
+
+        var result = userService.deleteAll(Optional.of(LocalDate.of(1991, 5, 5)), Optional.empty());
+
+        assertThat(result).isEqualTo(3);
+        var remaining = userService.getAll();
+        assertThat(remaining.size()).isEqualTo(1);
+        assertEquals(LocalDate.of(1990, 1, 1), remaining.get(0).getBirthDate());
+        assertThat(userService.getPage(Optional.empty(), Optional.empty(), Optional.empty(), 10)
+                .content().size()).isEqualTo(1);
+    }
+
+    @Test
+    void testVersion_IncrementsOnEveryChange() {
+        var userId = userService.create(validUser()).getId();
+        var created = userService.getById(userId).orElseThrow();
+        var createdVersion = created.getVersion();
+        var createdAt = created.getUpdatedAt();
+
+        userService.patch(userId, UserPatch.builder().firstName("VersionPatched").build());
+        var patchedVersion = userService.getById(userId).orElseThrow().getVersion();
+        var replacement = validUser();
+        replacement.setId(userId);
+        userService.replace(replacement);
+        var replaced = userService.getById(userId).orElseThrow();
+
+        assertNotNull(createdVersion);
+        assertNotNull(createdAt);
+        assertEquals(createdVersion + 1, patchedVersion);
+        assertEquals(createdVersion + 2, replaced.getVersion());
+        assertThat(replaced.getUpdatedAt()).isAfterOrEqualTo(createdAt);
+    }
+
+    @Test
+    void testGetRevision_ChangesOnlyWithinRange() {
+        var inRange = validUser();
+        inRange.setBirthDate(LocalDate.of(1995, 1, 1));
+        var outOfRange = validUser();
+        outOfRange.setBirthDate(LocalDate.of(1985, 1, 1));
+        var inRangeId = userService.create(inRange).getId();
+        var outOfRangeId = userService.create(outOfRange).getId();
+        var from = Optional.of(LocalDate.of(1990, 1, 1));
+        var to = Optional.<LocalDate>empty();
+
+        var initial = userService.getRevision(from, to);
+        userService.patch(outOfRangeId, UserPatch.builder().lastName("Unrelated").build());
+        var afterUnrelatedPatch = userService.getRevision(from, to);
+        userService.patch(inRangeId, UserPatch.builder().lastName("Related").build());
+        var afterPatch = userService.getRevision(from, to);
+        userService.deleteById(inRangeId);
+        var afterDelete = userService.getRevision(from, to);
+
+        assertThat(initial.count()).isEqualTo(1);
+        assertEquals(initial.eTag(), afterUnrelatedPatch.eTag());
+        assertNotEquals(initial.eTag(), afterPatch.eTag());
+        assertNotEquals(afterPatch.eTag(), afterDelete.eTag());
+        assertThat(afterDelete.count()).isEqualTo(0);
+    }
+
     private void assertEqualUsers(User expected, User actual) {
         assertEquals(expected.getFirstName(), actual.getFirstName());
         assertEquals(expected.getLastName(), actual.getLastName());
@@ -173,7 +456,7 @@ abstract class UserServiceTest<T extends UserService> {
                 .id(null)
                 .firstName("FirstName" + num)
                 .lastName("LastName")
-                .email("user" + num + "@user" + num + ".com")
+                .email("user" + EMAILS.incrementAndGet() + "@user" + num + ".com")
                 .birthDate(LocalDate.of(1950 + num, 1, 1))
                 .address(Optional.of(num + "str., Userwill, Australia, " + num))
                 .phoneNumber(Optional.of("+321" + num + "6" + num * 3 + "" + num * num + ""))
@@ -0,0 +1,76 @@
+package com.fedorniakm.demo.service.mapper;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserFields;
+import com.fedorniakm.demo.persistence.entity.UserEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserMapperTest {
+
+    private final UserMapper sequential = new UserMapper(Integer.MAX_VALUE, 2);
+    private final UserMapper parallel = new UserMapper(1, 2);
+
+    @AfterEach
+    void shutdown() {
+        sequential.destroy();
+        parallel.destroy();
+    }
+
+    @Test
+    void testToUser_AllFields() {
+        var entity = entity(7);
+
+        var user = sequential.toUser(entity);
+
+        assertEquals(new User(7L, "user7@mail.com", "First", "Last", LocalDate.of(1957, 1, 1),
+                Optional.empty(), Optional.of("+380007")), user);
+        assertEquals(3L, user.getVersion());
+        assertEquals(Instant.EPOCH, user.getUpdatedAt());
+    }
+
+    @Test
+    void testToUser_OnlyRequestedFields() {
+        var user = sequential.toUser(entity(7), UserFields.valueOf("email,phoneNumber"));
+
+        assertEquals(new User(null, "user7@mail.com", null, null, null, null, Optional.of("+380007")), user);
+        assertEquals(3L, user.getVersion());
+    }
+
+    @Test
+    void testToUserEntity() {
+        var user = new User(7L, "user7@mail.com", "First", "Last", LocalDate.of(1957, 1, 1),
+                Optional.of("Address"), Optional.empty());
+
+        var entity = sequential.toUserEntity(user);
+
+        assertEquals(new UserEntity(7L, "user7@mail.com", "First", "Last", LocalDate.of(1957, 1, 1),
+                "Address", null), entity);
+        assertNull(entity.getVersion());
+    }
+
+    @Test
+    void testToUsers_ParallelKeepsOrder() {
+        var entities = IntStream.range(0, 1_000).mapToObj(UserMapperTest::entity).toList();
+
+        assertEquals(sequential.toUsers(entities), parallel.toUsers(entities));
+        assertEquals(sequential.toUsers(entities), parallel.toUsers(new LinkedList<>(entities)));
+        assertEquals(List.of(), parallel.toUsers(List.of()));
+    }
+
+    private static UserEntity entity(int i) {
+        return new UserEntity((long) i, "user" + i + "@mail.com", "First", "Last",
+                LocalDate.of(1950 + i % 50, 1, 1), null, "+38000" + i, 3L, Instant.EPOCH);
+    }
+
+}
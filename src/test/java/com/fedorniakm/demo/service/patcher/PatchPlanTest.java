@@ -0,0 +1,101 @@
+package com.fedorniakm.demo.service.patcher;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.persistence.entity.UserEntity;
+import lombok.Data;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatchPlanTest {
+
+    private final PatchPlan<User, UserPatch> userPlan = PatchPlan.of(User.class, UserPatch.class);
+    private final PatchPlan<UserEntity, UserPatch> entityPlan = PatchPlan.of(UserEntity.class, UserPatch.class);
+
+    @Test
+    void testOf_MatchesPatchFieldsOnly() {
+        assertEquals(List.of("email", "firstName", "lastName", "birthDate", "address", "phoneNumber"),
+                userPlan.fieldNames());
+    }
+
+    @Test
+    void testApply_SetsPresentFieldsAndWrapsOptionals() {
+        var user = user();
+
+        var changes = userPlan.apply(user, UserPatch.builder()
+                .lastName("Patched")
+                .birthDate(LocalDate.of(1991, 2, 2))
+                .address("Address")
+                .build());
+
+        assertEquals(List.of("lastName", "birthDate", "address"), changes.fieldNames());
+        assertTrue(changes.contains("address"));
+        assertFalse(changes.contains("email"));
+        assertEquals("user@mail.com", user.getEmail());
+        assertEquals("Patched", user.getLastName());
+        assertEquals(LocalDate.of(1991, 2, 2), user.getBirthDate());
+        assertEquals(Optional.of("Address"), user.getAddress());
+        assertEquals(Optional.empty(), user.getPhoneNumber());
+    }
+
+    @Test
+    void testApply_ReportsNoChangesForSameValues() {
+        var user = user();
+
+        var changes = userPlan.apply(user, UserPatch.builder().lastName("Last").email("user@mail.com").build());
+
+        assertTrue(changes.isEmpty());
+        assertTrue(userPlan.apply(user, new UserPatch()).isEmpty());
+    }
+
+    @Test
+    void testApply_PatchesEntityWithPlainValues() {
+        var entity = new UserEntity();
+        entity.setPhoneNumber("+380000000000");
+
+        var changes = entityPlan.apply(entity, UserPatch.builder()
+                .phoneNumber("+380000000000")
+                .address("Address")
+                .build());
+
+        assertEquals(List.of("address"), changes.fieldNames());
+        assertEquals("Address", entity.getAddress());
+    }
+
+    @Test
+    void testOf_RejectsUnmatchedField() {
+        assertThrows(IllegalArgumentException.class, () -> PatchPlan.of(User.class, NicknamePatch.class));
+        assertThrows(IllegalArgumentException.class, () -> PatchPlan.of(User.class, EmailAsNumberPatch.class));
+    }
+
+    private static User user() {
+        return User.builder()
+                .id(1L)
+                .email("user@mail.com")
+                .firstName("First")
+                .lastName("Last")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .address(Optional.empty())
+                .phoneNumber(Optional.empty())
+                .build();
+    }
+
+    @Data
+    public static class NicknamePatch {
+        private String nickname;
+    }
+
+    @Data
+    public static class EmailAsNumberPatch {
+        private Long email;
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.fedorniakm.demo.service.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BirthDayColumnTest {
+
+    @Test
+    void testSelect_VectorMatchesScalar() {
+        var random = new Random(42);
+        var days = random.ints(1_000, -5, 5).toArray();
+        var scalar = new int[days.length];
+        var vector = new int[days.length];
+
+        var count = DayScan.scalar().select(days, 3, days.length, -2, 1, scalar);
+
+        assertEquals(IntStream.range(3, days.length).filter(i -> days[i] >= -2 && days[i] <= 1).count(), count);
+        DayScan.vector().ifPresent(scan -> {
+            assertEquals(count, scan.select(days, 3, days.length, -2, 1, vector));
+            assertArrayEquals(Arrays.copyOf(scalar, count), Arrays.copyOf(vector, count));
+        });
+    }
+
+    @Test
+    void testSelect_HandlesExtremeDays() {
+        int[] days = {Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE};
+        var selection = new int[days.length];
+
+        assertEquals(4, DayScan.best().select(days, 0, 4, Integer.MIN_VALUE, Integer.MAX_VALUE, selection));
+        assertEquals(1, DayScan.best().select(days, 0, 4, Integer.MAX_VALUE, Integer.MAX_VALUE, selection));
+        assertEquals(3, selection[0]);
+    }
+
+    @Test
+    void testCollect_FindsRowsOfDaysWithinBoundsReusingSlots() {
+        var column = new BirthDayColumn<String>();
+        column.add(10, "a");
+        column.add(20, "b");
+        var removed = column.add(15, "c");
+        column.remove(removed);
+        var reused = column.add(30, "d");
+        column.set(reused, "e");
+
+        assertEquals(removed, reused);
+
+        assertEquals(List.of("a", "b"), collect(column, 10, 20));
+        assertEquals(List.of("a", "b", "e"), collect(column, Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(List.of(), collect(column, 21, 20));
+        assertEquals(List.of(), collect(column, Integer.MAX_VALUE + 1L, Long.MAX_VALUE));
+    }
+
+    @Test
+    void testCollect_SplitsLargeColumnsAcrossPool() {
+        var column = new BirthDayColumn<Integer>(DayScan.best(), 0);
+        var rows = 300_000;
+        for (int i = 0; i < rows; i++) {
+            column.add(i % 1_000, i);
+        }
+
+        var selected = column.collect(100, 199, Collectors.toList());
+
+        assertEquals(rows / 10, selected.size());
+        assertTrue(selected.stream().allMatch(row -> row % 1_000 >= 100 && row % 1_000 <= 199));
+    }
+
+    private static List<String> collect(BirthDayColumn<String> column, long from, long to) {
+        return column.collect(from, to, Collectors.toList()).stream().sorted().toList();
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompactUserTest {
+
+    private final Dictionary<String> names = new Dictionary<>(2, CompactUser::stringBytes);
+    private final Dictionary<String> domains = new Dictionary<>(2, CompactUser::stringBytes);
+
+    @Test
+    void testToUser_DecodesEveryField() {
+        var user = new User(7L, "jürgen.müller@mail.de", "Jürgen", "Müller", LocalDate.of(1960, 2, 29),
+                Optional.of("Straße 1"), Optional.empty(), 3L, Instant.parse("2024-05-06T07:08:09.123456789Z"));
+
+        var decoded = CompactUser.of(user, names, domains).toUser();
+
+        assertEquals(user, decoded);
+        assertEquals(user.getVersion(), decoded.getVersion());
+        assertEquals(user.getUpdatedAt(), decoded.getUpdatedAt());
+    }
+
+    @Test
+    void testOf_SharesRepeatingNamesUntilDictionaryIsFull() {
+        var first = CompactUser.of(user("a@mail.com", "Anna"), names, domains);
+        var second = CompactUser.of(user("b@mail.com", "Anna"), names, domains);
+        var third = CompactUser.of(user("c@other.com", "Olena"), names, domains);
+
+        assertSame(first.firstName(), second.firstName());
+        assertEquals("Olena", third.firstName());
+        assertEquals(0.5, names.hitRatio());
+        assertEquals(2, names.size());
+        assertEquals("c@other.com", third.email());
+    }
+
+    @Test
+    void testOf_KeepsEmailWithoutDomainAndAbsentValues() {
+        var user = user("no-domain", "Anna");
+        user.setAddress(null);
+
+        var compact = CompactUser.of(user, names, domains);
+
+        assertEquals("no-domain", compact.email());
+        assertEquals(Optional.empty(), compact.address());
+        assertNull(CompactUser.of(user("", null), names, domains).firstName());
+    }
+
+    @Test
+    void testOf_RejectsBirthDateBeyondIntEpochDays() {
+        var user = user("a@mail.com", "Anna");
+        user.setBirthDate(LocalDate.MIN);
+
+        assertThrows(IllegalArgumentException.class, () -> CompactUser.of(user, names, domains));
+    }
+
+    private static User user(String email, String firstName) {
+        return new User(1L, email, firstName, "Last", LocalDate.of(1990, 1, 1),
+                Optional.empty(), Optional.empty(), 0L, Instant.now());
+    }
+
+}
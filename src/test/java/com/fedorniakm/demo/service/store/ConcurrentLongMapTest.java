@@ -0,0 +1,104 @@
+package com.fedorniakm.demo.service.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentLongMapTest {
+
+    @Test
+    void testPutGetRemove_MatchesHashMap() {
+        var map = new ConcurrentLongMap<String>(4);
+        var expected = new HashMap<Long, String>();
+        var random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            // A narrow key range, so that keys are removed and put again across table resizes.
+            long key = random.nextInt(5_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = -1_000; key < 4_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        var values = new HashSet<String>();
+        map.forEach(values::add);
+        assertEquals(new HashSet<>(expected.values()), values);
+    }
+
+    @Test
+    void testComputeIfPresent() {
+        var map = new ConcurrentLongMap<String>();
+        map.put(1L, "one");
+
+        assertEquals("ONE", map.computeIfPresent(1L, String::toUpperCase));
+        assertNull(map.computeIfPresent(2L, String::toUpperCase));
+        assertNull(map.get(2L));
+        assertNull(map.computeIfPresent(1L, value -> null));
+        assertNull(map.get(1L));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void testClear() {
+        var map = new ConcurrentLongMap<String>();
+        for (long key = 0; key < 1_000; key++) {
+            map.put(key, "v");
+        }
+
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertNull(map.get(10L));
+    }
+
+    @Test
+    void testConcurrentWritesAndReads() throws Exception {
+        var map = new ConcurrentLongMap<Long>(2);
+        var threads = 4;
+        var keysPerThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                var offset = (long) t * keysPerThread;
+                futures.add(executor.submit(() -> {
+                    for (long key = offset; key < offset + keysPerThread; key++) {
+                        map.put(key, key);
+                        assertEquals(key, map.get(key));
+                        if (key % 2 == 0) {
+                            assertEquals(key, map.remove(key));
+                        }
+                    }
+                }));
+            }
+            for (var future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * keysPerThread / 2, map.size());
+        for (long key = 0; key < (long) threads * keysPerThread; key++) {
+            assertTrue(key % 2 == 0 ? map.get(key) == null : map.get(key) == key);
+        }
+    }
+
+}
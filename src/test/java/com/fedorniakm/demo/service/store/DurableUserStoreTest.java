@@ -0,0 +1,146 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurableUserStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testOpen_ReplaysLogOfPreviousRun() throws IOException {
+        long kept;
+        long patched;
+        long deleted;
+        try (var store = open()) {
+            kept = store.create(user("kept", 1990)).getId();
+            patched = store.create(user("patched", 1991)).getId();
+            deleted = store.create(user("deleted", 1992)).getId();
+            store.patch(patched, UserPatch.builder().birthDate(LocalDate.of(1980, 1, 1)).build());
+            store.deleteById(deleted);
+        }
+
+        try (var store = open()) {
+            assertEquals(2, store.size());
+            assertEquals("kept@mail.com", store.getById(kept).orElseThrow().getEmail());
+            var patchedUser = store.getById(patched).orElseThrow();
+            assertEquals(LocalDate.of(1980, 1, 1), patchedUser.getBirthDate());
+            assertEquals(1L, patchedUser.getVersion());
+            assertTrue(store.getById(deleted).isEmpty());
+            assertEquals(List.of(patched, kept), store.getAll().stream().map(User::getId).toList());
+            assertEquals(deleted + 1, store.create(user("next", 1993)).getId());
+        }
+    }
+
+    @Test
+    void testSnapshot_RecoversSnapshotAndLogAfterIt() throws IOException {
+        long last;
+        try (var store = open()) {
+            IntStream.range(0, 100).forEach(i -> store.create(user("user" + i, 1950 + i % 50)));
+            store.deleteById(100L);
+            store.snapshot();
+            store.patch(1L, UserPatch.builder().firstName("Patched").build());
+            store.deleteById(2L);
+            last = store.create(user("last", 1999)).getId();
+        }
+
+        assertArrayEquals(new long[] { 1L }, WriteAheadLog.segments(directory));
+        try (var store = open()) {
+            assertEquals(99, store.size());
+            assertEquals("Patched", store.getById(1L).orElseThrow().getFirstName());
+            assertTrue(store.getById(2L).isEmpty());
+            assertTrue(store.getById(100L).isEmpty());
+            assertEquals("last@mail.com", store.getById(last).orElseThrow().getEmail());
+            assertEquals(last + 1, store.create(user("next", 1993)).getId());
+        }
+    }
+
+    @Test
+    void testOpen_IgnoresTornRecordAtEndOfLog() throws IOException {
+        try (var store = open()) {
+            store.create(user("first", 1990));
+            store.create(user("second", 1991));
+        }
+        var segment = WriteAheadLog.segmentPath(directory, 0L);
+        try (var channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(segment) - 3);
+        }
+
+        try (var store = open()) {
+            assertEquals(1, store.size());
+            assertTrue(store.getById(1L).isPresent());
+            store.create(user("third", 1992));
+        }
+        try (var store = open()) {
+            assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    void testOpen_IgnoresRecordWithLengthBeyondEndOfLog() throws IOException {
+        try (var store = open()) {
+            store.create(user("first", 1990));
+        }
+        var segment = WriteAheadLog.segmentPath(directory, 0L);
+        Files.write(segment, new byte[] {0x7f, -1, -1, -1, 0, 0, 0, 0, 1}, StandardOpenOption.APPEND);
+
+        try (var store = open()) {
+            assertEquals(1, store.size());
+            store.create(user("second", 1991));
+        }
+        try (var store = open()) {
+            assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    void testCreate_SharesForcesBetweenConcurrentWriters() throws Exception {
+        var executor = Executors.newFixedThreadPool(8);
+        try (var store = DurableUserStore.open(directory, new UserPatcher(), Duration.ofMillis(5), Duration.ZERO)) {
+            IntStream.range(0, 400).forEach(i -> executor.submit(() -> store.create(user("user" + i, 1990))));
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+
+        try (var store = open()) {
+            assertEquals(400, store.size());
+        }
+    }
+
+    private DurableUserStore open() throws IOException {
+        return DurableUserStore.open(directory, new UserPatcher(), Duration.ZERO, Duration.ZERO);
+    }
+
+    private static User user(String name, int birthYear) {
+        return User.builder()
+                .email(name + "@mail.com")
+                .firstName("First")
+                .lastName("Last")
+                .birthDate(LocalDate.of(birthYear, 1, 1))
+                .address(Optional.empty())
+                .phoneNumber(Optional.empty())
+                .build();
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeapUserStoreTest {
+
+    private final HeapUserStore store = new HeapUserStore(new UserPatcher());
+
+    @Test
+    void testGetById_ReturnsImmutableVersion() {
+        var user = user("kept", 1990);
+        var id = store.create(user).getId();
+        user.setEmail("changed@mail.com");
+
+        var stored = store.getById(id).orElseThrow();
+
+        assertEquals("kept@mail.com", stored.getEmail());
+        assertThrows(UnsupportedOperationException.class, () -> stored.setEmail("changed@mail.com"));
+        var copy = stored.toBuilder().email("copy@mail.com").build();
+        assertEquals("copy@mail.com", copy.getEmail());
+    }
+
+    @Test
+    void testStream_SeesUsersAsOfItsStart() {
+        var first = store.create(user("first", 1990)).getId();
+        var second = store.create(user("second", 1991)).getId();
+
+        try (var users = store.stream(Optional.empty(), Optional.empty())) {
+            store.patch(first, UserPatch.builder().firstName("Patched").build());
+            store.deleteById(second);
+            store.create(user("third", 1992));
+
+            assertEquals(List.of("First", "First"), users.map(User::getFirstName).toList());
+        }
+        assertEquals(List.of("Patched", "First"),
+                store.getAll(Optional.empty(), Optional.empty()).stream().map(User::getFirstName).toList());
+    }
+
+    @Test
+    void testGetAll_IsConsistentWhileUsersMove() throws InterruptedException {
+        var count = 1_000;
+        store.createAll(IntStream.range(0, count).mapToObj(i -> user("user" + i, 1950 + i % 50)).toList());
+        var running = new AtomicBoolean(true);
+        var writer = new Thread(() -> {
+            var random = ThreadLocalRandom.current();
+            while (running.get()) {
+                store.patch(random.nextLong(1, count + 1),
+                        UserPatch.builder().birthDate(LocalDate.of(1950 + random.nextInt(50), 1, 1)).build());
+            }
+        });
+        writer.start();
+        try {
+            for (int i = 0; i < 200; i++) {
+                var users = store.getAll(Optional.empty(), Optional.empty());
+                assertEquals(count, users.size());
+                assertEquals(count, users.stream().map(User::getId).distinct().count());
+                assertEquals(count, store.getRevision(Optional.empty(), Optional.empty()).count());
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test
+    void testGetAll_SeesEveryCommitOfConcurrentWriters() throws InterruptedException {
+        var writers = new Thread[8];
+        for (int w = 0; w < writers.length; w++) {
+            var writer = w;
+            writers[w] = new Thread(() -> IntStream.range(0, 500)
+                    .forEach(i -> store.create(user("writer" + writer + "user" + i, 1950 + i % 50))));
+            writers[w].start();
+        }
+        for (var writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(4_000, store.getAll(Optional.empty(), Optional.empty()).size());
+        assertEquals(4_000, store.getRevision(Optional.empty(), Optional.empty()).count());
+    }
+
+    @Test
+    void testFootprint_CountsUsersAndDictionaryHits() {
+        store.createAll(IntStream.range(0, 100).mapToObj(i -> user("user" + i, 1990)).toList());
+        store.deleteById(1L);
+
+        var footprint = store.footprint();
+
+        assertEquals(99, footprint.users());
+        assertTrue(footprint.bytesPerUser() > 100 && footprint.bytesPerUser() < 400, footprint.toString());
+        assertEquals(0.99, footprint.domainHitRatio());
+        assertEquals(0.99, footprint.nameHitRatio());
+    }
+
+    @Test
+    void testWrites_WhenListenerFails_ThenNothingChanges() {
+        var failing = new AtomicBoolean();
+        var listened = new HeapUserStore(new UserPatcher(), new UserChangeListener() {
+            @Override
+            public void stored(User user) {
+                fail();
+            }
+
+            @Override
+            public void deleted(long id) {
+                fail();
+            }
+
+            private void fail() {
+                if (failing.get()) {
+                    throw new IllegalStateException("Not written");
+                }
+            }
+        });
+        var id = listened.create(user("kept", 1990)).getId();
+        failing.set(true);
+
+        assertThrows(IllegalStateException.class, () -> listened.create(user("lost", 1991)));
+        var move = UserPatch.builder().email("moved@mail.com").birthDate(LocalDate.of(2000, 1, 1)).build();
+        assertThrows(IllegalStateException.class, () -> listened.patch(id, move));
+        assertThrows(IllegalStateException.class, () -> listened.deleteById(id));
+
+        assertThrows(IllegalStateException.class,
+                () -> listened.createAll(List.of(user("batched", 1993), user("lost", 1994))));
+        assertEquals(1, listened.size());
+        assertEquals("kept@mail.com", listened.getById(id).orElseThrow().getEmail());
+        assertEquals(List.of(id),
+                listened.getAll(Optional.empty(), Optional.empty()).stream().map(User::getId).toList());
+        assertTrue(listened.getByEmail("kept@mail.com").isPresent());
+        failing.set(false);
+        listened.create(user("lost", 1991));
+        listened.create(user("moved", 1992));
+        listened.createAll(List.of(user("batched", 1993)));
+        assertEquals(4, listened.size());
+    }
+
+    @Test
+    void testForEach_WhileCommitStalls_ParksUntilVisible() throws Exception {
+        var stalled = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var listened = new HeapUserStore(new UserPatcher(), new UserChangeListener() {
+            @Override
+            public void stored(User user) {
+                stalled.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void deleted(long id) {
+            }
+        });
+        var writer = CompletableFuture.runAsync(() -> listened.create(user("stalled", 1990)));
+        stalled.await();
+        var seen = new ArrayList<User>();
+        var reader = new Thread(() -> listened.forEach(seen::add));
+        reader.start();
+
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (reader.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.TIMED_WAITING, reader.getState());
+        release.countDown();
+        writer.join();
+        reader.join(5_000);
+
+        assertEquals(List.of("stalled@mail.com"), seen.stream().map(User::getEmail).toList());
+    }
+
+    private static User user(String name, int birthYear) {
+        return User.builder()
+                .email(name + "@mail.com")
+                .firstName("First")
+                .lastName("Last")
+                .birthDate(LocalDate.of(birthYear, 1, 1))
+                .address(Optional.empty())
+                .phoneNumber(Optional.empty())
+                .build();
+    }
+
+}
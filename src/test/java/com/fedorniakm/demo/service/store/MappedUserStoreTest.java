@@ -0,0 +1,111 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedUserStoreTest {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testOpen_RemapsUsersOfPreviousRun() throws IOException {
+        long kept;
+        long patched;
+        long deleted;
+        try (var store = open()) {
+            kept = store.create(user("kept", 1990)).getId();
+            patched = store.create(user("patched", 1991)).getId();
+            deleted = store.create(user("deleted", 1992)).getId();
+            store.patch(patched, UserPatch.builder().birthDate(LocalDate.of(1980, 1, 1)).build());
+            store.deleteById(deleted);
+        }
+
+        try (var store = open()) {
+            assertEquals(2, store.size());
+            assertEquals("kept@mail.com", store.getById(kept).orElseThrow().getEmail());
+            var patchedUser = store.getById(patched).orElseThrow();
+            assertEquals(LocalDate.of(1980, 1, 1), patchedUser.getBirthDate());
+            assertEquals(1L, patchedUser.getVersion());
+            assertTrue(store.getById(deleted).isEmpty());
+            assertEquals(List.of(patched, kept), store.getAll().stream().map(User::getId).toList());
+            assertEquals(deleted + 1, store.create(user("next", 1993)).getId());
+        }
+    }
+
+    @Test
+    void testCreate_SpreadsRecordsOverChunks() throws IOException {
+        try (var store = open()) {
+            var ids = IntStream.range(0, 200)
+                    .mapToObj(i -> store.create(user("user" + i, 1950 + i)).getId())
+                    .toList();
+
+            assertTrue(Files.exists(directory.resolve("users-00002.dat")));
+            assertEquals(ids, store.getAll().stream().map(User::getId).toList());
+            assertEquals("user199@mail.com", store.getById(ids.get(199)).orElseThrow().getEmail());
+        }
+    }
+
+    @Test
+    void testGetById_ReturnsReadOnlyViewSerializedLikeUser() throws IOException {
+        var objectMapper = new ObjectMapper().registerModule(new Jdk8Module()).registerModule(new JavaTimeModule());
+        try (var store = open()) {
+            var user = store.create(user("viewed", 1990));
+            user.setPhoneNumber(Optional.of("+380000000000"));
+            store.replace(user);
+
+            var view = store.getById(user.getId()).orElseThrow();
+
+            assertEquals(user, view);
+            assertEquals(objectMapper.writeValueAsString(user), objectMapper.writeValueAsString(view));
+            assertThrows(UnsupportedOperationException.class, () -> view.setEmail("changed@mail.com"));
+        }
+    }
+
+    @Test
+    void testCreate_RejectsRecordLargerThanChunk() throws IOException {
+        try (var store = open()) {
+            var user = user("large", 1990);
+            user.setAddress(Optional.of("a".repeat(CHUNK_SIZE)));
+
+            assertThrows(IllegalArgumentException.class, () -> store.create(user));
+            assertEquals(0, store.size());
+        }
+    }
+
+    private MappedUserStore open() throws IOException {
+        return MappedUserStore.open(directory, CHUNK_SIZE, new UserPatcher());
+    }
+
+    private static User user(String name, int birthYear) {
+        return User.builder()
+                .email(name + "@mail.com")
+                .firstName("First")
+                .lastName("Last")
+                .birthDate(LocalDate.of(birthYear, 1, 1))
+                .address(Optional.empty())
+                .phoneNumber(Optional.empty())
+                .build();
+    }
+
+}
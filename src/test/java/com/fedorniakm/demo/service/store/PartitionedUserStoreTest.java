@@ -0,0 +1,144 @@
+package com.fedorniakm.demo.service.store;
+
+import com.fedorniakm.demo.model.User;
+import com.fedorniakm.demo.model.UserCursor;
+import com.fedorniakm.demo.model.UserPatch;
+import com.fedorniakm.demo.service.DuplicateEmailException;
+import com.fedorniakm.demo.service.patcher.UserPatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedUserStoreTest {
+
+    private final PartitionedUserStore store = new PartitionedUserStore(new UserPatcher(), 4);
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void testCreateAll_SpreadsUsersAndIdsAcrossPartitions() {
+        var users = store.createAll(IntStream.range(0, 100).mapToObj(i -> user(i, 1950 + i % 30)).toList());
+
+        var partitions = users.stream()
+                .map(user -> UserPartition.indexOf(user.getId(), 4))
+                .collect(Collectors.toSet());
+        assertEquals(Set.of(0, 1, 2, 3), partitions);
+        assertEquals(100, users.stream().map(User::getId).distinct().count());
+        assertTrue(users.stream().allMatch(user -> store.getById(user.getId()).isPresent()));
+        assertEquals(100, store.size());
+    }
+
+    @Test
+    void testGetPage_MergesPartitionsInOrder() {
+        store.createAll(IntStream.range(0, 50).mapToObj(i -> user(i, 1990 - i % 10)).toList());
+
+        var all = store.getAll(Optional.of(LocalDate.of(1980, 12, 31)), Optional.empty());
+        var page = store.getPage(Optional.empty(), Optional.empty(), Optional.of(UserCursor.of(all.get(9))), 10);
+
+        assertEquals(50, all.size());
+        var order = Comparator.comparing(UserCursor::of);
+        assertEquals(all.stream().sorted(order).toList(), all);
+        assertEquals(all.subList(10, 20), page);
+        assertEquals(25, store.deleteAll(Optional.empty(), Optional.of(LocalDate.of(1986, 1, 1))));
+        assertEquals(25, store.getRevision(Optional.empty(), Optional.empty()).count());
+    }
+
+    @Test
+    void testStream_MergesPagesOfPartitionsInOrder() {
+        store.createAll(IntStream.range(0, 2_000).mapToObj(i -> user(i, 1950 + i % 40)).toList());
+        var from = Optional.of(LocalDate.of(1959, 12, 31));
+
+        try (var users = store.stream(from, Optional.empty())) {
+            assertEquals(store.getAll(from, Optional.empty()), users.toList());
+        }
+        try (var users = store.stream(Optional.empty(), Optional.empty())) {
+            assertEquals(store.getPage(Optional.empty(), Optional.empty(), Optional.empty(), 10),
+                    users.limit(10).toList());
+        }
+    }
+
+    @Test
+    void testWrites_SameEmailAtOnce_OnlyOneSucceeds() {
+        var others = store.createAll(IntStream.range(0, 8).mapToObj(i -> user(i, 1990)).toList());
+        var barrier = new CyclicBarrier(16);
+        var writes = IntStream.range(0, 16)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
+                    await(barrier);
+                    try {
+                        if (i < 8) {
+                            return store.patch(others.get(i).getId(), UserPatch.builder().email("same@mail.com").build());
+                        }
+                        store.create(user(100 + i, 1990).toBuilder().email("SAME@mail.com").build());
+                        return true;
+                    } catch (DuplicateEmailException e) {
+                        return false;
+                    }
+                }))
+                .toList();
+
+        assertEquals(1, writes.stream().filter(CompletableFuture::join).count());
+        assertTrue(store.getByEmail("same@mail.com").isPresent());
+        assertEquals(1, store.getAll().stream().filter(user -> user.getEmail().equalsIgnoreCase("same@mail.com")).count());
+    }
+
+    @Test
+    void testWrites_ReleaseEmailsNoLongerHeld() {
+        var users = store.createAll(List.of(user(1, 1990), user(2, 1990)));
+
+        assertThrows(DuplicateEmailException.class,
+                () -> store.createAll(List.of(user(3, 1990), user(1, 1990))));
+        assertFalse(store.getByEmail("user3@mail.com").isPresent());
+        assertTrue(store.patch(users.get(0).getId(), UserPatch.builder().email("moved@mail.com").build()));
+        assertFalse(store.getByEmail("user1@mail.com").isPresent());
+        assertTrue(store.deleteById(users.get(1).getId()));
+
+        store.createAll(List.of(user(1, 1990), user(2, 1990), user(3, 1990)));
+        assertEquals(4, store.size());
+        assertEquals(users.get(0).getId(), store.getByEmail("MOVED@mail.com").orElseThrow().getId());
+    }
+
+    @Test
+    void testClose_RejectsOperations() {
+        store.create(user(1, 1990));
+        store.close();
+
+        assertThrows(IllegalStateException.class, () -> store.getById(1L));
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static User user(int i, int year) {
+        return User.builder()
+                .email("user" + i + "@mail.com")
+                .firstName("First" + i)
+                .lastName("Last" + i)
+                .birthDate(LocalDate.of(year, 1, 1))
+                .address(Optional.empty())
+                .phoneNumber(Optional.empty())
+                .build();
+    }
+
+}
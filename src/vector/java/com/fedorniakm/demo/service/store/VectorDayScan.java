@@ -0,0 +1,49 @@
+package com.fedorniakm.demo.service.store;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Compares as many days at once as the preferred vector of the CPU holds, leaving the tail to a scalar loop.
+ * Compiled with the {@code vector} Maven profile only, and loaded when the Vector API module is,
+ * see {@link DayScan#vector()}.
+ */
+class VectorDayScan implements DayScan {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public int select(int[] days, int start, int end, int from, int to, int[] selection) {
+        var width = to - from;
+        var count = 0;
+        var lanes = SPECIES.length();
+        var i = start;
+        for (var bound = start + SPECIES.loopBound(end - start); i < bound; i += lanes) {
+            var matches = IntVector.fromArray(SPECIES, days, i)
+                    .sub(from)
+                    .compare(VectorOperators.UNSIGNED_LE, width);
+            if (matches.allTrue()) {
+                for (int lane = 0; lane < lanes; lane++) {
+                    selection[count++] = i + lane;
+                }
+            } else if (matches.anyTrue()) {
+                for (int lane = 0; lane < lanes; lane++) {
+                    selection[count] = i + lane;
+                    count += matches.laneIsSet(lane) ? 1 : 0;
+                }
+            }
+        }
+        for (; i < end; i++) {
+            selection[count] = i;
+            count += Integer.compareUnsigned(days[i] - from, width) <= 0 ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "vector, " + SPECIES.length() + " lanes";
+    }
+
+}